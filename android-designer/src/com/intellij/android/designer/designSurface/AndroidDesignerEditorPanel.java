@@ -118,6 +118,8 @@ public final class AndroidDesignerEditorPanel extends DesignerEditorPanel implem
   private final AndroidFacet myFacet;
   private volatile RenderSession mySession;
   private volatile long mySessionId;
+  /** The result shown, whose render session stays checked out of the session cache while its image and views are used */
+  private RenderResult myRenderResult;
   private final Lock myRendererLock = new ReentrantLock();
   private WrapInProvider myWrapInProvider;
   private RootView myRootView;
@@ -539,6 +541,9 @@ public final class AndroidDesignerEditorPanel extends DesignerEditorPanel implem
           }
 
           if (sessionId != mySessionId) {
+            if (renderResult != null) {
+              renderResult.dispose();
+            }
             cancel();
             return;
           }
@@ -556,10 +561,13 @@ public final class AndroidDesignerEditorPanel extends DesignerEditorPanel implem
                 if (!isProjectClosed()) {
                   hideProgress();
                   if (sessionId == mySessionId) {
+                    setRenderResult(renderResult);
                     runnable.consume(renderResult);
                     updateErrors(renderResult);
+                    return;
                   }
                 }
+                renderResult.dispose();
               }
               catch (Throwable e) {
                 myPsiChangeListener.clear();
@@ -616,6 +624,14 @@ public final class AndroidDesignerEditorPanel extends DesignerEditorPanel implem
     }
   }
 
+  /** Replaces the result shown, releasing the session of the previous one */
+  private void setRenderResult(@Nullable RenderResult renderResult) {
+    if (myRenderResult != null && myRenderResult != renderResult) {
+      myRenderResult.dispose();
+    }
+    myRenderResult = renderResult;
+  }
+
   private void updateRenderer(final boolean updateProperties) {
     if (myConfiguration == null) {
       return;
@@ -787,6 +803,7 @@ public final class AndroidDesignerEditorPanel extends DesignerEditorPanel implem
     super.dispose();
 
     disposeRenderer();
+    setRenderResult(null);
 
     if (myPreviewManager != null) {
       myPreviewManager.dispose();
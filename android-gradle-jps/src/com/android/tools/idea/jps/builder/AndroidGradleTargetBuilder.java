@@ -20,11 +20,14 @@ import com.android.tools.idea.gradle.util.LocalProperties;
 import com.android.tools.idea.jps.AndroidGradleJps;
 import com.android.tools.idea.jps.model.JpsAndroidGradleModuleExtension;
 import com.android.tools.idea.jps.output.parser.GradleErrorOutputParser;
+import com.android.tools.idea.jps.output.parser.LineOutputStream;
+import com.android.tools.idea.jps.output.parser.StreamingErrorOutputParser;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.Consumer;
 import com.intellij.util.SystemProperties;
 import org.gradle.tooling.BuildException;
 import org.gradle.tooling.BuildLauncher;
@@ -274,15 +277,22 @@ public class AndroidGradleTargetBuilder extends TargetBuilder<AndroidGradleBuild
     return null;
   }
 
-  private static void doBuild(@NotNull CompileContext context,
+  private static void doBuild(@NotNull final CompileContext context,
                               @NotNull String[] buildTasks,
                               @NotNull BuilderExecutionSettings executionSettings,
                               @Nullable String androidHome) throws ProjectBuildException {
     GradleConnector connector = getGradleConnector(executionSettings);
 
     ProjectConnection connection = connector.connect();
-    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
-    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    // Both outputs are processed line by line while Gradle runs, instead of being buffered until the end: errors show up as soon as
+    // they are reported, and large builds don't keep all of their output in memory.
+    ProgressOutputStream stdout = new ProgressOutputStream(context);
+    StreamingErrorOutputParser stderr = ERROR_OUTPUT_PARSER.createStreamingParser(new Consumer<CompilerMessage>() {
+      @Override
+      public void consume(CompilerMessage message) {
+        context.processMessage(message);
+      }
+    });
 
     try {
       BuildLauncher launcher = connection.newBuild();
@@ -317,11 +327,10 @@ public class AndroidGradleTargetBuilder extends TargetBuilder<AndroidGradleBuild
       launcher.run();
     }
     catch (BuildException e) {
-      handleBuildException(e, context, stderr.toString());
+      Closeables.closeQuietly(stderr);
+      handleBuildException(e, context, stderr);
     }
     finally {
-      String outText = stdout.toString();
-      context.processMessage(new ProgressMessage(outText, 1.0f));
       Closeables.closeQuietly(stdout);
       Closeables.closeQuietly(stderr);
       connection.close();
@@ -366,16 +375,17 @@ public class AndroidGradleTargetBuilder extends TargetBuilder<AndroidGradleBuild
    * Something went wrong while invoking Gradle. Since we cannot distinguish an execution error from compilation errors easily, we first try
    * to show, in the "Problems" view, compilation errors by parsing the error output. If no errors are found, we show the stack trace in the
    * "Problems" view. The idea is that we need to somehow inform the user that something went wrong.
+   * <p>
+   * The error output has already been parsed while the build was running, and the messages found were reported as soon as they were
+   * recognized.
    */
-  private static void handleBuildException(BuildException e, CompileContext context, String stdErr) throws ProjectBuildException {
-    Collection<CompilerMessage> compilerMessages = ERROR_OUTPUT_PARSER.parseErrorOutput(stdErr);
-    if (!compilerMessages.isEmpty()) {
-      for (CompilerMessage message : compilerMessages) {
-        context.processMessage(message);
-      }
+  private static void handleBuildException(BuildException e, CompileContext context, StreamingErrorOutputParser stdErrParser)
+    throws ProjectBuildException {
+    if (stdErrParser.getMessageCount() > 0 && !stdErrParser.isFailed()) {
       return;
     }
     // There are no error messages to present. Show some feedback indicating that something went wrong.
+    String stdErr = stdErrParser.getText();
     if (!stdErr.isEmpty()) {
       // Show the contents of stderr as a compiler error.
       context.processMessage(createCompilerErrorMessage(stdErr));
@@ -406,4 +416,29 @@ public class AndroidGradleTargetBuilder extends TargetBuilder<AndroidGradleBuild
   public String getPresentableName() {
     return BUILDER_NAME;
   }
+
+  /**
+   * Reports each line of Gradle's standard output as progress, as soon as it is written.
+   */
+  private static class ProgressOutputStream extends LineOutputStream {
+    @NotNull private final CompileContext myContext;
+    @Nullable private String myLastLine;
+
+    ProgressOutputStream(@NotNull CompileContext context) {
+      myContext = context;
+    }
+
+    @Override
+    protected void lineRead(@NotNull String line) {
+      if (!line.trim().isEmpty()) {
+        myContext.processMessage(new ProgressMessage(line));
+        myLastLine = line;
+      }
+    }
+
+    @Override
+    protected void endOfOutput() {
+      myContext.processMessage(new ProgressMessage(Strings.nullToEmpty(myLastLine), 1.0f));
+    }
+  }
 }
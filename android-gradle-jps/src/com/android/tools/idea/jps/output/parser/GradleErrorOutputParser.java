@@ -20,6 +20,7 @@ import com.android.tools.idea.jps.output.parser.androidPlugin.AndroidPluginOutpu
 import com.android.tools.idea.jps.output.parser.javac.JavacOutputParser;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.intellij.util.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 
@@ -62,4 +63,16 @@ public class GradleErrorOutputParser {
     }
     return messages;
   }
+
+  /**
+   * Creates a parser for Gradle's error output which parses the output while it is being written, instead of all at once after the
+   * build finished. It can parse the same errors as {@link #parseErrorOutput(String)}.
+   *
+   * @param consumer receives the error/warning messages as soon as they are recognized.
+   * @return the stream to write the error output to. It must be closed at the end of the output.
+   */
+  @NotNull
+  public StreamingErrorOutputParser createStreamingParser(@NotNull Consumer<CompilerMessage> consumer) {
+    return new StreamingErrorOutputParser(PARSERS, consumer);
+  }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.jps.output.parser;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that splits the text written to it into lines and passes them on as soon as they are complete. Only the current line
+ * is buffered; overly long lines are split.
+ */
+public abstract class LineOutputStream extends OutputStream {
+  private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  private final ByteArrayOutputStream myLine = new ByteArrayOutputStream();
+  private boolean myClosed;
+
+  @Override
+  public synchronized void write(int b) throws IOException {
+    if (b == '\n') {
+      flushLine();
+    }
+    else {
+      myLine.write(b);
+      if (myLine.size() >= MAX_LINE_LENGTH) {
+        flushLine();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void write(@NotNull byte[] b, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      write(b[i]);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (myClosed) {
+      return;
+    }
+    myClosed = true;
+    if (myLine.size() > 0) {
+      flushLine();
+    }
+    endOfOutput();
+  }
+
+  private void flushLine() throws IOException {
+    String line = myLine.toString();
+    myLine.reset();
+    if (line.endsWith("\r")) {
+      line = line.substring(0, line.length() - 1);
+    }
+    lineRead(line);
+  }
+
+  /**
+   * Invoked for each line written to this stream, without the line separator.
+   */
+  protected abstract void lineRead(@NotNull String line) throws IOException;
+
+  /**
+   * Invoked once when this stream is closed, after the last line.
+   */
+  protected void endOfOutput() throws IOException {
+  }
+}
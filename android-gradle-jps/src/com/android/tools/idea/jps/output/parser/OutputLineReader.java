@@ -15,34 +15,55 @@
  */
 package com.android.tools.idea.jps.output.parser;
 
+import com.google.common.collect.Lists;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
  * Reads a compiler's output line-by-line.
+ * <p>
+ * In streaming mode, lines are added as they are received. Reading past the lines received so far then returns
+ * {@code null} as if the output ended, but records that more lines were needed (see {@link #isEndReached()}), so
+ * the caller can parse the line again once more output arrived.
  */
 public class OutputLineReader {
   private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
 
-  @NotNull private final String[] myLines;
+  @NotNull private final List<String> myLines;
 
-  private final int myLineCount;
+  /** Number of lines discarded from the beginning of {@link #myLines} in streaming mode */
+  private int myDiscardedLineCount;
   private int myPosition;
 
+  private boolean myComplete;
+  private boolean myEndReached;
+
   /**
    * Creates a new {@link OutputLineReader}.
    *
    * @param text the text to read.
    */
   OutputLineReader(@NotNull String text) {
-    myLines = LINE_BREAK.split(text);
-    myLineCount = myLines.length;
+    myLines = Arrays.asList(LINE_BREAK.split(text));
+    myComplete = true;
+  }
+
+  /**
+   * Creates a new {@link OutputLineReader} in streaming mode, see {@link #addLine(String)}.
+   */
+  OutputLineReader() {
+    myLines = Lists.newArrayList();
   }
 
   public int getLineCount() {
-    return myLineCount;
+    if (!myComplete) {
+      myEndReached = true;
+    }
+    return myDiscardedLineCount + myLines.size();
   }
 
   /**
@@ -52,9 +73,10 @@ public class OutputLineReader {
    */
   @Nullable
   public String readLine() {
-    if (myPosition >= 0 && myPosition < myLineCount) {
-      return myLines[myPosition++];
+    if (myPosition >= 0 && myPosition < myLines.size()) {
+      return myLines.get(myPosition++);
     }
+    checkEndReached(myPosition);
     return null;
   }
 
@@ -67,14 +89,19 @@ public class OutputLineReader {
   @Nullable
   public String peek(int lineToSkipCount) {
     int tempPosition = lineToSkipCount + myPosition;
-    if (tempPosition >= 0 && tempPosition < myLineCount) {
-      return myLines[tempPosition];
+    if (tempPosition >= 0 && tempPosition < myLines.size()) {
+      return myLines.get(tempPosition);
     }
+    checkEndReached(tempPosition);
     return null;
   }
 
   public boolean hasNextLine() {
-    return myPosition < myLineCount - 1;
+    if (myPosition < myLines.size() - 1) {
+      return true;
+    }
+    checkEndReached(myPosition + 1);
+    return false;
   }
 
   public void skipNextLine() {
@@ -84,4 +111,67 @@ public class OutputLineReader {
   public void pushBack(@NotNull String text) {
     myPosition--;
   }
+
+  private void checkEndReached(int position) {
+    if (!myComplete && position >= myLines.size()) {
+      myEndReached = true;
+    }
+  }
+
+  /**
+   * Adds a line received in streaming mode.
+   */
+  void addLine(@NotNull String line) {
+    assert !myComplete;
+    myLines.add(line);
+  }
+
+  /**
+   * Indicates that all lines were received in streaming mode.
+   */
+  void setComplete() {
+    myComplete = true;
+  }
+
+  boolean isComplete() {
+    return myComplete;
+  }
+
+  /**
+   * @return whether a line past the ones received so far was asked for since the last {@link #resetEndReached()}.
+   */
+  boolean isEndReached() {
+    return myEndReached;
+  }
+
+  void resetEndReached() {
+    myEndReached = false;
+  }
+
+  /**
+   * @return the number of received lines the line pointer did not pass yet.
+   */
+  int getAvailableLineCount() {
+    return Math.max(0, myLines.size() - myPosition);
+  }
+
+  int getPosition() {
+    return myPosition;
+  }
+
+  void setPosition(int position) {
+    myPosition = position;
+  }
+
+  /**
+   * Drops the lines before the line pointer in streaming mode, which will not be read again.
+   */
+  void discardReadLines() {
+    int count = Math.min(myPosition, myLines.size());
+    if (count > 0) {
+      myLines.subList(0, count).clear();
+      myDiscardedLineCount += count;
+      myPosition -= count;
+    }
+  }
 }
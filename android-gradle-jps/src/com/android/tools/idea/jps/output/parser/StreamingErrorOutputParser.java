@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.jps.output.parser;
+
+import com.google.common.collect.Lists;
+import com.intellij.util.Consumer;
+import com.intellij.util.SystemProperties;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.incremental.messages.CompilerMessage;
+
+import java.util.List;
+
+/**
+ * Parses Gradle's error output while it is being written, passing error/warning messages on as soon as they are recognized.
+ * <p>
+ * Parsers may need to look at the lines after the one being parsed, so a line is only parsed once a few more lines were received. If a
+ * parser asks for more lines than received so far, the line is parsed again when more output is available, up to a bound on the number of
+ * buffered lines. Lines which were parsed are dropped, so memory use does not depend on the size of the output.
+ */
+public class StreamingErrorOutputParser extends LineOutputStream {
+  /** Number of lines received after a line before it is parsed */
+  private static final int LOOKAHEAD = 10;
+  /** Maximum number of lines buffered for a parser asking for more lines */
+  private static final int MAX_BUFFERED_LINES = 10000;
+  /** Maximum length of the output text kept to show when the output cannot be parsed */
+  private static final int MAX_TEXT_LENGTH = 1024 * 1024;
+
+  @NotNull private final CompilerOutputParser[] myParsers;
+  @NotNull private final Consumer<CompilerMessage> myConsumer;
+  private final OutputLineReader myReader = new OutputLineReader();
+  private final StringBuilder myText = new StringBuilder();
+
+  /** Number of lines required before the next line is parsed again */
+  private int myRequiredLineCount = LOOKAHEAD + 1;
+  private int myMessageCount;
+  private boolean myFailed;
+
+  StreamingErrorOutputParser(@NotNull CompilerOutputParser[] parsers, @NotNull Consumer<CompilerMessage> consumer) {
+    myParsers = parsers;
+    myConsumer = consumer;
+  }
+
+  /**
+   * @return the number of messages passed to the consumer so far.
+   */
+  public synchronized int getMessageCount() {
+    return myMessageCount;
+  }
+
+  /**
+   * @return whether the output could not be parsed. Parsing stops at the first output not understood by the parsers, so some errors may
+   *         not have been reported.
+   */
+  public synchronized boolean isFailed() {
+    return myFailed;
+  }
+
+  /**
+   * @return the output written so far, truncated if it is very long.
+   */
+  @NotNull
+  public synchronized String getText() {
+    return myText.toString();
+  }
+
+  @Override
+  protected void lineRead(@NotNull String line) {
+    if (myText.length() < MAX_TEXT_LENGTH) {
+      if (myText.length() > 0) {
+        myText.append(SystemProperties.getLineSeparator());
+      }
+      myText.append(line.length() <= MAX_TEXT_LENGTH - myText.length() ? line : line.substring(0, MAX_TEXT_LENGTH - myText.length()));
+    }
+    if (!myFailed) {
+      myReader.addLine(line);
+      parseAvailableLines();
+    }
+  }
+
+  @Override
+  protected void endOfOutput() {
+    myReader.setComplete();
+    parseAvailableLines();
+  }
+
+  private void parseAvailableLines() {
+    while (!myFailed) {
+      int available = myReader.getAvailableLineCount();
+      if (available == 0 || (!myReader.isComplete() && available < myRequiredLineCount)) {
+        return;
+      }
+      int position = myReader.getPosition();
+      String line = myReader.readLine();
+      assert line != null;
+      myReader.resetEndReached();
+
+      List<CompilerMessage> messages = Lists.newArrayList();
+      boolean failed = false;
+      for (CompilerOutputParser parser : myParsers) {
+        try {
+          if (parser.parse(line, myReader, messages)) {
+            break;
+          }
+        }
+        catch (ParsingFailedException e) {
+          failed = true;
+          break;
+        }
+      }
+
+      if (myReader.isEndReached() && !myReader.isComplete() && available < MAX_BUFFERED_LINES) {
+        // The parsers needed lines we didn't receive yet: parse the line again once more lines are available. Growing the count
+        // geometrically bounds the time spent parsing long messages again, while not delaying them by much.
+        myReader.setPosition(position);
+        myRequiredLineCount = Math.min(available + Math.max(LOOKAHEAD, available / 4), MAX_BUFFERED_LINES);
+        return;
+      }
+      myRequiredLineCount = LOOKAHEAD + 1;
+
+      if (failed) {
+        myFailed = true;
+        return;
+      }
+      for (CompilerMessage message : messages) {
+        myConsumer.consume(message);
+      }
+      myMessageCount += messages.size();
+      myReader.discardReadLines();
+    }
+  }
+}
@@ -22,7 +22,6 @@ import com.android.tools.idea.jps.output.parser.OutputLineReader;
 import com.android.tools.idea.jps.output.parser.ParsingFailedException;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.containers.WeakValueHashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
@@ -30,6 +29,8 @@ import org.jetbrains.jps.incremental.messages.CompilerMessage;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -81,8 +82,13 @@ public abstract class AbstractAaptOutputParser implements CompilerOutputParser {
   private static final String START_MARKER = "<!-- From: "; // Keep in sync with MergedResourceWriter#FILENAME_PREFIX
   private static final String END_MARKER = " -->";
 
-  @NotNull private static final WeakValueHashMap<String, ReadOnlyDocument> ourDocumentsByPathCache =
-    new WeakValueHashMap<String, ReadOnlyDocument>();
+  /** Maximum total length, in characters, of the documents kept in {@link #ourDocumentsByPathCache} */
+  private static final int MAX_CACHED_DOCUMENTS_LENGTH = 8 * 1024 * 1024;
+
+  /** Documents by path, least recently used first; guarded by itself */
+  @NotNull private static final LinkedHashMap<String, ReadOnlyDocument> ourDocumentsByPathCache =
+    new LinkedHashMap<String, ReadOnlyDocument>(16, 0.75f, true);
+  private static int ourCachedDocumentsLength;
 
   @Nullable
   final Matcher getNextLineMatcher(@NotNull OutputLineReader reader, @NotNull Pattern pattern) {
@@ -264,7 +270,13 @@ public abstract class AbstractAaptOutputParser implements CompilerOutputParser {
   @Nullable
   private static ReadOnlyDocument getDocument(@NotNull File file) {
     String filePath = file.getAbsolutePath();
-    ReadOnlyDocument document = ourDocumentsByPathCache.get(filePath);
+    ReadOnlyDocument document;
+    synchronized (ourDocumentsByPathCache) {
+      document = ourDocumentsByPathCache.get(filePath);
+    }
+    if (document != null && !document.isUpToDate(file)) {
+      document = null;
+    }
     if (document == null) {
       try {
         if (!file.exists()) {
@@ -275,7 +287,7 @@ public abstract class AbstractAaptOutputParser implements CompilerOutputParser {
           return null;
         }
         document = new ReadOnlyDocument(file);
-        ourDocumentsByPathCache.put(filePath, document);
+        cacheDocument(filePath, document);
       }
       catch (IOException e) {
         String format = "Unexpected error occurred while reading file '%s'";
@@ -286,6 +298,24 @@ public abstract class AbstractAaptOutputParser implements CompilerOutputParser {
     return document;
   }
 
+  private static void cacheDocument(@NotNull String filePath, @NotNull ReadOnlyDocument document) {
+    synchronized (ourDocumentsByPathCache) {
+      ReadOnlyDocument previous = ourDocumentsByPathCache.put(filePath, document);
+      if (previous != null) {
+        ourCachedDocumentsLength -= previous.length();
+      }
+      ourCachedDocumentsLength += document.length();
+
+      // Evict the least recently used documents, but always keep the one just added
+      Iterator<ReadOnlyDocument> iterator = ourDocumentsByPathCache.values().iterator();
+      while (ourCachedDocumentsLength > MAX_CACHED_DOCUMENTS_LENGTH && ourDocumentsByPathCache.size() > 1) {
+        ReadOnlyDocument eldest = iterator.next();
+        iterator.remove();
+        ourCachedDocumentsLength -= eldest.length();
+      }
+    }
+  }
+
   @Nullable
   protected Pair<File,Integer> findSourcePosition(@NotNull File file, int locationLine, String message) {
     if (!file.getPath().endsWith(".xml")) {
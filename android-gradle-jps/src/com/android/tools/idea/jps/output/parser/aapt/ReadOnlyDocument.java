@@ -16,21 +16,23 @@
 package com.android.tools.idea.jps.output.parser.aapt;
 
 import com.google.common.base.Charsets;
-import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import com.intellij.util.text.StringSearcher;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A read-only representation of the text of a file.
  */
 class ReadOnlyDocument {
   @NotNull private final CharSequence myContents;
-  @NotNull private final List<Integer> myOffsets;
+  /** The offset of each line, in increasing order */
+  @NotNull private final int[] myOffsets;
+  private final long myLastModified;
+  private final long myFileLength;
 
   /**
    * Creates a new {@link ReadOnlyDocument} for the given file.
@@ -40,15 +42,34 @@ class ReadOnlyDocument {
    */
   @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
   ReadOnlyDocument(@NotNull File file) throws IOException {
+    // Get these first, so a modification while reading makes the document out of date
+    myLastModified = file.lastModified();
+    myFileLength = file.length();
     myContents = Files.toString(file, Charsets.UTF_8);
-    myOffsets = Lists.newArrayListWithExpectedSize(myContents.length() / 30);
-    myOffsets.add(0);
+
+    int[] offsets = new int[Math.max(16, myContents.length() / 30)];
+    int count = 0;
+    offsets[count++] = 0;
     for (int i = 0; i < myContents.length(); i++) {
       char c = myContents.charAt(i);
       if (c == '\n') {
-        myOffsets.add(i + 1);
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = i + 1;
       }
     }
+    myOffsets = count == offsets.length ? offsets : Arrays.copyOf(offsets, count);
+  }
+
+  /**
+   * Indicates whether this document still has the contents of the given file, judging from its timestamp and length.
+   *
+   * @param file the file this document was created for.
+   * @return {@code true} if the file was not modified since this document was created.
+   */
+  boolean isUpToDate(@NotNull File file) {
+    return file.lastModified() == myLastModified && file.length() == myFileLength;
   }
 
   /**
@@ -60,10 +81,10 @@ class ReadOnlyDocument {
    */
   int lineOffset(int lineNumber) {
     int index = lineNumber - 1;
-    if (index < 0 || index >= myOffsets.size()) {
+    if (index < 0 || index >= myOffsets.length) {
       return -1;
     }
-    return myOffsets.get(index);
+    return myOffsets[index];
   }
 
   /**
@@ -74,13 +95,12 @@ class ReadOnlyDocument {
    *         the last character in the document.
    */
   int lineNumber(int offset) {
-    for (int i = 0; i < myOffsets.size(); i++) {
-      int savedOffset = myOffsets.get(i);
-      if (offset <= savedOffset) {
-        return i;
-      }
+    // The index of the first line offset greater than or equal to the given offset
+    int index = Arrays.binarySearch(myOffsets, offset);
+    if (index < 0) {
+      index = -index - 1;
     }
-    return -1;
+    return index < myOffsets.length ? index : -1;
   }
 
   /**
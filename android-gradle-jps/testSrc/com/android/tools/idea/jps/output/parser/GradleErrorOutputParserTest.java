@@ -22,6 +22,7 @@ import com.google.common.io.Closeables;
 import com.google.common.io.Files;
 import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.Consumer;
 import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.ContainerUtil;
 import junit.framework.TestCase;
@@ -254,6 +255,42 @@ public class GradleErrorOutputParserTest extends TestCase {
     assertHasCorrectErrorMessage(messages, "error: not a statement", 3, 26);
   }
 
+  public void testStreamingParseJavaOutput() throws IOException {
+    createTempFile(".java");
+    writeToFile("public class Test {",
+                "  public static void main(String[] args) {",
+                "    int v2 = v4");
+    StringBuilder err = new StringBuilder();
+    err.append(sourceFilePath).append(":3: error: ").append("cannot find symbol").append(NEWLINE)
+       .append("symbol  : variable v4").append(NEWLINE)
+       .append("location: Test").append(NEWLINE)
+       .append("    int v2 = v4").append(NEWLINE)
+       .append("             ^").append(NEWLINE);
+    final Collection<CompilerMessage> messages = Lists.newArrayList();
+    StreamingErrorOutputParser streamingParser = parser.createStreamingParser(new Consumer<CompilerMessage>() {
+      @Override
+      public void consume(CompilerMessage message) {
+        messages.add(message);
+      }
+    });
+    // Write one byte at a time, to check that lines are reassembled.
+    for (byte b : err.toString().getBytes()) {
+      streamingParser.write(b);
+    }
+    assertTrue(messages.isEmpty());
+
+    // The error is reported once enough lines follow it, before the end of the output.
+    for (int i = 0; i < 20; i++) {
+      streamingParser.write(("Compiling sources" + NEWLINE).getBytes());
+    }
+    assertHasCorrectErrorMessage(messages, "error: cannot find symbol variable v4", 3, 14);
+
+    streamingParser.close();
+    assertHasCorrectErrorMessage(messages, "error: cannot find symbol variable v4", 3, 14);
+    assertEquals(1, streamingParser.getMessageCount());
+    assertFalse(streamingParser.isFailed());
+  }
+
   public void testParseGradleBuildFileOutput() throws IOException {
     createTempFile(".gradle");
     writeToFile("buildscript {",
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.jps.output.parser.aapt;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests for {@link ReadOnlyDocument}.
+ */
+public class ReadOnlyDocumentTest extends TestCase {
+  private File myFile;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myFile = File.createTempFile(ReadOnlyDocumentTest.class.getName(), ".xml");
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    FileUtil.delete(myFile);
+    super.tearDown();
+  }
+
+  public void testLineOffsetsAndNumbers() throws IOException {
+    FileUtil.writeToFile(myFile, "ab\ncd\n\nef");
+    ReadOnlyDocument document = new ReadOnlyDocument(myFile);
+
+    assertEquals(-1, document.lineOffset(0));
+    assertEquals(0, document.lineOffset(1));
+    assertEquals(3, document.lineOffset(2));
+    assertEquals(6, document.lineOffset(3));
+    assertEquals(7, document.lineOffset(4));
+    assertEquals(-1, document.lineOffset(5));
+
+    assertEquals(0, document.lineNumber(0));
+    assertEquals(1, document.lineNumber(1));
+    assertEquals(1, document.lineNumber(3));
+    assertEquals(2, document.lineNumber(4));
+    assertEquals(3, document.lineNumber(7));
+    assertEquals(-1, document.lineNumber(8));
+  }
+
+  public void testManyLines() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append("line ").append(i).append('\n');
+    }
+    FileUtil.writeToFile(myFile, text.toString());
+    ReadOnlyDocument document = new ReadOnlyDocument(myFile);
+
+    for (int line = 1; line <= 1000; line++) {
+      int offset = document.lineOffset(line);
+      assertEquals(text.indexOf("line " + (line - 1) + "\n"), offset);
+      assertEquals(line, document.lineNumber(offset + 1));
+    }
+    assertEquals(text.length(), document.lineOffset(1001));
+  }
+
+  public void testIsUpToDate() throws IOException {
+    FileUtil.writeToFile(myFile, "<resources/>");
+    ReadOnlyDocument document = new ReadOnlyDocument(myFile);
+    assertTrue(document.isUpToDate(myFile));
+
+    FileUtil.writeToFile(myFile, "<resources></resources>");
+    assertFalse(document.isUpToDate(myFile));
+  }
+}
@@ -42,8 +42,6 @@ import java.security.*;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import static org.jetbrains.android.util.AndroidCompilerMessageKind.*;
 
@@ -77,34 +75,13 @@ public class AndroidApkBuilder {
     return messages;
   }
 
-  @SuppressWarnings({"IOResourceOpenedButNotSafelyClosed"})
   private static void collectDuplicateEntries(@NotNull String rootFile, @NotNull Set<String> entries, @NotNull Set<String> result)
     throws IOException {
     final JavaResourceFilter javaResourceFilter = new JavaResourceFilter();
 
-    FileInputStream fis = null;
-    ZipInputStream zis = null;
-    try {
-      fis = new FileInputStream(rootFile);
-      zis = new ZipInputStream(fis);
-
-      ZipEntry entry;
-      while ((entry = zis.getNextEntry()) != null) {
-        if (!entry.isDirectory()) {
-          String name = entry.getName();
-          if (javaResourceFilter.checkEntry(name) && !entries.add(name)) {
-            result.add(name);
-          }
-          zis.closeEntry();
-        }
-      }
-    }
-    finally {
-      if (zis != null) {
-        zis.close();
-      }
-      if (fis != null) {
-        fis.close();
+    for (String name : AndroidJarIndex.getIndex(new File(rootFile)).getEntryNames()) {
+      if (javaResourceFilter.checkEntry(name) && !entries.add(name)) {
+        result.add(name);
       }
     }
   }
@@ -120,6 +97,27 @@ public class AndroidApkBuilder {
                                                                       @NotNull String sdkPath,
                                                                       @Nullable String customKeystorePath,
                                                                       @NotNull Condition<File> resourceFilter) throws IOException {
+    return execute(resPackagePath, dexPath, sourceRoots, externalJars, nativeLibsFolders, additionalNativeLibs, finalApk, unsigned,
+                   sdkPath, customKeystorePath, resourceFilter, false);
+  }
+
+  /**
+   * Packages an APK. In incremental mode the previously packaged APK is kept along with a record of
+   * its entries, and on the next packaging only the entries whose source changed are compressed and
+   * digested again, see {@link AndroidIncrementalApkBuilder}.
+   */
+  public static Map<AndroidCompilerMessageKind, List<String>> execute(@NotNull String resPackagePath,
+                                                                      @NotNull String dexPath,
+                                                                      @NotNull String[] sourceRoots,
+                                                                      @NotNull String[] externalJars,
+                                                                      @NotNull String[] nativeLibsFolders,
+                                                                      @NotNull Collection<AndroidNativeLibData> additionalNativeLibs,
+                                                                      @NotNull String finalApk,
+                                                                      boolean unsigned,
+                                                                      @NotNull String sdkPath,
+                                                                      @Nullable String customKeystorePath,
+                                                                      @NotNull Condition<File> resourceFilter,
+                                                                      boolean incremental) throws IOException {
     final AndroidBuildTestingManager testingManager = AndroidBuildTestingManager.getTestingManager();
 
     if (testingManager != null) {
@@ -159,7 +157,7 @@ public class AndroidApkBuilder {
       if (unsigned) {
         return filterUsingKeystoreMessages(
           finalPackage(dexPath, sourceRoots, externalJars, nativeLibsFolders, finalApk, resPackagePath, customKeystorePath, false,
-                       resourceFilter));
+                       resourceFilter, incremental));
       }
       final String zipAlignPath = sdkPath + File.separator + AndroidCommonUtils.toolPath(SdkConstants.FN_ZIPALIGN);
       boolean withAlignment = new File(zipAlignPath).exists();
@@ -167,7 +165,7 @@ public class AndroidApkBuilder {
 
       Map<AndroidCompilerMessageKind, List<String>> map2 = filterUsingKeystoreMessages(
         finalPackage(dexPath, sourceRoots, externalJars, nativeLibsFolders, withAlignment ? unalignedApk : finalApk, resPackagePath,
-                     customKeystorePath, true, resourceFilter));
+                     customKeystorePath, true, resourceFilter, incremental));
       map.putAll(map2);
 
       if (withAlignment && map.get(ERROR).size() == 0) {
@@ -218,7 +216,8 @@ public class AndroidApkBuilder {
                                                                             @NotNull String apkPath,
                                                                             @Nullable String customKeystorePath,
                                                                             boolean signed,
-                                                                            @NotNull Condition<File> resourceFilter) {
+                                                                            @NotNull Condition<File> resourceFilter,
+                                                                            boolean incremental) {
     final Map<AndroidCompilerMessageKind, List<String>> result = new HashMap<AndroidCompilerMessageKind, List<String>>();
     result.put(ERROR, new ArrayList<String>());
     result.put(INFORMATION, new ArrayList<String>());
@@ -226,6 +225,9 @@ public class AndroidApkBuilder {
 
     FileOutputStream fos = null;
     SignedJarBuilder builder = null;
+    AndroidIncrementalApkBuilder incrementalBuilder = null;
+    PrivateKey key = null;
+    X509Certificate certificate = null;
     try {
 
       String keyStoreOsPath = customKeystorePath != null && customKeystorePath.length() > 0
@@ -234,7 +236,7 @@ public class AndroidApkBuilder {
       
       DebugKeyProvider provider = createDebugKeyProvider(result, keyStoreOsPath);
 
-      X509Certificate certificate = signed ? (X509Certificate)provider.getCertificate() : null;
+      certificate = signed ? (X509Certificate)provider.getCertificate() : null;
 
       if (certificate != null && certificate.getNotAfter().compareTo(new Date()) < 0) {
         // generate a new one
@@ -253,7 +255,7 @@ public class AndroidApkBuilder {
         return result;
       }
 
-      PrivateKey key = provider.getDebugKey();
+      key = provider.getDebugKey();
 
       if (key == null) {
         result.get(ERROR).add("Cannot create new key or keystore");
@@ -281,25 +283,26 @@ public class AndroidApkBuilder {
         return result;
       }
 
-      fos = new FileOutputStream(outputApk);
-      builder = new SafeSignedJarBuilder(fos, key, certificate, outputApk);
-
-      FileInputStream fis = new FileInputStream(apkPath);
-      try {
-        builder.writeZip(fis, null);
+      final ApkWriter writer;
+      if (incremental) {
+        incrementalBuilder = new AndroidIncrementalApkBuilder(new File(outputApk));
+        writer = incrementalBuilder;
       }
-      finally {
-        fis.close();
+      else {
+        fos = new FileOutputStream(outputApk);
+        builder = new SafeSignedJarBuilder(fos, key, certificate, outputApk);
+        writer = new MySignedJarWriter(builder);
       }
 
-      builder.writeFile(dexEntryFile, AndroidCommonUtils.CLASSES_FILE_NAME);
+      writer.writeZip(new File(apkPath), null);
+      writer.writeFile(dexEntryFile, AndroidCommonUtils.CLASSES_FILE_NAME);
 
       final HashSet<String> added = new HashSet<String>();
       for (String sourceRootPath : sourceRoots) {
         final HashSet<File> sourceFolderResources = new HashSet<File>();
         final File sourceRoot = new File(sourceRootPath);
         collectStandardSourceFolderResources(sourceRoot, sourceFolderResources, resourceFilter);
-        writeStandardSourceFolderResources(sourceFolderResources, sourceRoot, builder, added);
+        writeStandardSourceFolderResources(sourceFolderResources, sourceRoot, writer, added);
       }
 
       Set<String> duplicates = new HashSet<String>();
@@ -315,13 +318,7 @@ public class AndroidApkBuilder {
       MyResourceFilter filter = new MyResourceFilter(duplicates);
 
       for (String externalJar : externalJars) {
-        fis = new FileInputStream(externalJar);
-        try {
-          builder.writeZip(fis, filter);
-        }
-        finally {
-          fis.close();
-        }
+        writer.writeZip(new File(externalJar), filter);
       }
 
       final HashSet<String> nativeLibs = new HashSet<String>();
@@ -331,10 +328,14 @@ public class AndroidApkBuilder {
 
         if (children != null) {
           for (File child : children) {
-            writeNativeLibraries(builder, nativeLibsFolder, child, signed, nativeLibs);
+            writeNativeLibraries(writer, nativeLibsFolder, child, signed, nativeLibs);
           }
         }
       }
+
+      if (incrementalBuilder != null) {
+        incrementalBuilder.close(key, certificate);
+      }
     }
     catch (IOException e) {
       return addExceptionMessage(e, result);
@@ -361,6 +362,9 @@ public class AndroidApkBuilder {
       return addExceptionMessage(e, result);
     }
     finally {
+      if (incrementalBuilder != null) {
+        incrementalBuilder.closeInputs();
+      }
       if (builder != null) {
         try {
           builder.close();
@@ -404,7 +408,7 @@ public class AndroidApkBuilder {
     });
   }
 
-  private static void writeNativeLibraries(SignedJarBuilder builder,
+  private static void writeNativeLibraries(ApkWriter builder,
                                            File nativeLibsFolder,
                                            File child,
                                            boolean debugBuild,
@@ -478,7 +482,7 @@ public class AndroidApkBuilder {
 
   private static void writeStandardSourceFolderResources(Collection<File> resources,
                                                          File sourceRoot,
-                                                         SignedJarBuilder jarBuilder,
+                                                         ApkWriter jarBuilder,
                                                          Set<String> added) throws IOException {
     for (File child : resources) {
       final String relativePath = FileUtil.getRelativePath(sourceRoot, child);
@@ -497,6 +501,37 @@ public class AndroidApkBuilder {
     return false;
   }
 
+  /** Destination of the entries of an APK being packaged */
+  interface ApkWriter {
+    void writeFile(@NotNull File file, @NotNull String path) throws IOException;
+
+    void writeZip(@NotNull File zip, @Nullable SignedJarBuilder.IZipEntryFilter filter) throws IOException;
+  }
+
+  private static class MySignedJarWriter implements ApkWriter {
+    private final SignedJarBuilder myBuilder;
+
+    private MySignedJarWriter(@NotNull SignedJarBuilder builder) {
+      myBuilder = builder;
+    }
+
+    @Override
+    public void writeFile(@NotNull File file, @NotNull String path) throws IOException {
+      myBuilder.writeFile(file, path);
+    }
+
+    @Override
+    public void writeZip(@NotNull File zip, @Nullable SignedJarBuilder.IZipEntryFilter filter) throws IOException {
+      final FileInputStream fis = new FileInputStream(zip);
+      try {
+        myBuilder.writeZip(fis, filter);
+      }
+      finally {
+        fis.close();
+      }
+    }
+  }
+
   private static class MyResourceFilter extends JavaResourceFilter {
     private final Set<String> myExcludedEntries;
 
@@ -0,0 +1,729 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.compiler.tools;
+
+import com.android.jarutils.SignedJarBuilder;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.Base64Converter;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.security.pkcs.ContentInfo;
+import sun.security.pkcs.PKCS7;
+import sun.security.pkcs.SignerInfo;
+import sun.security.x509.AlgorithmId;
+import sun.security.x509.X500Name;
+
+import java.io.*;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Packages an APK incrementally: the compressed data and digests of entries whose source has not
+ * changed since the previous packaging are copied from the previous APK, and only the changed
+ * entries are compressed and digested again. The signature files are always regenerated.
+ * <p>
+ * The previous APK is the output file itself. Next to it a state file records where each entry
+ * came from and its digest; when the state file is missing, does not match the previous APK or was
+ * written for another signing key, all entries are written from their sources.
+ * <p>
+ * The entries and signature files written are the same as those written by {@link SignedJarBuilder}.
+ */
+class AndroidIncrementalApkBuilder implements AndroidApkBuilder.ApkWriter {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.android.compiler.tools.AndroidIncrementalApkBuilder");
+
+  @NonNls private static final String STATE_FILE_SUFFIX = ".incremental";
+  @NonNls private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final int STATE_VERSION = 1;
+
+  @NonNls private static final String META_INF = "META-INF/";
+  @NonNls private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+  @NonNls private static final String SIGNATURE_FILE_NAME = "META-INF/CERT.SF";
+  @NonNls private static final String SIGNATURE_BLOCK_PREFIX = "META-INF/CERT.";
+  @NonNls private static final String CREATED_BY = "1.0 (Android)";
+  @NonNls private static final String DIGEST_ALGORITHM = "SHA1";
+  @NonNls private static final String DIGEST_ATTR = "SHA1-Digest";
+
+  private final File myOutputFile;
+  private final Map<String, EntrySource> myEntries = new LinkedHashMap<String, EntrySource>();
+  private final List<ZipFile> myZipFiles = new ArrayList<ZipFile>();
+
+  AndroidIncrementalApkBuilder(@NotNull File outputFile) {
+    myOutputFile = outputFile;
+  }
+
+  @Override
+  public void writeFile(@NotNull File file, @NotNull String path) throws IOException {
+    if (FileUtil.filesEqual(file, myOutputFile)) {
+      throw new IOException("Cannot pack file " + myOutputFile.getPath() + " into itself");
+    }
+    addEntry(path, new FileSource(file));
+  }
+
+  @Override
+  public void writeZip(@NotNull File zip, @Nullable SignedJarBuilder.IZipEntryFilter filter) throws IOException {
+    final ZipFile zipFile = new ZipFile(zip);
+    myZipFiles.add(zipFile);
+
+    final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    while (entries.hasMoreElements()) {
+      final ZipEntry entry = entries.nextElement();
+      final String name = entry.getName();
+
+      if (entry.isDirectory() || name.startsWith(META_INF) || (filter != null && !filter.checkEntry(name))) {
+        continue;
+      }
+      addEntry(name, new ZipEntrySource(zip, zipFile, entry));
+    }
+  }
+
+  private void addEntry(@NotNull String name, @NotNull EntrySource source) throws ZipException {
+    if (myEntries.containsKey(name)) {
+      throw new ZipException("duplicate entry: " + name);
+    }
+    myEntries.put(name, source);
+  }
+
+  /**
+   * Writes the APK with all entries added so far, and closes the builder
+   *
+   * @param key the key to sign the APK with, if a certificate is given
+   * @param certificate the certificate to sign the APK with, or null to not sign it
+   * @return the number of entries copied from the previous APK
+   */
+  int close(@NotNull PrivateKey key, @Nullable X509Certificate certificate) throws IOException, GeneralSecurityException {
+    try {
+      final String signingId = certificate != null
+                               ? certificate.getSerialNumber().toString(16) + ':' + key.getAlgorithm()
+                               : "unsigned";
+      final File stateFile = new File(myOutputFile.getPath() + STATE_FILE_SUFFIX);
+      final Map<String, EntryState> newState = new LinkedHashMap<String, EntryState>();
+      final File tempFile = new File(myOutputFile.getPath() + TEMP_FILE_SUFFIX);
+
+      final PreviousApk previous = PreviousApk.open(myOutputFile, stateFile, signingId);
+      // The state no longer applies once the output is rewritten, whether or not packaging succeeds
+      FileUtil.delete(stateFile);
+      int reused = 0;
+      try {
+        final ZipWriter writer = new ZipWriter(tempFile);
+        try {
+          for (Map.Entry<String, EntrySource> entry : myEntries.entrySet()) {
+            final String name = entry.getKey();
+            final EntrySource source = entry.getValue();
+            final String fingerprint = source.getFingerprint();
+            final String digest = previous != null ? previous.copyEntry(name, fingerprint, writer) : null;
+
+            if (digest != null) {
+              newState.put(name, new EntryState(fingerprint, digest));
+              reused++;
+            }
+            else {
+              final byte[] data = source.getData();
+              writer.writeEntry(name, data, source.isStored(), source.getTime());
+              newState.put(name, new EntryState(fingerprint, base64(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(data))));
+            }
+          }
+          writeSignatureFiles(writer, newState, key, certificate);
+        }
+        finally {
+          writer.close();
+        }
+      }
+      catch (IOException e) {
+        FileUtil.delete(tempFile);
+        throw e;
+      }
+      catch (GeneralSecurityException e) {
+        FileUtil.delete(tempFile);
+        throw e;
+      }
+      finally {
+        if (previous != null) {
+          previous.close();
+        }
+      }
+
+      if (myOutputFile.exists() && !FileUtil.delete(myOutputFile)) {
+        throw new IOException("Cannot delete file " + myOutputFile.getPath());
+      }
+      FileUtil.rename(tempFile, myOutputFile);
+      writeState(stateFile, signingId, newState);
+      LOG.info("Packaged " + myOutputFile.getPath() + ": " + reused + " of " + myEntries.size() + " entries reused");
+      return reused;
+    }
+    finally {
+      closeInputs();
+    }
+  }
+
+  /** Closes the jars entries were added from; called by {@link #close}, or when packaging is abandoned */
+  void closeInputs() {
+    for (ZipFile zipFile : myZipFiles) {
+      try {
+        zipFile.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+    }
+    myZipFiles.clear();
+  }
+
+  private void writeState(@NotNull File stateFile, @NotNull String signingId, @NotNull Map<String, EntryState> state) {
+    try {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)));
+      try {
+        out.writeInt(STATE_VERSION);
+        out.writeUTF(signingId);
+        out.writeLong(myOutputFile.length());
+        out.writeLong(myOutputFile.lastModified());
+        out.writeInt(state.size());
+
+        for (Map.Entry<String, EntryState> entry : state.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeUTF(entry.getValue().fingerprint);
+          out.writeUTF(entry.getValue().digest);
+        }
+      }
+      finally {
+        out.close();
+      }
+    }
+    catch (IOException e) {
+      // The next packaging simply won't be incremental
+      LOG.info(e);
+      FileUtil.delete(stateFile);
+    }
+  }
+
+  private static void writeSignatureFiles(@NotNull ZipWriter writer,
+                                          @NotNull Map<String, EntryState> entries,
+                                          @NotNull PrivateKey key,
+                                          @Nullable X509Certificate certificate) throws IOException, GeneralSecurityException {
+    if (certificate == null) {
+      // Like SignedJarBuilder, write no manifest into unsigned APKs
+      return;
+    }
+    final ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+    writeAttribute(manifest, "Manifest-Version", "1.0");
+    writeAttribute(manifest, "Created-By", CREATED_BY);
+    writeLine(manifest, "");
+
+    final ByteArrayOutputStream signatureFile = new ByteArrayOutputStream();
+    final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    final ByteArrayOutputStream signatureSections = new ByteArrayOutputStream();
+
+    for (Map.Entry<String, EntryState> entry : entries.entrySet()) {
+      final ByteArrayOutputStream section = new ByteArrayOutputStream();
+      writeAttribute(section, "Name", entry.getKey());
+      writeAttribute(section, DIGEST_ATTR, entry.getValue().digest);
+      writeLine(section, "");
+      section.writeTo(manifest);
+
+      writeAttribute(signatureSections, "Name", entry.getKey());
+      writeAttribute(signatureSections, DIGEST_ATTR, base64(digest.digest(section.toByteArray())));
+      writeLine(signatureSections, "");
+    }
+    final byte[] manifestBytes = manifest.toByteArray();
+    writer.writeEntry(MANIFEST_NAME, manifestBytes, false, System.currentTimeMillis());
+
+    writeAttribute(signatureFile, "Signature-Version", "1.0");
+    writeAttribute(signatureFile, "Created-By", CREATED_BY);
+    writeAttribute(signatureFile, DIGEST_ATTR + "-Manifest", base64(digest.digest(manifestBytes)));
+    writeLine(signatureFile, "");
+    signatureSections.writeTo(signatureFile);
+    final byte[] signatureFileBytes = signatureFile.toByteArray();
+    writer.writeEntry(SIGNATURE_FILE_NAME, signatureFileBytes, false, System.currentTimeMillis());
+
+    final Signature signature = Signature.getInstance(DIGEST_ALGORITHM + "with" + key.getAlgorithm());
+    signature.initSign(key);
+    signature.update(signatureFileBytes);
+
+    final SignerInfo signerInfo = new SignerInfo(new X500Name(certificate.getIssuerX500Principal().getName()),
+                                                 certificate.getSerialNumber(),
+                                                 AlgorithmId.get(DIGEST_ALGORITHM),
+                                                 AlgorithmId.get(key.getAlgorithm()),
+                                                 signature.sign());
+    final PKCS7 block = new PKCS7(new AlgorithmId[]{AlgorithmId.get(DIGEST_ALGORITHM)},
+                                  new ContentInfo(ContentInfo.DATA_OID, null),
+                                  new X509Certificate[]{certificate},
+                                  new SignerInfo[]{signerInfo});
+    final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+    block.encodeSignedData(blockBytes);
+    writer.writeEntry(SIGNATURE_BLOCK_PREFIX + key.getAlgorithm(), blockBytes.toByteArray(), false, System.currentTimeMillis());
+  }
+
+  /** Writes a manifest attribute, wrapping it such that no line is longer than 72 bytes */
+  private static void writeAttribute(@NotNull ByteArrayOutputStream out, @NotNull String name, @NotNull String value)
+    throws UnsupportedEncodingException {
+    final byte[] bytes = (name + ": " + value).getBytes("UTF-8");
+    int start = 0;
+    int max = 72;
+
+    while (bytes.length - start > max) {
+      int end = start + max;
+      // Don't split a multi-byte character
+      while ((bytes[end] & 0xC0) == 0x80) {
+        end--;
+      }
+      out.write(bytes, start, end - start);
+      out.write('\r');
+      out.write('\n');
+      out.write(' ');
+      start = end;
+      max = 71;
+    }
+    out.write(bytes, start, bytes.length - start);
+    out.write('\r');
+    out.write('\n');
+  }
+
+  private static void writeLine(@NotNull ByteArrayOutputStream out, @NotNull String line) throws UnsupportedEncodingException {
+    final byte[] bytes = line.getBytes("UTF-8");
+    out.write(bytes, 0, bytes.length);
+    out.write('\r');
+    out.write('\n');
+  }
+
+  @NotNull
+  private static String base64(@NotNull byte[] bytes) {
+    return Base64Converter.encode(bytes);
+  }
+
+  @NotNull
+  private static byte[] readFully(@NotNull InputStream in, int sizeHint) throws IOException {
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint > 0 ? sizeHint : 8192);
+      final byte[] buffer = new byte[8192];
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private static class EntryState {
+    final String fingerprint;
+    final String digest;
+
+    EntryState(@NotNull String fingerprint, @NotNull String digest) {
+      this.fingerprint = fingerprint;
+      this.digest = digest;
+    }
+  }
+
+  /** Where the data of an entry comes from */
+  private interface EntrySource {
+    /** Returns a string which changes whenever the data of the entry may have changed */
+    @NotNull
+    String getFingerprint();
+
+    @NotNull
+    byte[] getData() throws IOException;
+
+    boolean isStored();
+
+    long getTime();
+  }
+
+  private static class FileSource implements EntrySource {
+    private final File myFile;
+
+    FileSource(@NotNull File file) {
+      myFile = file;
+    }
+
+    @NotNull
+    @Override
+    public String getFingerprint() {
+      return myFile.getPath() + '|' + myFile.length() + '|' + myFile.lastModified();
+    }
+
+    @NotNull
+    @Override
+    public byte[] getData() throws IOException {
+      return readFully(new FileInputStream(myFile), (int)myFile.length());
+    }
+
+    @Override
+    public boolean isStored() {
+      return false;
+    }
+
+    @Override
+    public long getTime() {
+      return myFile.lastModified();
+    }
+  }
+
+  private static class ZipEntrySource implements EntrySource {
+    private final File myZip;
+    private final ZipFile myZipFile;
+    private final ZipEntry myEntry;
+
+    ZipEntrySource(@NotNull File zip, @NotNull ZipFile zipFile, @NotNull ZipEntry entry) {
+      myZip = zip;
+      myZipFile = zipFile;
+      myEntry = entry;
+    }
+
+    @NotNull
+    @Override
+    public String getFingerprint() {
+      return myZip.getPath() + '!' + myEntry.getName() + '|' + myEntry.getMethod() + '|' + myEntry.getCrc() + '|' +
+             myEntry.getSize() + '|' + myEntry.getCompressedSize();
+    }
+
+    @NotNull
+    @Override
+    public byte[] getData() throws IOException {
+      return readFully(myZipFile.getInputStream(myEntry), (int)myEntry.getSize());
+    }
+
+    @Override
+    public boolean isStored() {
+      // Like SignedJarBuilder, keep entries stored if they were stored in the source, such as aapt's resources.arsc
+      return myEntry.getMethod() == ZipEntry.STORED;
+    }
+
+    @Override
+    public long getTime() {
+      return myEntry.getTime();
+    }
+  }
+
+  /** The APK written by the previous packaging, along with the state recorded for it */
+  private static class PreviousApk {
+    private final RandomAccessFile myFile;
+    private final Map<String, EntryState> myState;
+    private final Map<String, RawEntry> myEntries;
+
+    private PreviousApk(@NotNull RandomAccessFile file, @NotNull Map<String, EntryState> state, @NotNull Map<String, RawEntry> entries) {
+      myFile = file;
+      myState = state;
+      myEntries = entries;
+    }
+
+    /** Returns the previous APK, or null if there is none or the recorded state does not apply to it */
+    @Nullable
+    static PreviousApk open(@NotNull File apk, @NotNull File stateFile, @NotNull String signingId) {
+      if (!apk.isFile() || !stateFile.isFile()) {
+        return null;
+      }
+      RandomAccessFile file = null;
+      try {
+        final Map<String, EntryState> state = readState(apk, stateFile, signingId);
+        if (state == null) {
+          return null;
+        }
+        file = new RandomAccessFile(apk, "r");
+        final PreviousApk result = new PreviousApk(file, state, readCentralDirectory(file));
+        file = null;
+        return result;
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        return null;
+      }
+      finally {
+        if (file != null) {
+          try {
+            file.close();
+          }
+          catch (IOException ignored) {
+          }
+        }
+      }
+    }
+
+    @Nullable
+    private static Map<String, EntryState> readState(@NotNull File apk, @NotNull File stateFile, @NotNull String signingId)
+      throws IOException {
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+      try {
+        if (in.readInt() != STATE_VERSION ||
+            !signingId.equals(in.readUTF()) ||
+            in.readLong() != apk.length() ||
+            in.readLong() != apk.lastModified()) {
+          return null;
+        }
+        final int count = in.readInt();
+        final Map<String, EntryState> state = new HashMap<String, EntryState>(count);
+
+        for (int i = 0; i < count; i++) {
+          final String name = in.readUTF();
+          final String fingerprint = in.readUTF();
+          state.put(name, new EntryState(fingerprint, in.readUTF()));
+        }
+        return state;
+      }
+      finally {
+        in.close();
+      }
+    }
+
+    /**
+     * Copies the compressed data of the given entry to the writer, provided it was packaged from
+     * a source with the given fingerprint
+     *
+     * @return the digest of the entry, or null if it was not copied
+     */
+    @Nullable
+    String copyEntry(@NotNull String name, @NotNull String fingerprint, @NotNull ZipWriter writer) throws IOException {
+      final EntryState state = myState.get(name);
+      final RawEntry entry = myEntries.get(name);
+
+      if (state == null || entry == null || !state.fingerprint.equals(fingerprint)) {
+        return null;
+      }
+      final byte[] header = new byte[ZipWriter.LOCAL_HEADER_SIZE];
+      myFile.seek(entry.localHeaderOffset);
+      myFile.readFully(header);
+
+      if (getInt(header, 0) != ZipWriter.LOCAL_HEADER_SIGNATURE) {
+        return null;
+      }
+      myFile.seek(entry.localHeaderOffset + ZipWriter.LOCAL_HEADER_SIZE + getShort(header, 26) + getShort(header, 28));
+      final byte[] data = new byte[(int)entry.compressedSize];
+      myFile.readFully(data);
+      writer.writeRawEntry(name, entry.method, entry.dosTime, entry.crc, data, entry.size);
+      return state.digest;
+    }
+
+    void close() {
+      try {
+        myFile.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+    }
+
+    @NotNull
+    private static Map<String, RawEntry> readCentralDirectory(@NotNull RandomAccessFile file) throws IOException {
+      final long length = file.length();
+      final int tailLength = (int)Math.min(length, ZipWriter.END_HEADER_SIZE + 0xFFFF);
+      final byte[] tail = new byte[tailLength];
+      file.seek(length - tailLength);
+      file.readFully(tail);
+
+      int end = tailLength - ZipWriter.END_HEADER_SIZE;
+      while (end >= 0 && getInt(tail, end) != ZipWriter.END_HEADER_SIGNATURE) {
+        end--;
+      }
+      if (end < 0) {
+        throw new ZipException("End of central directory not found");
+      }
+      final int count = getShort(tail, end + 10);
+      final long directorySize = getInt(tail, end + 12) & 0xFFFFFFFFL;
+      final long directoryOffset = getInt(tail, end + 16) & 0xFFFFFFFFL;
+
+      final byte[] directory = new byte[(int)directorySize];
+      file.seek(directoryOffset);
+      file.readFully(directory);
+
+      final Map<String, RawEntry> entries = new HashMap<String, RawEntry>(count);
+      int offset = 0;
+      for (int i = 0; i < count; i++) {
+        if (getInt(directory, offset) != ZipWriter.CENTRAL_HEADER_SIGNATURE) {
+          throw new ZipException("Invalid central directory");
+        }
+        final int nameLength = getShort(directory, offset + 28);
+        final int extraLength = getShort(directory, offset + 30);
+        final int commentLength = getShort(directory, offset + 32);
+        final String name = new String(directory, offset + ZipWriter.CENTRAL_HEADER_SIZE, nameLength, "UTF-8");
+
+        entries.put(name, new RawEntry(getShort(directory, offset + 10),
+                                       getInt(directory, offset + 12),
+                                       getInt(directory, offset + 16) & 0xFFFFFFFFL,
+                                       getInt(directory, offset + 20) & 0xFFFFFFFFL,
+                                       getInt(directory, offset + 24) & 0xFFFFFFFFL,
+                                       getInt(directory, offset + 42) & 0xFFFFFFFFL));
+        offset += ZipWriter.CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+      }
+      return entries;
+    }
+
+    private static int getShort(@NotNull byte[] bytes, int offset) {
+      return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int getInt(@NotNull byte[] bytes, int offset) {
+      return getShort(bytes, offset) | (getShort(bytes, offset + 2) << 16);
+    }
+  }
+
+  private static class RawEntry {
+    final int method;
+    final int dosTime;
+    final long crc;
+    final long compressedSize;
+    final long size;
+    final long localHeaderOffset;
+
+    RawEntry(int method, int dosTime, long crc, long compressedSize, long size, long localHeaderOffset) {
+      this.method = method;
+      this.dosTime = dosTime;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+
+  /** Minimal zip writer which, unlike {@link ZipOutputStream}, can write already compressed entry data */
+  private static class ZipWriter {
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int END_HEADER_SIGNATURE = 0x06054b50;
+    static final int LOCAL_HEADER_SIZE = 30;
+    static final int CENTRAL_HEADER_SIZE = 46;
+    static final int END_HEADER_SIZE = 22;
+
+    /** General purpose flag: names are encoded in UTF-8 */
+    private static final int FLAG_UTF8 = 0x800;
+
+    private final OutputStream myOut;
+    private final ByteArrayOutputStream myCentralDirectory = new ByteArrayOutputStream();
+    private final Deflater myDeflater = new Deflater(9, true);
+    private long myOffset;
+    private int myCount;
+
+    ZipWriter(@NotNull File file) throws IOException {
+      myOut = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+    }
+
+    void writeEntry(@NotNull String name, @NotNull byte[] data, boolean stored, long time) throws IOException {
+      final CRC32 crc = new CRC32();
+      crc.update(data);
+      byte[] compressed = data;
+
+      if (!stored) {
+        myDeflater.reset();
+        myDeflater.setInput(data);
+        myDeflater.finish();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        final byte[] buffer = new byte[8192];
+        while (!myDeflater.finished()) {
+          final int count = myDeflater.deflate(buffer);
+          out.write(buffer, 0, count);
+        }
+        compressed = out.toByteArray();
+      }
+      writeRawEntry(name, stored ? ZipEntry.STORED : ZipEntry.DEFLATED, toDosTime(time), crc.getValue(), compressed, data.length);
+    }
+
+    void writeRawEntry(@NotNull String name, int method, int dosTime, long crc, @NotNull byte[] compressed, long size)
+      throws IOException {
+      final byte[] nameBytes = name.getBytes("UTF-8");
+      final int version = method == ZipEntry.STORED ? 10 : 20;
+
+      final ByteArrayOutputStream header = new ByteArrayOutputStream(LOCAL_HEADER_SIZE + nameBytes.length);
+      putInt(header, LOCAL_HEADER_SIGNATURE);
+      putShort(header, version);
+      putShort(header, FLAG_UTF8);
+      putShort(header, method);
+      putInt(header, dosTime);
+      putInt(header, (int)crc);
+      putInt(header, compressed.length);
+      putInt(header, (int)size);
+      putShort(header, nameBytes.length);
+      putShort(header, 0);
+      header.write(nameBytes, 0, nameBytes.length);
+
+      putInt(myCentralDirectory, CENTRAL_HEADER_SIGNATURE);
+      putShort(myCentralDirectory, 20);
+      putShort(myCentralDirectory, version);
+      putShort(myCentralDirectory, FLAG_UTF8);
+      putShort(myCentralDirectory, method);
+      putInt(myCentralDirectory, dosTime);
+      putInt(myCentralDirectory, (int)crc);
+      putInt(myCentralDirectory, compressed.length);
+      putInt(myCentralDirectory, (int)size);
+      putShort(myCentralDirectory, nameBytes.length);
+      putShort(myCentralDirectory, 0);
+      putShort(myCentralDirectory, 0);
+      putShort(myCentralDirectory, 0);
+      putShort(myCentralDirectory, 0);
+      putInt(myCentralDirectory, 0);
+      putInt(myCentralDirectory, (int)myOffset);
+      myCentralDirectory.write(nameBytes, 0, nameBytes.length);
+
+      header.writeTo(myOut);
+      myOut.write(compressed);
+      myOffset += header.size() + compressed.length;
+      myCount++;
+    }
+
+    void close() throws IOException {
+      try {
+        final long directoryOffset = myOffset;
+        myCentralDirectory.writeTo(myOut);
+
+        final ByteArrayOutputStream end = new ByteArrayOutputStream(END_HEADER_SIZE);
+        putInt(end, END_HEADER_SIGNATURE);
+        putShort(end, 0);
+        putShort(end, 0);
+        putShort(end, myCount);
+        putShort(end, myCount);
+        putInt(end, myCentralDirectory.size());
+        putInt(end, (int)directoryOffset);
+        putShort(end, 0);
+        end.writeTo(myOut);
+      }
+      finally {
+        myDeflater.end();
+        myOut.close();
+      }
+    }
+
+    private static int toDosTime(long time) {
+      final Calendar calendar = Calendar.getInstance();
+      calendar.setTimeInMillis(time);
+      final int year = calendar.get(Calendar.YEAR);
+
+      if (year < 1980) {
+        return (1 << 21) | (1 << 16);
+      }
+      return ((year - 1980) << 25) |
+             ((calendar.get(Calendar.MONTH) + 1) << 21) |
+             (calendar.get(Calendar.DAY_OF_MONTH) << 16) |
+             (calendar.get(Calendar.HOUR_OF_DAY) << 11) |
+             (calendar.get(Calendar.MINUTE) << 5) |
+             (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    private static void putShort(@NotNull ByteArrayOutputStream out, int value) {
+      out.write(value & 0xFF);
+      out.write((value >>> 8) & 0xFF);
+    }
+
+    private static void putInt(@NotNull ByteArrayOutputStream out, int value) {
+      putShort(out, value & 0xFFFF);
+      putShort(out, (value >>> 16) & 0xFFFF);
+    }
+  }
+}
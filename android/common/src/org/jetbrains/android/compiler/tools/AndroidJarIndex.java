@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.compiler.tools;
+
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Names of the file entries of a jar, read from its central directory.
+ * <p>
+ * Unlike a {@link java.util.zip.ZipInputStream} scan, building the index does not read or inflate
+ * any entry data. Indexes are cached per jar path and are reused for as long as the jar's
+ * timestamp and length stay the same, so library jars that do not change are only opened once
+ * per build process.
+ */
+class AndroidJarIndex {
+  private static final int MAX_CACHED_INDEXES = 500;
+
+  private static final Map<String, AndroidJarIndex> ourCache = new LinkedHashMap<String, AndroidJarIndex>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, AndroidJarIndex> eldest) {
+      return size() > MAX_CACHED_INDEXES;
+    }
+  };
+
+  private final long myTimestamp;
+  private final long myLength;
+  private final String[] myEntryNames;
+
+  private AndroidJarIndex(long timestamp, long length, @NotNull String[] entryNames) {
+    myTimestamp = timestamp;
+    myLength = length;
+    myEntryNames = entryNames;
+  }
+
+  /** Returns the names of the non-directory entries of the jar, in central directory order */
+  @NotNull
+  public String[] getEntryNames() {
+    return myEntryNames;
+  }
+
+  /** Returns the index of the given jar, reading its central directory only if it changed since the last call */
+  @NotNull
+  public static AndroidJarIndex getIndex(@NotNull File jar) throws IOException {
+    final String path = jar.getAbsolutePath();
+    final long timestamp = jar.lastModified();
+    final long length = jar.length();
+
+    synchronized (ourCache) {
+      final AndroidJarIndex index = ourCache.get(path);
+      if (index != null && index.myTimestamp == timestamp && index.myLength == length) {
+        return index;
+      }
+    }
+    final AndroidJarIndex index = new AndroidJarIndex(timestamp, length, readEntryNames(jar));
+
+    synchronized (ourCache) {
+      ourCache.put(path, index);
+    }
+    return index;
+  }
+
+  @NotNull
+  private static String[] readEntryNames(@NotNull File jar) throws IOException {
+    final ZipFile zipFile = new ZipFile(jar);
+    try {
+      final List<String> names = new ArrayList<String>(zipFile.size());
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+
+      while (entries.hasMoreElements()) {
+        final ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory()) {
+          names.add(entry.getName());
+        }
+      }
+      return ArrayUtil.toStringArray(names);
+    }
+    finally {
+      zipFile.close();
+    }
+  }
+}
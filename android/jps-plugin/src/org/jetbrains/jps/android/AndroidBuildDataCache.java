@@ -9,6 +9,7 @@ import org.jetbrains.android.util.AndroidCommonUtils;
 import org.jetbrains.android.util.ResourceEntry;
 import org.jetbrains.android.util.ValueResourcesFileParser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.android.model.JpsAndroidModuleExtension;
 import org.jetbrains.jps.incremental.java.FormsParsing;
 import org.jetbrains.jps.model.java.JpsJavaClasspathKind;
@@ -43,13 +44,30 @@ public class AndroidBuildDataCache {
     ourInstance = null;
   }
 
-  // If parsing throws IOException, the result it is not cached, so invoker should catch it and stop the build
-  public List<ResourceEntry> getParsedValueResourceFile(@NotNull File file) throws IOException {
+  // If parsing throws IOException, the result it is not cached, so invoker should catch it and stop the build.
+  // If a storage is passed, the entries are also looked up there before parsing and stored there after parsing,
+  // so unchanged files are not parsed again in the next build process
+  public List<ResourceEntry> getParsedValueResourceFile(@NotNull File file, @Nullable AndroidValueResourcesStorage storage)
+    throws IOException {
     final String path = FileUtil.toCanonicalPath(file.getPath());
     List<ResourceEntry> entries = myParsedValueResourceFiles.get(path);
 
     if (entries == null) {
-      entries = parseValueResourceFile(file);
+      // get them before parsing, so a modification during parsing invalidates the stored entries
+      final long timestamp = file.lastModified();
+      final long length = file.length();
+
+      if (storage != null) {
+        entries = storage.getEntries(path, timestamp, length);
+      }
+
+      if (entries == null) {
+        entries = parseValueResourceFile(file);
+
+        if (storage != null) {
+          storage.putEntries(path, timestamp, length, entries);
+        }
+      }
       myParsedValueResourceFiles.put(path, entries);
     }
     return entries;
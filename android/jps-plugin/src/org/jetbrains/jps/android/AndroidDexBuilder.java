@@ -354,7 +354,10 @@ public class AndroidDexBuilder extends AndroidTargetBuilder<BuildRootDescriptor,
           });
         }
       }
-      outputConsumer.registerOutputFile(outFile, srcFiles);
+      // Pre-dex runs several dx processes concurrently which all report to the same consumer
+      synchronized (outputConsumer) {
+        outputConsumer.registerOutputFile(outFile, srcFiles);
+      }
     }
     return success;
   }
@@ -15,6 +15,8 @@ import org.jetbrains.jps.ProjectPaths;
 import org.jetbrains.jps.android.builder.AndroidDexBuildTarget;
 import org.jetbrains.jps.android.builder.AndroidPackagingBuildTarget;
 import org.jetbrains.jps.android.builder.AndroidResourcePackagingBuildTarget;
+import org.jetbrains.jps.android.model.JpsAndroidDexCompilerConfiguration;
+import org.jetbrains.jps.android.model.JpsAndroidExtensionService;
 import org.jetbrains.jps.android.model.JpsAndroidModuleExtension;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
@@ -181,10 +183,15 @@ public class AndroidPackagingBuilder extends AndroidTargetBuilder<BuildRootDescr
     context.processMessage(new ProgressMessage(
       AndroidJpsBundle.message("android.jps.progress.packaging", AndroidJpsUtil.getApkName(module))));
 
+    final JpsProject project = context.getProjectDescriptor().getProject();
+    final JpsAndroidDexCompilerConfiguration configuration =
+      JpsAndroidExtensionService.getInstance().getDexCompilerConfiguration(project);
+    final boolean incremental = configuration != null && configuration.isIncrementalPackaging();
+
     final Map<AndroidCompilerMessageKind, List<String>> messages = AndroidApkBuilder
       .execute(resPackagePath, classesDexFilePath, sourceRoots, externalJars,
                nativeLibDirs, additionalNativeLibs, outputPath, release, sdkPath, customKeyStorePath,
-               new MyExcludedSourcesFilter(context.getProjectDescriptor().getProject()));
+               new MyExcludedSourcesFilter(project), incremental);
 
     if (messages.get(AndroidCompilerMessageKind.ERROR).size() == 0) {
       final List<String> srcFiles = new ArrayList<String>();
@@ -1,5 +1,6 @@
 package org.jetbrains.jps.android;
 
+import com.android.sdklib.BuildToolInfo;
 import com.android.tools.idea.jps.AndroidTargetBuilder;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
@@ -9,6 +10,8 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.android.builder.AndroidPreDexBuildTarget;
+import org.jetbrains.jps.android.model.JpsAndroidDexCompilerConfiguration;
+import org.jetbrains.jps.android.model.JpsAndroidExtensionService;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
 import org.jetbrains.jps.builders.FileProcessor;
@@ -26,6 +29,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Eugene.Kudelevsky
@@ -91,42 +97,208 @@ public class AndroidPreDexBuilder extends AndroidTargetBuilder<AndroidPreDexBuil
     if (platform == null) {
       return false;
     }
-    if (!filesToPreDex.isEmpty()) {
-      final File outputDir = target.getOutputFile(context);
+    if (filesToPreDex.isEmpty()) {
+      return true;
+    }
+    final File outputDir = target.getOutputFile(context);
+    final List<PreDexTask> tasks = new ArrayList<PreDexTask>();
+
+    for (Pair<File, String> pair : filesToPreDex) {
+      final File srcFile = pair.getFirst();
+      final String moduleName = pair.getSecond();
+      final String srcFilePath = srcFile.getAbsolutePath();
+      final File outputFile;
+      final String progressText;
+
+      if (moduleName != null) {
+        progressText = "Pre-dex [" + moduleName + "]";
+        outputFile = new File(new File(outputDir, moduleName), srcFile.getName());
+      }
+      else {
+        progressText = "Pre-dex: " + srcFile.getName();
+        final String outputFileName = getOutputFileNameForExternalJar(srcFile);
+
+        if (outputFileName == null) {
+          context.processMessage(new CompilerMessage(BUILDER_NAME, BuildMessage.Kind.ERROR,
+                                                     "Cannot pre-dex file " + srcFilePath + ": incorrect path", srcFilePath));
+          return false;
+        }
+        outputFile = new File(outputDir, outputFileName);
+      }
+
+      if (AndroidJpsUtil.createDirIfNotExist(outputFile.getParentFile(), context, BUILDER_NAME) == null) {
+        return false;
+      }
+      tasks.add(new PreDexTask(srcFile, outputFile, progressText));
+    }
 
-      for (Pair<File, String> pair : filesToPreDex) {
-        final File srcFile = pair.getFirst();
-        final String moduleName = pair.getSecond();
-        final String srcFilePath = srcFile.getAbsolutePath();
-        final File outputFile;
+    final JpsAndroidDexCompilerConfiguration configuration =
+      JpsAndroidExtensionService.getInstance().getDexCompilerConfiguration(project);
+    final int workers = Math.min(tasks.size(), getWorkerCount(configuration != null ? configuration.getPreDexWorkers() : 1));
+    final String dexOptions = getDexOptions(platform, configuration);
+    final AndroidPreDexCache cache = AndroidBuildTestingManager.getTestingManager() == null && dexOptions != null
+                                     ? AndroidPreDexCache.getInstance()
+                                     : null;
 
-        if (moduleName != null) {
-          context.processMessage(new ProgressMessage("Pre-dex [" + moduleName + "]"));
-          outputFile = new File(new File(outputDir, moduleName), srcFile.getName());
+    for (PreDexTask task : tasks) {
+      task.setCache(cache, dexOptions);
+    }
+
+    if (workers <= 1) {
+      for (PreDexTask task : tasks) {
+        if (!task.run(platform, context, project, outputConsumer, null)) {
+          return false;
         }
-        else {
-          context.processMessage(new ProgressMessage("Pre-dex: " + srcFile.getName()));
-          final String outputFileName = getOutputFileNameForExternalJar(srcFile);
-
-          if (outputFileName == null) {
-            context.processMessage(new CompilerMessage(BUILDER_NAME, BuildMessage.Kind.ERROR,
-                                                       "Cannot pre-dex file " + srcFilePath + ": incorrect path", srcFilePath));
-            return false;
+      }
+      return true;
+    }
+    return runInParallel(tasks, workers, platform, context, project, outputConsumer);
+  }
+
+  /**
+   * Returns a description of the dx version and options, which together with the input jar
+   * determine the pre-dexed output, or null if dx is not available
+   */
+  @Nullable
+  private static String getDexOptions(@NotNull AndroidPlatform platform, @Nullable JpsAndroidDexCompilerConfiguration configuration) {
+    final BuildToolInfo buildToolInfo = platform.getTarget().getBuildToolInfo();
+    if (buildToolInfo == null) {
+      return null;
+    }
+    final StringBuilder builder = new StringBuilder();
+    builder.append(buildToolInfo.getRevision());
+    if (configuration != null) {
+      builder.append(" optimize=").append(configuration.isOptimize());
+      builder.append(" forceJumbo=").append(configuration.isForceJumbo());
+    }
+    return builder.toString();
+  }
+
+  private static int getWorkerCount(int configured) {
+    return configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Runs the given pre-dex tasks on up to {@code workers} threads, each forking its own dx process.
+   * Once a task fails, tasks which have not started yet are skipped, and the tasks already running
+   * are waited for such that no dx process outlives the build step.
+   */
+  private static boolean runInParallel(@NotNull List<PreDexTask> tasks,
+                                       int workers,
+                                       @NotNull final AndroidPlatform platform,
+                                       @NotNull final CompileContext context,
+                                       @NotNull final JpsProject project,
+                                       @NotNull final BuildOutputConsumer outputConsumer) throws IOException {
+    final ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+      private final AtomicInteger myCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(@NotNull Runnable runnable) {
+        final Thread thread = new Thread(runnable, BUILDER_NAME + " Worker " + myCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    final AtomicBoolean failed = new AtomicBoolean();
+    final AtomicInteger started = new AtomicInteger();
+    final int total = tasks.size();
+    final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(total);
+
+    try {
+      for (final PreDexTask task : tasks) {
+        futures.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            if (failed.get() || context.getCancelStatus().isCanceled()) {
+              return false;
+            }
+            final boolean success = task.run(platform, context, project, outputConsumer, started.incrementAndGet() + "/" + total);
+
+            if (!success) {
+              failed.set(true);
+            }
+            return success;
+          }
+        }));
+      }
+      IOException exception = null;
+
+      for (Future<Boolean> future : futures) {
+        try {
+          if (!future.get()) {
+            failed.set(true);
           }
-          outputFile = new File(outputDir, outputFileName);
         }
+        catch (ExecutionException e) {
+          failed.set(true);
+          final Throwable cause = e.getCause();
 
-        if (AndroidJpsUtil.createDirIfNotExist(outputFile.getParentFile(), context, BUILDER_NAME) == null) {
-          return false;
+          if (cause instanceof IOException) {
+            if (exception == null) {
+              exception = (IOException)cause;
+            }
+          }
+          else {
+            AndroidJpsUtil.reportExceptionError(context, null, cause instanceof Exception ? (Exception)cause : e, BUILDER_NAME);
+          }
         }
+        catch (InterruptedException e) {
+          failed.set(true);
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
 
-        if (!AndroidDexBuilder.runDex(platform, outputFile.getPath(), new String[]{srcFilePath}, context,
-          project, outputConsumer, BUILDER_NAME, srcFile.getName())) {
-          return false;
+      if (exception != null) {
+        throw exception;
+      }
+      return !failed.get();
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  private static class PreDexTask {
+    private final File mySrcFile;
+    private final File myOutputFile;
+    private final String myProgressText;
+    private AndroidPreDexCache myCache;
+    private String myDexOptions;
+
+    private PreDexTask(@NotNull File srcFile, @NotNull File outputFile, @NotNull String progressText) {
+      mySrcFile = srcFile;
+      myOutputFile = outputFile;
+      myProgressText = progressText;
+    }
+
+    void setCache(@Nullable AndroidPreDexCache cache, @Nullable String dexOptions) {
+      myCache = cache;
+      myDexOptions = dexOptions;
+    }
+
+    boolean run(@NotNull AndroidPlatform platform,
+                @NotNull CompileContext context,
+                @NotNull JpsProject project,
+                @NotNull BuildOutputConsumer outputConsumer,
+                @Nullable String progress) throws IOException {
+      context.processMessage(new ProgressMessage(progress != null ? myProgressText + " (" + progress + ")" : myProgressText));
+      final String srcFilePath = mySrcFile.getAbsolutePath();
+      final String key = myCache != null && myDexOptions != null ? AndroidPreDexCache.computeKey(mySrcFile, myDexOptions) : null;
+
+      if (key != null && myCache.restore(key, myOutputFile)) {
+        synchronized (outputConsumer) {
+          outputConsumer.registerOutputFile(myOutputFile, Collections.singletonList(srcFilePath));
         }
+        return true;
+      }
+      final boolean success = AndroidDexBuilder.runDex(platform, myOutputFile.getPath(), new String[]{srcFilePath}, context,
+                                                       project, outputConsumer, BUILDER_NAME, mySrcFile.getName());
+      if (success && key != null) {
+        myCache.store(key, myOutputFile);
       }
+      return success;
     }
-    return true;
   }
 
   public static boolean canBePreDexed(@NotNull File file) {
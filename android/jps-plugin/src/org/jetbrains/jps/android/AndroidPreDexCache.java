@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.android;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Local disk cache of pre-dexed jars, shared by all modules, projects and builds of the user.
+ * <p>
+ * Entries are keyed by the SHA-1 of the input jar contents together with the dx options, so a
+ * library jar only has to be dexed once no matter where it lives or how often the project is
+ * cleaned. The total size of the cache is bounded: when it grows beyond the limit, the least
+ * recently used entries are evicted. Usage is tracked through the file modification time, which
+ * is updated on every hit.
+ */
+public class AndroidPreDexCache {
+  private static final Logger LOG = Logger.getInstance(AndroidPreDexCache.class);
+
+  /** Default maximum size of the cache; a pre-dexed support library is a few hundred KB */
+  public static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+  private static final String ENTRY_EXTENSION = ".jar";
+  private static final String TEMP_EXTENSION = ".tmp";
+
+  private static AndroidPreDexCache ourInstance;
+
+  private final File myCacheDir;
+  private final long myMaxSize;
+
+  public AndroidPreDexCache(@NotNull File cacheDir, long maxSize) {
+    myCacheDir = cacheDir;
+    myMaxSize = maxSize;
+  }
+
+  /** Returns the cache in {@code ~/.android/cache/predex} */
+  @NotNull
+  public static synchronized AndroidPreDexCache getInstance() {
+    if (ourInstance == null) {
+      final File cacheDir = new File(System.getProperty("user.home"), ".android" + File.separator + "cache" + File.separator + "predex");
+      ourInstance = new AndroidPreDexCache(cacheDir, DEFAULT_MAX_SIZE);
+    }
+    return ourInstance;
+  }
+
+  /**
+   * Computes the cache key of the given jar pre-dexed with the given options
+   *
+   * @param jar the input jar
+   * @param dexOptions a description of everything besides the input that affects the dx output,
+   *                   such as the dx version and the optimize and jumbo mode flags
+   * @return the key, or null if the jar could not be read
+   */
+  @Nullable
+  public static String computeKey(@NotNull File jar, @NotNull String dexOptions) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(dexOptions.getBytes("UTF-8"));
+      digest.update((byte)0);
+
+      final InputStream in = new FileInputStream(jar);
+      try {
+        final byte[] buffer = new byte[64 * 1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, count);
+        }
+      }
+      finally {
+        in.close();
+      }
+      final StringBuilder key = new StringBuilder();
+      for (byte b : digest.digest()) {
+        key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return key.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      LOG.error(e);
+      return null;
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  /**
+   * Copies the cached output for the given key to the given file
+   *
+   * @return true if the cache had an entry for the key and it was copied
+   */
+  public boolean restore(@NotNull String key, @NotNull File outputFile) {
+    final File entry = getEntryFile(key);
+    if (!entry.isFile()) {
+      return false;
+    }
+    try {
+      FileUtil.copy(entry, outputFile);
+      //noinspection ResultOfMethodCallIgnored
+      entry.setLastModified(System.currentTimeMillis());
+      return true;
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      FileUtil.delete(outputFile);
+      return false;
+    }
+  }
+
+  /** Adds the given pre-dexed output to the cache under the given key, evicting old entries as needed */
+  public void store(@NotNull String key, @NotNull File dexedFile) {
+    final File entry = getEntryFile(key);
+    if (entry.isFile() || !dexedFile.isFile()) {
+      return;
+    }
+    if (!myCacheDir.isDirectory() && !myCacheDir.mkdirs()) {
+      LOG.info("Cannot create pre-dex cache directory " + myCacheDir.getPath());
+      return;
+    }
+    // Copy to a temporary file first such that concurrent builds, also in other processes, never see a partial entry
+    File temp = null;
+    try {
+      temp = File.createTempFile(key + '-', TEMP_EXTENSION, myCacheDir);
+      FileUtil.copy(dexedFile, temp);
+      if (!temp.renameTo(entry) && !entry.isFile()) {
+        LOG.info("Cannot add " + entry.getPath() + " to the pre-dex cache");
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+    finally {
+      if (temp != null) {
+        FileUtil.delete(temp);
+      }
+    }
+    evict();
+  }
+
+  /** Deletes the least recently used entries until the cache fits in its maximum size */
+  synchronized void evict() {
+    final File[] entries = myCacheDir.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return file.isFile() && file.getName().endsWith(ENTRY_EXTENSION);
+      }
+    });
+    if (entries == null) {
+      return;
+    }
+    long size = 0;
+    final long[] lastModified = new long[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      size += entries[i].length();
+    }
+    if (size <= myMaxSize) {
+      return;
+    }
+    for (int i = 0; i < entries.length; i++) {
+      lastModified[i] = entries[i].lastModified();
+    }
+    final Integer[] order = new Integer[entries.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        final long t1 = lastModified[i1];
+        final long t2 = lastModified[i2];
+        return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+      }
+    });
+    for (Integer index : order) {
+      if (size <= myMaxSize) {
+        break;
+      }
+      final File entry = entries[index];
+      final long length = entry.length();
+      if (FileUtil.delete(entry)) {
+        size -= length;
+      }
+    }
+  }
+
+  @NotNull
+  private File getEntryFile(@NotNull String key) {
+    return new File(myCacheDir, key + ENTRY_EXTENSION);
+  }
+}
@@ -14,6 +14,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.Processor;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.HashMap;
 import com.intellij.util.containers.HashSet;
 import gnu.trove.THashSet;
@@ -30,6 +31,7 @@ import org.jetbrains.jps.ModuleChunk;
 import org.jetbrains.jps.android.model.AndroidApplicationArtifactType;
 import org.jetbrains.jps.android.model.JpsAndroidApplicationArtifactProperties;
 import org.jetbrains.jps.android.model.JpsAndroidModuleExtension;
+import org.jetbrains.jps.api.GlobalOptions;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
 import org.jetbrains.jps.builders.FileProcessor;
 import org.jetbrains.jps.builders.java.ExcludedJavaSourceRootProvider;
@@ -55,6 +57,14 @@ import org.jetbrains.jps.service.JpsServiceManager;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Eugene.Kudelevsky
@@ -82,6 +92,14 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
 
   public static final Key<Boolean> IS_ENABLED = Key.create("_android_source_generator_enabled_");
 
+  /** Threads running the Android tools of the current build, if they run in parallel */
+  private static final Key<ExecutorService> TOOL_EXECUTOR = Key.create("_android_tool_executor_");
+  /** Idle tool threads are released after this many seconds */
+  private static final int TOOL_WORKER_KEEP_ALIVE_SECONDS = 10;
+
+  /** Parsed value resource files of the whole project, opened on first use in the current build */
+  private static final Key<AndroidValueResourcesStorage> VALUE_RESOURCES_STORAGE = Key.create("_android_value_resources_storage_");
+
   @NonNls private static final String R_TXT_OUTPUT_DIR_NAME = "r_txt";
 
   public AndroidSourceGeneratingBuilder() {
@@ -96,6 +114,24 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
   @Override
   public void buildFinished(CompileContext context) {
     AndroidBuildDataCache.clean();
+
+    final AndroidValueResourcesStorage valueResourcesStorage = VALUE_RESOURCES_STORAGE.get(context);
+    if (valueResourcesStorage != null) {
+      VALUE_RESOURCES_STORAGE.set(context, null);
+      valueResourcesStorage.prune();
+      try {
+        valueResourcesStorage.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+    }
+
+    final ExecutorService executor = TOOL_EXECUTOR.get(context);
+    if (executor != null) {
+      TOOL_EXECUTOR.set(context, null);
+      executor.shutdownNow();
+    }
   }
 
   @Override
@@ -688,6 +724,7 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     }
 
     boolean success = true;
+    final List<ToolInvocation> invocations = new ArrayList<ToolInvocation>();
 
     for (Map.Entry<File, ModuleBuildTarget> entry : files.entrySet()) {
       final File file = entry.getKey();
@@ -731,25 +768,39 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
         final File outputFile = new File(aidlOutputDirectory, packageName.replace('.', File.separatorChar) +
                                                               File.separator + FileUtil.getNameWithoutExtension(file) + ".java");
         final String outputFilePath = outputFile.getPath();
-        final Map<AndroidCompilerMessageKind, List<String>> messages =
-          AndroidIdl.execute(target, filePath, outputFilePath, sourceRootPaths);
 
-        addMessages(context, messages, filePath, ANDROID_IDL_COMPILER);
+        invocations.add(new ToolInvocation(filePath, null) {
+          @Override
+          protected Map<AndroidCompilerMessageKind, List<String>> execute() throws IOException {
+            return AndroidIdl.execute(target, filePath, outputFilePath, sourceRootPaths);
+          }
 
-        if (messages.get(AndroidCompilerMessageKind.ERROR).size() > 0) {
-          success = false;
-        }
-        else if (outputFile.exists()) {
-          final SourceToOutputMapping sourceToOutputMap = context.getProjectDescriptor().dataManager.getSourceToOutputMap(buildTarget);
-          sourceToOutputMap.setOutput(filePath, outputFilePath);
-          FSOperations.markDirty(context, outputFile);
-        }
+          @Override
+          protected boolean apply(@NotNull CompileContext context, @NotNull Map<AndroidCompilerMessageKind, List<String>> messages)
+            throws IOException {
+            addMessages(context, messages, filePath, ANDROID_IDL_COMPILER);
+
+            if (messages.get(AndroidCompilerMessageKind.ERROR).size() > 0) {
+              return false;
+            }
+            else if (outputFile.exists()) {
+              final SourceToOutputMapping sourceToOutputMap = context.getProjectDescriptor().dataManager.getSourceToOutputMap(buildTarget);
+              sourceToOutputMap.setOutput(filePath, outputFilePath);
+              FSOperations.markDirty(context, outputFile);
+            }
+            return true;
+          }
+        });
       }
       catch (final IOException e) {
         AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_IDL_COMPILER);
         success = false;
       }
     }
+
+    if (!runToolInvocations(context, invocations, ANDROID_IDL_COMPILER)) {
+      success = false;
+    }
     return success;
   }
 
@@ -761,84 +812,96 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     }
 
     boolean success = true;
+    final List<ToolInvocation> invocations = new ArrayList<ToolInvocation>();
 
-    for (Map.Entry<File, ModuleBuildTarget> entry : files.entrySet()) {
-      final File file = entry.getKey();
-      final ModuleBuildTarget buildTarget = entry.getValue();
-
-      final MyModuleData moduleData = moduleDataMap.get(buildTarget.getModule());
-      if (!LOG.assertTrue(moduleData != null)) {
-        context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
-                                                   AndroidJpsBundle.message("android.jps.internal.error")));
-        success = false;
-        continue;
-      }
-
-      final BuildDataManager dataManager = context.getProjectDescriptor().dataManager;
-      final File generatedSourcesDir = AndroidJpsUtil.getGeneratedSourcesStorage(buildTarget.getModule(), dataManager);
-      final File rsOutputDirectory = new File(generatedSourcesDir, AndroidJpsUtil.RENDERSCRIPT_GENERATED_SOURCE_ROOT_NAME);
-      if (!rsOutputDirectory.exists() && !rsOutputDirectory.mkdirs()) {
-        context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR, AndroidJpsBundle
-          .message("android.jps.cannot.create.directory", rsOutputDirectory.getPath())));
-        success = false;
-        continue;
-      }
+    try {
+      for (Map.Entry<File, ModuleBuildTarget> entry : files.entrySet()) {
+        final File file = entry.getKey();
+        final ModuleBuildTarget buildTarget = entry.getValue();
+
+        final MyModuleData moduleData = moduleDataMap.get(buildTarget.getModule());
+        if (!LOG.assertTrue(moduleData != null)) {
+          context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
+                                                     AndroidJpsBundle.message("android.jps.internal.error")));
+          success = false;
+          continue;
+        }
 
-      final File generatedResourcesDir = AndroidJpsUtil.getGeneratedResourcesStorage(buildTarget.getModule(), dataManager);
-      final File rawDir = new File(generatedResourcesDir, "raw");
+        final BuildDataManager dataManager = context.getProjectDescriptor().dataManager;
+        final File generatedSourcesDir = AndroidJpsUtil.getGeneratedSourcesStorage(buildTarget.getModule(), dataManager);
+        final File rsOutputDirectory = new File(generatedSourcesDir, AndroidJpsUtil.RENDERSCRIPT_GENERATED_SOURCE_ROOT_NAME);
+        if (!rsOutputDirectory.exists() && !rsOutputDirectory.mkdirs()) {
+          context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR, AndroidJpsBundle
+            .message("android.jps.cannot.create.directory", rsOutputDirectory.getPath())));
+          success = false;
+          continue;
+        }
 
-      if (!rawDir.exists() && !rawDir.mkdirs()) {
-        context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
-                                                   AndroidJpsBundle.message("android.jps.cannot.create.directory", rawDir.getPath())));
-        success = false;
-        continue;
-      }
+        final File generatedResourcesDir = AndroidJpsUtil.getGeneratedResourcesStorage(buildTarget.getModule(), dataManager);
+        final File rawDir = new File(generatedResourcesDir, "raw");
 
-      final AndroidPlatform platform = moduleData.getPlatform();
-      final IAndroidTarget target = platform.getTarget();
-      final String sdkLocation = platform.getSdk().getHomePath();
-      final String filePath = file.getPath();
+        if (!rawDir.exists() && !rawDir.mkdirs()) {
+          context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
+                                                     AndroidJpsBundle.message("android.jps.cannot.create.directory", rawDir.getPath())));
+          success = false;
+          continue;
+        }
 
-      File tmpOutputDirectory = null;
+        final AndroidPlatform platform = moduleData.getPlatform();
+        final IAndroidTarget target = platform.getTarget();
+        final String sdkLocation = platform.getSdk().getHomePath();
+        final String filePath = file.getPath();
 
-      try {
-        tmpOutputDirectory = FileUtil.createTempDirectory("generated-rs-temp", null);
-        final String depFolderPath = getDependencyFolder(context, file, tmpOutputDirectory);
+        try {
+          final File tmpOutputDirectory = FileUtil.createTempDirectory("generated-rs-temp", null);
+          final String depFolderPath = getDependencyFolder(context, file, tmpOutputDirectory);
 
-        final Map<AndroidCompilerMessageKind, List<String>> messages =
-          AndroidRenderscript.execute(sdkLocation, target, filePath, tmpOutputDirectory.getPath(), depFolderPath, rawDir.getPath());
+          invocations.add(new ToolInvocation(filePath, tmpOutputDirectory) {
+            @Override
+            protected Map<AndroidCompilerMessageKind, List<String>> execute() throws IOException {
+              return AndroidRenderscript.execute(sdkLocation, target, filePath, tmpOutputDirectory.getPath(), depFolderPath, rawDir.getPath());
+            }
 
-        addMessages(context, messages, filePath, ANDROID_RENDERSCRIPT_COMPILER);
+            @Override
+            protected boolean apply(@NotNull CompileContext context, @NotNull Map<AndroidCompilerMessageKind, List<String>> messages)
+              throws IOException {
+              addMessages(context, messages, filePath, ANDROID_RENDERSCRIPT_COMPILER);
 
-        if (messages.get(AndroidCompilerMessageKind.ERROR).size() > 0) {
-          success = false;
-        }
-        else {
-          final List<File> newFiles = new ArrayList<File>();
-          AndroidCommonUtils.moveAllFiles(tmpOutputDirectory, rsOutputDirectory, newFiles);
+              if (messages.get(AndroidCompilerMessageKind.ERROR).size() > 0) {
+                return false;
+              }
+              final List<File> newFiles = new ArrayList<File>();
+              AndroidCommonUtils.moveAllFiles(tmpOutputDirectory, rsOutputDirectory, newFiles);
 
-          final File bcFile = new File(rawDir, FileUtil.getNameWithoutExtension(file) + ".bc");
-          if (bcFile.exists()) {
-            newFiles.add(bcFile);
-          }
-          final List<String> newFilePaths = Arrays.asList(AndroidJpsUtil.toPaths(newFiles.toArray(new File[newFiles.size()])));
+              final File bcFile = new File(rawDir, FileUtil.getNameWithoutExtension(file) + ".bc");
+              if (bcFile.exists()) {
+                newFiles.add(bcFile);
+              }
+              final List<String> newFilePaths = Arrays.asList(AndroidJpsUtil.toPaths(newFiles.toArray(new File[newFiles.size()])));
 
-          final SourceToOutputMapping sourceToOutputMap = dataManager.getSourceToOutputMap(buildTarget);
-          sourceToOutputMap.setOutputs(filePath, newFilePaths);
+              final SourceToOutputMapping sourceToOutputMap = dataManager.getSourceToOutputMap(buildTarget);
+              sourceToOutputMap.setOutputs(filePath, newFilePaths);
 
-          for (File newFile : newFiles) {
-            FSOperations.markDirty(context, newFile);
-          }
+              for (File newFile : newFiles) {
+                FSOperations.markDirty(context, newFile);
+              }
+              return true;
+            }
+          });
+        }
+        catch (IOException e) {
+          AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_RENDERSCRIPT_COMPILER);
+          success = false;
         }
       }
-      catch (IOException e) {
-        AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_RENDERSCRIPT_COMPILER);
+
+      if (!runToolInvocations(context, invocations, ANDROID_RENDERSCRIPT_COMPILER)) {
         success = false;
       }
-      finally {
-        if (tmpOutputDirectory != null) {
-          FileUtil.delete(tmpOutputDirectory);
-        }
+    }
+    finally {
+      for (ToolInvocation invocation : invocations) {
+        invocation.deleteTempDirectory();
       }
     }
     return success;
@@ -849,169 +912,192 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     throws IOException {
     boolean success = true;
     boolean didSomething = false;
+    final List<ToolInvocation> invocations = new ArrayList<ToolInvocation>();
 
-    for (Map.Entry<JpsModule, MyModuleData> entry : moduleDataMap.entrySet()) {
-      final JpsModule module = entry.getKey();
-      final ModuleBuildTarget moduleTarget = new ModuleBuildTarget(module, JavaModuleBuildTargetType.PRODUCTION);
-      final AndroidAptStateStorage storage =
-        context.getProjectDescriptor().dataManager.getStorage(
-          moduleTarget, AndroidAptStateStorage.PROVIDER);
+    try {
+      for (Map.Entry<JpsModule, MyModuleData> entry : moduleDataMap.entrySet()) {
+        final JpsModule module = entry.getKey();
+        final ModuleBuildTarget moduleTarget = new ModuleBuildTarget(module, JavaModuleBuildTargetType.PRODUCTION);
+        final AndroidAptStateStorage storage =
+          context.getProjectDescriptor().dataManager.getStorage(
+            moduleTarget, AndroidAptStateStorage.PROVIDER);
 
-      final MyModuleData moduleData = entry.getValue();
-      final JpsAndroidModuleExtension extension = moduleData.getAndroidExtension();
+        final MyModuleData moduleData = entry.getValue();
+        final JpsAndroidModuleExtension extension = moduleData.getAndroidExtension();
 
-      final File generatedSourcesDir = AndroidJpsUtil.getGeneratedSourcesStorage(module, context.getProjectDescriptor().dataManager);
-      final File aptOutputDirectory = new File(generatedSourcesDir, AndroidJpsUtil.AAPT_GENERATED_SOURCE_ROOT_NAME);
-      final IAndroidTarget target = moduleData.getPlatform().getTarget();
+        final File generatedSourcesDir = AndroidJpsUtil.getGeneratedSourcesStorage(module, context.getProjectDescriptor().dataManager);
+        final File aptOutputDirectory = new File(generatedSourcesDir, AndroidJpsUtil.AAPT_GENERATED_SOURCE_ROOT_NAME);
+        final IAndroidTarget target = moduleData.getPlatform().getTarget();
 
-      try {
-        final String[] resPaths = AndroidJpsUtil.collectResourceDirsForCompilation(extension, false, context, true);
-        if (resPaths.length == 0) {
-          // there is no resources in the module
-          if (!clearDirectoryIfNotEmpty(aptOutputDirectory, context, ANDROID_APT_COMPILER)) {
-            success = false;
+        try {
+          final String[] resPaths = AndroidJpsUtil.collectResourceDirsForCompilation(extension, false, context, true);
+          if (resPaths.length == 0) {
+            // there is no resources in the module
+            if (!clearDirectoryIfNotEmpty(aptOutputDirectory, context, ANDROID_APT_COMPILER)) {
+              success = false;
+            }
+            continue;
           }
-          continue;
-        }
-        final String packageName = moduleData.getPackage();
-        final File manifestFile;
+          final String packageName = moduleData.getPackage();
+          final File manifestFile;
 
-        if (extension.isLibrary() || !extension.isManifestMergingEnabled()) {
-          manifestFile = moduleData.getManifestFileForCompiler();
-        }
-        else {
-          manifestFile = new File(AndroidJpsUtil.getPreprocessedManifestDirectory(module, context.
-            getProjectDescriptor().dataManager.getDataPaths()), SdkConstants.FN_ANDROID_MANIFEST_XML);
-        }
+          if (extension.isLibrary() || !extension.isManifestMergingEnabled()) {
+            manifestFile = moduleData.getManifestFileForCompiler();
+          }
+          else {
+            manifestFile = new File(AndroidJpsUtil.getPreprocessedManifestDirectory(module, context.
+              getProjectDescriptor().dataManager.getDataPaths()), SdkConstants.FN_ANDROID_MANIFEST_XML);
+          }
 
-        if (isLibraryWithBadCircularDependency(extension)) {
-          if (!clearDirectoryIfNotEmpty(aptOutputDirectory, context, ANDROID_APT_COMPILER)) {
-            success = false;
+          if (isLibraryWithBadCircularDependency(extension)) {
+            if (!clearDirectoryIfNotEmpty(aptOutputDirectory, context, ANDROID_APT_COMPILER)) {
+              success = false;
+            }
+            continue;
           }
-          continue;
-        }
-        final Map<JpsModule, String> packageMap = getDepLibPackages(module);
-        packageMap.put(module, packageName);
-
-        final JpsModule circularDepLibWithSamePackage = findCircularDependencyOnLibraryWithSamePackage(extension, packageMap);
-        if (circularDepLibWithSamePackage != null && !extension.isLibrary()) {
-          final String message = "Generated fields in " +
-                                 packageName +
-                                 ".R class in module '" +
-                                 module.getName() +
-                                 "' won't be final, because of circular dependency on module '" +
-                                 circularDepLibWithSamePackage.getName() +
-                                 "'";
-          context.processMessage(new CompilerMessage(ANDROID_APT_COMPILER, BuildMessage.Kind.WARNING, message));
-        }
-        final boolean generateNonFinalFields = extension.isLibrary() || circularDepLibWithSamePackage != null;
+          final Map<JpsModule, String> packageMap = getDepLibPackages(module);
+          packageMap.put(module, packageName);
+
+          final JpsModule circularDepLibWithSamePackage = findCircularDependencyOnLibraryWithSamePackage(extension, packageMap);
+          if (circularDepLibWithSamePackage != null && !extension.isLibrary()) {
+            final String message = "Generated fields in " +
+                                   packageName +
+                                   ".R class in module '" +
+                                   module.getName() +
+                                   "' won't be final, because of circular dependency on module '" +
+                                   circularDepLibWithSamePackage.getName() +
+                                   "'";
+            context.processMessage(new CompilerMessage(ANDROID_APT_COMPILER, BuildMessage.Kind.WARNING, message));
+          }
+          final boolean generateNonFinalFields = extension.isLibrary() || circularDepLibWithSamePackage != null;
 
-        AndroidAptValidityState oldState;
+          AndroidAptValidityState oldState;
 
-        try {
-          oldState = storage.getState(module.getName());
-        }
-        catch (IOException e) {
-          LOG.info(e);
-          oldState = null;
-        }
-        final Map<String, ResourceFileData> resources = new HashMap<String, ResourceFileData>();
-        final TObjectLongHashMap<String> valueResFilesTimestamps = new TObjectLongHashMap<String>();
-        collectResources(resPaths, resources, valueResFilesTimestamps, oldState);
+          try {
+            oldState = storage.getState(module.getName());
+          }
+          catch (IOException e) {
+            LOG.info(e);
+            oldState = null;
+          }
+          final Map<String, ResourceFileData> resources = new HashMap<String, ResourceFileData>();
+          final TObjectLongHashMap<String> valueResFilesTimestamps = new TObjectLongHashMap<String>();
+          collectResources(resPaths, resources, valueResFilesTimestamps, oldState, getValueResourcesStorage(context));
 
-        final List<ResourceEntry> manifestElements = collectManifestElements(manifestFile);
-        final List<Pair<String, String>> libRTextFilesAndPackages = new ArrayList<Pair<String, String>>(packageMap.size());
+          final List<ResourceEntry> manifestElements = collectManifestElements(manifestFile);
+          final List<Pair<String, String>> libRTextFilesAndPackages = new ArrayList<Pair<String, String>>(packageMap.size());
 
-        for (Map.Entry<JpsModule, String> entry1 : packageMap.entrySet()) {
-          final String libPackage = entry1.getValue();
+          for (Map.Entry<JpsModule, String> entry1 : packageMap.entrySet()) {
+            final String libPackage = entry1.getValue();
 
-          if (!packageName.equals(libPackage)) {
-            final String libRTxtFilePath = new File(new File(AndroidJpsUtil.getDirectoryForIntermediateArtifacts(
-              context, entry1.getKey()), R_TXT_OUTPUT_DIR_NAME), SdkConstants.FN_RESOURCE_TEXT).getPath();
-            libRTextFilesAndPackages.add(Pair.create(libRTxtFilePath, libPackage));
+            if (!packageName.equals(libPackage)) {
+              final String libRTxtFilePath = new File(new File(AndroidJpsUtil.getDirectoryForIntermediateArtifacts(
+                context, entry1.getKey()), R_TXT_OUTPUT_DIR_NAME), SdkConstants.FN_RESOURCE_TEXT).getPath();
+              libRTextFilesAndPackages.add(Pair.create(libRTxtFilePath, libPackage));
+            }
           }
-        }
-        final File outputDirForArtifacts = AndroidJpsUtil.getDirectoryForIntermediateArtifacts(context, module);
-        final String proguardOutputCfgFilePath;
+          final File outputDirForArtifacts = AndroidJpsUtil.getDirectoryForIntermediateArtifacts(context, module);
+          final String proguardOutputCfgFilePath;
 
-        if (AndroidJpsUtil.getProGuardConfigIfShouldRun(context, extension) != null) {
-          if (AndroidJpsUtil.createDirIfNotExist(outputDirForArtifacts, context, BUILDER_NAME) == null) {
-            success = false;
-            continue;
+          if (AndroidJpsUtil.getProGuardConfigIfShouldRun(context, extension) != null) {
+            if (AndroidJpsUtil.createDirIfNotExist(outputDirForArtifacts, context, BUILDER_NAME) == null) {
+              success = false;
+              continue;
+            }
+            proguardOutputCfgFilePath = new File(outputDirForArtifacts, AndroidCommonUtils.PROGUARD_CFG_OUTPUT_FILE_NAME).getPath();
           }
-          proguardOutputCfgFilePath = new File(outputDirForArtifacts, AndroidCommonUtils.PROGUARD_CFG_OUTPUT_FILE_NAME).getPath();
-        }
-        else {
-          proguardOutputCfgFilePath = null;
-        }
-        String rTxtOutDirOsPath = null;
+          else {
+            proguardOutputCfgFilePath = null;
+          }
+          String rTxtOutDirOsPath = null;
 
-        if (extension.isLibrary() || libRTextFilesAndPackages.size() > 0) {
-          final File rTxtOutDir = new File(outputDirForArtifacts, R_TXT_OUTPUT_DIR_NAME);
+          if (extension.isLibrary() || libRTextFilesAndPackages.size() > 0) {
+            final File rTxtOutDir = new File(outputDirForArtifacts, R_TXT_OUTPUT_DIR_NAME);
 
-          if (AndroidJpsUtil.createDirIfNotExist(rTxtOutDir, context, BUILDER_NAME) == null) {
-            success = false;
+            if (AndroidJpsUtil.createDirIfNotExist(rTxtOutDir, context, BUILDER_NAME) == null) {
+              success = false;
+              continue;
+            }
+            rTxtOutDirOsPath = rTxtOutDir.getPath();
+          }
+          final AndroidAptValidityState newState =
+            new AndroidAptValidityState(resources, valueResFilesTimestamps, manifestElements, libRTextFilesAndPackages,
+                                        packageName, proguardOutputCfgFilePath, rTxtOutDirOsPath, extension.isLibrary());
+
+          if (newState.equalsTo(oldState)) {
+            // we need to update state, because it also contains myValueResFilesTimestamps not taking into account by equalsTo()
+            storage.update(module.getName(), newState);
             continue;
           }
-          rTxtOutDirOsPath = rTxtOutDir.getPath();
-        }
-        final AndroidAptValidityState newState =
-          new AndroidAptValidityState(resources, valueResFilesTimestamps, manifestElements, libRTextFilesAndPackages,
-                                      packageName, proguardOutputCfgFilePath, rTxtOutDirOsPath, extension.isLibrary());
+          didSomething = true;
+          context.processMessage(new ProgressMessage(AndroidJpsBundle.message("android.jps.progress.aapt", module.getName())));
 
-        if (newState.equalsTo(oldState)) {
-          // we need to update state, because it also contains myValueResFilesTimestamps not taking into account by equalsTo()
-          storage.update(module.getName(), newState);
-          continue;
-        }
-        didSomething = true;
-        context.processMessage(new ProgressMessage(AndroidJpsBundle.message("android.jps.progress.aapt", module.getName())));
+          final File tmpOutputDir = FileUtil.createTempDirectory("android_apt_output", "tmp");
+          final String finalRTxtOutDirOsPath = rTxtOutDirOsPath;
 
-        File tmpOutputDir = null;
-        try {
-          tmpOutputDir = FileUtil.createTempDirectory("android_apt_output", "tmp");
-          final Map<AndroidCompilerMessageKind, List<String>> messages = AndroidApt.compile(
-            target, -1, manifestFile.getPath(), packageName, tmpOutputDir.getPath(), resPaths, libRTextFilesAndPackages,
-            generateNonFinalFields, proguardOutputCfgFilePath, rTxtOutDirOsPath, !extension.isLibrary());
+          final ToolInvocation invocation = new ToolInvocation(null, tmpOutputDir) {
+            @Override
+            protected Map<AndroidCompilerMessageKind, List<String>> execute() throws IOException {
+              return AndroidApt.compile(
+                target, -1, manifestFile.getPath(), packageName, tmpOutputDir.getPath(), resPaths, libRTextFilesAndPackages,
+                generateNonFinalFields, proguardOutputCfgFilePath, finalRTxtOutDirOsPath, !extension.isLibrary());
+            }
 
-          AndroidJpsUtil.addMessages(context, messages, ANDROID_APT_COMPILER, module.getName());
+            @Override
+            protected boolean apply(@NotNull CompileContext context, @NotNull Map<AndroidCompilerMessageKind, List<String>> messages)
+              throws IOException {
+              AndroidJpsUtil.addMessages(context, messages, ANDROID_APT_COMPILER, module.getName());
 
-          if (messages.get(AndroidCompilerMessageKind.ERROR).size() > 0) {
-            success = false;
-            storage.update(module.getName(), null);
-          }
-          else {
-            if (!AndroidCommonUtils.directoriesContainSameContent(tmpOutputDir, aptOutputDirectory, JavaFilesFilter.INSTANCE)) {
-              if (!deleteAndMarkRecursively(aptOutputDirectory, context, ANDROID_APT_COMPILER)) {
-                success = false;
-                continue;
+              if (messages.get(AndroidCompilerMessageKind.ERROR).size() > 0) {
+                storage.update(module.getName(), null);
+                return false;
               }
-              final File parent = aptOutputDirectory.getParentFile();
-              if (parent != null && !parent.exists() && !parent.mkdirs()) {
-                context.processMessage(new CompilerMessage(ANDROID_APT_COMPILER, BuildMessage.Kind.ERROR, AndroidJpsBundle.message(
-                  "android.jps.cannot.create.directory", parent.getPath())));
-                success = false;
-                continue;
+              if (!AndroidCommonUtils.directoriesContainSameContent(tmpOutputDir, aptOutputDirectory, JavaFilesFilter.INSTANCE)) {
+                if (!deleteAndMarkRecursively(aptOutputDirectory, context, ANDROID_APT_COMPILER)) {
+                  return false;
+                }
+                final File parent = aptOutputDirectory.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                  context.processMessage(new CompilerMessage(ANDROID_APT_COMPILER, BuildMessage.Kind.ERROR, AndroidJpsBundle.message(
+                    "android.jps.cannot.create.directory", parent.getPath())));
+                  return false;
+                }
+                // we use copyDir instead of moveDirWithContent here, because tmp directory may be located on other disk and
+                // moveDirWithContent doesn't work for such case
+                FileUtil.copyDir(tmpOutputDir, aptOutputDirectory);
+                markDirtyRecursively(aptOutputDirectory, context, ANDROID_APT_COMPILER, true);
               }
-              // we use copyDir instead of moveDirWithContent here, because tmp directory may be located on other disk and
-              // moveDirWithContent doesn't work for such case
-              FileUtil.copyDir(tmpOutputDir, aptOutputDirectory);
-              markDirtyRecursively(aptOutputDirectory, context, ANDROID_APT_COMPILER, true);
+              storage.update(module.getName(), newState);
+              return true;
             }
-            storage.update(module.getName(), newState);
+          };
+          for (Pair<String, String> pair : libRTextFilesAndPackages) {
+            invocation.addInput(pair.getFirst());
           }
-        }
-        finally {
-          if (tmpOutputDir != null) {
-            FileUtil.delete(tmpOutputDir);
+          if (rTxtOutDirOsPath != null) {
+            invocation.addOutput(new File(rTxtOutDirOsPath, SdkConstants.FN_RESOURCE_TEXT).getPath());
           }
+          invocations.add(invocation);
+        }
+        catch (IOException e) {
+          AndroidJpsUtil.reportExceptionError(context, null, e, ANDROID_APT_COMPILER);
+          success = false;
         }
       }
-      catch (IOException e) {
-        AndroidJpsUtil.reportExceptionError(context, null, e, ANDROID_APT_COMPILER);
+
+      // modules reading the R.txt of a library compiled in this round have to wait for it
+      executeInDependencyOrder(getToolExecutor(context), invocations);
+
+      if (!applyAll(context, invocations, ANDROID_APT_COMPILER)) {
         success = false;
       }
     }
+    finally {
+      for (ToolInvocation invocation : invocations) {
+        invocation.deleteTempDirectory();
+      }
+    }
+
     if (!success) {
       return MyExitStatus.FAIL;
     }
@@ -1021,6 +1107,146 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     return MyExitStatus.NOTHING_CHANGED;
   }
 
+  /**
+   * Executes the given tool invocations and then applies their results in order, see {@link #executeAll}
+   *
+   * @return false if any of the invocations failed
+   */
+  private static boolean runToolInvocations(@NotNull CompileContext context,
+                                            @NotNull List<ToolInvocation> invocations,
+                                            @NotNull String compilerName) {
+    executeAll(getToolExecutor(context), invocations);
+    return applyAll(context, invocations, compilerName);
+  }
+
+  /**
+   * Returns the executor running the Android tools of the build, or null if independent modules are not compiled
+   * in parallel. The executor is created on first use, is shared by all tool runs of the build, and is shut down
+   * when the build finishes.
+   */
+  @Nullable
+  private static ExecutorService getToolExecutor(@NotNull CompileContext context) {
+    final int workers = getParallelToolWorkerCount();
+    if (workers <= 1) {
+      return null;
+    }
+    ExecutorService executor = TOOL_EXECUTOR.get(context);
+
+    if (executor == null) {
+      final ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, TOOL_WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger myCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+          final Thread thread = new Thread(runnable, BUILDER_NAME + " Worker " + myCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      pool.allowCoreThreadTimeOut(true);
+      executor = pool;
+      TOOL_EXECUTOR.set(context, executor);
+    }
+    return executor;
+  }
+
+  /**
+   * Executes the given tool invocations. If an executor is given, the tools are run concurrently on it, but the
+   * results are only recorded in the invocations: applying them, which reports messages and updates the state
+   * storages and outputs, is done on the calling thread and in the original order, such that the build does not
+   * depend on which tool finishes first.
+   */
+  static void executeAll(@Nullable ExecutorService executor, @NotNull List<ToolInvocation> invocations) {
+    if (executor == null || invocations.size() <= 1) {
+      for (ToolInvocation invocation : invocations) {
+        invocation.run();
+      }
+      return;
+    }
+    final List<Future<?>> futures = new ArrayList<Future<?>>(invocations.size());
+    try {
+      for (ToolInvocation invocation : invocations) {
+        futures.add(executor.submit(invocation));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      // the invocations which did not complete report an error when applied
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      // ToolInvocation.run() records all exceptions itself
+      LOG.error(e);
+    }
+  }
+
+  /**
+   * Executes the given tool invocations such that an invocation only starts once all the invocations producing
+   * its inputs are completed, e.g. aapt for a module reading the R.txt of a library compiled in the same round
+   */
+  static void executeInDependencyOrder(@Nullable ExecutorService executor, @NotNull List<ToolInvocation> invocations) {
+    final List<ToolInvocation> remaining = new ArrayList<ToolInvocation>(invocations);
+
+    while (!remaining.isEmpty()) {
+      final Set<String> pendingOutputs = new HashSet<String>();
+
+      for (ToolInvocation invocation : remaining) {
+        pendingOutputs.addAll(invocation.myOutputs);
+      }
+      final List<ToolInvocation> ready = new ArrayList<ToolInvocation>();
+
+      for (ToolInvocation invocation : remaining) {
+        if (!invocation.dependsOnAny(pendingOutputs)) {
+          ready.add(invocation);
+        }
+      }
+
+      if (ready.isEmpty()) {
+        // circular dependency: keep the original order
+        for (ToolInvocation invocation : remaining) {
+          invocation.run();
+        }
+        return;
+      }
+      executeAll(executor, ready);
+      remaining.removeAll(ready);
+    }
+  }
+
+  /** Applies the results of the given executed tool invocations in order */
+  private static boolean applyAll(@NotNull CompileContext context,
+                                  @NotNull List<ToolInvocation> invocations,
+                                  @NotNull String compilerName) {
+    boolean success = true;
+
+    for (ToolInvocation invocation : invocations) {
+      final String filePath = invocation.getFilePath();
+      try {
+        if (!invocation.applyResult(context)) {
+          success = false;
+        }
+      }
+      catch (IOException e) {
+        AndroidJpsUtil.reportExceptionError(context, filePath, e, compilerName);
+        success = false;
+      }
+    }
+    return success;
+  }
+
+  private static int getParallelToolWorkerCount() {
+    if (!SystemProperties.getBooleanProperty(GlobalOptions.COMPILE_PARALLEL_OPTION, false)) {
+      return 1;
+    }
+    return Math.max(1, Runtime.getRuntime().availableProcessors());
+  }
+
   private static boolean clearDirectory(File dir, CompileContext context, String compilerName) throws IOException {
     if (!deleteAndMarkRecursively(dir, context, compilerName)) {
       return false;
@@ -1162,7 +1388,8 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
   private static Map<String, ResourceFileData> collectResources(@NotNull String[] resPaths,
                                                                 @NotNull Map<String, ResourceFileData> resDataMap,
                                                                 @NotNull TObjectLongHashMap<String> valueResFilesTimestamps,
-                                                                @Nullable AndroidAptValidityState oldState)
+                                                                @Nullable AndroidAptValidityState oldState,
+                                                                @Nullable AndroidValueResourcesStorage valueResourcesStorage)
     throws IOException {
 
     for (String resDirPath : resPaths) {
@@ -1177,7 +1404,7 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
 
             if (resFiles != null) {
               for (File resFile : resFiles) {
-                collectResources(resFile, resType, resDataMap, valueResFilesTimestamps, oldState);
+                collectResources(resFile, resType, resDataMap, valueResFilesTimestamps, oldState, valueResourcesStorage);
               }
             }
           }
@@ -1187,11 +1414,31 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     return resDataMap;
   }
 
+  @Nullable
+  private static AndroidValueResourcesStorage getValueResourcesStorage(@NotNull CompileContext context) {
+    synchronized (VALUE_RESOURCES_STORAGE) {
+      AndroidValueResourcesStorage storage = VALUE_RESOURCES_STORAGE.get(context);
+
+      if (storage == null) {
+        try {
+          storage = new AndroidValueResourcesStorage(context.getProjectDescriptor().dataManager.getDataPaths().getDataStorageRoot());
+        }
+        catch (IOException e) {
+          LOG.info(e);
+          return null;
+        }
+        VALUE_RESOURCES_STORAGE.set(context, storage);
+      }
+      return storage;
+    }
+  }
+
   private static void collectResources(@NotNull File resFile,
                                        @NotNull String resType,
                                        @NotNull Map<String, ResourceFileData> resDataMap,
                                        @NotNull TObjectLongHashMap<String> valueResFilesTimestamps,
-                                       @Nullable AndroidAptValidityState oldState)
+                                       @Nullable AndroidAptValidityState oldState,
+                                       @Nullable AndroidValueResourcesStorage valueResourcesStorage)
     throws IOException {
     final String resFilePath = FileUtil.toSystemIndependentName(resFile.getPath());
     final long resFileTimestamp = resFile.lastModified();
@@ -1199,6 +1446,8 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     if (ResourceFolderType.VALUES.getName().equals(resType) && FileUtilRt.extensionEquals(resFile.getName(), "xml")) {
       ResourceFileData dataToReuse = null;
 
+      // the aapt state of the module keeps the entries of unchanged files; if it was dropped after an aapt failure or
+      // the file belongs to another module, the entries come from the project-wide storage of parsed files
       if (oldState != null) {
         final long oldTimestamp = oldState.getValueResourceFilesTimestamps().get(resFilePath);
 
@@ -1211,7 +1460,7 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
         resDataMap.put(resFilePath, dataToReuse);
       }
       else {
-        final List<ResourceEntry> entries = AndroidBuildDataCache.getInstance().getParsedValueResourceFile(resFile);
+        final List<ResourceEntry> entries = AndroidBuildDataCache.getInstance().getParsedValueResourceFile(resFile, valueResourcesStorage);
         resDataMap.put(resFilePath, new ResourceFileData(entries, 0));
       }
       valueResFilesTimestamps.put(resFilePath, resFileTimestamp);
@@ -1563,6 +1812,99 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     return result.toString();
   }
 
+  /**
+   * A single run of aapt, aidl or renderscript. {@link #execute} only runs the tool and may be called on a
+   * worker thread, while {@link #apply} processes its output on the builder thread.
+   */
+  abstract static class ToolInvocation implements Runnable {
+    private final String myFilePath;
+    private final File myTempDirectory;
+    private final Set<String> myInputs = new HashSet<String>();
+    private final Set<String> myOutputs = new HashSet<String>();
+
+    private volatile Map<AndroidCompilerMessageKind, List<String>> myMessages;
+    private volatile Throwable myError;
+
+    protected ToolInvocation(@Nullable String filePath, @Nullable File tempDirectory) {
+      myFilePath = filePath;
+      myTempDirectory = tempDirectory;
+    }
+
+    protected abstract Map<AndroidCompilerMessageKind, List<String>> execute() throws IOException;
+
+    /**
+     * Processes the messages of the tool and its output
+     *
+     * @return false if the tool failed
+     */
+    protected abstract boolean apply(@NotNull CompileContext context, @NotNull Map<AndroidCompilerMessageKind, List<String>> messages)
+      throws IOException;
+
+    @Override
+    public void run() {
+      try {
+        myMessages = execute();
+      }
+      catch (Throwable e) {
+        myError = e;
+      }
+    }
+
+    /** Records a file read by the tool, which must not be written by another invocation running at the same time */
+    void addInput(@NotNull String path) {
+      myInputs.add(path);
+    }
+
+    /** Records a file written by the tool */
+    void addOutput(@NotNull String path) {
+      myOutputs.add(path);
+    }
+
+    /** Returns true if the tool reads any of the given files, not counting the ones it writes itself */
+    boolean dependsOnAny(@NotNull Set<String> paths) {
+      for (String input : myInputs) {
+        if (paths.contains(input) && !myOutputs.contains(input)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean applyResult(@NotNull CompileContext context) throws IOException {
+      final Throwable error = myError;
+
+      if (error instanceof IOException) {
+        throw (IOException)error;
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException)error;
+      }
+      if (error instanceof Error) {
+        throw (Error)error;
+      }
+      if (error != null) {
+        throw new IOException(error);
+      }
+      final Map<AndroidCompilerMessageKind, List<String>> messages = myMessages;
+
+      if (messages == null) {
+        throw new IOException("Android tool invocation was interrupted");
+      }
+      return apply(context, messages);
+    }
+
+    @Nullable
+    String getFilePath() {
+      return myFilePath;
+    }
+
+    void deleteTempDirectory() {
+      if (myTempDirectory != null) {
+        FileUtil.delete(myTempDirectory);
+      }
+    }
+  }
+
   private static class MyModuleData {
     private final AndroidPlatform myPlatform;
     private final JpsAndroidModuleExtension myAndroidExtension;
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.android;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import org.jetbrains.android.util.ResourceEntry;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.incremental.storage.AbstractStateStorage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persistent cache of the resource entries parsed from value resource files, keyed by file path. It is shared by all
+ * modules of the project, so value resources of a library are parsed once for all modules depending on it, and it is
+ * kept apart from the aapt validity state, which is dropped whenever aapt fails. An entry is only used as long as the
+ * file has the same timestamp and length as when it was parsed.
+ */
+public class AndroidValueResourcesStorage extends AbstractStateStorage<String, AndroidValueResourcesStorage.ParsedFile> {
+  private static final Logger LOG = Logger.getInstance(AndroidValueResourcesStorage.class);
+
+  @NonNls private static final String PARSED_VALUE_RESOURCES_STORAGE = "parsed_value_resources";
+
+  public AndroidValueResourcesStorage(@NotNull File dataStorageRoot) throws IOException {
+    super(AndroidJpsUtil.getStorageFile(dataStorageRoot, PARSED_VALUE_RESOURCES_STORAGE), new EnumeratorStringDescriptor(),
+          new MyDataExternalizer());
+  }
+
+  /**
+   * Returns the entries stored for the file at the given path, or null if there are none or the file was modified since
+   */
+  @Nullable
+  public List<ResourceEntry> getEntries(@NotNull String path, long timestamp, long length) {
+    final ParsedFile parsedFile;
+    try {
+      parsedFile = getState(path);
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return null;
+    }
+    return parsedFile != null && parsedFile.myTimestamp == timestamp && parsedFile.myLength == length
+           ? parsedFile.myEntries
+           : null;
+  }
+
+  public void putEntries(@NotNull String path, long timestamp, long length, @NotNull List<ResourceEntry> entries) {
+    try {
+      update(path, new ParsedFile(timestamp, length, entries));
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
+  /**
+   * Removes the entries of the files which don't exist anymore, so deleted and renamed files don't accumulate
+   */
+  public void prune() {
+    try {
+      for (String path : new ArrayList<String>(getKeys())) {
+        if (!new File(path).isFile()) {
+          remove(path);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
+  public static class ParsedFile {
+    private final long myTimestamp;
+    private final long myLength;
+    private final List<ResourceEntry> myEntries;
+
+    private ParsedFile(long timestamp, long length, @NotNull List<ResourceEntry> entries) {
+      myTimestamp = timestamp;
+      myLength = length;
+      myEntries = entries;
+    }
+  }
+
+  private static class MyDataExternalizer implements DataExternalizer<ParsedFile> {
+    private static final int VERSION = 1;
+
+    @Override
+    public void save(DataOutput out, ParsedFile value) throws IOException {
+      out.writeInt(VERSION);
+      out.writeLong(value.myTimestamp);
+      out.writeLong(value.myLength);
+      out.writeInt(value.myEntries.size());
+
+      for (ResourceEntry entry : value.myEntries) {
+        out.writeUTF(entry.getType());
+        out.writeUTF(entry.getName());
+        out.writeUTF(entry.getContext());
+      }
+    }
+
+    @Override
+    public ParsedFile read(DataInput in) throws IOException {
+      final int version = in.readInt();
+
+      if (version != VERSION) {
+        throw new IOException("old version");
+      }
+      final long timestamp = in.readLong();
+      final long length = in.readLong();
+      final int entriesCount = in.readInt();
+      final List<ResourceEntry> entries = new ArrayList<ResourceEntry>(entriesCount);
+
+      for (int i = 0; i < entriesCount; i++) {
+        final String resType = in.readUTF();
+        final String resName = in.readUTF();
+        final String resContext = in.readUTF();
+        entries.add(new ResourceEntry(resType, resName, resContext));
+      }
+      return new ParsedFile(timestamp, length, Collections.unmodifiableList(entries));
+    }
+  }
+}
@@ -21,4 +21,20 @@ public interface JpsAndroidDexCompilerConfiguration extends JpsElement {
   boolean isForceJumbo();
 
   void setForceJumbo(boolean value);
+
+  /**
+   * Returns the maximum number of jars pre-dexed at the same time, or 0 to use one dx process
+   * per available processor
+   */
+  int getPreDexWorkers();
+
+  void setPreDexWorkers(int value);
+
+  /**
+   * Returns whether APKs are packaged incrementally, copying the entries whose sources did not change from
+   * the previously packaged APK
+   */
+  boolean isIncrementalPackaging();
+
+  void setIncrementalPackaging(boolean value);
 }
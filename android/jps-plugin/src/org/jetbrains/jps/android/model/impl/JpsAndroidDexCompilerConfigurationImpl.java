@@ -25,6 +25,8 @@ public class JpsAndroidDexCompilerConfigurationImpl extends JpsElementBase<JpsAn
     myState.OPTIMIZE = state.OPTIMIZE;
     myState.VM_OPTIONS = state.VM_OPTIONS;
     myState.FORCE_JUMBO = state.FORCE_JUMBO;
+    myState.PRE_DEX_WORKERS = state.PRE_DEX_WORKERS;
+    myState.INCREMENTAL_PACKAGING = state.INCREMENTAL_PACKAGING;
   }
 
   @Override
@@ -79,6 +81,32 @@ public class JpsAndroidDexCompilerConfigurationImpl extends JpsElementBase<JpsAn
     }
   }
 
+  @Override
+  public int getPreDexWorkers() {
+    return myState.PRE_DEX_WORKERS;
+  }
+
+  @Override
+  public void setPreDexWorkers(int value) {
+    if (myState.PRE_DEX_WORKERS != value) {
+      myState.PRE_DEX_WORKERS = value;
+      fireElementChanged();
+    }
+  }
+
+  @Override
+  public boolean isIncrementalPackaging() {
+    return myState.INCREMENTAL_PACKAGING;
+  }
+
+  @Override
+  public void setIncrementalPackaging(boolean value) {
+    if (myState.INCREMENTAL_PACKAGING != value) {
+      myState.INCREMENTAL_PACKAGING = value;
+      fireElementChanged();
+    }
+  }
+
   @NotNull
   @Override
   public JpsAndroidDexCompilerConfigurationImpl createCopy() {
@@ -91,6 +119,8 @@ public class JpsAndroidDexCompilerConfigurationImpl extends JpsElementBase<JpsAn
     setMaxHeapSize(modified.getMaxHeapSize());
     setOptimize(modified.isOptimize());
     setForceJumbo(modified.isForceJumbo());
+    setPreDexWorkers(modified.getPreDexWorkers());
+    setIncrementalPackaging(modified.isIncrementalPackaging());
   }
 
   @NotNull
@@ -103,5 +133,7 @@ public class JpsAndroidDexCompilerConfigurationImpl extends JpsElementBase<JpsAn
     public int MAX_HEAP_SIZE = 1024;
     public boolean OPTIMIZE = true;
     public boolean FORCE_JUMBO = false;
+    public int PRE_DEX_WORKERS = 1;
+    public boolean INCREMENTAL_PACKAGING = false;
   }
 }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.compiler.tools;
+
+import com.android.jarutils.DebugKeyProvider;
+import com.android.jarutils.SignedJarBuilder;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class AndroidIncrementalApkBuilderTest extends TestCase {
+  private File myTempDir;
+  private PrivateKey myKey;
+  private X509Certificate myCertificate;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTempDir = FileUtil.createTempDirectory("apkbuilder", "test");
+    final DebugKeyProvider provider = new DebugKeyProvider(new File(myTempDir, "debug.keystore").getPath(), null, null);
+    myKey = provider.getDebugKey();
+    myCertificate = (X509Certificate)provider.getCertificate();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myTempDir);
+    super.tearDown();
+  }
+
+  public void testSignedRepackaging() throws Exception {
+    doTestRepackaging(true);
+  }
+
+  public void testUnsignedRepackaging() throws Exception {
+    doTestRepackaging(false);
+  }
+
+  private void doTestRepackaging(boolean signed) throws Exception {
+    final X509Certificate certificate = signed ? myCertificate : null;
+    final File resources = new File(myTempDir, "resources.ap_");
+    createZip(resources, "AndroidManifest.xml", "<manifest/>", "resources.arsc", "arsc", "res/layout/main.xml", "<LinearLayout/>");
+    final File dex = createFile("classes.dex", "dex 1");
+    final File apk = new File(myTempDir, "app.apk");
+
+    assertEquals(0, packageIncrementally(apk, resources, dex, certificate));
+    final Map<String, byte[]> firstEntries = readRawEntries(apk);
+    assertEquals(readExpectedEntries(resources, dex, certificate), readEntries(apk, signed, true));
+
+    // Make sure the timestamp of the changed file differs from the one recorded
+    assertTrue(dex.setLastModified(dex.lastModified() - 10000));
+    FileUtil.writeToFile(dex, "dex 2");
+    assertEquals(3, packageIncrementally(apk, resources, dex, certificate));
+    final Map<String, byte[]> secondEntries = readRawEntries(apk);
+    final Map<String, String> entries = readEntries(apk, signed, true);
+    assertTrue(entries.get("classes.dex").startsWith("dex 2"));
+    assertEquals(readExpectedEntries(resources, dex, certificate), entries);
+
+    // Entries whose source did not change are copied as they are
+    for (String name : new String[]{"AndroidManifest.xml", "resources.arsc", "res/layout/main.xml"}) {
+      assertTrue(name, Arrays.equals(firstEntries.get(name), secondEntries.get(name)));
+    }
+    assertFalse(Arrays.equals(firstEntries.get("classes.dex"), secondEntries.get("classes.dex")));
+  }
+
+  public void testChangedKeyRepackagesFromScratch() throws Exception {
+    final File resources = new File(myTempDir, "resources.ap_");
+    createZip(resources, "AndroidManifest.xml", "<manifest/>");
+    final File dex = createFile("classes.dex", "dex");
+    final File apk = new File(myTempDir, "app.apk");
+
+    assertEquals(0, packageIncrementally(apk, resources, dex, null));
+    assertEquals(0, packageIncrementally(apk, resources, dex, myCertificate));
+    assertEquals(readExpectedEntries(resources, dex, myCertificate), readEntries(apk, true, true));
+  }
+
+  /** Packages the APK incrementally and returns the number of entries reused from the previous APK */
+  private int packageIncrementally(File apk, File resources, File dex, X509Certificate certificate) throws Exception {
+    final AndroidIncrementalApkBuilder builder = new AndroidIncrementalApkBuilder(apk);
+    builder.writeZip(resources, null);
+    builder.writeFile(dex, "classes.dex");
+    return builder.close(myKey, certificate);
+  }
+
+  /** Returns the entries {@link SignedJarBuilder} writes for the same inputs, which the incremental builder should match */
+  private Map<String, String> readExpectedEntries(File resources, File dex, X509Certificate certificate) throws Exception {
+    // Only the entries are compared, the signature of SignedJarBuilder itself is not under test
+    return readEntries(packageWithSignedJarBuilder(resources, dex, certificate), certificate != null, false);
+  }
+
+  private File packageWithSignedJarBuilder(File resources, File dex, X509Certificate certificate) throws Exception {
+    final File apk = new File(myTempDir, "expected.apk");
+    final FileOutputStream out = new FileOutputStream(apk);
+    try {
+      final SignedJarBuilder builder = new SignedJarBuilder(out, certificate != null ? myKey : null, certificate);
+      final FileInputStream in = new FileInputStream(resources);
+      try {
+        builder.writeZip(in, null);
+      }
+      finally {
+        in.close();
+      }
+      builder.writeFile(dex, "classes.dex");
+      builder.close();
+    }
+    finally {
+      out.close();
+    }
+    return apk;
+  }
+
+  /**
+   * Reads every entry of the APK, optionally verifying its signature. Returns the contents of the entries along with
+   * the digests the manifest lists for them; the manifest and signature files, which differ between builds, are only listed.
+   */
+  private static Map<String, String> readEntries(File apk, boolean signed, boolean verify) throws IOException {
+    final Map<String, String> result = new TreeMap<String, String>();
+    final JarFile jarFile = new JarFile(apk, verify);
+    try {
+      final Manifest manifest = jarFile.getManifest();
+      assertEquals(signed, manifest != null);
+
+      for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+        final JarEntry entry = entries.nextElement();
+        final String name = entry.getName();
+        // Reading an entry fully checks it against the digest in the manifest, and makes its signers known
+        final String content = readFully(jarFile.getInputStream(entry));
+
+        if (name.startsWith("META-INF/")) {
+          result.put(name, "");
+        }
+        else {
+          if (verify) {
+            assertEquals(name, signed, entry.getCodeSigners() != null);
+          }
+          result.put(name, signed ? content + " " + manifest.getAttributes(name).getValue("SHA1-Digest") : content);
+        }
+      }
+    }
+    finally {
+      jarFile.close();
+    }
+    return result;
+  }
+
+  /** Returns the local header and compressed data of each entry, as stored in the APK */
+  private static Map<String, byte[]> readRawEntries(File apk) throws IOException {
+    final Map<String, byte[]> result = new HashMap<String, byte[]>();
+    final byte[] bytes = FileUtil.loadFileBytes(apk);
+    int offset = 0;
+
+    while (getInt(bytes, offset) == 0x04034b50) {
+      final int compressedSize = getInt(bytes, offset + 18);
+      final int nameLength = getShort(bytes, offset + 26);
+      final int extraLength = getShort(bytes, offset + 28);
+      final String name = new String(bytes, offset + 30, nameLength, "UTF-8");
+      final int end = offset + 30 + nameLength + extraLength + compressedSize;
+      result.put(name, Arrays.copyOfRange(bytes, offset, end));
+      offset = end;
+    }
+    return result;
+  }
+
+  private static int getShort(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+  }
+
+  private static int getInt(byte[] bytes, int offset) {
+    return getShort(bytes, offset) | (getShort(bytes, offset + 2) << 16);
+  }
+
+  private static String readFully(InputStream in) throws IOException {
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[1024];
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        out.write(buffer, 0, count);
+      }
+      return out.toString("UTF-8");
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private File createFile(String name, String content) throws IOException {
+    final File file = new File(myTempDir, name);
+    FileUtil.writeToFile(file, content);
+    return file;
+  }
+
+  /** Creates a zip from the given name and content pairs, storing resources.arsc uncompressed like aapt does */
+  private static void createZip(File zip, String... namesAndContents) throws IOException {
+    final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+    try {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        final byte[] data = namesAndContents[i + 1].getBytes("UTF-8");
+        final ZipEntry entry = new ZipEntry(namesAndContents[i]);
+
+        if (entry.getName().equals("resources.arsc")) {
+          final CRC32 crc = new CRC32();
+          crc.update(data);
+          entry.setMethod(ZipEntry.STORED);
+          entry.setSize(data.length);
+          entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+}
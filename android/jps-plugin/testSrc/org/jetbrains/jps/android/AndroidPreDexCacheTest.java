@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.android;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class AndroidPreDexCacheTest extends TestCase {
+  private File myTempDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTempDir = FileUtil.createTempDirectory("predex", "test");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myTempDir);
+    super.tearDown();
+  }
+
+  public void testKey() throws Exception {
+    final File jar1 = createFile("lib1.jar", "content");
+    final File jar2 = createFile("lib2.jar", "content");
+    final File jar3 = createFile("lib3.jar", "other content");
+
+    final String key = AndroidPreDexCache.computeKey(jar1, "19.0.0 optimize=true");
+    assertNotNull(key);
+    assertEquals(key, AndroidPreDexCache.computeKey(jar2, "19.0.0 optimize=true"));
+    assertFalse(key.equals(AndroidPreDexCache.computeKey(jar3, "19.0.0 optimize=true")));
+    assertFalse(key.equals(AndroidPreDexCache.computeKey(jar1, "19.0.0 optimize=false")));
+    assertNull(AndroidPreDexCache.computeKey(new File(myTempDir, "missing.jar"), "19.0.0"));
+  }
+
+  public void testStoreAndRestore() throws Exception {
+    final AndroidPreDexCache cache = new AndroidPreDexCache(new File(myTempDir, "cache"), 1024);
+    final File output = new File(myTempDir, "output.jar");
+
+    assertFalse(cache.restore("key1", output));
+    cache.store("key1", createFile("dexed.jar", "dexed"));
+    assertTrue(cache.restore("key1", output));
+    assertEquals("dexed", FileUtil.loadFile(output));
+
+    // No temporary files are left behind
+    assertEquals(1, new File(myTempDir, "cache").list().length);
+  }
+
+  public void testEviction() throws Exception {
+    final File cacheDir = new File(myTempDir, "cache");
+    final AndroidPreDexCache cache = new AndroidPreDexCache(cacheDir, 250);
+    final File output = new File(myTempDir, "output.jar");
+    final String content = new String(new char[100]).replace('\0', 'x');
+
+    cache.store("key1", createFile("dexed1.jar", content));
+    cache.store("key2", createFile("dexed2.jar", content));
+    assertTrue(new File(cacheDir, "key1.jar").setLastModified(System.currentTimeMillis() - 20000));
+    assertTrue(new File(cacheDir, "key2.jar").setLastModified(System.currentTimeMillis() - 10000));
+
+    // Using key1 makes key2 the least recently used entry
+    assertTrue(cache.restore("key1", output));
+    cache.store("key3", createFile("dexed3.jar", content));
+
+    assertTrue(cache.restore("key1", output));
+    assertFalse(cache.restore("key2", output));
+    assertTrue(cache.restore("key3", output));
+  }
+
+  private File createFile(String name, String content) throws IOException {
+    final File file = new File(myTempDir, name);
+    FileUtil.writeToFile(file, content);
+    return file;
+  }
+}
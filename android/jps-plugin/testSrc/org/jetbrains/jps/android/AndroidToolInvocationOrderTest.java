@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.android;
+
+import junit.framework.TestCase;
+import org.jetbrains.android.util.AndroidCompilerMessageKind;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.incremental.CompileContext;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AndroidToolInvocationOrderTest extends TestCase {
+  private static final String LIB_R_TXT = "/out/r_txt/lib/R.txt";
+  private static final String LIB2_R_TXT = "/out/r_txt/lib2/R.txt";
+
+  private ExecutorService myExecutor;
+  private final List<String> myEvents = Collections.synchronizedList(new ArrayList<String>());
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myExecutor = Executors.newFixedThreadPool(4);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    myExecutor.shutdownNow();
+    super.tearDown();
+  }
+
+  public void testAppWaitsForLibraryRTxt() {
+    final MyInvocation lib = new MyInvocation("lib", 200);
+    lib.addOutput(LIB_R_TXT);
+    final MyInvocation app = new MyInvocation("app", 0);
+    app.addInput(LIB_R_TXT);
+    final MyInvocation other = new MyInvocation("other", 0);
+
+    execute(myExecutor, app, lib, other);
+
+    assertTrue(myEvents.toString(), myEvents.indexOf("lib finished") < myEvents.indexOf("app started"));
+    // Modules which do not depend on the library do not wait for it
+    assertTrue(myEvents.toString(), myEvents.indexOf("other finished") < myEvents.indexOf("lib finished"));
+    assertEquals(6, myEvents.size());
+  }
+
+  public void testLibraryChain() {
+    final MyInvocation lib = new MyInvocation("lib", 100);
+    lib.addOutput(LIB_R_TXT);
+    final MyInvocation lib2 = new MyInvocation("lib2", 100);
+    lib2.addInput(LIB_R_TXT);
+    lib2.addOutput(LIB2_R_TXT);
+    final MyInvocation app = new MyInvocation("app", 0);
+    app.addInput(LIB_R_TXT);
+    app.addInput(LIB2_R_TXT);
+
+    execute(myExecutor, app, lib2, lib);
+
+    assertEquals(Arrays.asList("lib started", "lib finished", "lib2 started", "lib2 finished", "app started", "app finished"),
+                 myEvents);
+  }
+
+  public void testModuleReadingItsOwnRTxtDoesNotWait() {
+    final MyInvocation lib = new MyInvocation("lib", 0);
+    lib.addInput(LIB_R_TXT);
+    lib.addOutput(LIB_R_TXT);
+
+    execute(myExecutor, lib);
+
+    assertEquals(Arrays.asList("lib started", "lib finished"), myEvents);
+  }
+
+  public void testSequentialWithoutExecutor() {
+    final MyInvocation app = new MyInvocation("app", 0);
+    app.addInput(LIB_R_TXT);
+    final MyInvocation lib = new MyInvocation("lib", 0);
+    lib.addOutput(LIB_R_TXT);
+
+    execute(null, app, lib);
+
+    assertEquals(Arrays.asList("lib started", "lib finished", "app started", "app finished"), myEvents);
+  }
+
+  private static void execute(@Nullable ExecutorService executor, @NotNull MyInvocation... invocations) {
+    AndroidSourceGeneratingBuilder.executeInDependencyOrder(
+      executor, new ArrayList<AndroidSourceGeneratingBuilder.ToolInvocation>(Arrays.asList(invocations)));
+  }
+
+  private class MyInvocation extends AndroidSourceGeneratingBuilder.ToolInvocation {
+    private final String myName;
+    private final long myDuration;
+
+    MyInvocation(@NotNull String name, long duration) {
+      super(null, null);
+      myName = name;
+      myDuration = duration;
+    }
+
+    @Override
+    protected Map<AndroidCompilerMessageKind, List<String>> execute() {
+      myEvents.add(myName + " started");
+      try {
+        Thread.sleep(myDuration);
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      myEvents.add(myName + " finished");
+      return Collections.emptyMap();
+    }
+
+    @Override
+    protected boolean apply(@NotNull CompileContext context, @NotNull Map<AndroidCompilerMessageKind, List<String>> messages) {
+      return true;
+    }
+  }
+}
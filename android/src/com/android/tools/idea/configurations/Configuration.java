@@ -27,7 +27,9 @@ import com.android.sdklib.IAndroidTarget;
 import com.android.sdklib.devices.Device;
 import com.android.sdklib.devices.State;
 import com.android.tools.idea.rendering.*;
+import com.android.util.Pair;
 import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
@@ -55,8 +57,10 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.android.SdkConstants.*;
 import static com.android.tools.idea.configurations.ConfigurationListener.*;
@@ -154,6 +158,9 @@ public class Configuration implements Disposable {
   /** Dirty flags since last folder config sync: corresponds to constants in {@link ConfigurationListener} */
   protected int myFolderConfigDirty = MASK_FOLDERCONFIG;
 
+  /** Incremented on every call to {@link #updated(int)} */
+  private long myModificationCount;
+
   /**
    * Creates a new {@linkplain Configuration}
    */
@@ -252,9 +259,16 @@ public class Configuration implements Disposable {
     copy.myNightMode = original.getNightMode();
     copy.myDisplayName = original.getDisplayName();
     copy.myFrameworkResources = original.myFrameworkResources;
-    copy.myResourceResolver = original.myResourceResolver;
+    // Not shared, since the resolver's project resources are patched in place; see #patchResourceResolver
+    copy.myResourceResolver = null;
     copy.myConfiguredProjectRes = original.myConfiguredProjectRes;
     copy.myConfiguredFrameworkRes = original.myConfiguredFrameworkRes;
+    copy.myFrameworkResEntry = original.myFrameworkResEntry;
+    if (copy.myFrameworkResEntry != null) {
+      FrameworkResourceCache.get(copy.getModule().getProject()).retain(copy.myFrameworkResEntry);
+    }
+    copy.myCachedGeneration = original.myCachedGeneration;
+    copy.myCachedChangeStamp = original.myCachedChangeStamp;
 
     assert copy.ensureValid();
     return copy;
@@ -302,7 +316,7 @@ public class Configuration implements Disposable {
     destination.myFrameworkResources = null;
     destination.myResourceResolver = null;
     destination.myConfiguredProjectRes = null;
-    destination.myConfiguredFrameworkRes = null;
+    destination.releaseConfiguredFrameworkResources();
 
     assert destination.ensureValid();
 
@@ -976,12 +990,13 @@ public class Configuration implements Disposable {
 
   /** Called when one or more attributes of the configuration has changed */
   public void updated(int flags) {
+    myModificationCount++;
     myNotifyDirty |= flags;
     myFolderConfigDirty |= flags;
 
     if ((flags & MASK_RESOLVE_RESOURCES) != 0) {
       myFrameworkResources = null;
-      myConfiguredFrameworkRes = null;
+      releaseConfiguredFrameworkResources();
       myConfiguredProjectRes = null;
       myResourceResolver = null;
     }
@@ -998,6 +1013,14 @@ public class Configuration implements Disposable {
     }
   }
 
+  /**
+   * Returns a count which is incremented every time this configuration is changed,
+   * such that clients can cache state derived from the configuration
+   */
+  public long getModificationCount() {
+    return myModificationCount;
+  }
+
   /**
    * Adds a listener to be notified when the configuration changes
    *
@@ -1027,17 +1050,25 @@ public class Configuration implements Disposable {
   // ---- Resolving resources ----
 
   private ResourceResolver myResourceResolver;
+  /**
+   * The project resources {@link #myResourceResolver} was created with. Unlike {@link #myConfiguredProjectRes}, it
+   * belongs to this configuration alone, so the maps of changed resource types are swapped in while the resolver is kept.
+   * It is concurrent since renders may read it through the resolver meanwhile.
+   */
+  private Map<ResourceType, Map<String, ResourceValue>> myResolverProjectRes;
   private FrameworkResources myFrameworkResources;
   private Map<ResourceType, Map<String, ResourceValue>> myConfiguredFrameworkRes;
+  /** The shared cache entry holding {@link #myConfiguredFrameworkRes}, if any */
+  private FrameworkResourceCache.Entry myFrameworkResEntry;
+  /** Never modified once created, since it may be shared with copies of this configuration and their resolvers */
   private Map<ResourceType, Map<String, ResourceValue>> myConfiguredProjectRes;
   private long myCachedGeneration;
+  private long myCachedChangeStamp;
 
   @Nullable
   public ResourceResolver getResourceResolver() {
-    ProjectResources resources = ProjectResources.get(myManager.getModule(), true);
-    if (myCachedGeneration < resources.getModificationCount()) {
-      myResourceResolver = null;
-    }
+    // Brings the configured project resources up to date, and clears the resolver if it cannot be kept
+    Map<ResourceType, Map<String, ResourceValue>> configuredProjectRes = getConfiguredProjectResources();
 
     if (myResourceResolver == null) {
       String themeStyle = getTheme();
@@ -1048,11 +1079,11 @@ public class Configuration implements Disposable {
       boolean isProjectTheme = isProjectTheme();
       String theme = ResourceHelper.styleToTheme(themeStyle);
 
-      Map<ResourceType, Map<String, ResourceValue>> configuredProjectRes = getConfiguredProjectResources();
-
       // Get the framework resources
       Map<ResourceType, Map<String, ResourceValue>> frameworkResources = getConfiguredFrameworkResources();
-      myResourceResolver = ResourceResolver.create(configuredProjectRes, frameworkResources, theme, isProjectTheme);
+      myResolverProjectRes = Maps.newConcurrentMap();
+      myResolverProjectRes.putAll(configuredProjectRes);
+      myResourceResolver = ResourceResolver.create(myResolverProjectRes, frameworkResources, theme, isProjectTheme);
     }
 
     return myResourceResolver;
@@ -1062,19 +1093,33 @@ public class Configuration implements Disposable {
   public Map<ResourceType, Map<String, ResourceValue>> getConfiguredFrameworkResources() {
     if (myConfiguredFrameworkRes == null) {
       ResourceRepository frameworkRes = getFrameworkResources();
+      IAndroidTarget target = getTarget();
 
-      if (frameworkRes == null) {
+      if (frameworkRes == null || target == null) {
         myConfiguredFrameworkRes = Collections.emptyMap();
       }
       else {
-        // get the framework resource values based on the current config
-        myConfiguredFrameworkRes = frameworkRes.getConfiguredResources(getFullConfig());
+        // get the framework resource values based on the current config, shared with other configurations
+        myFrameworkResEntry = FrameworkResourceCache.get(getModule().getProject()).acquire(target, getFullConfig(), frameworkRes);
+        myConfiguredFrameworkRes = myFrameworkResEntry.getResources();
       }
     }
 
     return myConfiguredFrameworkRes;
   }
 
+  private void releaseConfiguredFrameworkResources() {
+    if (myFrameworkResEntry != null) {
+      Module module = getModule();
+      // The cache is a project service, which is gone along with the entry when the project is closed
+      if (!module.isDisposed() && !module.getProject().isDisposed()) {
+        FrameworkResourceCache.get(module.getProject()).release(myFrameworkResEntry);
+      }
+      myFrameworkResEntry = null;
+    }
+    myConfiguredFrameworkRes = null;
+  }
+
   /**
    * Returns a {@link ProjectResources} for the framework resources based on the current
    * configuration selection.
@@ -1083,7 +1128,6 @@ public class Configuration implements Disposable {
    */
   @Nullable
   public ResourceRepository getFrameworkResources() {
-    // TODO: This should be cached elsewhere!
     if (myFrameworkResources == null) {
       IAndroidTarget target = getTarget();
       if (target != null) {
@@ -1137,20 +1181,86 @@ public class Configuration implements Disposable {
   @NotNull
   public Map<ResourceType, Map<String, ResourceValue>> getConfiguredProjectResources() {
     final ProjectResources resources = ProjectResources.get(myManager.getModule(), true);
-    if (myConfiguredProjectRes == null || myCachedGeneration < resources.getModificationCount()) {
-      // get the project resource values based on the current config
+    long generation = resources.getModificationCount();
+    if (myConfiguredProjectRes == null || myCachedGeneration != generation) {
+      long changeStamp = resources.getChangeStamp();
+      final Set<Pair<ResourceType, String>> changed =
+        myConfiguredProjectRes != null && changeStamp != myCachedChangeStamp ? resources.getChangedResources(myCachedChangeStamp) : null;
+
       ApplicationManager.getApplication().runReadAction(new Runnable() {
         @Override
         public void run() {
-          myConfiguredProjectRes = resources.getConfiguredResources(getFullConfig());
+          if (changed != null) {
+            myConfiguredProjectRes = patchConfiguredResources(myConfiguredProjectRes, resources, changed, getFullConfig());
+            patchResourceResolver(changed);
+          }
+          else {
+            // get the project resource values based on the current config
+            myConfiguredProjectRes = resources.getConfiguredResources(getFullConfig());
+            myResourceResolver = null;
+          }
         }
       });
-      myCachedGeneration = resources.getModificationCount();
+      myCachedGeneration = generation;
+      myCachedChangeStamp = changeStamp;
     }
 
     return myConfiguredProjectRes;
   }
 
+  /**
+   * Returns a copy of the given configured resources with just the given changed resources looked up again. The maps
+   * of the resource types which did not change are shared with the original, which is left untouched.
+   */
+  @NotNull
+  private static Map<ResourceType, Map<String, ResourceValue>> patchConfiguredResources(
+    @NotNull Map<ResourceType, Map<String, ResourceValue>> original,
+    @NotNull ProjectResources resources,
+    @NotNull Set<Pair<ResourceType, String>> changed,
+    @NotNull FolderConfiguration config) {
+    Map<ResourceType, Map<String, ResourceValue>> patched = Maps.newEnumMap(ResourceType.class);
+    patched.putAll(original);
+    Set<ResourceType> copiedTypes = EnumSet.noneOf(ResourceType.class);
+
+    for (Pair<ResourceType, String> key : changed) {
+      ResourceType type = key.getFirst();
+      String name = key.getSecond();
+      if (copiedTypes.add(type)) {
+        Map<String, ResourceValue> map = patched.get(type);
+        patched.put(type, map != null ? Maps.newHashMap(map) : Maps.<String, ResourceValue>newHashMap());
+      }
+      ResourceValue value = resources.getConfiguredValue(type, name, config);
+      if (value != null) {
+        patched.get(type).put(name, value);
+      }
+      else {
+        patched.get(type).remove(name);
+      }
+    }
+    return patched;
+  }
+
+  /**
+   * Points the resource resolver, if any, at the patched maps of the given changed resources. The resolver looks values
+   * up in these maps when asked, except for styles: it reads those once when it is created, to find the theme and the
+   * parents of each style, so it is dropped and created again when a style changed.
+   */
+  private void patchResourceResolver(@NotNull Set<Pair<ResourceType, String>> changed) {
+    if (myResourceResolver == null) {
+      return;
+    }
+    for (Pair<ResourceType, String> key : changed) {
+      if (key.getFirst() == ResourceType.STYLE) {
+        myResourceResolver = null;
+        return;
+      }
+    }
+    for (Pair<ResourceType, String> key : changed) {
+      ResourceType type = key.getFirst();
+      myResolverProjectRes.put(type, myConfiguredProjectRes.get(type));
+    }
+  }
+
   // For debugging only
   @SuppressWarnings("SpellCheckingInspection")
   @Override
@@ -1178,5 +1288,6 @@ public class Configuration implements Disposable {
 
   @Override
   public void dispose() {
+    releaseConfiguredFrameworkResources();
   }
 }
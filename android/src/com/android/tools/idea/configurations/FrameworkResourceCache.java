@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.configurations;
+
+import com.android.ide.common.rendering.api.ResourceValue;
+import com.android.ide.common.resources.ResourceRepository;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.resources.ResourceType;
+import com.android.sdklib.IAndroidTarget;
+import com.google.common.base.Objects;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Project wide cache of the configured framework resources, keyed by target and full folder configuration.
+ * <p>
+ * The render previews create many {@link Configuration}s which only differ in the screen or the locale, and
+ * many of them end up with the same full configuration. Rather than having each of them resolve the framework
+ * resources for its configuration, they share the configured maps through this cache.
+ * <p>
+ * Configurations {@link #acquire} an entry while they use it and {@link #release} it when they switch to
+ * another configuration or are disposed. Entries nobody references are kept for a while in least recently
+ * used order, since the user is likely to switch back and forth between a few configurations. Entries are
+ * never modified, so evicting an entry that is still referenced only means it can no longer be shared.
+ */
+public class FrameworkResourceCache {
+  /** Maximum number of entries kept around when no configuration uses them */
+  private static final int MAX_UNREFERENCED_ENTRIES = 8;
+  /** Maximum number of entries, including referenced ones (in case a configuration is never disposed) */
+  private static final int MAX_ENTRIES = 64;
+
+  /** The cached entries, least recently used first */
+  private final LinkedHashMap<Key, Entry> myEntries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+  @NotNull
+  public static FrameworkResourceCache get(@NotNull Project project) {
+    return ServiceManager.getService(project, FrameworkResourceCache.class);
+  }
+
+  /**
+   * Returns the entry with the framework resources configured for the given configuration, computing it if
+   * necessary, and adds a reference to it. The reference must be released with {@link #release} later.
+   *
+   * @param target the rendering target the framework resources belong to
+   * @param config the full configuration to configure the resources for; it is copied, not retained
+   * @param frameworkResources the framework resources of the target
+   * @return the entry holding the configured resources
+   */
+  @NotNull
+  public Entry acquire(@NotNull IAndroidTarget target, @NotNull FolderConfiguration config, @NotNull ResourceRepository frameworkResources) {
+    FolderConfiguration configCopy = new FolderConfiguration();
+    configCopy.set(config);
+    Key key = new Key(target, configCopy);
+
+    synchronized (myEntries) {
+      Entry entry = myEntries.get(key);
+      // The framework resources are replaced when the SDK is reloaded
+      if (entry != null && entry.myRepository == frameworkResources) {
+        entry.myReferences++;
+        return entry;
+      }
+    }
+
+    // Configure outside of the lock: this takes a while, and other configurations may need other entries
+    Map<ResourceType, Map<String, ResourceValue>> resources = frameworkResources.getConfiguredResources(configCopy);
+
+    synchronized (myEntries) {
+      Entry entry = myEntries.get(key);
+      if (entry == null || entry.myRepository != frameworkResources) {
+        entry = new Entry(frameworkResources, resources);
+        myEntries.put(key, entry);
+      }
+      entry.myReferences++;
+      evict();
+      return entry;
+    }
+  }
+
+  /** Adds another reference to an entry previously returned by {@link #acquire} */
+  public void retain(@NotNull Entry entry) {
+    synchronized (myEntries) {
+      entry.myReferences++;
+    }
+  }
+
+  /** Releases a reference to an entry previously returned by {@link #acquire} or passed to {@link #retain} */
+  public void release(@NotNull Entry entry) {
+    synchronized (myEntries) {
+      assert entry.myReferences > 0;
+      entry.myReferences--;
+      evict();
+    }
+  }
+
+  private void evict() {
+    int unreferenced = 0;
+    for (Entry entry : myEntries.values()) {
+      if (entry.myReferences == 0) {
+        unreferenced++;
+      }
+    }
+
+    int size = myEntries.size();
+    for (Iterator<Entry> iterator = myEntries.values().iterator(); iterator.hasNext(); ) {
+      if (unreferenced <= MAX_UNREFERENCED_ENTRIES && size <= MAX_ENTRIES) {
+        break;
+      }
+      Entry entry = iterator.next();
+      if (entry.myReferences == 0) {
+        iterator.remove();
+        unreferenced--;
+        size--;
+      }
+      else if (size > MAX_ENTRIES) {
+        iterator.remove();
+        size--;
+      }
+    }
+  }
+
+  /** Framework resources configured for a target and full configuration, shared by all configurations using them */
+  public static class Entry {
+    private final ResourceRepository myRepository;
+    private final Map<ResourceType, Map<String, ResourceValue>> myResources;
+    private int myReferences;
+
+    private Entry(@NotNull ResourceRepository repository, @NotNull Map<ResourceType, Map<String, ResourceValue>> resources) {
+      myRepository = repository;
+      myResources = resources;
+    }
+
+    /** Returns the configured framework resources. The maps are shared and must not be modified. */
+    @NotNull
+    public Map<ResourceType, Map<String, ResourceValue>> getResources() {
+      return myResources;
+    }
+  }
+
+  private static class Key {
+    private final IAndroidTarget myTarget;
+    private final FolderConfiguration myConfig;
+
+    private Key(@NotNull IAndroidTarget target, @NotNull FolderConfiguration config) {
+      myTarget = target;
+      myConfig = config;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key)o;
+      return myTarget.equals(key.myTarget) && myConfig.equals(key.myConfig);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(myTarget, myConfig);
+    }
+  }
+}
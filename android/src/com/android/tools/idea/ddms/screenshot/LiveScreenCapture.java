@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.idea.ddms.screenshot;
+
+import com.android.ddmlib.IDevice;
+import com.android.ddmlib.RawImage;
+import org.jetbrains.android.util.AndroidBundle;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repeatedly captures the screen of a device, telling a listener which tiles of the screen changed since the
+ * previous frame so that only those have to be repainted.
+ * <p>
+ * Frames are converted into two images which are used in turn: the current frame and the previous one it is
+ * compared with. The listener is called on the capture thread and must copy what it needs from the frame before
+ * returning, since the image is overwritten by the frame after next.
+ */
+public class LiveScreenCapture {
+  /** Width and height of the tiles the screen is compared in */
+  static final int TILE_SIZE = 64;
+
+  public interface Listener {
+    /**
+     * Called when a frame differs from the previous one
+     *
+     * @param frame the captured frame, only valid until this method returns
+     * @param changedTiles the areas of the frame which changed, covering the whole frame if the screen size changed
+     */
+    void frameCaptured(@NotNull BufferedImage frame, @NotNull List<Rectangle> changedTiles);
+
+    /** Called when a frame couldn't be captured; capturing stops */
+    void captureFailed(@NotNull String message);
+  }
+
+  private final IDevice myDevice;
+  private final Listener myListener;
+
+  /** Held while capturing, since a capture started before a restart may still be running */
+  private final Object myCaptureLock = new Object();
+  private BufferedImage myFrame;
+  private BufferedImage myPreviousFrame;
+
+  private ScheduledExecutorService myExecutor;
+
+  public LiveScreenCapture(@NotNull IDevice device, @NotNull Listener listener) {
+    myDevice = device;
+    myListener = listener;
+  }
+
+  /** Starts capturing a frame every {@code intervalMs} milliseconds, restarting if already capturing */
+  public synchronized void start(long intervalMs) {
+    stop();
+
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(@NotNull Runnable r) {
+        Thread thread = new Thread(r, "Live Screen Capture " + myDevice.getSerialNumber());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    // With a fixed delay, a slow device gets a lower frame rate rather than a backlog of captures
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        String error;
+        synchronized (myCaptureLock) {
+          error = captureFrame();
+        }
+        if (error != null && stop(executor)) {
+          myListener.captureFailed(error);
+        }
+      }
+    }, 0, intervalMs, TimeUnit.MILLISECONDS);
+    myExecutor = executor;
+  }
+
+  public synchronized void stop() {
+    if (myExecutor != null) {
+      myExecutor.shutdownNow();
+      myExecutor = null;
+    }
+  }
+
+  /** Stops capturing if the given executor is still the one capturing, returning whether it was */
+  private synchronized boolean stop(@NotNull ScheduledExecutorService executor) {
+    if (myExecutor != executor) {
+      return false;
+    }
+    stop();
+    return true;
+  }
+
+  public synchronized boolean isRunning() {
+    return myExecutor != null;
+  }
+
+  /**
+   * Captures a single frame and notifies the listener if anything changed
+   *
+   * @return an error message if the frame couldn't be captured, null otherwise
+   */
+  @Nullable
+  String captureFrame() {
+    RawImage rawImage;
+    try {
+      rawImage = myDevice.getScreenshot();
+    }
+    catch (Exception e) {
+      return AndroidBundle.message("android.ddms.screenshot.task.error1", e.getMessage());
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      // Stopped while waiting for the device
+      return null;
+    }
+    if (rawImage == null || !RawImageConverter.isSupported(rawImage)) {
+      return AndroidBundle.message("android.ddms.screenshot.task.error.invalid.bpp", rawImage != null ? rawImage.bpp : 0);
+    }
+
+    List<Rectangle> changedTiles;
+    if (myFrame == null || myFrame.getWidth() != rawImage.width || myFrame.getHeight() != rawImage.height) {
+      myFrame = RawImageConverter.toImage(rawImage);
+      //noinspection UndesirableClassUsage
+      myPreviousFrame = new BufferedImage(rawImage.width, rawImage.height, BufferedImage.TYPE_INT_ARGB);
+      changedTiles = Collections.singletonList(new Rectangle(0, 0, rawImage.width, rawImage.height));
+    }
+    else {
+      BufferedImage previous = myFrame;
+      myFrame = myPreviousFrame;
+      myPreviousFrame = previous;
+
+      RawImageConverter.convert(rawImage, myFrame);
+      changedTiles = findChangedTiles(getPixels(myPreviousFrame), getPixels(myFrame), rawImage.width, rawImage.height);
+    }
+
+    if (!changedTiles.isEmpty()) {
+      myListener.frameCaptured(myFrame, changedTiles);
+    }
+    return null;
+  }
+
+  @NotNull
+  private static int[] getPixels(@NotNull BufferedImage image) {
+    return ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+  }
+
+  /** Returns the tiles in which the given frames of the given size differ */
+  @NotNull
+  static List<Rectangle> findChangedTiles(@NotNull int[] previous, @NotNull int[] current, int width, int height) {
+    List<Rectangle> result = new ArrayList<Rectangle>();
+
+    for (int tileY = 0; tileY < height; tileY += TILE_SIZE) {
+      int tileHeight = Math.min(TILE_SIZE, height - tileY);
+
+      for (int tileX = 0; tileX < width; tileX += TILE_SIZE) {
+        int tileWidth = Math.min(TILE_SIZE, width - tileX);
+
+        if (!isTileEqual(previous, current, width, tileX, tileY, tileWidth, tileHeight)) {
+          result.add(new Rectangle(tileX, tileY, tileWidth, tileHeight));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean isTileEqual(@NotNull int[] previous, @NotNull int[] current, int width,
+                                     int tileX, int tileY, int tileWidth, int tileHeight) {
+    for (int y = tileY; y < tileY + tileHeight; y++) {
+      int start = y * width + tileX;
+      for (int i = start; i < start + tileWidth; i++) {
+        if (previous[i] != current[i]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.idea.ddms.screenshot;
+
+import com.android.ddmlib.RawImage;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Converts the frame buffer contents obtained from a device into ARGB images. The pixels are written straight
+ * into the data buffer of the image, giving the same result as {@link RawImage#getARGB} for each pixel.
+ */
+public class RawImageConverter {
+  private RawImageConverter() {
+  }
+
+  public static boolean isSupported(@NotNull RawImage rawImage) {
+    return rawImage.bpp == 16 || rawImage.bpp == 32;
+  }
+
+  /** Returns a new {@link BufferedImage#TYPE_INT_ARGB} image holding the given frame */
+  @NotNull
+  public static BufferedImage toImage(@NotNull RawImage rawImage) {
+    //noinspection UndesirableClassUsage
+    BufferedImage image = new BufferedImage(rawImage.width, rawImage.height, BufferedImage.TYPE_INT_ARGB);
+    convert(rawImage, image);
+    return image;
+  }
+
+  /**
+   * Writes the given frame into an image of the same size, which must be of type {@link BufferedImage#TYPE_INT_ARGB}
+   */
+  public static void convert(@NotNull RawImage rawImage, @NotNull BufferedImage image) {
+    assert image.getType() == BufferedImage.TYPE_INT_ARGB;
+    assert image.getWidth() == rawImage.width && image.getHeight() == rawImage.height;
+    convert(rawImage, ((DataBufferInt)image.getRaster().getDataBuffer()).getData());
+  }
+
+  static void convert(@NotNull RawImage rawImage, @NotNull int[] argb) {
+    if (!isSupported(rawImage)) {
+      throw new IllegalArgumentException("Unsupported bits per pixel: " + rawImage.bpp);
+    }
+    int pixelCount = rawImage.width * rawImage.height;
+    byte[] data = rawImage.data;
+
+    if (rawImage.bpp == 32 && isRgba8888(rawImage)) {
+      for (int i = 0, offset = 0; i < pixelCount; i++, offset += 4) {
+        argb[i] = (data[offset + 3] & 0xFF) << 24 |
+                  (data[offset] & 0xFF) << 16 |
+                  (data[offset + 1] & 0xFF) << 8 |
+                  (data[offset + 2] & 0xFF);
+      }
+      return;
+    }
+
+    int redOffset = rawImage.red_offset;
+    int redMask = getMask(rawImage.red_length);
+    int redShift = 8 - rawImage.red_length;
+    int greenOffset = rawImage.green_offset;
+    int greenMask = getMask(rawImage.green_length);
+    int greenShift = 8 - rawImage.green_length;
+    int blueOffset = rawImage.blue_offset;
+    int blueMask = getMask(rawImage.blue_length);
+    int blueShift = 8 - rawImage.blue_length;
+    int alphaOffset = rawImage.alpha_offset;
+    int alphaMask = getMask(rawImage.alpha_length);
+    int alphaShift = 8 - rawImage.alpha_length;
+    boolean opaque = rawImage.alpha_length == 0;
+
+    if (rawImage.bpp == 16) {
+      for (int i = 0, offset = 0; i < pixelCount; i++, offset += 2) {
+        int value = (data[offset] & 0xFF) | (data[offset + 1] << 8) & 0xFF00;
+        int a = opaque ? 0xFF : ((value >>> alphaOffset) & alphaMask) << alphaShift;
+        argb[i] = a << 24 |
+                  ((value >>> redOffset) & redMask) << redShift << 16 |
+                  ((value >>> greenOffset) & greenMask) << greenShift << 8 |
+                  ((value >>> blueOffset) & blueMask) << blueShift;
+      }
+    }
+    else {
+      for (int i = 0, offset = 0; i < pixelCount; i++, offset += 4) {
+        int value = (data[offset] & 0xFF) |
+                    (data[offset + 1] & 0xFF) << 8 |
+                    (data[offset + 2] & 0xFF) << 16 |
+                    (data[offset + 3] & 0xFF) << 24;
+        int a = opaque ? 0xFF : ((value >>> alphaOffset) & alphaMask) << alphaShift;
+        argb[i] = a << 24 |
+                  ((value >>> redOffset) & redMask) << redShift << 16 |
+                  ((value >>> greenOffset) & greenMask) << greenShift << 8 |
+                  ((value >>> blueOffset) & blueMask) << blueShift;
+      }
+    }
+  }
+
+  /** The most common 32 bit layout: one byte per channel, in red, green, blue, alpha order */
+  private static boolean isRgba8888(@NotNull RawImage rawImage) {
+    return rawImage.red_offset == 0 && rawImage.red_length == 8 &&
+           rawImage.green_offset == 8 && rawImage.green_length == 8 &&
+           rawImage.blue_offset == 16 && rawImage.blue_length == 8 &&
+           rawImage.alpha_offset == 24 && rawImage.alpha_length == 8;
+  }
+
+  private static int getMask(int length) {
+    return (1 << length) - 1;
+  }
+}
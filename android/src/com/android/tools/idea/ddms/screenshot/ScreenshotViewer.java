@@ -33,6 +33,7 @@ import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.vfs.*;
 import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.UIUtil;
 import org.intellij.images.editor.ImageEditor;
 import org.intellij.images.editor.ImageFileEditor;
 import org.intellij.images.editor.ImageZoomModel;
@@ -43,9 +44,12 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
+import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.util.Calendar;
@@ -55,6 +59,10 @@ import java.util.concurrent.atomic.AtomicReference;
 public class ScreenshotViewer extends DialogWrapper implements DataProvider {
   @NonNls private static final String SCREENSHOT_VIEWER_DIMENSIONS_KEY = "ScreenshotViewer.Dimensions";
 
+  /** Frame rates offered for the live screen, in frames per second */
+  private static final int[] LIVE_SCREEN_RATES = {1, 2, 5, 10};
+  private static final int DEFAULT_LIVE_SCREEN_RATE_INDEX = 1;
+
   private static VirtualFile ourLastSavedFolder = null;
 
   private final Project myProject;
@@ -74,6 +82,13 @@ public class ScreenshotViewer extends DialogWrapper implements DataProvider {
   private JComboBox myDeviceArtCombo;
   private JCheckBox myDropShadowCheckBox;
   private JCheckBox myScreenGlareCheckBox;
+  private JCheckBox myLiveScreenCheckBox;
+  private JComboBox myLiveScreenRateCombo;
+
+  @Nullable private final LiveScreenCapture myLiveScreenCapture;
+
+  /** Component showing the live screen while live mode is on, null otherwise. Only accessed on the EDT. */
+  @Nullable private LiveScreenComponent myLiveScreenComponent;
 
   /** Angle in degrees by which the screenshot from the device has been rotated. One of 0, 90, 180 or 270. */
   private int myRotationAngle = 0;
@@ -108,6 +123,16 @@ public class ScreenshotViewer extends DialogWrapper implements DataProvider {
     myRefreshButton.setEnabled(device != null);
     myRotateButton.setIcon(AllIcons.Actions.AllRight);
 
+    myLiveScreenCapture = device != null ? new LiveScreenCapture(device, new MyLiveScreenListener()) : null;
+    myLiveScreenCheckBox.setEnabled(device != null);
+    String[] rates = new String[LIVE_SCREEN_RATES.length];
+    for (int i = 0; i < LIVE_SCREEN_RATES.length; i++) {
+      rates[i] = LIVE_SCREEN_RATES[i] + " fps";
+    }
+    myLiveScreenRateCombo.setModel(new DefaultComboBoxModel(rates));
+    myLiveScreenRateCombo.setSelectedIndex(DEFAULT_LIVE_SCREEN_RATE_INDEX);
+    myLiveScreenRateCombo.setEnabled(device != null);
+
     myProvider = getImageFileEditorProvider();
     myImageFileEditor = (ImageFileEditor)myProvider.createEditor(myProject, myBackingVirtualFile);
     myScrollPane.getViewport().add(myImageFileEditor.getComponent());
@@ -119,6 +144,17 @@ public class ScreenshotViewer extends DialogWrapper implements DataProvider {
           doRefreshScreenshot();
         } else if (actionEvent.getSource() == myRotateButton) {
           doRotateScreenshot();
+        } else if (actionEvent.getSource() == myLiveScreenCheckBox) {
+          if (myLiveScreenCheckBox.isSelected()) {
+            startLiveScreen();
+          } else {
+            stopLiveScreen();
+          }
+        } else if (actionEvent.getSource() == myLiveScreenRateCombo) {
+          if (myLiveScreenComponent != null) {
+            assert myLiveScreenCapture != null;
+            myLiveScreenCapture.start(getLiveScreenInterval());
+          }
         } else if (actionEvent.getSource() == myFrameScreenshotCheckBox
                    || actionEvent.getSource() == myDeviceArtCombo
                    || actionEvent.getSource() == myDropShadowCheckBox
@@ -134,6 +170,8 @@ public class ScreenshotViewer extends DialogWrapper implements DataProvider {
     myDeviceArtCombo.addActionListener(l);
     myDropShadowCheckBox.addActionListener(l);
     myScreenGlareCheckBox.addActionListener(l);
+    myLiveScreenCheckBox.addActionListener(l);
+    myLiveScreenRateCombo.addActionListener(l);
 
     myDeviceArtSpecs = DeviceArtDescriptor.getDescriptors(null);
     String[] titles = new String[myDeviceArtSpecs.size()];
@@ -149,6 +187,10 @@ public class ScreenshotViewer extends DialogWrapper implements DataProvider {
 
   @Override
   protected void dispose() {
+    if (myLiveScreenCapture != null) {
+      myLiveScreenCapture.stop();
+    }
+    myLiveScreenComponent = null;
     myProvider.disposeEditor(myImageFileEditor);
     super.dispose();
   }
@@ -171,6 +213,158 @@ public class ScreenshotViewer extends DialogWrapper implements DataProvider {
     }.queue();
   }
 
+  /**
+   * Shows the screen of the device as it changes. While live, the screen is shown as captured; rotation and
+   * framing apply again to the last frame once live mode is turned off.
+   */
+  private void startLiveScreen() {
+    assert myLiveScreenCapture != null;
+    double zoom = myImageFileEditor.getImageEditor().getZoomModel().getZoomFactor();
+    myLiveScreenComponent = new LiveScreenComponent(zoom);
+    myScrollPane.setViewportView(myLiveScreenComponent);
+
+    setLiveScreenControlsEnabled(false);
+    myLiveScreenCapture.start(getLiveScreenInterval());
+  }
+
+  private void stopLiveScreen() {
+    if (myLiveScreenComponent == null) {
+      return;
+    }
+    assert myLiveScreenCapture != null;
+    myLiveScreenCapture.stop();
+
+    BufferedImage lastFrame = myLiveScreenComponent.getImage();
+    myLiveScreenComponent = null;
+    myScrollPane.setViewportView(myImageFileEditor.getComponent());
+    setLiveScreenControlsEnabled(true);
+
+    if (lastFrame != null) {
+      myRotationAngle = 0;
+      mySourceImageRef.set(lastFrame);
+      doFrameScreenshot();
+    }
+  }
+
+  private void setLiveScreenControlsEnabled(boolean enabled) {
+    myRefreshButton.setEnabled(enabled);
+    myRotateButton.setEnabled(enabled);
+    myFrameScreenshotCheckBox.setEnabled(enabled);
+
+    boolean frameControlsEnabled = enabled && myFrameScreenshotCheckBox.isSelected();
+    myDeviceArtCombo.setEnabled(frameControlsEnabled);
+    myDropShadowCheckBox.setEnabled(frameControlsEnabled);
+    myScreenGlareCheckBox.setEnabled(frameControlsEnabled);
+  }
+
+  private long getLiveScreenInterval() {
+    return 1000 / LIVE_SCREEN_RATES[myLiveScreenRateCombo.getSelectedIndex()];
+  }
+
+  /** Copies the changed tiles of a live frame into the displayed image and repaints them; called on the EDT */
+  private void applyLiveFrame(@NotNull BufferedImage frame, @NotNull List<Rectangle> changedTiles) {
+    LiveScreenComponent component = myLiveScreenComponent;
+    if (component == null) {
+      // Live mode was turned off while the frame was being captured
+      return;
+    }
+
+    BufferedImage image = component.getImage();
+    if (image == null || image.getWidth() != frame.getWidth() || image.getHeight() != frame.getHeight()) {
+      //noinspection UndesirableClassUsage
+      image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_ARGB);
+      image.setData(frame.getRaster());
+      component.setImage(image);
+      mySourceImageRef.set(image);
+      myDisplayedImageRef.set(image);
+      return;
+    }
+
+    WritableRaster raster = image.getRaster();
+    Raster frameRaster = frame.getRaster();
+    for (Rectangle tile : changedTiles) {
+      Object pixels = frameRaster.getDataElements(tile.x, tile.y, tile.width, tile.height, null);
+      raster.setDataElements(tile.x, tile.y, tile.width, tile.height, pixels);
+      component.repaintTile(tile);
+    }
+  }
+
+  private class MyLiveScreenListener implements LiveScreenCapture.Listener {
+    @Override
+    public void frameCaptured(@NotNull final BufferedImage frame, @NotNull final List<Rectangle> changedTiles) {
+      // The frame is only valid until this method returns
+      UIUtil.invokeAndWaitIfNeeded(new Runnable() {
+        @Override
+        public void run() {
+          applyLiveFrame(frame, changedTiles);
+        }
+      });
+    }
+
+    @Override
+    public void captureFailed(@NotNull final String message) {
+      UIUtil.invokeLaterIfNeeded(new Runnable() {
+        @Override
+        public void run() {
+          if (myLiveScreenComponent == null) {
+            return;
+          }
+          myLiveScreenCheckBox.setSelected(false);
+          stopLiveScreen();
+          Messages.showErrorDialog(myProject, message, AndroidBundle.message("android.ddms.actions.screenshot"));
+        }
+      });
+    }
+  }
+
+  /**
+   * Paints the live screen straight from its image at a fixed scale, so that a changed tile only needs that part
+   * of the component to be repainted.
+   */
+  private static class LiveScreenComponent extends JComponent {
+    private final double myScale;
+    @Nullable private BufferedImage myImage;
+
+    private LiveScreenComponent(double scale) {
+      myScale = scale;
+    }
+
+    @Nullable
+    private BufferedImage getImage() {
+      return myImage;
+    }
+
+    private void setImage(@NotNull BufferedImage image) {
+      myImage = image;
+      revalidate();
+      repaint();
+    }
+
+    private void repaintTile(@NotNull Rectangle tile) {
+      int x = (int)Math.floor(tile.x * myScale);
+      int y = (int)Math.floor(tile.y * myScale);
+      int width = (int)Math.ceil((tile.x + tile.width) * myScale) - x;
+      int height = (int)Math.ceil((tile.y + tile.height) * myScale) - y;
+      repaint(x, y, width, height);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+      if (myImage == null) {
+        return new Dimension(0, 0);
+      }
+      return new Dimension((int)Math.ceil(myImage.getWidth() * myScale), (int)Math.ceil(myImage.getHeight() * myScale));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+      if (myImage != null) {
+        Dimension size = getPreferredSize();
+        g.drawImage(myImage, 0, 0, size.width, size.height, null);
+      }
+    }
+  }
+
   private void doRotateScreenshot() {
     myRotationAngle = (myRotationAngle + 90) % 360;
     frameScreenshot(90);
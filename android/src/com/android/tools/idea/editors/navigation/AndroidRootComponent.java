@@ -114,6 +114,9 @@ public class AndroidRootComponent extends JComponent {
           configuration.setTheme("@android:style/Theme.Holo");
           final RenderLogger logger = new RenderLogger(file.getName(), module);
           RenderService service = RenderService.create(facet, module, psiFile, configuration, logger, null);
+          if (myRenderResult != null) {
+            myRenderResult.dispose();
+          }
           if (service != null) {
             myRenderResult = service.render();
             service.dispose();
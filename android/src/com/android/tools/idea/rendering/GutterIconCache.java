@@ -15,10 +15,15 @@
  */
 package com.android.tools.idea.rendering;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.EditorGutter;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.ui.EmptyIcon;
 import com.intellij.util.ui.UIUtil;
-import icons.AndroidIcons;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -28,58 +33,201 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Cache of the thumbnails shown in the editor gutter for drawable resources.
+ * <p>
+ * Icons are decoded and scaled on a small pool of background threads; until an icon is ready,
+ * {@link #getIcon} returns {@link #PLACEHOLDER} and the editor gutters are repainted once it is. The
+ * cache is bounded by the memory taken up by the thumbnails, evicting the least recently used ones, and
+ * an entry is only used as long as the image file has the same VFS modification stamp as when it was
+ * decoded, which is checked without touching the disk since icons are looked up while painting.
+ */
 public class GutterIconCache {
   private static final Logger LOG = Logger.getInstance("#" + GutterIconCache.class.getName());
   private static final int MAX_WIDTH = 16;
   private static final int MAX_HEIGHT = 16;
-  private static final Icon NONE = AndroidIcons.Android; // placeholder
+
+  /** Icon returned while the real icon is being decoded */
+  public static final Icon PLACEHOLDER = EmptyIcon.create(MAX_WIDTH, MAX_HEIGHT);
+
+  /** Maximum number of bytes taken up by the cached thumbnails */
+  private static final long MAX_CACHE_SIZE = 4 * 1024 * 1024;
+
+  /** Maximum number of threads decoding icons at the same time */
+  private static final int MAX_WORKERS = 2;
+  /** Idle workers are released after this many seconds */
+  private static final int KEEP_ALIVE_SECONDS = 30;
 
   private static final GutterIconCache ourInstance = new GutterIconCache();
-  // TODO: Timestamps?
-  private Map<String,Icon> myThumbnailCache = Maps.newHashMap();
+
+  /** Cached thumbnails by path, least recently used first */
+  private final LinkedHashMap<String, Thumbnail> myThumbnailCache = new LinkedHashMap<String, Thumbnail>(64, 0.75f, true);
+  private long myCacheSize;
+
+  /** Paths currently being decoded */
+  private final Set<String> myPending = Sets.newHashSet();
+  private boolean myRepaintScheduled;
+
+  private final ThreadPoolExecutor myExecutor;
 
   @NotNull
   public static GutterIconCache getInstance() {
     return ourInstance;
   }
 
+  private GutterIconCache() {
+    myExecutor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      private final AtomicInteger myCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(@NotNull Runnable runnable) {
+        Thread thread = new Thread(runnable, "Gutter Icon Decoder " + myCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+      }
+    });
+    myExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Returns the thumbnail icon for the given image file, {@link #PLACEHOLDER} if it is still being
+   * decoded, or null if the image cannot be read
+   */
   @Nullable
-  public Icon getIcon(@NotNull String path) {
-    Icon myIcon = myThumbnailCache.get(path);
-    if (myIcon == null) {
-      try {
-        BufferedImage image = ImageIO.read(new File(path));
-        if (image != null) {
-          if (image.getWidth() > MAX_WIDTH || image.getHeight() > MAX_HEIGHT) {
-            double scale = Math.min(MAX_WIDTH / (double)image.getWidth(), MAX_HEIGHT / (double)image.getHeight());
-            if (image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
-              // Indexed images look terrible if they are scaled directly; instead, paint into an ARGB blank image
-              BufferedImage bg = UIUtil.createImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-              Graphics g = bg.getGraphics();
-              g.setColor(new Color(255, 255, 255, 0));
-              g.fillRect(0, 0, bg.getWidth(), bg.getHeight());
-              UIUtil.drawImage(g, image, 0, 0, null);
-              g.dispose();
-              image = bg;
-            }
-            image = ImageUtils.scale(image, scale, scale);
+  public Icon getIcon(@NotNull VirtualFile file) {
+    if (!file.isValid()) {
+      return null;
+    }
+    String path = file.getPath();
+    long stamp = file.getModificationStamp();
+
+    synchronized (myThumbnailCache) {
+      Thumbnail thumbnail = myThumbnailCache.get(path);
+      if (thumbnail != null && thumbnail.myStamp == stamp) {
+        return thumbnail.myIcon;
+      }
+      if (!myPending.add(path)) {
+        return PLACEHOLDER;
+      }
+    }
+
+    decodeInBackground(path, stamp);
+    return PLACEHOLDER;
+  }
+
+  private void decodeInBackground(@NotNull final String path, final long stamp) {
+    myExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        Icon icon = null;
+        try {
+          icon = decode(path);
+        }
+        finally {
+          synchronized (myThumbnailCache) {
+            myPending.remove(path);
+            put(path, new Thumbnail(stamp, icon));
           }
-          myIcon = new ImageIcon(image);
+          scheduleRepaint();
         }
       }
-      catch (IOException e) {
-        LOG.error(String.format("Could not read icon image %1$s", path), e);
+    });
+  }
+
+  /** Adds the given thumbnail to the cache, evicting the least recently used ones if needed */
+  private void put(@NotNull String path, @NotNull Thumbnail thumbnail) {
+    assert Thread.holdsLock(myThumbnailCache);
+    Thumbnail previous = myThumbnailCache.put(path, thumbnail);
+    if (previous != null) {
+      myCacheSize -= previous.getSize();
+    }
+    myCacheSize += thumbnail.getSize();
+
+    for (Iterator<Thumbnail> iterator = myThumbnailCache.values().iterator(); myCacheSize > MAX_CACHE_SIZE && iterator.hasNext(); ) {
+      Thumbnail eldest = iterator.next();
+      iterator.remove();
+      myCacheSize -= eldest.getSize();
+    }
+  }
+
+  /** Repaints the editor gutters, once for any number of icons decoded in the meantime */
+  private void scheduleRepaint() {
+    synchronized (myThumbnailCache) {
+      if (myRepaintScheduled) {
+        return;
+      }
+      myRepaintScheduled = true;
+    }
+    ApplicationManager.getApplication().invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (myThumbnailCache) {
+          myRepaintScheduled = false;
+        }
+        for (Editor editor : EditorFactory.getInstance().getAllEditors()) {
+          EditorGutter gutter = editor.getGutter();
+          if (gutter instanceof JComponent) {
+            ((JComponent)gutter).repaint();
+          }
+        }
       }
+    });
+  }
 
-      if (myIcon == null) {
-        myIcon = NONE;
+  @Nullable
+  private static Icon decode(@NotNull String path) {
+    try {
+      BufferedImage image = ImageIO.read(new File(path));
+      if (image != null) {
+        if (image.getWidth() > MAX_WIDTH || image.getHeight() > MAX_HEIGHT) {
+          double scale = Math.min(MAX_WIDTH / (double)image.getWidth(), MAX_HEIGHT / (double)image.getHeight());
+          if (image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
+            // Indexed images look terrible if they are scaled directly; instead, paint into an ARGB blank image
+            BufferedImage bg = UIUtil.createImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics g = bg.getGraphics();
+            g.setColor(new Color(255, 255, 255, 0));
+            g.fillRect(0, 0, bg.getWidth(), bg.getHeight());
+            UIUtil.drawImage(g, image, 0, 0, null);
+            g.dispose();
+            image = bg;
+          }
+          image = ImageUtils.scale(image, scale, scale);
+        }
+        return new ImageIcon(image);
       }
+    }
+    catch (IOException e) {
+      LOG.error(String.format("Could not read icon image %1$s", path), e);
+    }
+    return null;
+  }
+
+  private static class Thumbnail {
+    /** Rough number of bytes taken up by an entry besides the image itself */
+    private static final int ENTRY_OVERHEAD = 100;
 
-      myThumbnailCache.put(path, myIcon);
+    /** The modification stamp of the file the icon was decoded from */
+    private final long myStamp;
+    @Nullable private final Icon myIcon;
+
+    private Thumbnail(long stamp, @Nullable Icon icon) {
+      myStamp = stamp;
+      myIcon = icon;
     }
 
-    return myIcon != NONE ? myIcon : null;
+    private long getSize() {
+      return myIcon != null ? ENTRY_OVERHEAD + 4L * myIcon.getIconWidth() * myIcon.getIconHeight() : ENTRY_OVERHEAD;
+    }
   }
 }
@@ -22,7 +22,6 @@ import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import icons.AndroidIcons;
@@ -30,14 +29,12 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.io.File;
 
 public class GutterIconRenderer extends com.intellij.openapi.editor.markup.GutterIconRenderer {
   private final PsiElement myElement;
-  private final File myFile;
-  private Icon myIcon;
+  private final VirtualFile myFile;
 
-  public GutterIconRenderer(@NotNull PsiElement element, @NotNull File file) {
+  public GutterIconRenderer(@NotNull PsiElement element, @NotNull VirtualFile file) {
     myElement = element;
     myFile = file;
   }
@@ -45,15 +42,14 @@ public class GutterIconRenderer extends com.intellij.openapi.editor.markup.Gutte
   @NotNull
   @Override
   public Icon getIcon() {
-    if (myIcon == null) {
-      myIcon = GutterIconCache.getInstance().getIcon(myFile.getPath());
-      if (myIcon == null) {
-        // Broken icon -- what do I show here?
-        myIcon = AndroidIcons.Android;
-      }
+    // Not kept in the renderer: the cache replaces the placeholder once decoded, and notices when the image changes
+    Icon icon = GutterIconCache.getInstance().getIcon(myFile);
+    if (icon == null) {
+      // Broken icon -- what do I show here?
+      icon = AndroidIcons.Android;
     }
 
-    return myIcon;
+    return icon;
   }
 
   @Nullable
@@ -65,9 +61,8 @@ public class GutterIconRenderer extends com.intellij.openapi.editor.markup.Gutte
         final Editor editor = PlatformDataKeys.EDITOR.getData(e.getDataContext());
         if (editor != null) {
           Project project = editor.getProject();
-          VirtualFile virtualFile = LocalFileSystem.getInstance().findFileByIoFile(myFile);
-          if (project != null && virtualFile != null) {
-            OpenFileDescriptor descriptor = new OpenFileDescriptor(project, virtualFile, -1);
+          if (project != null && myFile.isValid()) {
+            OpenFileDescriptor descriptor = new OpenFileDescriptor(project, myFile, -1);
             FileEditorManager.getInstance(project).openEditor(descriptor, true);
           }
         }
@@ -62,6 +62,7 @@ public abstract class MultiResourceRepository extends ProjectResources {
       myModificationCounts[i] = resources.getModificationCount();
     }
     myGeneration++;
+    recordUnknownChange();
     clearCache();
   }
 
@@ -194,6 +194,14 @@ public final class ProjectCallback extends LegacyCallback {
     return myUsed;
   }
 
+  /**
+   * Returns false if any of the custom view classes loaded through this callback have been recompiled
+   * since, in which case sessions rendered with this callback show outdated views
+   */
+  public boolean isUpToDate() {
+    return myClassLoader.isUpToDate();
+  }
+
   public void setLayoutParser(@Nullable String layoutName, @Nullable ILayoutPullParser layoutParser) {
     myLayoutName = layoutName;
     myLayoutEmbeddedParser = layoutParser;
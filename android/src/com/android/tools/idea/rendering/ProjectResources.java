@@ -26,6 +26,7 @@ import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.ResourceType;
 import com.android.util.Pair;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
@@ -38,8 +39,11 @@ import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -150,6 +154,16 @@ public abstract class ProjectResources extends AbstractResourceRepository implem
 
   protected long myGeneration;
 
+  /** Maximum number of changes remembered by {@link #getChangedResources(long)} */
+  private static final int MAX_JOURNAL_SIZE = 500;
+
+  /** The most recent changes since {@link #myInvalidatedStamp}, oldest first */
+  private final ArrayDeque<Pair<ResourceType, String>> myJournal = new ArrayDeque<Pair<ResourceType, String>>();
+  /** Total number of changes recorded, including the ones whose keys are unknown */
+  private long myChangeStamp;
+  /** The change stamp of the most recent change whose keys are unknown */
+  private long myInvalidatedStamp;
+
   protected ProjectResources(@NotNull String displayName) {
     super(false);
     myDisplayName = displayName;
@@ -208,6 +222,90 @@ public abstract class ProjectResources extends AbstractResourceRepository implem
     }
   }
 
+  /**
+   * Bumps the generation, and records that the resources of the given type and names changed such that clients
+   * can update state derived from them incrementally; see {@link #getChangedResources(long)}
+   */
+  protected void resourcesChanged(@NotNull ResourceType type, @NotNull String... names) {
+    myGeneration++;
+    for (String name : names) {
+      recordChange(Pair.of(type, name));
+    }
+  }
+
+  /** Bumps the generation, and records that an unknown set of resources changed */
+  protected void allResourcesChanged() {
+    myGeneration++;
+    recordUnknownChange();
+  }
+
+  /** Records the given change in this repository and in all repositories it is part of */
+  void recordChange(@NotNull Pair<ResourceType, String> change) {
+    synchronized (myJournal) {
+      myJournal.addLast(change);
+      myChangeStamp++;
+      if (myJournal.size() > MAX_JOURNAL_SIZE) {
+        myJournal.removeFirst();
+      }
+    }
+    if (myParents != null) {
+      for (MultiResourceRepository parent : myParents) {
+        parent.recordChange(change);
+      }
+    }
+  }
+
+  /**
+   * Records that an unknown set of resources changed in this repository and in all repositories it is part of. The
+   * journal is dropped, since {@link #getChangedResources(long)} can't look past this change anyway.
+   */
+  void recordUnknownChange() {
+    synchronized (myJournal) {
+      myJournal.clear();
+      myInvalidatedStamp = ++myChangeStamp;
+    }
+    if (myParents != null) {
+      for (MultiResourceRepository parent : myParents) {
+        parent.recordUnknownChange();
+      }
+    }
+  }
+
+  /**
+   * Returns a stamp identifying the current state of the change journal, to be passed to
+   * {@link #getChangedResources(long)} later
+   */
+  public long getChangeStamp() {
+    synchronized (myJournal) {
+      return myChangeStamp;
+    }
+  }
+
+  /**
+   * Returns the (type, name) keys of all resources that changed since the given {@link #getChangeStamp()}, or null
+   * if that cannot be determined, either because some change was not recorded with its keys, or because there
+   * have been too many changes since. In that case, clients must recompute everything they derived from the
+   * repository.
+   * <p>
+   * Note that not every generation change is recorded in the journal; clients should compare the
+   * {@link #getModificationCount()} as well, and recompute everything if it changed while the stamp did not.
+   */
+  @Nullable
+  public Set<Pair<ResourceType, String>> getChangedResources(long sinceStamp) {
+    synchronized (myJournal) {
+      long count = myChangeStamp - sinceStamp;
+      if (count < 0 || sinceStamp < myInvalidatedStamp || count > myJournal.size()) {
+        return null;
+      }
+      Set<Pair<ResourceType, String>> changed = Sets.newHashSet();
+      Iterator<Pair<ResourceType, String>> iterator = myJournal.descendingIterator();
+      for (long i = 0; i < count; i++) {
+        changed.add(iterator.next());
+      }
+      return changed;
+    }
+  }
+
   protected void invalidateItemCaches(@Nullable ResourceType... types) {
     if (myParents != null) {
       for (MultiResourceRepository parent : myParents) {
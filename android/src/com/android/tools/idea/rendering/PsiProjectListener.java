@@ -285,6 +285,36 @@ public class PsiProjectListener extends PsiTreeChangeAdapter {
     }
   }
 
+  @Override
+  public void beforeChildRemoval(@NotNull PsiTreeChangeEvent event) {
+    dispatchBeforeFileEdited(event);
+  }
+
+  @Override
+  public void beforeChildReplacement(@NotNull PsiTreeChangeEvent event) {
+    dispatchBeforeFileEdited(event);
+  }
+
+  @Override
+  public void beforeChildMovement(@NotNull PsiTreeChangeEvent event) {
+    dispatchBeforeFileEdited(event);
+  }
+
+  @Override
+  public void beforeChildrenChange(@NotNull PsiTreeChangeEvent event) {
+    dispatchBeforeFileEdited(event);
+  }
+
+  private void dispatchBeforeFileEdited(@NotNull PsiTreeChangeEvent event) {
+    PsiFile psiFile = event.getFile();
+    if (psiFile != null && isRelevantFile(psiFile)) {
+      ResourceFolderRepository repository = findRepository(psiFile.getVirtualFile());
+      if (repository != null) {
+        repository.beforeFileEdited(psiFile);
+      }
+    }
+  }
+
   @Override
   public void beforePropertyChange(@NotNull PsiTreeChangeEvent event) {
     if (PsiTreeChangeEvent.PROP_FILE_NAME == event.getPropertyName()) {
@@ -25,23 +25,36 @@ import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.Density;
 import com.android.resources.ResourceFolderType;
 import com.android.resources.ResourceType;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.xml.XmlElementType;
+import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.psi.xml.XmlText;
 import com.intellij.psi.xml.XmlTokenType;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static com.android.SdkConstants.*;
 
 class PsiResourceItem extends ResourceItem {
-  private final XmlTag myTag;
+  /** Guards looking up the tags of lazily restored items, which concurrent renders may resolve at the same time */
+  private static final Object TAG_LOCK = new Object();
+
+  private volatile XmlTag myTag;
   private PsiFile myFile;
+  /** Whether this item was restored from a snapshot such that its tag in the value file is looked up on demand */
+  private boolean myLazyTag;
+  /** Whether the tag of a lazily restored item has been looked up; set after {@link #myTag}, which it publishes */
+  private volatile boolean myTagLookedUp;
 
   PsiResourceItem(@NonNull String name, @NonNull ResourceType type, @Nullable XmlTag tag, @NonNull PsiFile file) {
     super(name, type, null);
@@ -49,6 +62,16 @@ class PsiResourceItem extends ResourceItem {
     myFile = file;
   }
 
+  /**
+   * Creates an item for a value resource whose tag is only looked up in the file when the item is
+   * actually resolved. Used when restoring a repository from a {@link ResourceFolderSnapshot}.
+   */
+  static PsiResourceItem createLazy(@NonNull String name, @NonNull ResourceType type, @NonNull PsiFile file) {
+    PsiResourceItem item = new PsiResourceItem(name, type, null, file);
+    item.myLazyTag = true;
+    return item;
+  }
+
   @Override
   public FolderConfiguration getConfiguration() {
     PsiResourceFile source = (PsiResourceFile)super.getSource();
@@ -97,8 +120,11 @@ class PsiResourceItem extends ResourceItem {
   @Override
   public ResourceValue getResourceValue(boolean isFrameworks) {
     if (mResourceValue == null) {
-      //noinspection VariableNotUsedInsideIf
-      if (myTag == null) {
+      if (getTag() == null) {
+        if (myLazyTag) {
+          // The tag is no longer present in the file; the repository rescans the file on its next edit
+          return null;
+        }
         // Density based resource value?
         ResourceType type = getType();
         Density density = type == ResourceType.DRAWABLE ? getFolderDensity() : null;
@@ -377,6 +403,102 @@ class PsiResourceItem extends ResourceItem {
 
   @Nullable
   XmlTag getTag() {
+    if (myLazyTag && !myTagLookedUp) {
+      // The other items of the file are usually needed as well, so look them all up in the same pass over the file
+      ResourceFile source = super.getSource();
+      resolveTags(myFile, source != null ? source.getItems() : Collections.<ResourceItem>singletonList(this));
+    }
     return myTag;
   }
+
+  /** Returns the tag of this item without looking it up if it is restored lazily and hasn't been looked up yet */
+  @Nullable
+  XmlTag getResolvedTag() {
+    return myTag;
+  }
+
+  /** Whether this item was restored lazily and its tag hasn't been looked up yet */
+  boolean isTagPending() {
+    return myLazyTag && !myTagLookedUp;
+  }
+
+  /** Whether this item was restored lazily but its tag was not found in the file */
+  boolean isTagMissing() {
+    return myLazyTag && myTagLookedUp && myTag == null;
+  }
+
+  /**
+   * Looks up the tags of the lazily restored items among the given items of a value file in a single pass over the file.
+   * The items are expected in the order they were scanned from the file, such that items with the same type and name
+   * are matched to the tags with that type and name in the order they appear in the file.
+   */
+  static void resolveTags(@NonNull PsiFile file, @NonNull Collection<? extends ResourceItem> items) {
+    synchronized (TAG_LOCK) {
+      boolean pending = false;
+      for (ResourceItem item : items) {
+        if (item instanceof PsiResourceItem && ((PsiResourceItem)item).isTagPending()) {
+          pending = true;
+          break;
+        }
+      }
+      if (!pending) {
+        return;
+      }
+
+      Map<String, List<XmlTag>> tags = Maps.newHashMap();
+      XmlTag root = file instanceof XmlFile && file.isValid() ? ((XmlFile)file).getRootTag() : null;
+      if (root != null) {
+        for (XmlTag tag : root.getSubTags()) {
+          ResourceType type = ResourceFolderRepository.getType(tag);
+          String name = tag.getAttributeValue(ATTR_NAME);
+          if (type == null || name == null) {
+            continue;
+          }
+          addTag(tags, getTagKey(type, name), tag);
+          if (type == ResourceType.DECLARE_STYLEABLE) {
+            // Attributes can also be defined inline in declare styleables
+            for (XmlTag child : tag.getSubTags()) {
+              String childName = child.getAttributeValue(ATTR_NAME);
+              if (childName != null && child.getAttribute(ATTR_FORMAT) != null) {
+                addTag(tags, getTagKey(ResourceType.ATTR, childName), child);
+              }
+            }
+          }
+        }
+      }
+
+      // Number of items seen so far for each key, which is the index of the tag for the next item with that key
+      Map<String, Integer> counts = Maps.newHashMap();
+      for (ResourceItem item : items) {
+        if (!(item instanceof PsiResourceItem) || !((PsiResourceItem)item).myLazyTag) {
+          continue;
+        }
+        PsiResourceItem psiItem = (PsiResourceItem)item;
+        String key = getTagKey(psiItem.getType(), psiItem.getName());
+        Integer count = counts.get(key);
+        int index = count != null ? count : 0;
+        counts.put(key, index + 1);
+
+        if (psiItem.isTagPending()) {
+          List<XmlTag> keyTags = tags.get(key);
+          psiItem.myTag = keyTags != null && index < keyTags.size() ? keyTags.get(index) : null;
+          psiItem.myTagLookedUp = true;
+        }
+      }
+    }
+  }
+
+  private static void addTag(@NonNull Map<String, List<XmlTag>> tags, @NonNull String key, @NonNull XmlTag tag) {
+    List<XmlTag> list = tags.get(key);
+    if (list == null) {
+      list = Lists.newArrayListWithExpectedSize(1);
+      tags.put(key, list);
+    }
+    list.add(tag);
+  }
+
+  @NonNull
+  private static String getTagKey(@NonNull ResourceType type, @NonNull String name) {
+    return type.getName() + ':' + name;
+  }
 }
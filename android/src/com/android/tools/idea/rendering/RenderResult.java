@@ -35,6 +35,7 @@ public class RenderResult {
   @Nullable private RenderedViewHierarchy myHierarchy;
   @Nullable private final RenderService myRenderService;
   @Nullable private final RenderSession mySession; // TEMPORARY
+  private boolean myDisposed;
 
   public RenderResult(@Nullable RenderService renderService,
                       @Nullable RenderSession session,
@@ -97,4 +98,20 @@ public class RenderResult {
   public Module getModule() {
     return myLogger.getModule();
   }
+
+  /**
+   * Releases the session of this result to the {@link RenderSessionCache}, which may then render it again or dispose
+   * it. Until then, the session and the image and views taken from it stay as they were rendered. Whoever holds on to
+   * the result must call this once it is replaced or no longer shown, and must not use the result afterwards.
+   */
+  public synchronized void dispose() {
+    if (myDisposed) {
+      return;
+    }
+    myDisposed = true;
+    Module module = getModule();
+    if (mySession != null && !module.isDisposed()) {
+      RenderSessionCache.get(module).releaseSession(mySession);
+    }
+  }
 }
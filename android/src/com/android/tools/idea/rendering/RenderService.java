@@ -34,6 +34,7 @@ import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Pair;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import org.jetbrains.android.dom.manifest.Manifest;
@@ -56,6 +57,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Set;
 
 import static com.android.SdkConstants.*;
@@ -255,8 +257,7 @@ public class RenderService {
 
 
   public void dispose() {
-    myProjectCallback.setLogger(null);
-    myProjectCallback.setResourceResolver(null);
+    RenderSessionCache.get(myModule).disposeProjectCallback(myProjectCallback);
   }
 
   @NotNull
@@ -420,6 +421,9 @@ public class RenderService {
   /**
    * Renders the model and returns the result as a {@link com.android.ide.common.rendering.api.RenderSession}.
    *
+   * The session may be checked out from the module's {@link RenderSessionCache}; callers must
+   * {@link RenderSessionCache#releaseSession release} it once they are done with it.
+   *
    * @return the {@link com.android.ide.common.rendering.api.RenderSession} resulting from rendering the current model
    */
   @Nullable
@@ -471,9 +475,37 @@ public class RenderService {
       }
     }
 
-    // todo: support caching
+    // Sessions can only be reused when the layout is rendered standalone, with no per-render customizations
+    RenderSessionCache sessionCache = RenderSessionCache.get(myModule);
+    long resourceGeneration = ProjectResources.get(myModule, true).getModificationCount();
+    sessionCache.prepareLayoutLibrary(myLayoutLib, myModule, resourceGeneration);
+    boolean cacheable = topParser == modelParser && myExpandNodes == null && myImageFactory == null;
+    RenderSessionCache.SessionKey sessionKey = null;
+    Object sessionState = null;
+    if (cacheable) {
+      sessionKey = new RenderSessionCache.SessionKey(myPsiFile, myConfiguration, myConfiguration.getTheme(), resourceGeneration);
+      sessionState = getSessionState(hardwareConfig);
+      final RenderSession cached = sessionCache.getSession(sessionKey, sessionState);
+      if (cached != null) {
+        // The layout library calls back into the callback the session was created with, not ours
+        ProjectCallback callback = sessionCache.getProjectCallback(cached);
+        if (callback != null) {
+          callback.setLogger(myLogger);
+          callback.setResourceResolver(resolver);
+        }
+        Result result = ApplicationManager.getApplication().runReadAction(new Computable<Result>() {
+          @Override
+          public Result compute() {
+            return myTimeout > 0 ? cached.render(myTimeout) : cached.render();
+          }
+        });
+        if (result.isSuccess()) {
+          return cached;
+        }
+        sessionCache.removeSession(cached);
+      }
+    }
 
-    myLayoutLib.clearCaches(myModule);
     final SessionParams params =
       new SessionParams(topParser, myRenderingMode, myModule /* projectKey */, hardwareConfig, resolver, myProjectCallback,
                         myMinSdkVersion, myTargetSdkVersion, myLogger);
@@ -515,7 +547,7 @@ public class RenderService {
       myProjectCallback.setLogger(myLogger);
       myProjectCallback.setResourceResolver(resolver);
 
-      return ApplicationManager.getApplication().runReadAction(new Computable<RenderSession>() {
+      RenderSession session = ApplicationManager.getApplication().runReadAction(new Computable<RenderSession>() {
         @Nullable
         @Override
         public RenderSession compute() {
@@ -532,6 +564,12 @@ public class RenderService {
           return session;
         }
       });
+
+      if (cacheable && session != null && session.getResult().isSuccess()) {
+        sessionCache.putSession(sessionKey, sessionState, session, myProjectCallback);
+      }
+
+      return session;
     }
     catch (RuntimeException t) {
       // Exceptions from the bridge
@@ -540,6 +578,18 @@ public class RenderService {
     }
   }
 
+  /**
+   * Returns the state a pooled {@link RenderSession} must have been created with to be rendered again
+   * rather than re-inflated: any PSI change, including in included layouts, invalidates the session
+   */
+  @NotNull
+  private Object getSessionState(@NotNull HardwareConfig hardwareConfig) {
+    long psiModificationCount = PsiManager.getInstance(myModule.getProject()).getModificationTracker().getModificationCount();
+    return Arrays.<Object>asList(psiModificationCount, myRenderingMode, myShowDecorations, myOverrideBgColor,
+                                 hardwareConfig.getScreenWidth(), hardwareConfig.getScreenHeight(), hardwareConfig.getDensity(),
+                                 hardwareConfig.getOrientation());
+  }
+
   @Nullable
   public RenderResult render() {
     ApplicationManager.getApplication().assertReadAccessAllowed();
@@ -547,7 +597,16 @@ public class RenderService {
     RenderResult renderResult;
     try {
       RenderSession session = createRenderSession();
-      renderResult = new RenderResult(this, session, myPsiFile, myLogger);
+      // A pooled session stays checked out until the result is disposed, since the result keeps using it
+      try {
+        renderResult = new RenderResult(this, session, myPsiFile, myLogger);
+      }
+      catch (RuntimeException e) {
+        if (session != null) {
+          RenderSessionCache.get(myModule).releaseSession(session);
+        }
+        throw e;
+      }
       if (session != null) {
         addDiagnostics(session);
       }
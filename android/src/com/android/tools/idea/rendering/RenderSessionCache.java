@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.android.ide.common.rendering.LayoutLibrary;
+import com.android.ide.common.rendering.api.RenderSession;
+import com.android.tools.idea.configurations.Configuration;
+import com.google.common.base.Objects;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-module pool of {@link RenderSession}s used by {@link RenderService}.
+ * <p>
+ * Sessions are keyed by layout file, {@link Configuration}, theme and resource generation.
+ * A render request whose key and render state match a pooled session (for example a
+ * re-render triggered without any intervening PSI change) simply renders the existing
+ * session again instead of inflating the layout from scratch.
+ * <p>
+ * A session is checked out while a render thread is using it: from {@link #getSession} or
+ * {@link #putSession} until {@link #releaseSession}. A checked out session is never handed to
+ * another thread, and is never disposed while checked out; if it is evicted or invalidated
+ * in the meantime, it is disposed when it is released.
+ * <p>
+ * The pool also tracks the resource generation for which the layout library's caches were
+ * last cleared, such that edits which do not affect resources (for example attribute edits
+ * in the layout being rendered) keep the bridge caches warm rather than clearing them on
+ * every render. The caches are also cleared when custom view classes used by a pooled
+ * session have been recompiled.
+ */
+public class RenderSessionCache {
+  private static final Key<RenderSessionCache> RENDER_SESSION_CACHE = new Key<RenderSessionCache>("adt-render-session-cache"); //$NON-NLS-1$
+
+  /** Maximum number of sessions kept alive per module; each session holds on to its rendered image */
+  private static final int MAX_SESSIONS = 10;
+
+  private final Map<SessionKey, CachedSession> mySessions = new LinkedHashMap<SessionKey, CachedSession>(16, 0.75f, true);
+
+  /** Sessions currently checked out by a render thread, including ones no longer in the pool */
+  private final Map<RenderSession, CachedSession> myCheckedOut = new IdentityHashMap<RenderSession, CachedSession>();
+
+  /** Resource generation the layout library caches were last cleared for, or -1 if they must be cleared */
+  private long myClearedGeneration = -1;
+
+  RenderSessionCache() {
+  }
+
+  /**
+   * Returns the {@link RenderSessionCache} for the given module
+   *
+   * @param module the module the cache is associated with
+   * @return the cache for the given module, never null
+   */
+  @NotNull
+  public static RenderSessionCache get(@NotNull Module module) {
+    synchronized (RENDER_SESSION_CACHE) {
+      RenderSessionCache cache = module.getUserData(RENDER_SESSION_CACHE);
+      if (cache == null) {
+        cache = new RenderSessionCache();
+        module.putUserData(RENDER_SESSION_CACHE, cache);
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * Clears the layout library caches for the module if the resources have changed since they
+   * were last cleared, or if custom view classes used by a pooled session have been recompiled.
+   * Pooled sessions are discarded along with the caches.
+   *
+   * @param layoutLib the layout library to clear caches in
+   * @param module the module, which is also the project key used by the layout library
+   * @param resourceGeneration the current {@link ProjectResources#getModificationCount()}
+   */
+  public synchronized void prepareLayoutLibrary(@NotNull LayoutLibrary layoutLib, @NotNull Module module, long resourceGeneration) {
+    if (myClearedGeneration != resourceGeneration || hasOutdatedClasses()) {
+      disposeSessions();
+      layoutLib.clearCaches(module);
+      myClearedGeneration = resourceGeneration;
+    }
+  }
+
+  /**
+   * Checks out a pooled session for the given key, provided it was created for the given render
+   * state and is not already checked out. The caller must {@link #releaseSession release} it.
+   *
+   * @param key the session key
+   * @param state the state the session must have been rendered with, such as the PSI modification count
+   * @return a matching session, or null
+   */
+  @Nullable
+  public synchronized RenderSession getSession(@NotNull SessionKey key, @NotNull Object state) {
+    CachedSession cached = mySessions.get(key);
+    if (cached != null && !cached.checkedOut && cached.state.equals(state) && cached.isUpToDate()) {
+      cached.checkedOut = true;
+      myCheckedOut.put(cached.session, cached);
+      return cached.session;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the project callback the given pooled session was created with, which is the one
+   * the layout library calls back into when the session is rendered again
+   */
+  @Nullable
+  public synchronized ProjectCallback getProjectCallback(@NotNull RenderSession session) {
+    CachedSession cached = myCheckedOut.get(session);
+    return cached != null ? cached.callback : null;
+  }
+
+  /**
+   * Adds the given session, which the caller has just created, to the pool; the session stays checked
+   * out by the caller until it is {@link #releaseSession released}. Any previous session for the same
+   * layout file and configuration is discarded, since it can no longer be reused.
+   *
+   * @param key the session key
+   * @param state the render state the session was created with
+   * @param session the session
+   * @param callback the project callback the session was created with, or null
+   */
+  public synchronized void putSession(@NotNull SessionKey key, @NotNull Object state, @NotNull RenderSession session,
+                                      @Nullable ProjectCallback callback) {
+    Iterator<Map.Entry<SessionKey, CachedSession>> iterator = mySessions.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<SessionKey, CachedSession> entry = iterator.next();
+      SessionKey existing = entry.getKey();
+      if (existing.myFile == key.myFile && existing.myConfiguration == key.myConfiguration) {
+        if (entry.getValue().session != session) {
+          discard(entry.getValue());
+        }
+        iterator.remove();
+      }
+    }
+
+    CachedSession cached = new CachedSession(session, state, callback);
+    cached.checkedOut = true;
+    myCheckedOut.put(session, cached);
+    mySessions.put(key, cached);
+
+    if (mySessions.size() > MAX_SESSIONS) {
+      iterator = mySessions.entrySet().iterator();
+      Map.Entry<SessionKey, CachedSession> eldest = iterator.next();
+      discard(eldest.getValue());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Returns a checked out session to the pool. If the session was discarded from the pool while it
+   * was checked out, it is disposed now. Sessions which never came from the pool are ignored.
+   */
+  public synchronized void releaseSession(@NotNull RenderSession session) {
+    CachedSession cached = myCheckedOut.remove(session);
+    if (cached != null) {
+      cached.checkedOut = false;
+      if (cached.discarded) {
+        session.dispose();
+      }
+    }
+  }
+
+  /**
+   * Removes a checked out session from the pool, for example because rendering it again failed,
+   * and releases it, which disposes it
+   */
+  public synchronized void removeSession(@NotNull RenderSession session) {
+    Iterator<CachedSession> iterator = mySessions.values().iterator();
+    while (iterator.hasNext()) {
+      CachedSession cached = iterator.next();
+      if (cached.session == session) {
+        discard(cached);
+        iterator.remove();
+      }
+    }
+    releaseSession(session);
+  }
+
+  /**
+   * Clears the logger and resource resolver of a project callback whose render service is disposed,
+   * unless a pooled session created with it is being rendered again with another service's logger
+   */
+  public synchronized void disposeProjectCallback(@NotNull ProjectCallback callback) {
+    for (CachedSession cached : myCheckedOut.values()) {
+      if (cached.callback == callback) {
+        return;
+      }
+    }
+    callback.setLogger(null);
+    callback.setResourceResolver(null);
+  }
+
+  /**
+   * Discards all pooled sessions, and forces the layout library caches to be cleared on the
+   * next render. Used when the user explicitly asks for a refresh.
+   */
+  public synchronized void invalidate() {
+    disposeSessions();
+    myClearedGeneration = -1;
+  }
+
+  private boolean hasOutdatedClasses() {
+    for (CachedSession cached : mySessions.values()) {
+      if (!cached.isUpToDate()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void disposeSessions() {
+    for (CachedSession cached : mySessions.values()) {
+      discard(cached);
+    }
+    mySessions.clear();
+  }
+
+  /** Disposes a session which is leaving the pool, or defers that to its release if it is checked out */
+  private static void discard(@NotNull CachedSession cached) {
+    cached.discarded = true;
+    if (!cached.checkedOut) {
+      cached.session.dispose();
+    }
+  }
+
+  private static class CachedSession {
+    final RenderSession session;
+    final Object state;
+    final ProjectCallback callback;
+    boolean checkedOut;
+    boolean discarded;
+
+    CachedSession(@NotNull RenderSession session, @NotNull Object state, @Nullable ProjectCallback callback) {
+      this.session = session;
+      this.state = state;
+      this.callback = callback;
+    }
+
+    boolean isUpToDate() {
+      return callback == null || callback.isUpToDate();
+    }
+  }
+
+  /** Key identifying a reusable session: layout file, configuration, theme and resource generation */
+  public static final class SessionKey {
+    private final PsiFile myFile;
+    private final Configuration myConfiguration;
+    private final long myConfigurationModificationCount;
+    private final String myTheme;
+    private final long myResourceGeneration;
+
+    public SessionKey(@NotNull PsiFile file, @NotNull Configuration configuration, @Nullable String theme, long resourceGeneration) {
+      myFile = file;
+      myConfiguration = configuration;
+      myConfigurationModificationCount = configuration.getModificationCount();
+      myTheme = theme;
+      myResourceGeneration = resourceGeneration;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SessionKey other = (SessionKey)o;
+      return myFile == other.myFile &&
+             myConfiguration == other.myConfiguration &&
+             myConfigurationModificationCount == other.myConfigurationModificationCount &&
+             myResourceGeneration == other.myResourceGeneration &&
+             Objects.equal(myTheme, other.myTheme);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(System.identityHashCode(myFile), System.identityHashCode(myConfiguration),
+                              myConfigurationModificationCount, myTheme, myResourceGeneration);
+    }
+  }
+}
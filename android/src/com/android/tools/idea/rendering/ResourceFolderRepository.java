@@ -33,10 +33,12 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.*;
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.*;
 
 import static com.android.SdkConstants.*;
@@ -50,8 +52,8 @@ import static com.android.tools.lint.detector.api.LintUtils.stripIdPrefix;
  * <ul>
  *   <li>Find some way to have event updates in this resource folder directly update parent repositories
  *   (typically {@link ModuleResourceRepository}</li>
- *   <li>consider *initializing* this repository initially from IO files to not force full modelling of
- *   XML objects for all these tiny files (translations etc) ? Or find some way to persist the data in the index.</li>
+ *   <li>The initial scan is restored from a {@link ResourceFolderSnapshot} where possible; consider also
+ *   updating the snapshot incrementally rather than only after the initial scan.</li>
  *   <li>Add defensive checks for non-read permission reads of resource values</li>
  *   <li>Idea: For {@link #rescan}; compare the removed items from the added items, and if they're the same, avoid
  *   creating a new generation.</li>
@@ -72,6 +74,10 @@ public final class ResourceFolderRepository extends ProjectResources {
   @VisibleForTesting
   static int ourFullRescans;
 
+  /** Whether the initial scan may use a persisted {@link ResourceFolderSnapshot}; only on in unit tests when requested */
+  @VisibleForTesting
+  static boolean ourSnapshotsInTests;
+
   private ResourceFolderRepository(@NotNull AndroidFacet facet, @NotNull VirtualFile resourceDir) {
     super(resourceDir.getName());
     myFacet = facet;
@@ -92,18 +98,139 @@ public final class ResourceFolderRepository extends ProjectResources {
   }
 
   private void scan() {
+    final boolean useSnapshot = ourSnapshotsInTests || !ApplicationManager.getApplication().isUnitTestMode();
+    final ResourceFolderSnapshot snapshot = useSnapshot ? ResourceFolderSnapshot.load(myResourceDir) : null;
     ApplicationManager.getApplication().runReadAction(new Runnable() {
       @Override
       public void run() {
         PsiManager manager = PsiManager.getInstance(myFacet.getModule().getProject());
         PsiDirectory directory = manager.findDirectory(myResourceDir);
         if (directory != null) {
-          scanResFolder(directory);
+          scanResFolder(directory, snapshot);
+          if (useSnapshot) {
+            saveSnapshot(snapshot);
+          }
         }
       }
     });
   }
 
+  /**
+   * Records the items of all the files currently known to this repository such that the next
+   * initial scan of this folder only needs to look at the files that have changed since. Files
+   * whose timestamp and length match the previous snapshot keep their checksum from it rather than
+   * being read again.
+   */
+  private void saveSnapshot(@Nullable final ResourceFolderSnapshot previous) {
+    final Map<VirtualFile, List<ResourceFolderSnapshot.ItemEntry>> files = Maps.newHashMapWithExpectedSize(myResourceFiles.size());
+    for (PsiResourceFile resourceFile : myResourceFiles.values()) {
+      VirtualFile virtualFile = resourceFile.getPsiFile().getVirtualFile();
+      if (virtualFile == null || virtualFile.getParent() == null) {
+        continue;
+      }
+      Collection<ResourceItem> items = resourceFile.getItems();
+      List<ResourceFolderSnapshot.ItemEntry> entries = Lists.newArrayListWithExpectedSize(items.size());
+      for (ResourceItem item : items) {
+        entries.add(new ResourceFolderSnapshot.ItemEntry(item.getType(), item.getName()));
+      }
+      files.put(virtualFile, entries);
+    }
+
+    Runnable writer = new Runnable() {
+      @Override
+      public void run() {
+        ResourceFolderSnapshot snapshot = new ResourceFolderSnapshot(myResourceDir.getPath());
+        for (Map.Entry<VirtualFile, List<ResourceFolderSnapshot.ItemEntry>> entry : files.entrySet()) {
+          VirtualFile file = entry.getKey();
+          VirtualFile parent = file.getParent();
+          if (!file.isValid() || parent == null) {
+            continue;
+          }
+          String relativePath = ResourceFolderSnapshot.getRelativePath(parent.getName(), file.getName());
+          long timestamp = file.getTimeStamp();
+          long length = file.getLength();
+          ResourceFolderSnapshot.FileEntry previousEntry = previous != null ? previous.getFile(relativePath) : null;
+          try {
+            long checksum;
+            if (previousEntry != null && previousEntry.timestamp == timestamp && previousEntry.length == length) {
+              checksum = previousEntry.checksum;
+            } else {
+              checksum = ResourceFolderSnapshot.computeChecksum(file.contentsToByteArray());
+            }
+            snapshot.addFile(relativePath, timestamp, length, checksum, entry.getValue());
+          }
+          catch (IOException e) {
+            // Leave the file out of the snapshot; it will simply be scanned next time
+          }
+        }
+        snapshot.save(myResourceDir);
+      }
+    };
+    if (ApplicationManager.getApplication().isUnitTestMode()) {
+      // Let tests create a repository from the snapshot right away
+      writer.run();
+    } else {
+      // Checksumming changed files requires reading them, so do the actual writing off the read action
+      ApplicationManager.getApplication().executeOnPooledThread(writer);
+    }
+  }
+
+  /**
+   * Called by {@link PsiProjectListener} before the contents of a file in this folder change. Looks up the tags of
+   * the items of the file which were restored lazily from a snapshot. This has to happen
+   * before the file is edited: once a tag has been removed, its item can no longer be matched to it. If the tag of an
+   * item can't be found, the snapshot didn't match the file after all, so the file is rescanned.
+   */
+  void beforeFileEdited(@NotNull PsiFile psiFile) {
+    PsiResourceFile resourceFile = myResourceFiles.get(psiFile);
+    if (resourceFile == null || resourceFile.getFolderType() != VALUES) {
+      return;
+    }
+    PsiResourceItem.resolveTags(psiFile, resourceFile.getItems());
+    for (ResourceItem item : resourceFile.getItems()) {
+      if (((PsiResourceItem)item).isTagMissing()) {
+        rescan(psiFile, VALUES);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Registers the items recorded for the given file in the snapshot, provided the file is unchanged
+   * since the snapshot was taken. Value items are created lazily such that the XML of the file is
+   * not parsed until one of its items is resolved.
+   *
+   * @return true if the file was restored from the snapshot, false if it needs to be scanned
+   */
+  private boolean restoreFromSnapshot(@NotNull ResourceFolderSnapshot snapshot, @NotNull PsiFile file, String qualifiers,
+                                      ResourceFolderType folderType, FolderConfiguration folderConfiguration) {
+    VirtualFile virtualFile = file.getVirtualFile();
+    if (virtualFile == null) {
+      return false;
+    }
+    List<ResourceFolderSnapshot.ItemEntry> entries = snapshot.getItemsIfUpToDate(virtualFile);
+    if (entries == null) {
+      return false;
+    }
+
+    List<ResourceItem> items = Lists.newArrayListWithExpectedSize(entries.size());
+    for (ResourceFolderSnapshot.ItemEntry entry : entries) {
+      ResourceItem item;
+      if (folderType == VALUES) {
+        item = PsiResourceItem.createLazy(entry.name, entry.type, file);
+      } else {
+        item = new PsiResourceItem(entry.name, entry.type, null, file);
+      }
+      ListMultimap<String, ResourceItem> map = getMap(entry.type, true);
+      assert map != null;
+      map.put(entry.name, item);
+      items.add(item);
+    }
+    PsiResourceFile resourceFile = new PsiResourceFile(file, items, qualifiers, folderType, folderConfiguration);
+    myResourceFiles.put(file, resourceFile);
+    return true;
+  }
+
   @Nullable
   private PsiFile ensureValid(@NotNull PsiFile psiFile) {
     if (psiFile. isValid()) {
@@ -118,7 +245,7 @@ public final class ResourceFolderRepository extends ProjectResources {
     return null;
   }
 
-  private void scanResFolder(@NotNull PsiDirectory res) {
+  private void scanResFolder(@NotNull PsiDirectory res, @Nullable ResourceFolderSnapshot snapshot) {
     for (PsiDirectory dir : res.getSubdirectories()) {
       String name = dir.getName();
       ResourceFolderType folderType = ResourceFolderType.getFolderType(name);
@@ -129,9 +256,9 @@ public final class ResourceFolderRepository extends ProjectResources {
           continue;
         }
         if (folderType == VALUES) {
-          scanValueResFolder(dir, qualifiers, folderConfiguration);
+          scanValueResFolder(dir, qualifiers, folderConfiguration, snapshot);
         } else {
-          scanFileResourceFolder(dir, folderType, qualifiers, folderConfiguration);
+          scanFileResourceFolder(dir, folderType, qualifiers, folderConfiguration, snapshot);
         }
       }
     }
@@ -143,7 +270,7 @@ public final class ResourceFolderRepository extends ProjectResources {
   }
 
   private void scanFileResourceFolder(@NotNull PsiDirectory directory, ResourceFolderType folderType, String qualifiers,
-                                      FolderConfiguration folderConfiguration) {
+                                      FolderConfiguration folderConfiguration, @Nullable ResourceFolderSnapshot snapshot) {
     List<ResourceType> resourceTypes = FolderTypeRelationship.getRelatedResourceTypes(folderType);
     assert resourceTypes.size() >= 1 : folderType;
     ResourceType type = resourceTypes.get(0);
@@ -160,6 +287,9 @@ public final class ResourceFolderRepository extends ProjectResources {
     for (PsiFile file : directory.getFiles()) {
       FileType fileType = file.getFileType();
       if (isRelevantFileType(fileType) || folderType == ResourceFolderType.RAW) {
+        if (snapshot != null && restoreFromSnapshot(snapshot, file, qualifiers, folderType, folderConfiguration)) {
+          continue;
+        }
         scanFileResourceFile(qualifiers, folderType, folderConfiguration, type, idGenerating, map, file);
 
       } // TODO: Else warn about files that aren't expected to be found here?
@@ -248,11 +378,15 @@ public final class ResourceFolderRepository extends ProjectResources {
     }
   }
 
-  private void scanValueResFolder(@NotNull PsiDirectory directory, String qualifiers, FolderConfiguration folderConfiguration) {
+  private void scanValueResFolder(@NotNull PsiDirectory directory, String qualifiers, FolderConfiguration folderConfiguration,
+                                  @Nullable ResourceFolderSnapshot snapshot) {
     //noinspection ConstantConditions
     assert directory.getName().startsWith(FD_RES_VALUES);
 
     for (PsiFile file : directory.getFiles()) {
+      if (snapshot != null && restoreFromSnapshot(snapshot, file, qualifiers, VALUES, folderConfiguration)) {
+        continue;
+      }
       scanValueFile(qualifiers, file, folderConfiguration);
     }
   }
@@ -333,7 +467,7 @@ public final class ResourceFolderRepository extends ProjectResources {
    * @return the ResourceType or null if it could not be inferred.
    */
   @Nullable
-  private static ResourceType getType(XmlTag node) {
+  static ResourceType getType(XmlTag node) {
     String nodeName = node.getLocalName();
     String typeString = null;
 
@@ -447,7 +581,7 @@ public final class ResourceFolderRepository extends ProjectResources {
       if (added || removed) {
         // TODO: Consider doing a deeper diff of the changes to the resource items
         // to determine if the removed and added items actually differ
-        myGeneration++;
+        allResourcesChanged();
         invalidateItemCaches();
       }
     } else {
@@ -509,7 +643,7 @@ public final class ResourceFolderRepository extends ProjectResources {
           }
 
           if (!idsBefore.equals(idsAfter)) {
-            myGeneration++;
+            resourcesChanged(ResourceType.ID, ArrayUtil.toStringArray(Sets.symmetricDifference(idsBefore, idsAfter)));
           }
           // Identities may have changed even if the ids are the same, so update maps
           invalidateItemCaches(ResourceType.ID);
@@ -545,7 +679,7 @@ public final class ResourceFolderRepository extends ProjectResources {
               scanFileResourceFile(getQualifiers(dirName), folderType, folderConfiguration, type, idGenerating, map, file);
             }
           }
-          myGeneration++;
+          allResourcesChanged();
           invalidateItemCaches();
         }
       }
@@ -644,7 +778,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                       ResourceItem item = new PsiResourceItem(name, type, tag, psiFile);
                       map.put(name, item);
                       resourceFile.addItems(Collections.singletonList(item));
-                      myGeneration++;
+                      resourcesChanged(type, name);
                       invalidateItemCaches(type);
                     }
                   }
@@ -660,7 +794,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                 ResourceItem style = findValueResourceItem(parentTag, psiFile);
                 if (style instanceof PsiResourceItem) {
                   if (((PsiResourceItem)style).recomputeValue()) {
-                    myGeneration++;
+                    resourcesChanged(style.getType(), style.getName());
                   }
                   return;
                 }
@@ -789,7 +923,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                   ResourceItem style = findValueResourceItem(parentTag, psiFile);
                   if (style instanceof PsiResourceItem) {
                     if (((PsiResourceItem)style).recomputeValue()) {
-                      myGeneration++;
+                      resourcesChanged(style.getType(), style.getName());
                     }
 
                     if (style.getType() == ResourceType.ATTR) {
@@ -798,7 +932,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                         ResourceItem declareStyleable = findValueResourceItem(parentTag, psiFile);
                         if (declareStyleable instanceof PsiResourceItem) {
                           if (((PsiResourceItem)declareStyleable).recomputeValue()) {
-                            myGeneration++;
+                            resourcesChanged(declareStyleable.getType(), declareStyleable.getName());
                           }
                         }
                       }
@@ -832,7 +966,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                         return;
                       }
                       if (removeItems(resourceFile, type, name, true)) {
-                        myGeneration++;
+                        resourcesChanged(type, name);
                         invalidateItemCaches(type);
                       }
                     }
@@ -880,7 +1014,7 @@ public final class ResourceFolderRepository extends ProjectResources {
         }
       }
 
-      myGeneration++;
+      allResourcesChanged();
       invalidateItemCaches();
 
       ResourceFolderType folderType = resourceFile.getFolderType();
@@ -908,7 +1042,7 @@ public final class ResourceFolderRepository extends ProjectResources {
         return;
       }
       myResourceFiles.remove(psiFile);
-      myGeneration++;
+      allResourcesChanged();
       invalidateItemCaches();
 
       ResourceFolderType folderType = getFolderType(psiFile);
@@ -1005,7 +1139,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                           ResourceItem newItem = new PsiResourceItem(newName, ResourceType.ID, xmlTag, psiFile);
                           map.put(newName, newItem);
                           resourceFile.replace(item, newItem);
-                          myGeneration++;
+                          resourcesChanged(ResourceType.ID, oldName, newName);
                           invalidateItemCaches(ResourceType.ID);
                           return;
                         }
@@ -1041,7 +1175,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                         ResourceItem newItem = new PsiResourceItem(newName, ResourceType.ID, xmlTag, psiFile);
                         map.put(newName, newItem);
                         resourceFile.replace(item, newItem);
-                        myGeneration++;
+                        resourcesChanged(ResourceType.ID, oldName, newName);
                         invalidateItemCaches(ResourceType.ID);
                         return;
                       }
@@ -1080,7 +1214,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                   ResourceItem style = findValueResourceItem(parentTag, psiFile);
                   if (style instanceof PsiResourceItem) {
                     if (((PsiResourceItem)style).recomputeValue()) {
-                      myGeneration++;
+                      resourcesChanged(style.getType(), style.getName());
                     }
                     return;
                   }
@@ -1138,7 +1272,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                         else {
                           assert false : item;
                         }
-                        myGeneration++;
+                        resourcesChanged(type, oldName, newName);
                         invalidateItemCaches(type);
 
                         // Invalidate surrounding declare styleable if any
@@ -1163,7 +1297,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                       ResourceItem style = findValueResourceItem(parentTag, psiFile);
                       if (style instanceof PsiResourceItem) {
                         if (((PsiResourceItem)style).recomputeValue()) {
-                          myGeneration++;
+                          resourcesChanged(style.getType(), style.getName());
                         }
                         return;
                       }
@@ -1223,7 +1357,7 @@ public final class ResourceFolderRepository extends ProjectResources {
           if (item instanceof PsiResourceItem) {
             boolean cleared = ((PsiResourceItem)item).recomputeValue();
             if (cleared) { // Only bump revision if this is a value which has already been observed!
-              myGeneration++;
+              resourcesChanged(item.getType(), item.getName());
             }
           }
           return;
@@ -1238,7 +1372,7 @@ public final class ResourceFolderRepository extends ProjectResources {
             // Edited XML value
             boolean cleared = ((PsiResourceItem)item).recomputeValue();
             if (cleared) { // Only bump revision if this is a value which has already been observed!
-              myGeneration++;
+              resourcesChanged(item.getType(), item.getName());
             }
           }
           break;
@@ -1310,7 +1444,7 @@ public final class ResourceFolderRepository extends ProjectResources {
                 assert newParent != null; // Since newFolderType != null
                 String newDirName = newParent.getName();
                 resourceFile.setPsiFile(psiFile, getQualifiers(newDirName));
-                myGeneration++; // qualifiers may have changed: can affect configuration matching
+                allResourcesChanged(); // qualifiers may have changed: can affect configuration matching
                 invalidateItemCaches();
               }
             } else {
@@ -1481,7 +1615,8 @@ public final class ResourceFolderRepository extends ProjectResources {
       if (resourceFile != null) {
         for (ResourceItem item : resourceFile.getItems()) {
           PsiResourceItem pri = (PsiResourceItem)item;
-          XmlTag xmlTag = pri.getTag();
+          // Don't look up lazily restored tags here: the tag is gone, so the lookup could never match it
+          XmlTag xmlTag = pri.getResolvedTag();
           if (xmlTag == tag) {
             return item;
           }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.android.annotations.VisibleForTesting;
+import com.android.resources.ResourceType;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persisted summary of the resource items defined in a resource folder. This lets
+ * {@link ResourceFolderRepository} register the items of unchanged files on project open without
+ * parsing their XML; the PSI of a file is only consulted once one of its items is actually resolved.
+ * <p>
+ * Each file is recorded with its timestamp, length and a checksum of its contents. A file whose
+ * timestamp changed but whose contents did not (e.g. after a branch switch) is still considered
+ * up to date.
+ */
+class ResourceFolderSnapshot {
+  private static final Logger LOG = Logger.getInstance(ResourceFolderSnapshot.class);
+  private static final int VERSION = 1;
+
+  private final String myResourceDirPath;
+  private final Map<String, FileEntry> myFiles = Maps.newHashMap();
+
+  ResourceFolderSnapshot(@NotNull String resourceDirPath) {
+    myResourceDirPath = resourceDirPath;
+  }
+
+  /** Records the items defined by the file with the given path, relative to the resource folder */
+  void addFile(@NotNull String relativePath, long timestamp, long length, long checksum, @NotNull List<ItemEntry> items) {
+    myFiles.put(relativePath, new FileEntry(timestamp, length, checksum, items));
+  }
+
+  @Nullable
+  FileEntry getFile(@NotNull String relativePath) {
+    return myFiles.get(relativePath);
+  }
+
+  /**
+   * Returns the items recorded for the given file if the file has not changed since the snapshot
+   * was taken, or null if the file is unknown or has to be rescanned
+   */
+  @Nullable
+  List<ItemEntry> getItemsIfUpToDate(@NotNull VirtualFile file) {
+    VirtualFile folder = file.getParent();
+    if (folder == null) {
+      return null;
+    }
+    FileEntry entry = myFiles.get(getRelativePath(folder.getName(), file.getName()));
+    if (entry == null || entry.length != file.getLength()) {
+      return null;
+    }
+    if (entry.timestamp == file.getTimeStamp()) {
+      return entry.items;
+    }
+    try {
+      return entry.checksum == computeChecksum(file.contentsToByteArray()) ? entry.items : null;
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  @NotNull
+  static String getRelativePath(@NotNull String folderName, @NotNull String fileName) {
+    return folderName + '/' + fileName;
+  }
+
+  static long computeChecksum(@NotNull byte[] contents) {
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    return crc.getValue();
+  }
+
+  @VisibleForTesting
+  void write(@NotNull DataOutput out) throws IOException {
+    out.writeInt(VERSION);
+    out.writeUTF(myResourceDirPath);
+    out.writeInt(myFiles.size());
+    for (Map.Entry<String, FileEntry> entry : myFiles.entrySet()) {
+      FileEntry file = entry.getValue();
+      out.writeUTF(entry.getKey());
+      out.writeLong(file.timestamp);
+      out.writeLong(file.length);
+      out.writeLong(file.checksum);
+      out.writeInt(file.items.size());
+      for (ItemEntry item : file.items) {
+        out.writeUTF(item.type.getName());
+        out.writeUTF(item.name);
+      }
+    }
+  }
+
+  /** Reads a snapshot, or returns null if the data was written by a different version or for a different folder */
+  @VisibleForTesting
+  @Nullable
+  static ResourceFolderSnapshot read(@NotNull DataInput in, @NotNull String resourceDirPath) throws IOException {
+    if (in.readInt() != VERSION || !resourceDirPath.equals(in.readUTF())) {
+      return null;
+    }
+    ResourceFolderSnapshot snapshot = new ResourceFolderSnapshot(resourceDirPath);
+    int fileCount = in.readInt();
+    for (int i = 0; i < fileCount; i++) {
+      String path = in.readUTF();
+      long timestamp = in.readLong();
+      long length = in.readLong();
+      long checksum = in.readLong();
+      int itemCount = in.readInt();
+      List<ItemEntry> items = Lists.newArrayListWithExpectedSize(itemCount);
+      for (int j = 0; j < itemCount; j++) {
+        ResourceType type = ResourceType.getEnum(in.readUTF());
+        String name = in.readUTF();
+        if (type == null) {
+          // Written by an incompatible version of the resource type list
+          return null;
+        }
+        items.add(new ItemEntry(type, name));
+      }
+      snapshot.addFile(path, timestamp, length, checksum, items);
+    }
+
+    return snapshot;
+  }
+
+  /** Loads the snapshot previously saved for the given resource folder, if any */
+  @Nullable
+  static ResourceFolderSnapshot load(@NotNull VirtualFile resourceDir) {
+    File file = getSnapshotFile(resourceDir);
+    if (!file.isFile()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      return read(in, resourceDir.getPath());
+    }
+    catch (IOException e) {
+      LOG.info("Could not read resource snapshot " + file, e);
+      return null;
+    }
+    finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  void save(@NotNull VirtualFile resourceDir) {
+    File file = getSnapshotFile(resourceDir);
+    File parent = file.getParentFile();
+    if (!parent.exists() && !parent.mkdirs()) {
+      return;
+    }
+    DataOutputStream out = null;
+    boolean written = false;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      write(out);
+      written = true;
+    }
+    catch (IOException e) {
+      LOG.info("Could not write resource snapshot " + file, e);
+    }
+    finally {
+      Closeables.closeQuietly(out);
+      if (!written) {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+      }
+    }
+  }
+
+  @NotNull
+  private static File getSnapshotFile(@NotNull VirtualFile resourceDir) {
+    // Hash collisions are caught by the folder path stored in the snapshot itself
+    String name = Integer.toHexString(resourceDir.getPath().hashCode()) + ".snapshot";
+    //noinspection HardCodedStringLiteral
+    return new File(new File(PathManager.getSystemPath(), "android-resources"), name);
+  }
+
+  static class FileEntry {
+    final long timestamp;
+    final long length;
+    final long checksum;
+    final List<ItemEntry> items;
+
+    FileEntry(long timestamp, long length, long checksum, @NotNull List<ItemEntry> items) {
+      this.timestamp = timestamp;
+      this.length = length;
+      this.checksum = checksum;
+      this.items = Collections.unmodifiableList(items);
+    }
+  }
+
+  static class ItemEntry {
+    final ResourceType type;
+    final String name;
+
+    ItemEntry(@NotNull ResourceType type, @NotNull String name) {
+      this.type = type;
+      this.name = name;
+    }
+  }
+}
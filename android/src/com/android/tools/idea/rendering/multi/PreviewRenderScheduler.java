@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering.multi;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders {@link RenderPreview}s on a bounded pool of worker threads, such that independent
+ * previews render concurrently rather than one after the other.
+ * <p>
+ * Requests are served in priority order (lower values first), which lets the
+ * {@link RenderPreviewManager} render zoomed and visible previews before the rest.
+ * Scheduling a preview again replaces any request for it which has not started yet,
+ * and {@link #cancelAll()} drops all requests which have not started, for example when
+ * the configuration changes and all previews are about to be rescheduled.
+ */
+class PreviewRenderScheduler {
+  private static final Logger LOG = Logger.getInstance(PreviewRenderScheduler.class);
+
+  /** Idle workers are released after this many seconds */
+  private static final int KEEP_ALIVE_SECONDS = 30;
+
+  private final ThreadPoolExecutor myExecutor;
+  private final AtomicInteger myEpoch = new AtomicInteger();
+  private final AtomicInteger mySequence = new AtomicInteger();
+
+  /**
+   * Creates a new scheduler
+   *
+   * @param workerCount the maximum number of previews to render at the same time,
+   *                    or 0 to use one worker per available processor
+   */
+  PreviewRenderScheduler(int workerCount) {
+    int workers = getWorkerCount(workerCount);
+    myExecutor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                        new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+      private final AtomicInteger myCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(@NotNull Runnable runnable) {
+        Thread thread = new Thread(runnable, "Render Preview Worker " + myCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+      }
+    });
+    myExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  static int getWorkerCount(int configured) {
+    return configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Changes the maximum number of previews to render at the same time. Renders which already started are not affected.
+   *
+   * @param workerCount the maximum number of previews to render at the same time,
+   *                    or 0 to use one worker per available processor
+   */
+  void setWorkerCount(int workerCount) {
+    int workers = getWorkerCount(workerCount);
+    if (workers == myExecutor.getMaximumPoolSize()) {
+      return;
+    }
+    // The core size may never exceed the maximum size, so change them in the order keeping that true
+    if (workers > myExecutor.getMaximumPoolSize()) {
+      myExecutor.setMaximumPoolSize(workers);
+      myExecutor.setCorePoolSize(workers);
+    }
+    else {
+      myExecutor.setCorePoolSize(workers);
+      myExecutor.setMaximumPoolSize(workers);
+    }
+  }
+
+  /**
+   * Schedules the given preview to be rendered by the given runnable. Any request for the
+   * same preview that has not yet started is cancelled. Renders of the same preview are
+   * never run concurrently.
+   *
+   * @param preview the preview to render
+   * @param priority the priority of the request; lower values are rendered first
+   * @param render the code to run to render the preview
+   */
+  void schedule(@NotNull RenderPreview preview, int priority, @NotNull Runnable render) {
+    cancel(preview);
+    Request request = new Request(preview, priority, render);
+    preview.setPendingRendering(request);
+    myExecutor.execute(request);
+  }
+
+  /** Cancels the request for the given preview, if it has not started rendering yet */
+  void cancel(@NotNull RenderPreview preview) {
+    Runnable pending = preview.getPendingRendering();
+    if (pending instanceof Request && preview.clearPendingRendering(pending)) {
+      ((Request)pending).myCancelled = true;
+      myExecutor.remove(pending);
+    }
+  }
+
+  /** Cancels all requests which have not started rendering yet */
+  void cancelAll() {
+    myEpoch.incrementAndGet();
+    myExecutor.getQueue().clear();
+  }
+
+  void dispose() {
+    cancelAll();
+    myExecutor.shutdownNow();
+  }
+
+  private final class Request implements Runnable, Comparable<Request> {
+    private final RenderPreview myPreview;
+    private final int myPriority;
+    private final int mySequenceNumber = mySequence.incrementAndGet();
+    private final int myRequestEpoch = myEpoch.get();
+    private final Runnable myRender;
+    private volatile boolean myCancelled;
+
+    Request(@NotNull RenderPreview preview, int priority, @NotNull Runnable render) {
+      myPreview = preview;
+      myPriority = priority;
+      myRender = render;
+    }
+
+    @Override
+    public void run() {
+      // Serialize renders of the same preview; a newer request for it simply waits for the older one
+      synchronized (myPreview) {
+        if (myCancelled || myRequestEpoch != myEpoch.get()) {
+          return;
+        }
+        myPreview.clearPendingRendering(this);
+        try {
+          myRender.run();
+        }
+        catch (RuntimeException e) {
+          LOG.warn("Failed to render preview " + myPreview.getDisplayName(), e);
+        }
+      }
+    }
+
+    @Override
+    public int compareTo(@NotNull Request other) {
+      if (myPriority != other.myPriority) {
+        return myPriority < other.myPriority ? -1 : 1;
+      }
+      return mySequenceNumber < other.mySequenceNumber ? -1 : (mySequenceNumber == other.mySequenceNumber ? 0 : 1);
+    }
+  }
+}
@@ -58,6 +58,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.android.tools.idea.configurations.ConfigurationListener.MASK_RENDERING;
 import static com.android.tools.idea.rendering.ShadowPainter.SMALL_SHADOW_SIZE;
@@ -118,7 +119,8 @@ public class RenderPreview implements Disposable {
   private boolean myThumbnailHasFrame;
   private @Nullable Rectangle myViewBounds;
 
-  private @Nullable Runnable myPendingRendering;
+  /** Set and cleared from the UI thread, the alarm thread and the preview render workers */
+  private final AtomicReference<Runnable> myPendingRendering = new AtomicReference<Runnable>();
 
   /**
    * If non null, points to a separate file containing the source
@@ -160,6 +162,8 @@ public class RenderPreview implements Disposable {
    * Or maybe only if it's made setVisible
    */
   private BufferedImage myFullImage;
+  /** The result {@link #myFullImage} was taken from, which keeps its render session from being rendered again */
+  @Nullable private RenderResult myRenderResult;
   private int myFullWidth;
   private int myFullHeight;
 
@@ -476,6 +480,14 @@ public class RenderPreview implements Disposable {
   void disposeThumbnail() {
     myThumbnail = null;
     myFullImage = null;
+    setRenderResult(null);
+  }
+
+  private synchronized void setRenderResult(@Nullable RenderResult result) {
+    if (myRenderResult != null && myRenderResult != result) {
+      myRenderResult.dispose();
+    }
+    myRenderResult = result;
   }
 
   /**
@@ -576,6 +588,10 @@ public class RenderPreview implements Disposable {
         return renderService.render();
       }
     });
+    if (result == null) {
+      return;
+    }
+    setRenderResult(result);
 
     RenderSession session = result.getSession();
     if (session != null) {
@@ -1228,12 +1244,22 @@ public class RenderPreview implements Disposable {
   /** Returns the current pending rendering request, if any */
   @Nullable
   public Runnable getPendingRendering() {
-    return myPendingRendering;
+    return myPendingRendering.get();
   }
 
   /** Sets or clears the current pending rendering request */
   public void setPendingRendering(@Nullable Runnable pendingRendering) {
-    myPendingRendering = pendingRendering;
+    myPendingRendering.set(pendingRendering);
+  }
+
+  /**
+   * Clears the current pending rendering request, provided it is the given request
+   *
+   * @param pendingRendering the request expected to be pending
+   * @return true if the request was pending and has been cleared
+   */
+  public boolean clearPendingRendering(@NotNull Runnable pendingRendering) {
+    return myPendingRendering.compareAndSet(pendingRendering, null);
   }
 
   public boolean isShowFrame() {
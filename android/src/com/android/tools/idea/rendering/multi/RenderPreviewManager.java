@@ -33,11 +33,13 @@ import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.Alarm;
 import com.intellij.util.ui.Animator;
+import org.jetbrains.android.uipreview.AndroidLayoutPreviewToolWindowSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -118,6 +120,9 @@ public class RenderPreviewManager implements Disposable {
   @SuppressWarnings("ConstantConditions")
   private final @NotNull Alarm myAlarm = RENDER_ASYNC ? new Alarm(POOLED_THREAD, this) : new Alarm(SWING_THREAD, this);
 
+  /** Renders the previews concurrently; created lazily since many editors never show previews */
+  private @Nullable PreviewRenderScheduler myScheduler;
+
   /**
    * Creates a {@link RenderPreviewManager} associated with the given canvas
    *
@@ -1091,6 +1096,7 @@ public class RenderPreviewManager implements Disposable {
       beginRenderScheduling();
 
       myAlarm.cancelAllRequests();
+      getScheduler().cancelAll();
 
       // Process in visual order
       ArrayList<RenderPreview> visualOrder = new ArrayList<RenderPreview>(myPreviews);
@@ -1118,23 +1124,24 @@ public class RenderPreviewManager implements Disposable {
   }
 
   /**
-   * Reset rendering scheduling. The next render request will be scheduled
-   * after a single delay unit.
+   * Reset rendering scheduling. The next render request will be given the
+   * highest priority.
    */
   public void beginRenderScheduling() {
     myPendingRenderCount = 0;
   }
 
   /**
-   * Schedule rendering the given preview. Each successive call will add an additional
-   * delay unit to the schedule from the previous {@link #scheduleRender(RenderPreview)}
-   * call, until {@link #beginRenderScheduling()} is called again.
+   * Schedule rendering the given preview. Requests are coalesced for a single delay unit
+   * and then rendered concurrently with other previews; each successive call gets a lower
+   * priority than the previous {@link #scheduleRender(RenderPreview)} call, until
+   * {@link #beginRenderScheduling()} is called again.
    *
    * @param preview the preview to render
    */
   public void scheduleRender(@NotNull RenderPreview preview) {
     myPendingRenderCount++;
-    scheduleRender(preview, myPendingRenderCount * RENDER_DELAY);
+    scheduleRender(preview, RENDER_DELAY, myPendingRenderCount);
   }
 
   /**
@@ -1144,14 +1151,20 @@ public class RenderPreviewManager implements Disposable {
    * @param delay the delay to wait before rendering
    */
   public void scheduleRender(@NotNull final RenderPreview preview, long delay) {
+    // Explicit requests (such as zooming a preview) go ahead of the background refresh
+    scheduleRender(preview, delay, 0);
+  }
+
+  private void scheduleRender(@NotNull final RenderPreview preview, long delay, final int priority) {
+    final PreviewRenderScheduler scheduler = getScheduler();
     Runnable pending = preview.getPendingRendering();
     if (pending != null) {
       myAlarm.cancelRequest(pending);
+      scheduler.cancel(preview);
     }
-    Runnable request = new Runnable() {
+    final Runnable render = new Runnable() {
       @Override
       public void run() {
-        preview.setPendingRendering(null);
         preview.updateSize();
         preview.renderSync();
         ApplicationManager.getApplication().invokeLater(new Runnable() {
@@ -1162,10 +1175,38 @@ public class RenderPreviewManager implements Disposable {
         });
       }
     };
+    if (delay <= 0) {
+      scheduler.schedule(preview, priority, render);
+      return;
+    }
+    Runnable request = new Runnable() {
+      @Override
+      public void run() {
+        preview.clearPendingRendering(this);
+        scheduler.schedule(preview, priority, render);
+      }
+    };
     preview.setPendingRendering(request);
     myAlarm.addRequest(request, delay);
   }
 
+  @NotNull
+  private synchronized PreviewRenderScheduler getScheduler() {
+    int workerCount = 0;
+    Module module = myRenderContext.getModule();
+    if (module != null) {
+      workerCount = AndroidLayoutPreviewToolWindowSettings.getInstance(module.getProject()).getGlobalState().getPreviewRenderWorkers();
+    }
+    if (myScheduler == null) {
+      myScheduler = new PreviewRenderScheduler(workerCount);
+    }
+    else {
+      // The setting may have been changed since the scheduler was created
+      myScheduler.setWorkerCount(workerCount);
+    }
+    return myScheduler;
+  }
+
   /**
    * Switch to the given configuration preview
    *
@@ -1557,6 +1598,12 @@ public class RenderPreviewManager implements Disposable {
     disposePreviews();
     myAlarm.cancelAllRequests();
     myAlarm.dispose();
+    synchronized (this) {
+      if (myScheduler != null) {
+        myScheduler.dispose();
+        myScheduler = null;
+      }
+    }
     if (myAnimator != null) {
       myAnimator.dispose();
       myAnimator = null;
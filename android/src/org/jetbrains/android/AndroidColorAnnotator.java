@@ -39,6 +39,7 @@ import com.intellij.openapi.editor.markup.GutterIconRenderer;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -61,7 +62,6 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
 
 import static com.android.SdkConstants.*;
 
@@ -250,11 +250,11 @@ public class AndroidColorAnnotator implements Annotator {
       //    ResourceItem if it's not a value alias
       String path = value.getValue();
       if (path != null && path.endsWith(DOT_PNG)) {
-        File iconFile = new File(path);
-        if (iconFile.exists()) {
+        VirtualFile iconFile = LocalFileSystem.getInstance().findFileByPath(path);
+        if (iconFile != null) {
           // Try to find the smallest resolution of the same image
           //String parentName = file.getParentFile().getName();
-          long length = iconFile.length();
+          long length = iconFile.getLength();
           if (length > 5000) { // Don't try to load large images
             return;
           }
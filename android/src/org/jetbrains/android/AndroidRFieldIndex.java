@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android;
+
+import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.ex.temp.TempFileSystem;
+import com.intellij.util.containers.HashMap;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import org.jetbrains.android.util.AndroidCommonUtils;
+import org.jetbrains.android.util.AndroidUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Index of the fields declared in the generated R classes, from the package, the resource type (the name of the
+ * inner class) and the field name to the offset of the field name in the R.java file.
+ * <p>
+ * The R files are generated by aapt or the IDE in a fixed format, so rather than building the PSI this index scans
+ * the text for the package statement, the inner classes of the top-level R class and the fields declared in them.
+ */
+public class AndroidRFieldIndex extends FileBasedIndexExtension<String, Integer> {
+  public static final ID<String, Integer> INDEX_ID = ID.create("android.r.field.index");
+
+  private static final DataIndexer<String, Integer, FileContent> INDEXER = new DataIndexer<String, Integer, FileContent>() {
+    @Override
+    @NotNull
+    public Map<String, Integer> map(FileContent inputData) {
+      return new RFileScanner(inputData.getContentAsText()).scan();
+    }
+  };
+
+  private static final DataExternalizer<Integer> DATA_EXTERNALIZER = new DataExternalizer<Integer>() {
+    @Override
+    public void save(DataOutput out, Integer value) throws IOException {
+      out.writeInt(value);
+    }
+
+    @Override
+    public Integer read(DataInput in) throws IOException {
+      return in.readInt();
+    }
+  };
+
+  @NotNull
+  public static String createKey(@NotNull String packageName, @NotNull String resClassName, @NotNull String fieldName) {
+    return packageName + ':' + resClassName + ':' + fieldName;
+  }
+
+  @NotNull
+  @Override
+  public ID<String, Integer> getName() {
+    return INDEX_ID;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Integer, FileContent> getIndexer() {
+    return INDEXER;
+  }
+
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return new EnumeratorStringDescriptor();
+  }
+
+  @Override
+  public DataExternalizer<Integer> getValueExternalizer() {
+    return DATA_EXTERNALIZER;
+  }
+
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return new DefaultFileTypeSpecificInputFilter(StdFileTypes.JAVA) {
+      @Override
+      public boolean acceptInput(final VirtualFile file) {
+        return AndroidCommonUtils.R_JAVA_FILENAME.equals(file.getName()) &&
+               (file.getFileSystem() == LocalFileSystem.getInstance() || file.getFileSystem() instanceof TempFileSystem);
+      }
+    };
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return 1;
+  }
+
+  /**
+   * Collects the fields of an R class, skipping comments (the javadocs of the styleable fields contain braces) and
+   * literals. Fields are only recognized directly in the inner classes of the top-level class, which must be named R.
+   */
+  static class RFileScanner {
+    private final CharSequence myText;
+    private final Map<String, Integer> myResult = new HashMap<String, Integer>();
+
+    private int myOffset;
+    private int myDepth;
+
+    private String myPackageName = "";
+    private String myResClassName;
+    private String myPendingClassName;
+    private boolean myClassKeywordSeen;
+    private boolean myPackageKeywordSeen;
+    private boolean myExpectingField;
+
+    private String myLastIdentifier;
+    private int myLastIdentifierOffset;
+
+    RFileScanner(@NotNull CharSequence text) {
+      myText = text;
+    }
+
+    @NotNull
+    Map<String, Integer> scan() {
+      final int length = myText.length();
+
+      while (myOffset < length) {
+        final char c = myText.charAt(myOffset);
+
+        if (c == '/' && myOffset + 1 < length && myText.charAt(myOffset + 1) == '/') {
+          skipTo("\n");
+        }
+        else if (c == '/' && myOffset + 1 < length && myText.charAt(myOffset + 1) == '*') {
+          myOffset += 2;
+          skipTo("*/");
+        }
+        else if (c == '"' || c == '\'') {
+          skipLiteral(c);
+        }
+        else if (Character.isJavaIdentifierStart(c)) {
+          final int start = myOffset;
+          while (myOffset < length && Character.isJavaIdentifierPart(myText.charAt(myOffset))) {
+            myOffset++;
+          }
+          identifier(myText.subSequence(start, myOffset).toString(), start);
+        }
+        else if (Character.isDigit(c)) {
+          // Numbers, including hex literals such as 0x7f010000
+          while (myOffset < length && Character.isLetterOrDigit(myText.charAt(myOffset))) {
+            myOffset++;
+          }
+        }
+        else {
+          if (!punctuation(c)) {
+            return Collections.emptyMap();
+          }
+          myOffset++;
+        }
+      }
+      return myResult;
+    }
+
+    private void identifier(@NotNull String identifier, int offset) {
+      if (myDepth == 0 && "package".equals(identifier)) {
+        myPackageKeywordSeen = true;
+        myPackageName = "";
+      }
+      else if (myPackageKeywordSeen) {
+        myPackageName += identifier;
+      }
+      else if (myDepth <= 1 && "class".equals(identifier)) {
+        myClassKeywordSeen = true;
+      }
+      else if (myClassKeywordSeen) {
+        myPendingClassName = identifier;
+        myClassKeywordSeen = false;
+      }
+      myLastIdentifier = identifier;
+      myLastIdentifierOffset = offset;
+    }
+
+    /** Returns false if the file can't be an R class */
+    private boolean punctuation(char c) {
+      if (myPackageKeywordSeen) {
+        if (c == '.') {
+          myPackageName += c;
+        }
+        else if (c == ';') {
+          myPackageKeywordSeen = false;
+        }
+        return true;
+      }
+
+      switch (c) {
+        case '{':
+          if (myDepth == 0 && !AndroidUtils.R_CLASS_NAME.equals(myPendingClassName)) {
+            return false;
+          }
+          if (myDepth == 1) {
+            myResClassName = myPendingClassName;
+            myExpectingField = myResClassName != null;
+          }
+          myPendingClassName = null;
+          myDepth++;
+          break;
+        case '}':
+          myDepth--;
+          if (myDepth == 1) {
+            myResClassName = null;
+          }
+          break;
+        case '=':
+        case ';':
+          if (myDepth == 2) {
+            if (myExpectingField && myLastIdentifier != null) {
+              myResult.put(createKey(myPackageName, myResClassName, myLastIdentifier), myLastIdentifierOffset);
+            }
+            myExpectingField = c == ';';
+          }
+          break;
+        default:
+          break;
+      }
+      return true;
+    }
+
+    private void skipTo(@NotNull String end) {
+      final int length = myText.length();
+
+      while (myOffset < length && !startsWith(end, myOffset)) {
+        myOffset++;
+      }
+      myOffset += end.length();
+    }
+
+    private boolean startsWith(@NotNull String s, int offset) {
+      if (offset + s.length() > myText.length()) {
+        return false;
+      }
+      for (int i = 0; i < s.length(); i++) {
+        if (myText.charAt(offset + i) != s.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void skipLiteral(char quote) {
+      final int length = myText.length();
+      myOffset++;
+
+      while (myOffset < length) {
+        final char c = myText.charAt(myOffset++);
+
+        if (c == '\\') {
+          myOffset++;
+        }
+        else if (c == quote) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -34,6 +34,8 @@ public class AndroidDexCompilerConfiguration implements PersistentStateComponent
   public int MAX_HEAP_SIZE = 1024;
   public boolean OPTIMIZE = true;
   public boolean FORCE_JUMBO = false;
+  public int PRE_DEX_WORKERS = 1;
+  public boolean INCREMENTAL_PACKAGING = false;
 
   @Override
   public AndroidDexCompilerConfiguration getState() {
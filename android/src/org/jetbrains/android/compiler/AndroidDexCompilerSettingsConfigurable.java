@@ -39,6 +39,8 @@ public class AndroidDexCompilerSettingsConfigurable implements SearchableConfigu
   private RawCommandLineEditor myVmOptionsEditor;
   private JBCheckBox myOptimizeCheckBox;
   private JBCheckBox myJumboModeCheckBox;
+  private JSpinner myPreDexWorkersSpinner;
+  private JBCheckBox myIncrementalPackagingCheckBox;
 
   public AndroidDexCompilerSettingsConfigurable(Project project) {
     myConfig = AndroidDexCompilerConfiguration.getInstance(project);
@@ -68,7 +70,9 @@ public class AndroidDexCompilerSettingsConfigurable implements SearchableConfigu
     return maxHeapSize != myConfig.MAX_HEAP_SIZE ||
            !myVmOptionsEditor.getText().equals(myConfig.VM_OPTIONS) ||
            myOptimizeCheckBox.isSelected() != myConfig.OPTIMIZE ||
-           myJumboModeCheckBox.isSelected() != myConfig.FORCE_JUMBO;
+           myJumboModeCheckBox.isSelected() != myConfig.FORCE_JUMBO ||
+           ((Integer)myPreDexWorkersSpinner.getValue()).intValue() != myConfig.PRE_DEX_WORKERS ||
+           myIncrementalPackagingCheckBox.isSelected() != myConfig.INCREMENTAL_PACKAGING;
   }
 
   @Override
@@ -77,6 +81,8 @@ public class AndroidDexCompilerSettingsConfigurable implements SearchableConfigu
     myConfig.VM_OPTIONS = myVmOptionsEditor.getText();
     myConfig.OPTIMIZE = myOptimizeCheckBox.isSelected();
     myConfig.FORCE_JUMBO = myJumboModeCheckBox.isSelected();
+    myConfig.PRE_DEX_WORKERS = ((Integer)myPreDexWorkersSpinner.getValue()).intValue();
+    myConfig.INCREMENTAL_PACKAGING = myIncrementalPackagingCheckBox.isSelected();
   }
 
   @Override
@@ -85,6 +91,8 @@ public class AndroidDexCompilerSettingsConfigurable implements SearchableConfigu
     myVmOptionsEditor.setText(myConfig.VM_OPTIONS);
     myOptimizeCheckBox.setSelected(myConfig.OPTIMIZE);
     myJumboModeCheckBox.setSelected(myConfig.FORCE_JUMBO);
+    myPreDexWorkersSpinner.setModel(new SpinnerNumberModel(myConfig.PRE_DEX_WORKERS, 0, 64, 1));
+    myIncrementalPackagingCheckBox.setSelected(myConfig.INCREMENTAL_PACKAGING);
   }
 
   @Override
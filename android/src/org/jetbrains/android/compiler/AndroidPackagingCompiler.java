@@ -249,7 +249,8 @@ public class AndroidPackagingCompiler implements PackagingCompiler {
       final Map<CompilerMessageCategory, List<String>> messages = AndroidCompileUtil.toCompilerMessageCategoryKeys(
         AndroidApkBuilder.execute(resPackagePath, item.getClassesDexPath(), sourceRoots, externalLibPaths, nativeLibsFolders,
                                   item.getAdditionalNativeLibs(), finalPath, unsigned, item.mySdkPath, item.getCustomKeystorePath(),
-                                  new ExcludedSourcesFilter(project)));
+                                  new ExcludedSourcesFilter(project),
+                                  AndroidDexCompilerConfiguration.getInstance(project).INCREMENTAL_PACKAGING));
 
       if (messages.get(CompilerMessageCategory.ERROR).size() == 0) {
         if (item.myReleaseBuild == unsigned) {
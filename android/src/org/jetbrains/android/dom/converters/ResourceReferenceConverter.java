@@ -16,6 +16,7 @@
 package org.jetbrains.android.dom.converters;
 
 import com.android.resources.ResourceType;
+import com.intellij.codeInsight.completion.CompletionUtil;
 import com.intellij.codeInspection.LocalQuickFix;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.module.Module;
@@ -123,6 +124,7 @@ public class ResourceReferenceConverter extends ResolvingConverter<ResourceValue
     if (element == null) return result;
     String value = getValue(element);
     assert value != null;
+    final String typedValue = getTypedValue(value);
 
     if (!myQuiet || StringUtil.startsWithChar(value, '@')) {
       String resourcePackage = null;
@@ -138,7 +140,7 @@ public class ResourceReferenceConverter extends ResolvingConverter<ResourceValue
       if (recommendedTypes.size() == 1) {
         String type = recommendedTypes.iterator().next();
         boolean explicitResourceType = value.startsWith(getTypePrefix(resourcePackage, type)) || myWithExplicitResourceType;
-        addResourceReferenceValues(facet, prefix, type, resourcePackage, result, explicitResourceType);
+        addResourceReferenceValues(facet, prefix, type, resourcePackage, result, explicitResourceType, typedValue);
       }
       else {
         final Set<String> filteringSet = SYSTEM_RESOURCE_PACKAGE.equals(resourcePackage)
@@ -149,7 +151,7 @@ public class ResourceReferenceConverter extends ResolvingConverter<ResourceValue
           final String type = resourceType.getName();
           String typePrefix = getTypePrefix(resourcePackage, type);
           if (value.startsWith(typePrefix)) {
-            addResourceReferenceValues(facet, prefix, type, resourcePackage, result, true);
+            addResourceReferenceValues(facet, prefix, type, resourcePackage, result, true, typedValue);
           }
           else if (recommendedTypes.contains(type) &&
                    (filteringSet == null || filteringSet.contains(type))) {
@@ -159,7 +161,7 @@ public class ResourceReferenceConverter extends ResolvingConverter<ResourceValue
       }
     }
     if (myAllowAttributeReferences) {
-      completeAttributeReferences(value, facet, result);
+      completeAttributeReferences(value, typedValue, facet, result);
     }
     final ResolvingConverter<String> additionalConverter = getAdditionalConverter(context);
 
@@ -171,19 +173,31 @@ public class ResourceReferenceConverter extends ResolvingConverter<ResourceValue
     return result;
   }
 
-  private static void completeAttributeReferences(String value, AndroidFacet facet, Set<ResourceValue> result) {
+  private static void completeAttributeReferences(String value,
+                                                  @Nullable String typedValue,
+                                                  AndroidFacet facet,
+                                                  Set<ResourceValue> result) {
     if (StringUtil.startsWith(value, "?attr/")) {
-      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), null, result, true);
+      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), null, result, true, typedValue);
     }
     else if (StringUtil.startsWith(value, "?android:attr/")) {
-      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), SYSTEM_RESOURCE_PACKAGE, result, true);
+      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), SYSTEM_RESOURCE_PACKAGE, result, true, typedValue);
     }
     else if (StringUtil.startsWithChar(value, '?')) {
-      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), null, result, false);
-      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), SYSTEM_RESOURCE_PACKAGE, result, false);
+      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), null, result, false, typedValue);
+      addResourceReferenceValues(facet, '?', ResourceType.ATTR.getName(), SYSTEM_RESOURCE_PACKAGE, result, false, typedValue);
     }
   }
 
+  /**
+   * Returns the part of the value typed before the caret during completion, or null if the value isn't being completed
+   */
+  @Nullable
+  private static String getTypedValue(@NotNull String value) {
+    final int caretOffset = value.indexOf(CompletionUtil.DUMMY_IDENTIFIER_TRIMMED);
+    return caretOffset >= 0 ? value.substring(0, caretOffset) : null;
+  }
+
   @NotNull
   public static Set<String> getResourceTypesInCurrentModule(@NotNull AndroidFacet facet) {
     final Set<String> result = new HashSet<String>();
@@ -235,10 +249,19 @@ public class ResourceReferenceConverter extends ResolvingConverter<ResourceValue
                                                  String type,
                                                  @Nullable String resPackage,
                                                  Collection<ResourceValue> result,
-                                                 boolean explicitResourceType) {
+                                                 boolean explicitResourceType,
+                                                 @Nullable String typedValue) {
     final ResourceManager manager = facet.getResourceManager(resPackage);
     if (manager != null) {
-      for (String name : manager.getResourceNames(type)) {
+      // Only the names starting with the first character typed so far are offered, rather than every name of the type.
+      // The completion result set does the final matching, which also accepts camel humps after the first character
+      final String referencePrefix = referenceTo(prefix, type, resPackage, "", explicitResourceType).toString();
+      final String namePrefix = typedValue != null && typedValue.length() > referencePrefix.length() &&
+                                typedValue.startsWith(referencePrefix)
+                                ? typedValue.substring(referencePrefix.length(), referencePrefix.length() + 1)
+                                : "";
+
+      for (String name : manager.getResourceNamesWithPrefix(type, namePrefix)) {
         result.add(referenceTo(prefix, type, resPackage, name, explicitResourceType));
       }
     }
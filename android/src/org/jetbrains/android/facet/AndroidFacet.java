@@ -69,6 +69,8 @@ import com.intellij.psi.*;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.ProjectScope;
 import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.Processor;
@@ -91,6 +93,9 @@ import org.jetbrains.jps.android.model.impl.JpsAndroidModuleProperties;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.jetbrains.android.util.AndroidUtils.SYSTEM_RESOURCE_PACKAGE;
 
@@ -109,10 +114,9 @@ public final class AndroidFacet extends Facet<AndroidFacetConfiguration> {
   private SystemResourceManager mySystemResourceManager;
   private LocalResourceManager myLocalResourceManager;
 
-  private final Map<String, Map<String, SmartPsiElementPointer<PsiClass>>> myClassMaps =
-    new HashMap<String, Map<String, SmartPsiElementPointer<PsiClass>>>();
-
-  private final Object myClassMapLock = new Object();
+  private final ConcurrentMap<String, CachedClassMap> myClassMaps = new ConcurrentHashMap<String, CachedClassMap>();
+  /** Incremented whenever a change may affect the class maps, see {@link ClassMapInvalidator} */
+  private final AtomicLong myClassMapModificationCount = new AtomicLong();
 
   private final Set<AndroidAutogeneratorMode> myDirtyModes = EnumSet.noneOf(AndroidAutogeneratorMode.class);
   private final Map<AndroidAutogeneratorMode, Set<String>> myAutogeneratedFiles = new HashMap<AndroidAutogeneratorMode, Set<String>>();
@@ -695,11 +699,16 @@ public final class AndroidFacet extends Facet<AndroidFacetConfiguration> {
         }
       });
 
+    PsiManager.getInstance(getModule().getProject()).addPsiTreeChangeListener(new ClassMapInvalidator(), this);
+
     getModule().getMessageBus().connect(this).subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootAdapter() {
       private Sdk myPrevSdk;
 
       @Override
       public void rootsChanged(final ModuleRootEvent event) {
+        // library classes may have been added or removed
+        myClassMapModificationCount.incrementAndGet();
+
         ApplicationManager.getApplication().invokeLater(new Runnable() {
           @Override
           public void run() {
@@ -890,75 +899,90 @@ public final class AndroidFacet extends Facet<AndroidFacetConfiguration> {
   }
 
   // todo: correctly support classes from external non-platform jars
+  /**
+   * Returns the classes extending the given class, by tag name. The map is cached until a class inheriting from one of
+   * the mapped classes changes or the roots change, and reading a cached map doesn't take any lock.
+   */
   @NotNull
   public Map<String, PsiClass> getClassMap(@NotNull String className, @NotNull ClassMapConstructor constructor) {
-    synchronized (myClassMapLock) {
-      Map<String, SmartPsiElementPointer<PsiClass>> classMap = getInitialClassMap(className, constructor, false);
-      final Map<String, PsiClass> result = new HashMap<String, PsiClass>();
-      boolean shouldRebuildInitialMap = false;
+    final Project project = getModule().getProject();
+    final long stamp = myClassMapModificationCount.get();
+    final CachedClassMap cached = myClassMaps.get(className);
 
-      for (final String key : classMap.keySet()) {
-        final SmartPsiElementPointer<PsiClass> pointer = classMap.get(key);
+    if (cached != null && cached.myStamp == stamp && cached.myConstructorClass == constructor.getClass() &&
+        areValid(cached.myClassMap.values())) {
+      return cached.myClassMap;
+    }
+    Map<String, SmartPsiElementPointer<PsiClass>> libClassMap =
+      cached != null && cached.myConstructorClass == constructor.getClass() ? cached.myLibClassMap : null;
+    Map<String, PsiClass> result = libClassMap != null ? resolveClassMap(libClassMap, constructor) : null;
 
-        if (!isUpToDate(pointer, key, constructor)) {
-          shouldRebuildInitialMap = true;
-          break;
-        }
-        final PsiClass aClass = pointer.getElement();
+    if (result == null) {
+      libClassMap = computeLibClassMap(className, constructor);
+      result = resolveClassMap(libClassMap, null);
 
-        if (aClass != null) {
-          result.put(key, aClass);
-        }
+      if (result == null) {
+        result = new HashMap<String, PsiClass>();
       }
+    }
 
-      if (shouldRebuildInitialMap) {
-        result.clear();
-        classMap = getInitialClassMap(className, constructor, true);
-
-        for (final String key : classMap.keySet()) {
-          final SmartPsiElementPointer<PsiClass> pointer = classMap.get(key);
-          final PsiClass aClass = pointer.getElement();
+    if (fillMap(className, constructor, ProjectScope.getProjectScope(project), result, false) && libClassMap != null) {
+      result = Collections.unmodifiableMap(result);
+      myClassMaps.put(className, new CachedClassMap(stamp, constructor.getClass(), libClassMap, result));
+    }
+    return result;
+  }
 
-          if (aClass != null) {
-            result.put(key, aClass);
-          }
-        }
+  private static boolean areValid(@NotNull Collection<PsiClass> classes) {
+    for (PsiClass aClass : classes) {
+      if (!aClass.isValid()) {
+        return false;
       }
-      final Project project = getModule().getProject();
-      fillMap(className, constructor, ProjectScope.getProjectScope(project), result, false);
-      return result;
     }
+    return true;
   }
 
-  private static boolean isUpToDate(SmartPsiElementPointer<PsiClass> pointer, String tagName, ClassMapConstructor constructor) {
-    final PsiClass aClass = pointer.getElement();
-    if (aClass == null) {
-      return false;
+  /**
+   * Returns the classes the given pointers point to, or null if any of them was invalidated or, if a constructor
+   * is passed, no longer has the same tag name
+   */
+  @Nullable
+  private static Map<String, PsiClass> resolveClassMap(@NotNull Map<String, SmartPsiElementPointer<PsiClass>> classMap,
+                                                       @Nullable ClassMapConstructor constructor) {
+    final Map<String, PsiClass> result = new HashMap<String, PsiClass>(classMap.size());
+
+    for (Map.Entry<String, SmartPsiElementPointer<PsiClass>> entry : classMap.entrySet()) {
+      final PsiClass aClass = entry.getValue().getElement();
+
+      if (aClass == null || (constructor != null && ArrayUtil.find(constructor.getTagNamesByClass(aClass), entry.getKey()) < 0)) {
+        return null;
+      }
+      result.put(entry.getKey(), aClass);
     }
-    final String[] tagNames = constructor.getTagNamesByClass(aClass);
-    return ArrayUtil.find(tagNames, tagName) >= 0;
+    return result;
   }
 
-  @NotNull
-  private Map<String, SmartPsiElementPointer<PsiClass>> getInitialClassMap(@NotNull String className,
-                                                                           @NotNull ClassMapConstructor constructor,
-                                                                           boolean forceRebuild) {
-    Map<String, SmartPsiElementPointer<PsiClass>> viewClassMap = myClassMaps.get(className);
-    if (viewClassMap != null && !forceRebuild) return viewClassMap;
+  /** Returns the map of the library classes, or null if it cannot be computed right now */
+  @Nullable
+  private Map<String, SmartPsiElementPointer<PsiClass>> computeLibClassMap(@NotNull String className,
+                                                                         @NotNull ClassMapConstructor constructor) {
     final HashMap<String, PsiClass> map = new HashMap<String, PsiClass>();
 
     if (fillMap(className, constructor, getModule().getModuleWithDependenciesAndLibrariesScope(true), map, true)) {
-      viewClassMap = new HashMap<String, SmartPsiElementPointer<PsiClass>>(map.size());
-      final SmartPointerManager manager = SmartPointerManager.getInstance(getModule().getProject());
+      return createPointers(map);
+    }
+    return null;
+  }
 
-      for (Map.Entry<String, PsiClass> entry : map.entrySet()) {
-        viewClassMap.put(entry.getKey(), manager.createSmartPsiElementPointer(entry.getValue()));
-      }
-      myClassMaps.put(className, viewClassMap);
+  @NotNull
+  private Map<String, SmartPsiElementPointer<PsiClass>> createPointers(@NotNull Map<String, PsiClass> map) {
+    final Map<String, SmartPsiElementPointer<PsiClass>> result = new HashMap<String, SmartPsiElementPointer<PsiClass>>(map.size());
+    final SmartPointerManager manager = SmartPointerManager.getInstance(getModule().getProject());
+
+    for (Map.Entry<String, PsiClass> entry : map.entrySet()) {
+      result.put(entry.getKey(), manager.createSmartPsiElementPointer(entry.getValue()));
     }
-    return viewClassMap != null
-           ? viewClassMap
-           : Collections.<String, SmartPsiElementPointer<PsiClass>>emptyMap();
+    return Collections.unmodifiableMap(result);
   }
 
   private boolean fillMap(@NotNull final String className,
@@ -1175,6 +1199,125 @@ public final class AndroidFacet extends Facet<AndroidFacetConfiguration> {
     }
   }
 
+  /**
+   * Invalidates the class maps when a class changes which inherits, before or after the change, from one of the classes
+   * the maps are computed for. Changes inside code blocks and changes of other classes don't affect the maps.
+   */
+  private class ClassMapInvalidator extends PsiTreeChangeAdapter {
+    @Override
+    public void beforeChildRemoval(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getChild());
+    }
+
+    @Override
+    public void beforeChildReplacement(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getOldChild());
+    }
+
+    @Override
+    public void beforeChildrenChange(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getParent());
+    }
+
+    @Override
+    public void beforeChildMovement(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getChild());
+    }
+
+    @Override
+    public void beforePropertyChange(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getElement());
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getChild());
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getNewChild());
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getParent());
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getChild());
+    }
+
+    @Override
+    public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+      elementChanged(event.getElement());
+    }
+
+    private void elementChanged(@Nullable PsiElement element) {
+      if (element == null || myClassMaps.isEmpty()) {
+        return;
+      }
+      if (element instanceof PsiDirectory) {
+        // files or packages were moved, deleted or renamed
+        myClassMapModificationCount.incrementAndGet();
+        return;
+      }
+      final PsiFile file = element.getContainingFile();
+
+      if (!(file instanceof PsiClassOwner) || PsiTreeUtil.getParentOfType(element, PsiCodeBlock.class, false) != null) {
+        return;
+      }
+      final PsiClass aClass = PsiTreeUtil.getParentOfType(element, PsiClass.class, false);
+      final PsiClass[] classes = aClass != null ? new PsiClass[]{aClass} : ((PsiClassOwner)file).getClasses();
+
+      try {
+        for (PsiClass c : classes) {
+          if (isMapped(c)) {
+            myClassMapModificationCount.incrementAndGet();
+            return;
+          }
+        }
+      }
+      catch (IndexNotReadyException e) {
+        myClassMapModificationCount.incrementAndGet();
+      }
+    }
+
+    /** Whether the given class or one of its inner classes, whose tag names include its name, may be in a class map */
+    private boolean isMapped(@NotNull PsiClass aClass) {
+      for (String baseClassName : myClassMaps.keySet()) {
+        if (InheritanceUtil.isInheritor(aClass, baseClassName)) {
+          return true;
+        }
+      }
+      for (PsiClass innerClass : aClass.getInnerClasses()) {
+        if (isMapped(innerClass)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** Class map computed for a given class map modification count of the facet */
+  private static class CachedClassMap {
+    final long myStamp;
+    final Class<?> myConstructorClass;
+    final Map<String, SmartPsiElementPointer<PsiClass>> myLibClassMap;
+    final Map<String, PsiClass> myClassMap;
+
+    CachedClassMap(long stamp,
+                   @NotNull Class<?> constructorClass,
+                   @NotNull Map<String, SmartPsiElementPointer<PsiClass>> libClassMap,
+                   @NotNull Map<String, PsiClass> classMap) {
+      myStamp = stamp;
+      myConstructorClass = constructorClass;
+      myLibClassMap = libClassMap;
+      myClassMap = classMap;
+    }
+  }
+
   public interface GradleProjectAvailableListener {
     void gradleProjectAvailable(@NotNull IdeaAndroidProject project);
   }
@@ -16,7 +16,9 @@ import com.intellij.codeInspection.ex.DisableInspectionToolAction;
 import com.intellij.lang.annotation.Annotation;
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.ExternalAnnotator;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.FileTypes;
 import com.intellij.openapi.fileTypes.StdFileTypes;
@@ -52,6 +54,8 @@ import static com.android.SdkConstants.*;
 public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State> {
   static final boolean INCLUDE_IDEA_SUPPRESS_ACTIONS = false;
 
+  private static List<Pair<Issue, HighlightDisplayKey>> ourIssueKeys;
+
   @Override
   public State collectionInformation(@NotNull PsiFile file) {
     final Module module = ModuleUtil.findModuleForPsiElement(file);
@@ -91,11 +95,27 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
     if (issues.size() == 0) {
       return null;
     }
-    return new State(module, vFile, file.getText(), issues);
+    return new State(module, vFile, file.getText(), issues, getManifestStamp(facet),
+                     facet.getLocalResourceManager().getResourceGeneration());
+  }
+
+  /** Returns the modification stamp of the manifest, taking unsaved changes into account */
+  private static long getManifestStamp(@NotNull AndroidFacet facet) {
+    final VirtualFile manifestFile = AndroidRootUtil.getManifestFile(facet);
+    if (manifestFile == null) {
+      return -1;
+    }
+    final Document document = FileDocumentManager.getInstance().getCachedDocument(manifestFile);
+    return document != null ? document.getModificationStamp() : manifestFile.getModificationStamp();
   }
 
   @Override
   public State doAnnotate(final State state) {
+    final List<ProblemData> cachedProblems = LintResultCache.getInstance(state.getModule().getProject()).get(state);
+    if (cachedProblems != null) {
+      state.getProblems().addAll(cachedProblems);
+      return state;
+    }
     final IntellijLintClient client = new IntellijLintClient(state);
     try {
       final LintDriver lint = new LintDriver(new IntellijLintIssueRegistry(), client);
@@ -125,6 +145,10 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
       request.setScope(scope);
 
       lint.analyze(request);
+
+      if (!state.isDirty()) {
+        LintResultCache.getInstance(state.getModule().getProject()).put(state, state.getProblems());
+      }
     }
     finally {
       Disposer.dispose(client);
@@ -135,28 +159,44 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
   @NotNull
   static List<Issue> getIssuesFromInspections(@NotNull Project project, @Nullable PsiElement context) {
     final List<Issue> result = new ArrayList<Issue>();
-    final IssueRegistry fullRegistry = new IntellijLintIssueRegistry();
+    final InspectionProfile profile = InspectionProjectProfileManager.getInstance(project).getInspectionProfile();
 
-    for (Issue issue : fullRegistry.getIssues()) {
-      final String inspectionShortName = AndroidLintInspectionBase.getInspectionShortNameByIssue(project, issue);
-      if (inspectionShortName == null) {
-        continue;
-      }
+    for (Pair<Issue, HighlightDisplayKey> pair : getIssueKeys(project)) {
+      final HighlightDisplayKey key = pair.getSecond();
+      final boolean enabled = context != null ? profile.isToolEnabled(key, context) : profile.isToolEnabled(key);
 
-      final HighlightDisplayKey key = HighlightDisplayKey.find(inspectionShortName);
-      if (key == null) {
-        continue;
+      if (enabled) {
+        result.add(pair.getFirst());
       }
+    }
+    return result;
+  }
 
-      final InspectionProfile profile = InspectionProjectProfileManager.getInstance(project).getInspectionProfile();
-      final boolean enabled = context != null ? profile.isToolEnabled(key, context) : profile.isToolEnabled(key);
+  /**
+   * Returns the issues of the registry which have an inspection, with the key of the inspection. The inspections
+   * are the same in all profiles, so this is only computed once.
+   */
+  @NotNull
+  private static synchronized List<Pair<Issue, HighlightDisplayKey>> getIssueKeys(@NotNull Project project) {
+    if (ourIssueKeys == null) {
+      final List<Pair<Issue, HighlightDisplayKey>> result = new ArrayList<Pair<Issue, HighlightDisplayKey>>();
+      final IssueRegistry fullRegistry = new IntellijLintIssueRegistry();
+
+      for (Issue issue : fullRegistry.getIssues()) {
+        final String inspectionShortName = AndroidLintInspectionBase.getInspectionShortNameByIssue(project, issue);
+        if (inspectionShortName == null) {
+          continue;
+        }
 
-      if (!enabled) {
-        continue;
+        final HighlightDisplayKey key = HighlightDisplayKey.find(inspectionShortName);
+        if (key == null) {
+          continue;
+        }
+        result.add(Pair.create(issue, key));
       }
-      result.add(issue);
+      ourIssueKeys = result;
     }
-    return result;
+    return ourIssueKeys;
   }
 
   @Override
@@ -11,6 +11,7 @@ import com.intellij.codeInspection.GlobalInspectionContext;
 import com.intellij.codeInspection.ex.InspectionToolWrapper;
 import com.intellij.codeInspection.ex.Tools;
 import com.intellij.codeInspection.lang.GlobalInspectionContextExtension;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.facet.ProjectFacetManager;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
@@ -18,6 +19,7 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.module.impl.scopes.ModuleWithDependenciesScope;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.util.ProgressWrapper;
@@ -36,15 +38,19 @@ import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.LocalSearchScope;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.util.PathUtil;
+import com.intellij.util.Processor;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.HashMap;
 import com.intellij.util.containers.HashSet;
 import org.jetbrains.android.facet.AndroidFacet;
 import org.jetbrains.android.facet.AndroidRootUtil;
+import org.jetbrains.android.util.AndroidUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Eugene.Kudelevsky
@@ -53,6 +59,13 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
   private static final Logger LOG = Logger.getInstance("#org.jetbrains.android.inspections.lint.AndroidLintGlobalInspectionContext");
 
   static final Key<AndroidLintGlobalInspectionContext> ID = Key.create("AndroidLintGlobalInspectionContext");
+
+  /**
+   * Whether a batch run over the whole project analyzes independent groups of modules concurrently rather than
+   * all of them with a single lint driver
+   */
+  private static final boolean PARALLEL_LINT = SystemProperties.getBooleanProperty("android.lint.parallel", true);
+
   private Map<Issue, Map<File, List<ProblemData>>> myResults;
 
   @NotNull
@@ -75,10 +88,12 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
     }
 
     final Map<Issue, Map<File, List<ProblemData>>> problemMap = new HashMap<Issue, Map<File, List<ProblemData>>>();
+    final List<Module> androidModules = new ArrayList<Module>();
     final Set<VirtualFile> allContentRoots = new HashSet<VirtualFile>();
 
     for (Module module : ModuleManager.getInstance(project).getModules()) {
       if (AndroidFacet.getInstance(module) != null) {
+        androidModules.add(module);
         final VirtualFile[] contentRoots = ModuleRootManager.getInstance(module).getContentRoots();
         Collections.addAll(allContentRoots, contentRoots);
       }
@@ -87,16 +102,11 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
     final File[] ioContentRoots = toIoFiles(allContentRoots);
     final AnalysisScope scope = context.getRefManager().getScope();
 
-    final LintClient client = new MyLintClient(project, problemMap, scope, issues);
-    final LintDriver lint = new LintDriver(new IntellijLintIssueRegistry(), client);
-
     final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
     if (indicator != null) {
       ProgressWrapper.unwrap(indicator).setText("Running Android Lint");
     }
 
-
-
     EnumSet<Scope> lintScope = EnumSet.copyOf(Scope.ALL);
     // Can't run class file based checks
     lintScope.remove(Scope.CLASS_FILE);
@@ -104,6 +114,7 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
     lintScope.remove(Scope.JAVA_LIBRARIES);
 
     List<File> files = Arrays.asList(ioContentRoots);
+    boolean allModules = true;
 
     int scopeType = scope.getScopeType();
     if (scopeType == AnalysisScope.MODULE) {
@@ -114,6 +125,7 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
           Module module = s.getModule();
           VirtualFile[] contentRoots = ModuleRootManager.getInstance(module).getContentRoots();
           files = Arrays.asList(toIoFiles(Arrays.<VirtualFile>asList(contentRoots)));
+          allModules = false;
         }
       }
     } else if (scopeType == AnalysisScope.FILE || scopeType == AnalysisScope.VIRTUAL_FILES) {
@@ -134,6 +146,7 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
         if (!virtualFiles.isEmpty()) {
           files = Lists.newArrayList();
           lintScope = null; // Lint will compute it lazily based on actual files in the request
+          allModules = false;
           for (VirtualFile virtualFile : virtualFiles) {
             files.add(VfsUtilCore.virtualToIoFile(virtualFile));
           }
@@ -141,6 +154,18 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
       }
     }
 
+    if (allModules && PARALLEL_LINT) {
+      final List<List<Module>> partitions = partitionModules(androidModules);
+      if (partitions.size() > 1) {
+        analyzeConcurrently(project, partitions, problemMap, scope, issues, lintScope, indicator);
+        myResults = problemMap;
+        return;
+      }
+    }
+
+    final LintClient client = new MyLintClient(project, problemMap, scope, issues);
+    final LintDriver lint = new LintDriver(new IntellijLintIssueRegistry(), client);
+
     LintRequest request = new IntellijLintRequest(client, files, project);
     request.setScope(lintScope);
 
@@ -149,6 +174,162 @@ class AndroidLintGlobalInspectionContext implements GlobalInspectionContextExten
     myResults = problemMap;
   }
 
+  /**
+   * Splits the given modules into groups which can be analyzed independently: modules depending on each other
+   * through Android library dependencies end up in the same group, so checks looking across library projects
+   * (such as unused resources) see the same projects as when the whole project is analyzed at once.
+   */
+  @NotNull
+  static List<List<Module>> partitionModules(@NotNull List<Module> modules) {
+    final Map<Module, Set<Module>> neighbours = new HashMap<Module, Set<Module>>();
+    for (Module module : modules) {
+      neighbours.put(module, new LinkedHashSet<Module>());
+    }
+    for (Module module : modules) {
+      for (AndroidFacet depFacet : AndroidUtils.getAndroidLibraryDependencies(module)) {
+        final Module depModule = depFacet.getModule();
+        final Set<Module> depNeighbours = neighbours.get(depModule);
+        if (depNeighbours != null) {
+          neighbours.get(module).add(depModule);
+          depNeighbours.add(module);
+        }
+      }
+    }
+
+    final List<List<Module>> result = new ArrayList<List<Module>>();
+    final Set<Module> visited = new HashSet<Module>();
+
+    for (Module module : modules) {
+      if (!visited.add(module)) {
+        continue;
+      }
+      final List<Module> partition = new ArrayList<Module>();
+      final LinkedList<Module> queue = new LinkedList<Module>();
+      queue.add(module);
+
+      while (!queue.isEmpty()) {
+        final Module current = queue.removeFirst();
+        partition.add(current);
+
+        for (Module neighbour : neighbours.get(current)) {
+          if (visited.add(neighbour)) {
+            queue.add(neighbour);
+          }
+        }
+      }
+      result.add(partition);
+    }
+    return result;
+  }
+
+  /**
+   * Runs a separate lint driver for each partition via {@link JobLauncher}, which also lets the calling thread, which
+   * holds the read lock, do its share of the work instead of blocking on the others. Merges the problems found into
+   * the given map. When the indicator is canceled, the running drivers stop and {@link ProcessCanceledException} is thrown.
+   */
+  private static void analyzeConcurrently(@NotNull final Project project,
+                                          @NotNull List<List<Module>> partitions,
+                                          @NotNull final Map<Issue, Map<File, List<ProblemData>>> problemMap,
+                                          @NotNull final AnalysisScope scope,
+                                          @NotNull final List<Issue> issues,
+                                          @Nullable final EnumSet<Scope> lintScope,
+                                          @Nullable final ProgressIndicator indicator) {
+    final ProgressIndicator progress = indicator != null ? ProgressWrapper.unwrap(indicator) : null;
+    final AtomicInteger analyzed = new AtomicInteger();
+    final int partitionCount = partitions.size();
+
+    if (progress != null) {
+      progress.setIndeterminate(false);
+      progress.setFraction(0);
+    }
+
+    JobLauncher.getInstance().invokeConcurrentlyUnderProgress(partitions, indicator, false, new Processor<List<Module>>() {
+      @Override
+      public boolean process(List<Module> partition) {
+        if (progress != null) {
+          progress.setText("Running Android Lint on " + getPresentableName(partition));
+        }
+        final Map<Issue, Map<File, List<ProblemData>>> partitionProblems = new HashMap<Issue, Map<File, List<ProblemData>>>();
+        final LintClient client = new MyLintClient(project, partitionProblems, scope, issues);
+        final LintDriver lint = new LintDriver(new IntellijLintIssueRegistry(), client);
+
+        if (indicator != null) {
+          lint.addLintListener(new LintListener() {
+            @Override
+            public void update(@NonNull LintDriver driver, @NonNull EventType type, @Nullable Context context) {
+              if (indicator.isCanceled()) {
+                driver.cancel();
+              }
+            }
+          });
+        }
+        final LintRequest request = new IntellijLintRequest(client, getContentRoots(partition), project);
+        request.setScope(lintScope != null ? EnumSet.copyOf(lintScope) : null);
+        lint.analyze(request);
+
+        if (indicator != null) {
+          indicator.checkCanceled();
+        }
+        synchronized (problemMap) {
+          mergeProblems(partitionProblems, problemMap);
+        }
+        if (progress != null) {
+          progress.setFraction((double)analyzed.incrementAndGet() / partitionCount);
+        }
+        return true;
+      }
+    });
+
+    if (indicator != null) {
+      indicator.checkCanceled();
+    }
+  }
+
+  static void mergeProblems(@NotNull Map<Issue, Map<File, List<ProblemData>>> from,
+                                    @NotNull Map<Issue, Map<File, List<ProblemData>>> to) {
+    for (Map.Entry<Issue, Map<File, List<ProblemData>>> issueEntry : from.entrySet()) {
+      Map<File, List<ProblemData>> file2ProblemList = to.get(issueEntry.getKey());
+      if (file2ProblemList == null) {
+        to.put(issueEntry.getKey(), issueEntry.getValue());
+        continue;
+      }
+
+      for (Map.Entry<File, List<ProblemData>> fileEntry : issueEntry.getValue().entrySet()) {
+        final List<ProblemData> problemList = file2ProblemList.get(fileEntry.getKey());
+        if (problemList == null) {
+          file2ProblemList.put(fileEntry.getKey(), fileEntry.getValue());
+        }
+        else {
+          problemList.addAll(fileEntry.getValue());
+        }
+      }
+    }
+  }
+
+  @NotNull
+  private static List<File> getContentRoots(@NotNull List<Module> modules) {
+    final List<VirtualFile> contentRoots = new ArrayList<VirtualFile>();
+    for (Module module : modules) {
+      Collections.addAll(contentRoots, ModuleRootManager.getInstance(module).getContentRoots());
+    }
+    return Arrays.asList(toIoFiles(contentRoots));
+  }
+
+  @NotNull
+  private static String getPresentableName(@NotNull List<Module> modules) {
+    if (modules.size() == 1) {
+      return "module " + modules.get(0).getName();
+    }
+    final StringBuilder builder = new StringBuilder("modules ");
+    for (int i = 0; i < modules.size(); i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(modules.get(i).getName());
+    }
+    return builder.toString();
+  }
+
   private static File[] toIoFiles(@NotNull Collection<VirtualFile> files) {
     final File[] result = new File[files.size()];
 
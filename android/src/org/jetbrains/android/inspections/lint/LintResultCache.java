@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.inspections.lint;
+
+import com.android.tools.lint.detector.api.Issue;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the problems {@link AndroidLintExternalAnnotator} found in the most recently analyzed files, such that
+ * highlighting a file again doesn't run lint as long as nothing lint looks at changed.
+ * <p>
+ * A result is reused only for the same module, file contents and enabled issues, and as long as the manifest and
+ * the project resources have the same modification stamps as when the file was analyzed.
+ * <p>
+ * There is one cache per project, such that the cached modules and files go away along with their project.
+ */
+public class LintResultCache {
+  private static final int MAX_ENTRIES = 32;
+
+  /** Cached results by file, least recently used first */
+  private final Map<VirtualFile, Entry> myEntries = new LinkedHashMap<VirtualFile, Entry>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<VirtualFile, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  @NotNull
+  static LintResultCache getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, LintResultCache.class);
+  }
+
+  /** Returns the problems found for the file of the given state, if it was analyzed in the same environment */
+  @Nullable
+  synchronized List<ProblemData> get(@NotNull State state) {
+    final Entry entry = myEntries.get(state.getMainFile());
+    return entry != null && entry.matches(state) ? entry.myProblems : null;
+  }
+
+  /** Records the problems found for the file of the given state */
+  synchronized void put(@NotNull State state, @NotNull List<ProblemData> problems) {
+    myEntries.put(state.getMainFile(), new Entry(state, new ArrayList<ProblemData>(problems)));
+  }
+
+  private static class Entry {
+    final Module myModule;
+    final int myContentHash;
+    final String myContent;
+    final List<Issue> myIssues;
+    final long myManifestStamp;
+    final long myResourceGeneration;
+    final List<ProblemData> myProblems;
+
+    Entry(@NotNull State state, @NotNull List<ProblemData> problems) {
+      myModule = state.getModule();
+      myContent = state.getMainFileContent();
+      myContentHash = myContent.hashCode();
+      myIssues = state.getIssues();
+      myManifestStamp = state.getManifestStamp();
+      myResourceGeneration = state.getResourceGeneration();
+      myProblems = problems;
+    }
+
+    boolean matches(@NotNull State state) {
+      final String content = state.getMainFileContent();
+      return myModule == state.getModule() &&
+             myManifestStamp == state.getManifestStamp() &&
+             myResourceGeneration == state.getResourceGeneration() &&
+             myContentHash == content.hashCode() &&
+             myContent.equals(content) &&
+             myIssues.equals(state.getIssues());
+    }
+  }
+}
@@ -18,17 +18,23 @@ public class State {
   private final String myMainFileContent;
   private final List<ProblemData> myProblems = new ArrayList<ProblemData>();
   private final List<Issue> myIssues;
+  private final long myManifestStamp;
+  private final long myResourceGeneration;
 
   private volatile boolean myDirty;
 
   State(@NotNull Module module,
         @NotNull VirtualFile mainFile,
         @NotNull String mainFileContent,
-        @NotNull List<Issue> issues) {
+        @NotNull List<Issue> issues,
+        long manifestStamp,
+        long resourceGeneration) {
     myModule = module;
     myMainFile = mainFile;
     myMainFileContent = mainFileContent;
     myIssues = issues;
+    myManifestStamp = manifestStamp;
+    myResourceGeneration = resourceGeneration;
   }
 
   @NotNull
@@ -63,4 +69,12 @@ public class State {
   public List<Issue> getIssues() {
     return myIssues;
   }
+
+  public long getManifestStamp() {
+    return myManifestStamp;
+  }
+
+  public long getResourceGeneration() {
+    return myResourceGeneration;
+  }
 }
@@ -22,6 +22,7 @@ import com.intellij.diagnostic.logging.LogFilterListener;
 import com.intellij.diagnostic.logging.LogFilterModel;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
@@ -32,6 +33,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * @author Eugene.Kudelevsky
@@ -39,6 +41,10 @@ import java.util.List;
 public abstract class AndroidLogFilterModel extends LogFilterModel {
   private final List<LogFilterListener> myListeners = ContainerUtil.createLockFreeCopyOnWriteList();
 
+  /** The line currently being processed and its entry, if any, shared by the filters applied to it */
+  private String myCurrentLine;
+  private AndroidLogcatEntry myCurrentEntry;
+
   private Log.LogLevel myPrevMessageLogLevel;
   private String myPrevTag;
   private String myPrevPkg;
@@ -46,6 +52,9 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
   private boolean myFullMessageApplicable = false;
   private boolean myFullMessageApplicableByCustomFilter = false;
   private StringBuilder myMessageBuilder = new StringBuilder();
+
+  /** If set, filter changes are applied by this handler instead of by the listeners replaying the console text */
+  @Nullable private volatile Runnable myRefilterHandler;
   
   protected List<AndroidLogFilter> myLogFilters = new ArrayList<AndroidLogFilter>();
 
@@ -90,19 +99,42 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     myListeners.remove(listener);
   }
 
+  /**
+   * Sets the handler to run when the filter changes, such as a view re-querying its
+   * {@link AndroidLogcatBuffer}. While set, the filter listeners are not notified.
+   */
+  public void setRefilterHandler(@Nullable Runnable refilterHandler) {
+    myRefilterHandler = refilterHandler;
+  }
+
+  private boolean refilter() {
+    Runnable handler = myRefilterHandler;
+    if (handler != null) {
+      handler.run();
+      return true;
+    }
+    return false;
+  }
+
   private void fireTextFilterChange() {
+    if (refilter()) {
+      return;
+    }
     for (LogFilterListener listener : myListeners) {
       listener.onTextFilterChange();
     }
   }
 
   private void fireFilterChange(LogFilter filter) {
+    if (refilter()) {
+      return;
+    }
     for (LogFilterListener listener : myListeners) {
       listener.onFilterStateChange(filter);
     }
   }
 
-  private static Key getProcessOutputType(@NotNull Log.LogLevel level) {
+  static Key getProcessOutputType(@NotNull Log.LogLevel level) {
     switch (level) {
       case VERBOSE:
         return AndroidLogcatConstants.VERBOSE;
@@ -120,6 +152,21 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     return ProcessOutputTypes.STDOUT;
   }
 
+  /**
+   * Returns the parsed entry for the given console line, or null if the line is not the start of
+   * a message. The line being processed by {@link #processLine} is only parsed once for all filters.
+   * Consoles which have the parsed entries at hand should use {@link #isApplicable(AndroidLogcatEntry)}.
+   */
+  @Nullable
+  private AndroidLogcatEntry getEntry(String line) {
+    //noinspection StringEquality
+    if (line == myCurrentLine) {
+      return myCurrentEntry;
+    }
+    Pair<LogMessageHeader, String> result = AndroidLogcatFormatter.parseMessage(line);
+    return result.getFirst() != null ? new AndroidLogcatEntry(result.getFirst(), result.getSecond()) : null;
+  }
+
   @Override
   public boolean isApplicable(String text) {
     if (!super.isApplicable(text)) return false;
@@ -139,16 +186,13 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     String pid = null;
     String message = text;
 
-    Pair<LogMessageHeader, String> result = AndroidLogcatFormatter.parseMessage(text);
-    if (result.getFirst() != null) {
-      LogMessageHeader header = result.getFirst();
-      logLevel = header.myLogLevel;
-      tag = header.myTag;
-      pkg = header.myAppPackage;
-      pid = Integer.toString(header.myPid);
-      if (result.getSecond() != null) {
-        message = result.getSecond();
-      }
+    AndroidLogcatEntry entry = getEntry(text);
+    if (entry != null) {
+      logLevel = entry.getLogLevel();
+      tag = entry.getTag();
+      pkg = entry.getAppPackage();
+      pid = Integer.toString(entry.getPid());
+      message = entry.getMessage();
     }
 
     if (tag == null) {
@@ -167,6 +211,78 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     return configuredFilterName.isApplicable(message, tag, pkg, pid, logLevel);
   }
 
+  /**
+   * Returns the entries in the given buffer which are accepted by the current filters. The tag
+   * and pid of the configured filter are looked up through the buffer indexes.
+   *
+   * @param buffer the buffer to query
+   * @param fromSequence only entries added at or after this sequence number are considered
+   * @return the applicable entries, oldest first
+   */
+  @NotNull
+  public List<AndroidLogcatEntry> getApplicableEntries(@NotNull AndroidLogcatBuffer buffer, long fromSequence) {
+    final ConfiguredFilter configuredFilter = getConfiguredFilter();
+    Condition<String> tagCondition = null;
+    Integer pid = null;
+    if (configuredFilter != null) {
+      final Pattern tagPattern = configuredFilter.getTagPattern();
+      if (tagPattern != null) {
+        tagCondition = new Condition<String>() {
+          @Override
+          public boolean value(String tag) {
+            return tagPattern.matcher(tag).find();
+          }
+        };
+      }
+      String pidString = configuredFilter.getPid();
+      if (pidString != null && pidString.length() > 0) {
+        try {
+          pid = Integer.valueOf(pidString);
+        }
+        catch (NumberFormatException e) {
+          // Not a pid that occurs in the log: the configured filter rejects all entries below
+        }
+      }
+    }
+
+    return buffer.query(fromSequence, tagCondition, pid, new Condition<AndroidLogcatEntry>() {
+      @Override
+      public boolean value(AndroidLogcatEntry entry) {
+        return isApplicable(entry, configuredFilter);
+      }
+    });
+  }
+
+  /** Returns true if the given message, parsed by the receiver, is accepted by the current filters */
+  public boolean isApplicable(@NotNull AndroidLogcatEntry entry) {
+    return isApplicable(entry, getConfiguredFilter());
+  }
+
+  /** Like {@link #processLine}, a message is applicable if any of its lines is */
+  private boolean isApplicable(@NotNull AndroidLogcatEntry entry, @Nullable ConfiguredFilter configuredFilter) {
+    final LogFilter selectedLogLevelFilter = getSelectedLogLevelFilter();
+    // Entries without a level of their own were given the level of the previous message by the receiver,
+    // which is the rule processLine applies to such lines
+    final Log.LogLevel level = entry.getLogLevel();
+    if (selectedLogLevelFilter instanceof AndroidLogFilter && !((AndroidLogFilter)selectedLogLevelFilter).isAcceptable(level)) {
+      return false;
+    }
+
+    String pid = Integer.toString(entry.getPid());
+    boolean applicable = super.isApplicable(entry.getText());
+    boolean applicableByCustomFilter = configuredFilter == null ||
+      configuredFilter.isApplicable(entry.getMessage(), entry.getTag(), entry.getAppPackage(), pid, level);
+    for (String line : entry.getContinuationLines()) {
+      if (applicable && applicableByCustomFilter) {
+        break;
+      }
+      applicable = applicable || super.isApplicable(line);
+      applicableByCustomFilter = applicableByCustomFilter ||
+        configuredFilter.isApplicable(line, entry.getTag(), entry.getAppPackage(), pid, level);
+    }
+    return applicable && applicableByCustomFilter;
+  }
+
   @Override
   public List<? extends LogFilter> getLogFilters() {
     return myLogFilters;
@@ -184,13 +300,17 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     public boolean isAcceptable(String line) {
       Log.LogLevel logLevel = null;
 
-      Pair<LogMessageHeader, String> result = AndroidLogcatFormatter.parseMessage(line);
-      if (result.getFirst() != null) {
-        logLevel = result.getFirst().myLogLevel;
+      AndroidLogcatEntry entry = getEntry(line);
+      if (entry != null) {
+        logLevel = entry.getLogLevel();
       }
       if (logLevel == null) {
         logLevel = myPrevMessageLogLevel;
       }
+      return isAcceptable(logLevel);
+    }
+
+    boolean isAcceptable(@Nullable Log.LogLevel logLevel) {
       return logLevel != null && logLevel.getPriority() >= myLogLevel.getPriority();
     }
   }
@@ -236,16 +356,20 @@ public abstract class AndroidLogFilterModel extends LogFilterModel {
     myFullMessageApplicable = false;
     myFullMessageApplicableByCustomFilter = false;
     myMessageBuilder = new StringBuilder();
+    myCurrentLine = null;
+    myCurrentEntry = null;
   }
 
   @Override
   @NotNull
   public MyProcessingResult processLine(String line) {
-    Pair<LogMessageHeader, String> result = AndroidLogcatFormatter.parseMessage(line);
-    final boolean messageHeader = result.getFirst() != null;
+    AndroidLogcatEntry entry = getEntry(line);
+    myCurrentLine = line;
+    myCurrentEntry = entry;
+    final boolean messageHeader = entry != null;
 
     if (messageHeader) {
-      LogMessageHeader header = result.getFirst();
+      LogMessageHeader header = entry.getHeader();
       if (header.myLogLevel != null) {
         myPrevMessageLogLevel = header.myLogLevel;
       }
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.logcat;
+
+import com.intellij.openapi.util.Condition;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Fixed size ring buffer of the most recently received {@link AndroidLogcatEntry}s, with indexes by
+ * tag and by pid. When the buffer holds its maximum number of entries or its maximum estimated size in
+ * bytes, the oldest entries are dropped, so memory use stays bounded no matter how long logcat runs.
+ * <p>
+ * Every entry gets a sequence number, which keeps increasing when the buffer is cleared, such that
+ * a consumer can tell which entries it has not seen yet, see {@link #getNextSequence()}.
+ * <p>
+ * The indexes let a filter change be applied by querying the buffer: a tag pattern is evaluated once
+ * per distinct tag rather than once per line, and a pid filter only visits the entries of that pid.
+ */
+public class AndroidLogcatBuffer implements AndroidLogcatReceiver.LogEntryListener {
+  private final AndroidLogcatEntry[] myEntries;
+  private final Map<String, SequenceList> myTagIndex = new HashMap<String, SequenceList>();
+  private final Map<Integer, SequenceList> myPidIndex = new HashMap<Integer, SequenceList>();
+
+  /** Estimated bytes retained by an entry and its header, besides their strings, including the index slots */
+  private static final int ENTRY_SIZE = 128;
+  /** Estimated bytes retained by a string besides its characters */
+  private static final int STRING_SIZE = 48;
+  /** Bytes retained per character of a string */
+  private static final int CHAR_SIZE = 2;
+  /** Bytes retained by the reference to a continuation line */
+  private static final int REFERENCE_SIZE = 8;
+
+  private final long myMaxRetainedSize;
+
+  /** Sequence number of the next entry to be added; entry {@code n} is stored at {@code n % capacity} */
+  private long myNextSequence;
+  /** Sequence number of the oldest entry in the buffer */
+  private long myFirstSequence;
+  /** Estimated number of bytes retained by the entries in the buffer, see {@link #getRetainedSize(AndroidLogcatEntry)} */
+  private long myRetainedSize;
+
+  public AndroidLogcatBuffer(int capacity) {
+    this(capacity, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new buffer
+   *
+   * @param capacity the maximum number of entries
+   * @param maxRetainedSize the maximum estimated number of bytes retained by the entries
+   */
+  public AndroidLogcatBuffer(int capacity, long maxRetainedSize) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    myEntries = new AndroidLogcatEntry[capacity];
+    myMaxRetainedSize = maxRetainedSize;
+  }
+
+  @Override
+  public void entryReceived(@NotNull AndroidLogcatEntry entry) {
+    add(entry);
+  }
+
+  /**
+   * Accounts for a line added to an entry, which counts towards the maximum size as long as the entry is in the buffer.
+   * Lines are only added to the newest entry received, so a line for any other entry belongs to an entry which was
+   * cleared or evicted already.
+   */
+  @Override
+  public synchronized void continuationLineReceived(@NotNull AndroidLogcatEntry entry, @NotNull String text) {
+    if (size() == 0 || getEntry(myNextSequence - 1) != entry) {
+      return;
+    }
+    myRetainedSize += getRetainedSize(text) + REFERENCE_SIZE;
+    trimToMaxRetainedSize();
+  }
+
+  public synchronized void add(@NotNull AndroidLogcatEntry entry) {
+    if (size() == myEntries.length) {
+      removeOldest();
+    }
+
+    myEntries[(int)(myNextSequence % myEntries.length)] = entry;
+    getList(myTagIndex, getTagKey(entry)).add(myNextSequence);
+    getList(myPidIndex, entry.getPid()).add(myNextSequence);
+    myNextSequence++;
+    myRetainedSize += getRetainedSize(entry);
+    trimToMaxRetainedSize();
+  }
+
+  /** Removes all entries. The sequence numbers of the entries added next continue where they left off. */
+  public synchronized void clear() {
+    Arrays.fill(myEntries, null);
+    myTagIndex.clear();
+    myPidIndex.clear();
+    myFirstSequence = myNextSequence;
+    myRetainedSize = 0;
+  }
+
+  public synchronized int size() {
+    return (int)(myNextSequence - myFirstSequence);
+  }
+
+  /** Returns the estimated number of bytes retained by the entries in the buffer */
+  public synchronized long getRetainedSize() {
+    return myRetainedSize;
+  }
+
+  private void trimToMaxRetainedSize() {
+    // Always keep the newest entry, however long it is
+    while (myRetainedSize > myMaxRetainedSize && size() > 1) {
+      removeOldest();
+    }
+  }
+
+  private void removeOldest() {
+    int slot = (int)(myFirstSequence % myEntries.length);
+    AndroidLogcatEntry evicted = myEntries[slot];
+    myEntries[slot] = null;
+    myFirstSequence++;
+    // The evicted entry is the oldest one overall, and therefore also the oldest for its tag and pid
+    removeOldest(myTagIndex, getTagKey(evicted));
+    removeOldest(myPidIndex, evicted.getPid());
+    myRetainedSize = Math.max(0, myRetainedSize - getRetainedSize(evicted));
+  }
+
+  /**
+   * Returns the estimated number of bytes retained by the given entry: the entry and its header, the message, the
+   * strings of the header owned by the entry and the continuation lines
+   */
+  static long getRetainedSize(@NotNull AndroidLogcatEntry entry) {
+    long size = ENTRY_SIZE + getRetainedSize(entry.getMessage()) + getRetainedSize(entry.getTime()) +
+                getRetainedSize(entry.getTid()) + getRetainedSize(entry.getTag());
+    for (String line : entry.getContinuationLines()) {
+      size += getRetainedSize(line) + REFERENCE_SIZE;
+    }
+    return size;
+  }
+
+  private static long getRetainedSize(@Nullable String s) {
+    return s != null ? STRING_SIZE + CHAR_SIZE * (long)s.length() : 0;
+  }
+
+  /** Returns the tags of the entries currently in the buffer */
+  @NotNull
+  public synchronized Set<String> getTags() {
+    return new HashSet<String>(myTagIndex.keySet());
+  }
+
+  /** Returns the pids of the entries currently in the buffer */
+  @NotNull
+  public synchronized Set<Integer> getPids() {
+    return new HashSet<Integer>(myPidIndex.keySet());
+  }
+
+  /** Returns the sequence number the next added entry will get, for use with {@link #query} */
+  public synchronized long getNextSequence() {
+    return myNextSequence;
+  }
+
+  /**
+   * Returns the buffered entries accepted by the given conditions, oldest first
+   *
+   * @param fromSequence only entries added at or after this sequence number are returned,
+   *                     see {@link #getNextSequence()}
+   * @param tagCondition if not null, only entries whose tag is accepted are returned
+   * @param pid if not null, only entries with this pid are returned
+   * @param entryCondition if not null, only entries accepted by it are returned
+   * @return the matching entries
+   */
+  @NotNull
+  public synchronized List<AndroidLogcatEntry> query(long fromSequence,
+                                                     @Nullable Condition<String> tagCondition,
+                                                     @Nullable Integer pid,
+                                                     @Nullable Condition<AndroidLogcatEntry> entryCondition) {
+    List<AndroidLogcatEntry> result = new ArrayList<AndroidLogcatEntry>();
+    if (pid != null) {
+      SequenceList list = myPidIndex.get(pid);
+      if (list != null) {
+        for (int i = 0; i < list.size(); i++) {
+          long sequence = list.get(i);
+          if (sequence < fromSequence) {
+            continue;
+          }
+          AndroidLogcatEntry entry = getEntry(sequence);
+          if (tagCondition == null || tagCondition.value(getTagKey(entry))) {
+            addIfAccepted(result, entry, entryCondition);
+          }
+        }
+      }
+    }
+    else if (tagCondition != null) {
+      List<SequenceList> lists = new ArrayList<SequenceList>();
+      int count = 0;
+      for (Map.Entry<String, SequenceList> tagEntry : myTagIndex.entrySet()) {
+        if (tagCondition.value(tagEntry.getKey())) {
+          lists.add(tagEntry.getValue());
+          count += tagEntry.getValue().size();
+        }
+      }
+      long[] sequences = new long[count];
+      int index = 0;
+      for (SequenceList list : lists) {
+        for (int i = 0; i < list.size(); i++) {
+          sequences[index++] = list.get(i);
+        }
+      }
+      if (lists.size() > 1) {
+        Arrays.sort(sequences);
+      }
+      for (long sequence : sequences) {
+        if (sequence >= fromSequence) {
+          addIfAccepted(result, getEntry(sequence), entryCondition);
+        }
+      }
+    }
+    else {
+      long oldest = Math.max(fromSequence, myFirstSequence);
+      for (long sequence = oldest; sequence < myNextSequence; sequence++) {
+        addIfAccepted(result, getEntry(sequence), entryCondition);
+      }
+    }
+
+    return result;
+  }
+
+  private static void addIfAccepted(@NotNull List<AndroidLogcatEntry> result,
+                                    @NotNull AndroidLogcatEntry entry,
+                                    @Nullable Condition<AndroidLogcatEntry> entryCondition) {
+    if (entryCondition == null || entryCondition.value(entry)) {
+      result.add(entry);
+    }
+  }
+
+  @NotNull
+  private AndroidLogcatEntry getEntry(long sequence) {
+    return myEntries[(int)(sequence % myEntries.length)];
+  }
+
+  @NotNull
+  private static String getTagKey(@NotNull AndroidLogcatEntry entry) {
+    String tag = entry.getTag();
+    return tag != null ? tag : "";
+  }
+
+  @NotNull
+  private static <K> SequenceList getList(@NotNull Map<K, SequenceList> index, @NotNull K key) {
+    SequenceList list = index.get(key);
+    if (list == null) {
+      list = new SequenceList();
+      index.put(key, list);
+    }
+    return list;
+  }
+
+  private static <K> void removeOldest(@NotNull Map<K, SequenceList> index, @NotNull K key) {
+    SequenceList list = index.get(key);
+    if (list != null) {
+      list.removeFirst();
+      if (list.size() == 0) {
+        index.remove(key);
+      }
+    }
+  }
+
+  /** Growable FIFO of increasing sequence numbers */
+  private static class SequenceList {
+    private long[] myData = new long[8];
+    private int myHead;
+    private int mySize;
+
+    void add(long sequence) {
+      if (myHead + mySize == myData.length) {
+        if (mySize * 2 <= myData.length) {
+          // Plenty of room freed up at the front: compact rather than grow
+          System.arraycopy(myData, myHead, myData, 0, mySize);
+        }
+        else {
+          long[] data = new long[myData.length * 2];
+          System.arraycopy(myData, myHead, data, 0, mySize);
+          myData = data;
+        }
+        myHead = 0;
+      }
+      myData[myHead + mySize] = sequence;
+      mySize++;
+    }
+
+    void removeFirst() {
+      if (mySize > 0) {
+        myHead++;
+        mySize--;
+      }
+    }
+
+    long get(int index) {
+      return myData[myHead + index];
+    }
+
+    int size() {
+      return mySize;
+    }
+  }
+}
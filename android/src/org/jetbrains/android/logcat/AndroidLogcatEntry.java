@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.logcat;
+
+import com.android.ddmlib.Log;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.android.logcat.AndroidLogcatReceiver.LogMessageHeader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single logcat message, parsed once by the {@link AndroidLogcatReceiver} and then filtered on
+ * its fields. The console text for the entry is only formatted when it is asked for.
+ * <p>
+ * Lines of a multi-line message after the first are attached as continuation lines as they arrive,
+ * such that the {@link AndroidLogcatBuffer} can replay the whole message.
+ */
+public final class AndroidLogcatEntry {
+  @NotNull private final LogMessageHeader myHeader;
+  @NotNull private final String myMessage;
+  @Nullable private final String myText;
+  @NotNull private volatile String[] myContinuationLines = ArrayUtil.EMPTY_STRING_ARRAY;
+
+  public AndroidLogcatEntry(@NotNull LogMessageHeader header, @NotNull String message) {
+    this(header, message, null);
+  }
+
+  /** Creates an entry whose console text is given rather than formatted from the header */
+  AndroidLogcatEntry(@NotNull LogMessageHeader header, @NotNull String message, @Nullable String text) {
+    myHeader = header;
+    myMessage = message;
+    myText = text;
+  }
+
+  @NotNull
+  LogMessageHeader getHeader() {
+    return myHeader;
+  }
+
+  @NotNull
+  public String getMessage() {
+    return myMessage;
+  }
+
+  public int getPid() {
+    return myHeader.myPid;
+  }
+
+  @Nullable
+  public String getTid() {
+    return myHeader.myTid;
+  }
+
+  @Nullable
+  public Log.LogLevel getLogLevel() {
+    return myHeader.myLogLevel;
+  }
+
+  @Nullable
+  public String getTag() {
+    return myHeader.myTag;
+  }
+
+  @Nullable
+  public String getTime() {
+    return myHeader.myTime;
+  }
+
+  @Nullable
+  public String getAppPackage() {
+    return myHeader.myAppPackage;
+  }
+
+  /**
+   * Returns the text of this entry as shown in the console, see {@link AndroidLogcatFormatter#formatMessage}. The text
+   * is formatted on each call rather than kept, as it is only needed while the entry is printed.
+   */
+  @NotNull
+  public String getText() {
+    return myText != null ? myText : AndroidLogcatFormatter.formatMessage(myMessage, myHeader);
+  }
+
+  /** Returns the console text of the lines following the first line of this entry, if any */
+  @NotNull
+  public String[] getContinuationLines() {
+    return myContinuationLines;
+  }
+
+  synchronized void addContinuationLine(@NotNull String text) {
+    myContinuationLines = ArrayUtil.append(myContinuationLines, text);
+  }
+}
@@ -22,7 +22,6 @@ import com.intellij.openapi.util.Pair;
 import org.jetbrains.android.logcat.AndroidLogcatReceiver.LogMessageHeader;
 import org.jetbrains.annotations.NonNls;
 
-import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,20 +36,32 @@ public class AndroidLogcatFormatter {
                     "(.*)"                // message
     );
 
+  /** Minimum width of the pid-tid column */
+  private static final int IDS_WIDTH = 12;
+
   public static String formatMessage(String message, LogMessageHeader header) {
-    String ids = String.format(Locale.US, "%d-%s", header.myPid, header.myTid);
-    return String.format(Locale.US,
-                         "%1$s %2$12s/%3$s %4$c/%5$s: %6$s",
-                         header.myTime,
-                         ids,
-                         header.myAppPackage.isEmpty() ? "?" : header.myAppPackage,
-                         header.myLogLevel.getPriorityLetter(),
-                         header.myTag,
-                         message);
+    // Equivalent to String.format("%1$s %2$12s/%3$s %4$c/%5$s: %6$s") with "%d-%s" for the ids, but
+    // this runs for every received line so avoid the cost of parsing the format string each time
+    String ids = Integer.toString(header.myPid) + '-' + header.myTid;
+    StringBuilder sb = new StringBuilder(message.length() + 80);
+    sb.append(header.myTime).append(' ');
+    for (int i = ids.length(); i < IDS_WIDTH; i++) {
+      sb.append(' ');
+    }
+    sb.append(ids).append('/');
+    sb.append(header.myAppPackage.isEmpty() ? "?" : header.myAppPackage).append(' ');
+    sb.append(header.myLogLevel.getPriorityLetter()).append('/');
+    sb.append(header.myTag).append(": ");
+    sb.append(message);
+    return sb.toString();
   }
 
   /** Parse a message that was encoded using {@link #formatMessage(String, LogMessageHeader)}. */
   public static Pair<LogMessageHeader,String> parseMessage(String msg) {
+    if (msg.isEmpty() || !Character.isDigit(msg.charAt(0))) {
+      // Quick reject for continuation lines, which are indented
+      return Pair.create(null, msg);
+    }
     final Matcher matcher = LOGMESSAGE_PATTERN.matcher(msg);
     if (!matcher.matches()) {
       return Pair.create(null, msg);
@@ -20,6 +20,7 @@ import com.android.ddmlib.IDevice;
 import com.android.ddmlib.Log;
 import com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.android.util.AndroidOutputReceiver;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
@@ -42,14 +43,25 @@ public class AndroidLogcatReceiver extends AndroidOutputReceiver {
   private static final String SHIFT = "        ";
 
   private LogMessageHeader myLastMessageHeader;
+  @Nullable private AndroidLogcatEntry myLastEntry;
   private volatile boolean myCanceled = false;
   private Log.LogLevel myPrevLogLevel;
   private final Writer myWriter;
   private final IDevice myDevice;
+  @Nullable private final LogEntryListener myEntryListener;
 
   public AndroidLogcatReceiver(IDevice device, Writer writer) {
+    this(device, writer, null);
+  }
+
+  /**
+   * Creates a receiver which hands each parsed message to the given listener. If a listener is given,
+   * the formatted text is not written to the writer, since the listener prints the messages itself.
+   */
+  public AndroidLogcatReceiver(IDevice device, Writer writer, @Nullable LogEntryListener entryListener) {
     myDevice = device;
     myWriter = new PrintWriter(writer);
+    myEntryListener = entryListener;
   }
 
   @Override
@@ -78,18 +90,52 @@ public class AndroidLogcatReceiver extends AndroidOutputReceiver {
     }
     else {
       if (line.length() == 0) return;
-      String text = myLastMessageHeader == null ? SHIFT + line : getFullMessage(line, myLastMessageHeader);
+      String text;
+      if (myLastMessageHeader == null) {
+        text = SHIFT + line;
+        if (myLastEntry != null) {
+          myLastEntry.addContinuationLine(text);
+          if (myEntryListener != null) {
+            myEntryListener.continuationLineReceived(myLastEntry, text);
+          }
+        }
+        else if (myEntryListener != null) {
+          // A line before the first message, such as the start of a log buffer
+          LogMessageHeader header = new LogMessageHeader();
+          header.myLogLevel = myPrevLogLevel;
+          header.myTag = "";
+          header.myAppPackage = "";
+          myLastEntry = new AndroidLogcatEntry(header, line, text);
+          myEntryListener.entryReceived(myLastEntry);
+        }
+      }
+      else {
+        if (myEntryListener != null) {
+          // the listener formats the entry only if it prints it
+          myLastEntry = new AndroidLogcatEntry(myLastMessageHeader, line);
+          myEntryListener.entryReceived(myLastEntry);
+          text = null;
+        }
+        else {
+          text = AndroidLogcatFormatter.formatMessage(line, myLastMessageHeader);
+        }
+      }
       if (myLastMessageHeader == null) {
         myLastMessageHeader = new LogMessageHeader();
         myLastMessageHeader.myLogLevel = myPrevLogLevel;
       }
-      try {
-        myWriter.write(text + '\n');
+      if (myEntryListener == null) {
+        try {
+          myWriter.write(text + '\n');
+        }
+        catch (IOException ignored) {
+          LOG.info(ignored);
+        }
       }
-      catch (IOException ignored) {
-        LOG.info(ignored);
+      // Like AndroidLogFilterModel.processLine, lines without a level of their own get the last level seen
+      if (myLastMessageHeader.myLogLevel != null) {
+        myPrevLogLevel = myLastMessageHeader.myLogLevel;
       }
-      myPrevLogLevel = myLastMessageHeader.myLogLevel;
       myLastMessageHeader = null;
     }
   }
@@ -123,8 +169,15 @@ public class AndroidLogcatReceiver extends AndroidOutputReceiver {
     String myTag;
   }
 
-  private static String getFullMessage(String message, LogMessageHeader header) {
-    return AndroidLogcatFormatter.formatMessage(message, header);
+  /**
+   * Listener notified of each parsed message, such that consumers can print and filter the parsed
+   * entries rather than parsing the formatted text again
+   */
+  public interface LogEntryListener {
+    void entryReceived(@NotNull AndroidLogcatEntry entry);
+
+    /** Called when a line has been appended to the continuation lines of a previously received entry */
+    void continuationLineReceived(@NotNull AndroidLogcatEntry entry, @NotNull String text);
   }
 
   public void cancel() {
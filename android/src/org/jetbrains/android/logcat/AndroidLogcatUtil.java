@@ -87,6 +87,20 @@ public class AndroidLogcatUtil {
                                           final IDevice device,
                                           final boolean clearLogcat,
                                           @NotNull final LogConsoleBase console) {
+    return startLoggingThread(project, device, clearLogcat, console, null);
+  }
+
+  /**
+   * Starts logcat on the given device, writing the formatted messages to the returned writer.
+   * If an entry listener is given, the parsed messages are handed to it instead, and the writer
+   * only serves to stop logging when it is closed.
+   */
+  @Nullable
+  public static Pair<Reader, Writer> startLoggingThread(final Project project,
+                                          final IDevice device,
+                                          final boolean clearLogcat,
+                                          @NotNull final LogConsoleBase console,
+                                          @Nullable AndroidLogcatReceiver.LogEntryListener entryListener) {
     UIUtil.invokeAndWaitIfNeeded(new Runnable() {
       @Override
       public void run() {
@@ -94,7 +108,7 @@ public class AndroidLogcatUtil {
       }
     });
     PipedWriter logWriter = new PipedWriter();
-    final AndroidLogcatReceiver receiver = new AndroidLogcatReceiver(device, logWriter);
+    final AndroidLogcatReceiver receiver = new AndroidLogcatReceiver(device, logWriter, entryListener);
     final PipedReader logReader;
     try {
       logReader = new PipedReader(logWriter) {
@@ -17,10 +17,13 @@ package org.jetbrains.android.logcat;
 
 import com.android.ddmlib.Client;
 import com.android.ddmlib.IDevice;
+import com.android.ddmlib.Log;
 import com.android.tools.idea.ddms.DeviceContext;
 import com.intellij.diagnostic.logging.LogConsoleBase;
 import com.intellij.diagnostic.logging.LogConsoleListener;
+import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.icons.AllIcons;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
@@ -45,6 +48,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static javax.swing.BoxLayout.X_AXIS;
 
@@ -58,6 +62,13 @@ public abstract class AndroidLogcatView implements Disposable {
   public static final String NO_FILTERS = AndroidBundle.message("android.logcat.filters.none");
   public static final String EDIT_FILTER_CONFIGURATION = AndroidBundle.message("android.logcat.filters.edit");
 
+  /** Maximum number of received messages kept for refiltering; older messages are dropped */
+  private static final int BUFFER_CAPACITY = 100000;
+  /** Maximum estimated number of bytes kept for refiltering, such that long messages cannot exhaust memory */
+  private static final long BUFFER_MAX_RETAINED_SIZE = 16 * 1024 * 1024;
+  /** Number of entries printed by each UI thread event when refiltering, such that the UI stays responsive */
+  private static final int REFILTER_CHUNK_SIZE = 1000;
+
   private final Project myProject;
   private final DeviceContext myDeviceContext;
 
@@ -70,6 +81,39 @@ public abstract class AndroidLogcatView implements Disposable {
   private final Object myLock = new Object();
   private final LogConsoleBase myLogConsole;
   private final AndroidLogFilterModel myLogFilterModel;
+  private final AndroidLogcatBuffer myBuffer = new AndroidLogcatBuffer(BUFFER_CAPACITY, BUFFER_MAX_RETAINED_SIZE);
+  private final AndroidLogcatReceiver.LogEntryListener myEntryListener = new AndroidLogcatReceiver.LogEntryListener() {
+    @Override
+    public void entryReceived(@NotNull AndroidLogcatEntry entry) {
+      myBuffer.add(entry);
+      schedulePrinting();
+    }
+
+    @Override
+    public void continuationLineReceived(@NotNull AndroidLogcatEntry entry, @NotNull String text) {
+      myBuffer.continuationLineReceived(entry, text);
+      schedulePrinting();
+    }
+  };
+  private final AtomicBoolean myPrintingScheduled = new AtomicBoolean();
+
+  /**
+   * Incremented in the UI thread whenever the buffer and the console are cleared, such that a refilter
+   * which queried the buffer before does not print the entries it found
+   */
+  private volatile int myClearCount;
+
+  // The console only shows entries from the buffer, and is only printed to in the UI thread. The
+  // following fields are only accessed in the UI thread.
+  /** Sequence number of the first buffered entry which has not been considered for printing yet */
+  private long myPrintedSequence;
+  /** The last entry printed, which may still receive continuation lines, and the number of its lines printed */
+  @Nullable private AndroidLogcatEntry myLastPrintedEntry;
+  private int myLastPrintedLineCount;
+  /** Incremented whenever a refilter starts printing, such that the chunks of a superseded refilter are dropped */
+  private int myRefilterCount;
+  /** Whether the entries of a refilter are being printed; new entries are printed once it is done */
+  private boolean myRefiltering;
 
   private volatile Reader myCurrentReader;
   private volatile Writer myCurrentWriter;
@@ -170,6 +214,12 @@ public abstract class AndroidLogcatView implements Disposable {
           return myConfiguredFilter;
         }
       };
+    myLogFilterModel.setRefilterHandler(new Runnable() {
+      @Override
+      public void run() {
+        refilter();
+      }
+    });
     myLogConsole = new MyLogConsole(project, myLogFilterModel);
     myLogConsole.addListener(new LogConsoleListener() {
       @Override
@@ -237,7 +287,9 @@ public abstract class AndroidLogcatView implements Disposable {
         IDevice device = getSelectedDevice();
         if (device != null) {
           AndroidLogcatUtil.clearLogcat(project, device);
+          myBuffer.clear();
           myLogConsole.clear();
+          resetPrinting();
         }
       }
     });
@@ -334,7 +386,9 @@ public abstract class AndroidLogcatView implements Disposable {
           if (console != null) {
             console.clear();
           }
-          final Pair<Reader, Writer> pair = AndroidLogcatUtil.startLoggingThread(myProject, device, false, myLogConsole);
+          myBuffer.clear();
+          resetPrinting();
+          final Pair<Reader, Writer> pair = AndroidLogcatUtil.startLoggingThread(myProject, device, false, myLogConsole, myEntryListener);
           if (pair != null) {
             myCurrentReader = pair.first;
             myCurrentWriter = pair.second;
@@ -371,6 +425,142 @@ public abstract class AndroidLogcatView implements Disposable {
       });
   }
 
+  /**
+   * Applies the current filters by querying the buffer of received messages, rather than by
+   * replaying all of the console text through the filter model
+   */
+  private void refilter() {
+    final int clearCount = myClearCount;
+    final long mark;
+    final List<AndroidLogcatEntry> entries;
+    synchronized (myBuffer) {
+      mark = myBuffer.getNextSequence();
+      entries = myLogFilterModel.getApplicableEntries(myBuffer, 0);
+    }
+    ApplicationManager.getApplication().invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        if (myProject.isDisposed()) {
+          return;
+        }
+        final ConsoleView console = myLogConsole.getConsole();
+        if (console == null) {
+          return;
+        }
+        if (clearCount != myClearCount) {
+          // The console was cleared since the buffer was queried, and so were the entries
+          printNewEntries();
+          return;
+        }
+        // Nothing else prints to the console until this is done, so no message can be lost or duplicated
+        console.clear();
+        myLastPrintedEntry = null;
+        myPrintedSequence = mark;
+        myRefiltering = true;
+        printRefilteredEntries(entries, 0, ++myRefilterCount, clearCount);
+      }
+    });
+  }
+
+  /**
+   * Prints a chunk of the entries found by a refilter starting at the given index, and schedules printing the next
+   * chunk in a later UI thread event. Once all of them are printed, the messages received in the meantime follow.
+   */
+  private void printRefilteredEntries(@NotNull final List<AndroidLogcatEntry> entries,
+                                      int from,
+                                      final int refilterCount,
+                                      final int clearCount) {
+    final ConsoleView console = myLogConsole.getConsole();
+    if (console == null || clearCount != myClearCount) {
+      // The console is gone or was cleared, along with the entries to print
+      myRefiltering = false;
+      printNewEntries();
+      return;
+    }
+    final int to = Math.min(entries.size(), from + REFILTER_CHUNK_SIZE);
+    printEntries(console, entries.subList(from, to));
+
+    if (to == entries.size()) {
+      myRefiltering = false;
+      // Messages received while the buffer was being queried and printed
+      printNewEntries();
+      return;
+    }
+    ApplicationManager.getApplication().invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        if (!myProject.isDisposed() && refilterCount == myRefilterCount) {
+          printRefilteredEntries(entries, to, refilterCount, clearCount);
+        }
+      }
+    });
+  }
+
+  private void schedulePrinting() {
+    if (myPrintingScheduled.compareAndSet(false, true)) {
+      ApplicationManager.getApplication().invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          myPrintingScheduled.set(false);
+          if (!myProject.isDisposed()) {
+            printNewEntries();
+          }
+        }
+      });
+    }
+  }
+
+  /** Called in the UI thread after the buffer and the console have been cleared */
+  private void resetPrinting() {
+    myClearCount++;
+    myPrintedSequence = myBuffer.getNextSequence();
+    myLastPrintedEntry = null;
+  }
+
+  /** Prints the entries received since the last call, and the lines received since for the last printed entry */
+  private void printNewEntries() {
+    final ConsoleView console = myLogConsole.getConsole();
+    if (console == null || myRefiltering) {
+      return;
+    }
+    if (myLastPrintedEntry != null) {
+      String[] lines = myLastPrintedEntry.getContinuationLines();
+      for (int i = myLastPrintedLineCount - 1; i < lines.length; i++) {
+        console.print(lines[i] + '\n', getContentType(myLastPrintedEntry));
+      }
+      myLastPrintedLineCount = lines.length + 1;
+    }
+
+    final long mark;
+    final List<AndroidLogcatEntry> entries;
+    synchronized (myBuffer) {
+      mark = myBuffer.getNextSequence();
+      entries = myLogFilterModel.getApplicableEntries(myBuffer, myPrintedSequence);
+    }
+    printEntries(console, entries);
+    myPrintedSequence = mark;
+  }
+
+  private void printEntries(@NotNull ConsoleView console, @NotNull List<AndroidLogcatEntry> entries) {
+    for (AndroidLogcatEntry entry : entries) {
+      ConsoleViewContentType contentType = getContentType(entry);
+      console.print(entry.getText() + '\n', contentType);
+      String[] lines = entry.getContinuationLines();
+      for (String line : lines) {
+        console.print(line + '\n', contentType);
+      }
+      myLastPrintedEntry = entry;
+      myLastPrintedLineCount = lines.length + 1;
+    }
+  }
+
+  @NotNull
+  private static ConsoleViewContentType getContentType(@NotNull AndroidLogcatEntry entry) {
+    Log.LogLevel level = entry.getLogLevel();
+    Key key = level != null ? AndroidLogFilterModel.getProcessOutputType(level) : ProcessOutputTypes.STDOUT;
+    return ConsoleViewContentType.getConsoleViewType(key);
+  }
+
   private void updateConfiguredFilters(@NotNull String defaultSelection) {
     final AndroidConfiguredLogFilters filters = AndroidConfiguredLogFilters.getInstance(myProject);
     final List<AndroidConfiguredLogFilters.MyFilterEntry> entries = filters.getFilterEntries();
@@ -66,6 +66,16 @@ class ConfiguredFilter {
     return myName;
   }
 
+  @Nullable
+  Pattern getTagPattern() {
+    return myTagPattern;
+  }
+
+  @Nullable
+  String getPid() {
+    return myPid;
+  }
+
   @Nullable
   public static ConfiguredFilter compile(@Nullable AndroidConfiguredLogFilters.MyFilterEntry entry,
                                          @NotNull String name) {
@@ -17,6 +17,7 @@
 package org.jetbrains.android.resourceManagers;
 
 import com.android.resources.ResourceType;
+import com.android.tools.idea.rendering.ProjectResources;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.util.Pair;
@@ -25,6 +26,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.util.containers.HashMap;
@@ -170,6 +172,20 @@ public class LocalResourceManager extends ResourceManager {
     return result;
   }
 
+  /**
+   * Returns the modification count of the project resources if they were already loaded. Otherwise the resources are
+   * not loaded just for this; the PSI modification count is used instead, negated so it never equals a count of the
+   * project resources.
+   */
+  @Override
+  public long getResourceGeneration() {
+    final ProjectResources resources = ProjectResources.get(myModule, true, false);
+    if (resources != null) {
+      return resources.getModificationCount();
+    }
+    return -1 - PsiManager.getInstance(myModule.getProject()).getModificationTracker().getOutOfCodeBlockModificationCount();
+  }
+
   @Override
   @NotNull
   public AttributeDefinitions getAttributeDefinitions() {
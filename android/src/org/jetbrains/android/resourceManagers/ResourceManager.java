@@ -56,6 +56,9 @@ public abstract class ResourceManager {
   protected final Module myModule;
   protected final AndroidFacet myFacet;
 
+  /** Resource names by type, sorted ignoring case, along with the resource generation they were collected in */
+  private final Map<String, Pair<Long, String[]>> mySortedNames = new HashMap<String, Pair<Long, String[]>>();
+
   protected ResourceManager(@NotNull AndroidFacet facet) {
     myFacet = facet;
     myModule = facet.getModule();
@@ -353,6 +356,57 @@ public abstract class ResourceManager {
     return result;
   }
 
+  /**
+   * Returns the names of the resources of the given type starting with the given prefix, ignoring case. The sorted
+   * names are kept between calls until {@link #getResourceGeneration()} changes, so each call only has to look up
+   * the range of matching names.
+   */
+  @NotNull
+  public List<String> getResourceNamesWithPrefix(@NotNull String type, @NotNull String prefix) {
+    final long generation = getResourceGeneration();
+    String[] names = null;
+
+    synchronized (mySortedNames) {
+      final Pair<Long, String[]> cached = mySortedNames.get(type);
+      if (cached != null && cached.getFirst() == generation) {
+        names = cached.getSecond();
+      }
+    }
+
+    if (names == null) {
+      final Collection<String> resourceNames = getResourceNames(type);
+      names = resourceNames.toArray(new String[resourceNames.size()]);
+      Arrays.sort(names, String.CASE_INSENSITIVE_ORDER);
+
+      synchronized (mySortedNames) {
+        mySortedNames.put(type, Pair.create(generation, names));
+      }
+    }
+    return getNamesWithPrefix(names, prefix);
+  }
+
+  @NotNull
+  static List<String> getNamesWithPrefix(@NotNull String[] sortedNames, @NotNull String prefix) {
+    int from = Arrays.binarySearch(sortedNames, prefix, String.CASE_INSENSITIVE_ORDER);
+    if (from < 0) {
+      from = -from - 1;
+    }
+    // Names only differing from the prefix in case compare equal to it, and the search may land on any of them
+    while (from > 0 && String.CASE_INSENSITIVE_ORDER.compare(sortedNames[from - 1], prefix) == 0) {
+      from--;
+    }
+    int to = from;
+    while (to < sortedNames.length && sortedNames[to].regionMatches(true, 0, prefix, 0, prefix.length())) {
+      to++;
+    }
+    return Collections.unmodifiableList(Arrays.asList(sortedNames).subList(from, to));
+  }
+
+  /**
+   * Returns a stamp which changes whenever the names returned by {@link #getResourceNames} may have changed
+   */
+  protected abstract long getResourceGeneration();
+
   @Nullable
   public abstract AttributeDefinitions getAttributeDefinitions();
 
@@ -71,6 +71,12 @@ public class SystemResourceManager extends ResourceManager {
     return dir != null ? Collections.singletonList(dir) : Collections.<VirtualFile>emptyList();
   }
 
+  @Override
+  protected long getResourceGeneration() {
+    // The framework resources don't change; a new manager is created when the platform changes
+    return 0;
+  }
+
   @Nullable
   public static SystemResourceManager getInstance(@NotNull ConvertContext context) {
     AndroidFacet facet = AndroidFacet.getInstance(context);
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.run;
+
+import com.android.ddmlib.IDevice;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Pair;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Remembers which APK was last installed for each package on each device, such that deploying an
+ * APK that did not change since the previous run can skip both the upload and the install.
+ * <p>
+ * APKs are identified by the SHA-1 of their contents. The hash of a local file is computed again
+ * only when its timestamp or length changes. Along with the hash, the version code and last update
+ * time the device reported right after the install are recorded; if the device reports anything
+ * else later, the package was reinstalled or updated by someone else and the APK must be installed again.
+ */
+public class AndroidApkDeployCache {
+  private static final Logger LOG = Logger.getInstance(AndroidApkDeployCache.class);
+
+  private static final AndroidApkDeployCache ourInstance = new AndroidApkDeployCache();
+
+  @NonNls private static final String PACKAGE_PREFIX = "Package [";
+  @NonNls private static final String VERSION_CODE = "versionCode=";
+  @NonNls private static final String LAST_UPDATE_TIME = "lastUpdateTime=";
+
+  /** Hash and install stamp of the installed APK for each (device serial, package name) */
+  private final Map<Pair<String, String>, Pair<String, String>> myInstalledApks =
+    new HashMap<Pair<String, String>, Pair<String, String>>();
+
+  /** Last computed hash of each local APK, along with the timestamp and length it was computed for */
+  private final Map<String, FileHash> myFileHashes = new HashMap<String, FileHash>();
+
+  @NotNull
+  public static AndroidApkDeployCache getInstance() {
+    return ourInstance;
+  }
+
+  /**
+   * Returns the hash of the given APK, for use with {@link #getInstallStamp(IDevice, String, String)} and
+   * {@link #installed}, or null if the APK cannot be read
+   */
+  @Nullable
+  public String getApkHash(@NotNull File apk) {
+    final String path = apk.getAbsolutePath();
+    final long timestamp = apk.lastModified();
+    final long length = apk.length();
+
+    synchronized (myFileHashes) {
+      final FileHash fileHash = myFileHashes.get(path);
+      if (fileHash != null && fileHash.myTimestamp == timestamp && fileHash.myLength == length) {
+        return fileHash.myHash;
+      }
+    }
+    final String hash = computeHash(apk);
+    if (hash == null) {
+      return null;
+    }
+    synchronized (myFileHashes) {
+      myFileHashes.put(path, new FileHash(timestamp, length, hash));
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the install stamp recorded when the APK with the given hash was installed for the package
+   * on the device, or null if it was not the last APK installed. The APK is still installed only if the
+   * device reports the same stamp, see {@link #getInstallStamp(String, String)}.
+   */
+  @Nullable
+  public synchronized String getInstallStamp(@NotNull IDevice device, @NotNull String packageName, @NotNull String apkHash) {
+    final Pair<String, String> installed = myInstalledApks.get(getKey(device, packageName));
+    return installed != null && apkHash.equals(installed.getFirst()) ? installed.getSecond() : null;
+  }
+
+  /**
+   * Records that the APK with the given hash was installed for the package on the device, and that
+   * the device reported the given install stamp right after
+   */
+  public synchronized void installed(@NotNull IDevice device,
+                                     @NotNull String packageName,
+                                     @NotNull String apkHash,
+                                     @NotNull String installStamp) {
+    myInstalledApks.put(getKey(device, packageName), Pair.create(apkHash, installStamp));
+  }
+
+  /** Forgets what was installed for the package on the device, e.g. because it was uninstalled or the install failed */
+  public synchronized void invalidate(@NotNull IDevice device, @NotNull String packageName) {
+    myInstalledApks.remove(getKey(device, packageName));
+  }
+
+  /** Forgets everything installed on the device, e.g. because it was disconnected and may have been wiped */
+  public synchronized void invalidate(@NotNull IDevice device) {
+    final String serial = device.getSerialNumber();
+    for (Iterator<Pair<String, String>> it = myInstalledApks.keySet().iterator(); it.hasNext(); ) {
+      if (serial.equals(it.next().getFirst())) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Extracts the version code and the last update time of the package from the output of
+   * "dumpsys package &lt;packageName&gt;", which together change whenever the package is installed
+   * or updated. Returns null if the package is not installed or the output has no update time.
+   */
+  @Nullable
+  static String getInstallStamp(@NotNull String packageName, @NotNull String dumpsysOutput) {
+    String versionCode = null;
+    String lastUpdateTime = null;
+    boolean inPackage = false;
+
+    for (String line : dumpsysOutput.split("\n")) {
+      line = line.trim();
+
+      if (line.startsWith(PACKAGE_PREFIX)) {
+        if (inPackage) {
+          break;
+        }
+        inPackage = line.startsWith(PACKAGE_PREFIX + packageName + ']');
+      }
+      else if (inPackage) {
+        if (versionCode == null && line.startsWith(VERSION_CODE)) {
+          final int end = line.indexOf(' ');
+          versionCode = end > 0 ? line.substring(0, end) : line;
+        }
+        else if (lastUpdateTime == null && line.startsWith(LAST_UPDATE_TIME)) {
+          lastUpdateTime = line;
+        }
+      }
+    }
+    if (lastUpdateTime == null) {
+      return null;
+    }
+    return versionCode != null ? versionCode + ' ' + lastUpdateTime : lastUpdateTime;
+  }
+
+  @NotNull
+  private static Pair<String, String> getKey(@NotNull IDevice device, @NotNull String packageName) {
+    return Pair.create(device.getSerialNumber(), packageName);
+  }
+
+  @Nullable
+  private static String computeHash(@NotNull File apk) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      final InputStream in = new FileInputStream(apk);
+      try {
+        final byte[] buffer = new byte[64 * 1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, count);
+        }
+      }
+      finally {
+        in.close();
+      }
+      final StringBuilder hash = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hash.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      LOG.error(e);
+      return null;
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  private static class FileHash {
+    final long myTimestamp;
+    final long myLength;
+    final String myHash;
+
+    FileHash(long timestamp, long length, @NotNull String hash) {
+      myTimestamp = timestamp;
+      myLength = length;
+      myHash = hash;
+    }
+  }
+}
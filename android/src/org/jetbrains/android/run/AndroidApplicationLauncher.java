@@ -40,6 +40,14 @@ public abstract class AndroidApplicationLauncher {
     return data.getDebuggerConnectionStatus() == ClientData.DebuggerStatus.WAITING;
   }
 
+  /**
+   * Returns whether the application may be launched on several devices at the same time, in which case the output
+   * printed with {@link AndroidRunningState#print} is kept apart for each device
+   */
+  public boolean canLaunchConcurrently() {
+    return true;
+  }
+
   public enum LaunchResult {
     SUCCESS, STOP, NOTHING_TO_DO
   }
@@ -325,7 +325,7 @@ public class AndroidRunConfiguration extends AndroidRunConfigurationBase impleme
       activityName = activityName.replace("$", "\\$");
       final String activityPath = state.getPackageName() + '/' + activityName;
       if (state.isStopped()) return LaunchResult.STOP;
-      processHandler.notifyTextAvailable("Launching application: " + activityPath + ".\n", STDOUT);
+      state.print("Launching application: " + activityPath + ".\n", STDOUT);
       AndroidRunningState.MyReceiver receiver = state.new MyReceiver();
       boolean debug = state.isDebugMode();
       while (true) {
@@ -346,7 +346,7 @@ public class AndroidRunConfiguration extends AndroidRunConfigurationBase impleme
         if (!deviceNotResponding && receiver.getErrorType() != 2) {
           break;
         }
-        processHandler.notifyTextAvailable("Device is not ready. Waiting for " + AndroidRunningState.WAITING_TIME + " sec.\n", STDOUT);
+        state.print("Device is not ready. Waiting for " + AndroidRunningState.WAITING_TIME + " sec.\n", STDOUT);
         synchronized (state.getRunningLock()) {
           try {
             state.getRunningLock().wait(AndroidRunningState.WAITING_TIME * 1000);
@@ -358,10 +358,10 @@ public class AndroidRunConfiguration extends AndroidRunConfigurationBase impleme
       }
       boolean success = receiver.getErrorType() == AndroidRunningState.NO_ERROR;
       if (success) {
-        processHandler.notifyTextAvailable(receiver.getOutput().toString(), STDOUT);
+        state.print(receiver.getOutput().toString(), STDOUT);
       }
       else {
-        processHandler.notifyTextAvailable(receiver.getOutput().toString(), STDERR);
+        state.print(receiver.getOutput().toString(), STDERR);
       }
       return success ? LaunchResult.SUCCESS : LaunchResult.STOP;
     }
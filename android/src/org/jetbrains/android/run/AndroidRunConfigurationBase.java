@@ -67,6 +67,9 @@ import java.util.List;
  */
 public abstract class AndroidRunConfigurationBase extends ModuleBasedConfiguration<JavaRunConfigurationModule> {
   private static final Logger LOG = Logger.getInstance("#org.jetbrains.android.run.AndroidRunConfigurationBase");
+
+  static final int DEFAULT_PARALLEL_DEPLOYMENTS = 4;
+  static final int MAX_PARALLEL_DEPLOYMENTS = 32;
   
   public String TARGET_SELECTION_MODE = TargetSelectionMode.EMULATOR.name();
   public String PREFERRED_AVD = "";
@@ -77,6 +80,7 @@ public abstract class AndroidRunConfigurationBase extends ModuleBasedConfigurati
   public String NETWORK_SPEED = "full";
   public String NETWORK_LATENCY = "none";
   public boolean CLEAR_LOGCAT = false;
+  public int PARALLEL_DEPLOYMENTS = DEFAULT_PARALLEL_DEPLOYMENTS;
 
   public AndroidRunConfigurationBase(final Project project, final ConfigurationFactory factory) {
     super(new JavaRunConfigurationModule(project, false), factory);
@@ -154,6 +158,11 @@ public abstract class AndroidRunConfigurationBase extends ModuleBasedConfigurati
     TARGET_SELECTION_MODE = mode.name();
   }
 
+  /** Returns the maximum number of devices deployed to at the same time when running on several devices */
+  public int getParallelDeployments() {
+    return Math.max(1, Math.min(PARALLEL_DEPLOYMENTS, MAX_PARALLEL_DEPLOYMENTS));
+  }
+
   @Override
   public AndroidRunningState getState(@NotNull final Executor executor, @NotNull ExecutionEnvironment env) throws ExecutionException {
     final Module module = getConfigurationModule().getModule();
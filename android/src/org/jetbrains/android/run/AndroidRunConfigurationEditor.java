@@ -61,6 +61,7 @@ public class AndroidRunConfigurationEditor<T extends AndroidRunConfigurationBase
   private JRadioButton myUsbDeviceRadioButton;
   private LabeledComponent<AvdComboBox> myAvdComboComponent;
   private JBLabel myMinSdkInfoMessageLabel;
+  private LabeledComponent<JSpinner> myParallelDeploymentsComponent;
   private JBCheckBox myUseAdditionalCommandLineOptionsCheckBox;
   private RawCommandLineEditor myCommandLineField;
   private AvdComboBox myAvdCombo;
@@ -117,6 +118,8 @@ public class AndroidRunConfigurationEditor<T extends AndroidRunConfigurationBase
     });
     myMinSdkInfoMessageLabel.setBorder(IdeBorderFactory.createEmptyBorder(10, 0, 0, 0));
     myMinSdkInfoMessageLabel.setIcon(AllIcons.General.BalloonWarning);
+    myParallelDeploymentsComponent.getComponent().setModel(
+      new SpinnerNumberModel(AndroidRunConfigurationBase.DEFAULT_PARALLEL_DEPLOYMENTS, 1, AndroidRunConfigurationBase.MAX_PARALLEL_DEPLOYMENTS, 1));
 
     Disposer.register(this, myAvdCombo);
 
@@ -245,6 +248,7 @@ public class AndroidRunConfigurationEditor<T extends AndroidRunConfigurationBase
     selectItemCaseInsensitively(myNetworkSpeedCombo, configuration.NETWORK_SPEED);
     selectItemCaseInsensitively(myNetworkLatencyCombo, configuration.NETWORK_LATENCY);
     myClearLogCheckBox.setSelected(configuration.CLEAR_LOGCAT);
+    myParallelDeploymentsComponent.getComponent().setValue(configuration.getParallelDeployments());
   }
 
   private static void selectItemCaseInsensitively(@NotNull JComboBox comboBox, @Nullable String item) {
@@ -286,6 +290,7 @@ public class AndroidRunConfigurationEditor<T extends AndroidRunConfigurationBase
     configuration.NETWORK_SPEED = ((String)myNetworkSpeedCombo.getSelectedItem()).toLowerCase();
     configuration.NETWORK_LATENCY = ((String)myNetworkLatencyCombo.getSelectedItem()).toLowerCase();
     configuration.CLEAR_LOGCAT = myClearLogCheckBox.isSelected();
+    configuration.PARALLEL_DEPLOYMENTS = (Integer)myParallelDeploymentsComponent.getComponent().getValue();
     if (myAvdComboComponent.isEnabled()) {
       JComboBox combo = myAvdCombo.getComboBox();
       String preferredAvd = (String)combo.getSelectedItem();
@@ -87,6 +87,9 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -141,7 +144,7 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
 
   private final ExecutionEnvironment myEnv;
 
-  private boolean myStopped;
+  private volatile boolean myStopped;
   private volatile ProcessHandler myProcessHandler;
   private final Object myLock = new Object();
 
@@ -157,6 +160,10 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
   private final List<AndroidRunningStateListener> myListeners = ContainerUtil.createLockFreeCopyOnWriteList();
   private final boolean myNonDebuggableOnDevice;
 
+  /** The output of the device deployed to by the current thread, set while deploying to several devices at once */
+  private final ThreadLocal<DeviceOutput> myDeviceOutput = new ThreadLocal<DeviceOutput>();
+  private final Object myOutputLock = new Object();
+
   public void setDebugMode(boolean debugMode) {
     myDebugMode = debugMode;
   }
@@ -340,6 +347,11 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
     return myLock;
   }
 
+  /** Held while printing the output for one device in one piece when deploying to several devices at once */
+  public Object getOutputLock() {
+    return myOutputLock;
+  }
+
   public String getPackageName() {
     return myPackageName;
   }
@@ -656,7 +668,23 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
   }
 
   private void message(@NotNull String message, @NotNull Key outputKey) {
-    getProcessHandler().notifyTextAvailable(message + '\n', outputKey);
+    print(message + '\n', outputKey);
+  }
+
+  /**
+   * Prints text to the run console. While deploying to several devices at once, the text is kept with the rest of
+   * the output for the device deployed to by the current thread and printed when that device is done.
+   */
+  public void print(@NotNull String text, @NotNull Key outputKey) {
+    DeviceOutput output = myDeviceOutput.get();
+    if (output != null) {
+      output.add(text, outputKey);
+    }
+    else {
+      synchronized (myOutputLock) {
+        getProcessHandler().notifyTextAvailable(text, outputKey);
+      }
+    }
   }
 
   @Override
@@ -734,8 +762,17 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
   @Nullable
   private MyDeviceChangeListener prepareAndStartAppWhenDeviceIsOnline() {
     if (myTargetDevices.length > 0) {
+      List<IDevice> onlineDevices = new ArrayList<IDevice>();
       for (IDevice targetDevice : myTargetDevices) {
         if (targetDevice.isOnline()) {
+          onlineDevices.add(targetDevice);
+        }
+      }
+      if (onlineDevices.size() > 1 && myConfiguration.getParallelDeployments() > 1 && canDeployConcurrently()) {
+        prepareAndStartAppConcurrently(onlineDevices);
+      }
+      else {
+        for (IDevice targetDevice : onlineDevices) {
           if (!prepareAndStartApp(targetDevice) && !myStopped) {
             // todo: check: it may be we don't need to assign it directly
             myStopped = true;
@@ -754,6 +791,94 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
     return deviceListener;
   }
 
+  /**
+   * Devices are deployed to concurrently only when not debugging, since a debug session attaches to a single process,
+   * and when the launcher supports it.
+   */
+  private boolean canDeployConcurrently() {
+    return !myDebugMode && myApplicationLauncher.canLaunchConcurrently();
+  }
+
+  /**
+   * Deploys to and starts the application on the given devices, at most
+   * {@link AndroidRunConfigurationBase#getParallelDeployments()} at a time.
+   * A failure on one device doesn't stop the others. The output for each device is printed in one piece once the
+   * device is done, so that it doesn't interleave with the output for the other devices.
+   */
+  private void prepareAndStartAppConcurrently(@NotNull List<IDevice> devices) {
+    final Queue<IDevice> queue = new ConcurrentLinkedQueue<IDevice>(devices);
+    final List<IDevice> failedDevices = Collections.synchronizedList(new ArrayList<IDevice>());
+    final AtomicInteger finishedCount = new AtomicInteger();
+    final int deviceCount = devices.size();
+    final int workerCount = Math.min(myConfiguration.getParallelDeployments(), deviceCount);
+
+    message("Deploying to " + deviceCount + " devices, " + workerCount + " at a time", STDOUT);
+
+    final Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        IDevice device;
+        while (!myStopped && (device = queue.poll()) != null) {
+          final String deviceName = getDevicePresentableName(device);
+          message("Deploying to " + deviceName, STDOUT);
+
+          final DeviceOutput output = new DeviceOutput();
+          boolean success = false;
+          myDeviceOutput.set(output);
+          try {
+            success = prepareAndStartApp(device);
+          }
+          catch (RuntimeException e) {
+            LOG.error(e);
+          }
+          finally {
+            myDeviceOutput.remove();
+          }
+          if (!success) {
+            failedDevices.add(device);
+          }
+          final int finished = finishedCount.incrementAndGet();
+
+          synchronized (myOutputLock) {
+            output.flush(getProcessHandler());
+            message((success ? "Done with " : "Failed on ") + deviceName +
+                    " (" + finished + " of " + deviceCount + " devices finished)", success ? STDOUT : STDERR);
+          }
+        }
+      }
+    };
+    final List<Future<?>> futures = new ArrayList<Future<?>>(workerCount);
+
+    for (int i = 0; i < workerCount; i++) {
+      futures.add(ApplicationManager.getApplication().executeOnPooledThread(worker));
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        LOG.info(e);
+        return;
+      }
+      catch (java.util.concurrent.ExecutionException e) {
+        LOG.error(e.getCause());
+      }
+    }
+
+    if (!failedDevices.isEmpty() && !myStopped) {
+      final StringBuilder builder = new StringBuilder();
+      builder.append("Failed on ").append(failedDevices.size()).append(" of ").append(deviceCount).append(" devices: ");
+      for (Iterator<IDevice> it = failedDevices.iterator(); it.hasNext(); ) {
+        builder.append(it.next().getSerialNumber());
+        if (it.hasNext()) {
+          builder.append(", ");
+        }
+      }
+      message(builder.toString(), STDERR);
+    }
+  }
+
   public synchronized void setProcessHandler(ProcessHandler processHandler) {
     myProcessHandler = processHandler;
   }
@@ -1027,12 +1152,57 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
 
   private boolean uploadAndInstallApk(@NotNull IDevice device, @NotNull String packageName, @NotNull String localPath)
     throws IOException, AdbCommandRejectedException, TimeoutException {
+    AndroidApkDeployCache deployCache = AndroidApkDeployCache.getInstance();
+    String apkHash = deployCache.getApkHash(new File(localPath));
+    String installStamp = apkHash != null ? deployCache.getInstallStamp(device, packageName, apkHash) : null;
+    if (installStamp != null && installStamp.equals(getInstallStamp(device, packageName))) {
+      message("APK for " + packageName + " has not changed since the last install, skipping upload and install", STDOUT);
+      // "pm install -r" would have stopped the running application, so do the same to launch it afresh
+      forceStopPackage(device, packageName);
+      return true;
+    }
+    deployCache.invalidate(device, packageName);
+
     String remotePath = "/data/local/tmp/" + packageName;
     if (!uploadApp(device, remotePath, localPath)) return false;
     if (!installApp(device, remotePath, packageName)) return false;
+    if (apkHash != null) {
+      installStamp = getInstallStamp(device, packageName);
+      if (installStamp != null) {
+        deployCache.installed(device, packageName, apkHash, installStamp);
+      }
+    }
     return true;
   }
 
+  /**
+   * Returns the version code and last update time the device reports for the package, or null if it
+   * is not installed or they cannot be determined
+   */
+  @Nullable
+  private String getInstallStamp(@NotNull IDevice device, @NotNull String packageName)
+    throws IOException, AdbCommandRejectedException, TimeoutException {
+    MyReceiver receiver = new MyReceiver();
+    try {
+      AndroidUtils.executeCommandOnDevice(device, "dumpsys package " + packageName, receiver, false);
+    }
+    catch (ShellCommandUnresponsiveException e) {
+      LOG.info(e);
+      return null;
+    }
+    return AndroidApkDeployCache.getInstallStamp(packageName, receiver.output.toString());
+  }
+
+  private void forceStopPackage(@NotNull IDevice device, @NotNull String packageName)
+    throws IOException, AdbCommandRejectedException, TimeoutException {
+    try {
+      executeDeviceCommandAndWriteToConsole(device, "am force-stop " + packageName, new MyReceiver());
+    }
+    catch (ShellCommandUnresponsiveException e) {
+      LOG.info(e);
+    }
+  }
+
   private class MyISyncProgressMonitor implements SyncService.ISyncProgressMonitor {
     @Override
     public void start(int totalWork) {
@@ -1141,6 +1311,22 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
     return success;
   }
 
+  /** The console output for one device, printed in one piece once deploying to it is done */
+  private static class DeviceOutput {
+    private final List<Pair<String, Key>> myChunks = new ArrayList<Pair<String, Key>>();
+
+    public void add(@NotNull String text, @NotNull Key outputKey) {
+      myChunks.add(Pair.create(text, outputKey));
+    }
+
+    public void flush(@NotNull ProcessHandler processHandler) {
+      for (Pair<String, Key> chunk : myChunks) {
+        processHandler.notifyTextAvailable(chunk.first, chunk.second);
+      }
+      myChunks.clear();
+    }
+  }
+
   public void addListener(@NotNull AndroidRunningStateListener listener) {
     myListeners.add(listener);
   }
@@ -1167,6 +1353,8 @@ public class AndroidRunningState implements RunProfileState, AndroidDebugBridge.
 
     @Override
     public void deviceDisconnected(IDevice device) {
+      // The device may come back wiped or with different applications installed
+      AndroidApkDeployCache.getInstance().invalidate(device);
       if (isMyDevice(device)) {
         message("Device disconnected: " + device.getSerialNumber(), STDOUT);
       }
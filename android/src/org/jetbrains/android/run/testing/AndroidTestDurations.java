@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.run.testing;
+
+import com.intellij.openapi.components.*;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Remembers how long each instrumentation test took the last time it ran, such that sharded test runs can give each
+ * device about the same amount of work. Durations are keyed by the test class name and the test name, separated by '#'.
+ */
+@State(
+  name = "AndroidTestDurations",
+  storages = {@Storage(
+    file = StoragePathMacros.WORKSPACE_FILE)})
+public class AndroidTestDurations implements PersistentStateComponent<AndroidTestDurations.State> {
+  private State myState = new State();
+
+  public static AndroidTestDurations getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, AndroidTestDurations.class);
+  }
+
+  @NotNull
+  static String createKey(@NotNull String className, @NotNull String testName) {
+    return className + '#' + testName;
+  }
+
+  /**
+   * Records the durations of the tests of a run. The durations previously recorded for the classes the tests belong
+   * to are dropped, so tests which have been removed from a class are forgotten once the class runs again.
+   */
+  public synchronized void record(@NotNull Map<String, Long> durations) {
+    final Set<String> classNames = new HashSet<String>();
+    for (String key : durations.keySet()) {
+      classNames.add(getClassName(key));
+    }
+    for (Iterator<String> it = myState.DURATIONS.keySet().iterator(); it.hasNext(); ) {
+      if (classNames.contains(getClassName(it.next()))) {
+        it.remove();
+      }
+    }
+    myState.DURATIONS.putAll(durations);
+  }
+
+  /** Returns the total duration of the recorded tests of each of the given classes which have any */
+  @NotNull
+  public synchronized Map<String, Long> getClassDurations(@NotNull Collection<String> classNames) {
+    final Set<String> classNameSet = new HashSet<String>(classNames);
+    final Map<String, Long> result = new HashMap<String, Long>();
+
+    for (Map.Entry<String, Long> entry : myState.DURATIONS.entrySet()) {
+      final String className = getClassName(entry.getKey());
+
+      if (classNameSet.contains(className)) {
+        final Long total = result.get(className);
+        result.put(className, (total != null ? total : 0) + entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String getClassName(@NotNull String key) {
+    final int index = key.indexOf('#');
+    return index >= 0 ? key.substring(0, index) : key;
+  }
+
+  @Override
+  public synchronized State getState() {
+    final State state = new State();
+    state.DURATIONS.putAll(myState.DURATIONS);
+    return state;
+  }
+
+  @Override
+  public synchronized void loadState(State state) {
+    myState = state;
+  }
+
+  public static class State {
+    public Map<String, Long> DURATIONS = new HashMap<String, Long>();
+  }
+}
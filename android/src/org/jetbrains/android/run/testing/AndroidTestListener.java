@@ -22,8 +22,12 @@ import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.execution.testframework.sm.ServiceMessageBuilder;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Key;
 import org.jetbrains.android.run.AndroidRunningState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -34,7 +38,17 @@ public class AndroidTestListener implements ITestRunListener {
   private long myTestStartingTime;
   private long myTestSuiteStartingTime;
   private String myTestClassName = null;
+  private TestIdentifier myRunningTest;
   private ProcessHandler myProcessHandler;
+  private final Map<String, Long> myDurations = new HashMap<String, Long>();
+
+  /**
+   * The device name when this listener reports one shard of a run sharded across devices, null otherwise. The
+   * messages for each test class are then printed in one piece, since the shards report to the same test tree at
+   * the same time, and the process is left running until all shards are done.
+   */
+  private final String myShardDeviceName;
+  private final StringBuilder mySuiteOutput = new StringBuilder();
 
   public ProcessHandler getProcessHandler() {
     if (myProcessHandler == null) {
@@ -44,14 +58,21 @@ public class AndroidTestListener implements ITestRunListener {
   }
 
   public AndroidTestListener(AndroidRunningState runningState) {
+    this(runningState, null);
+  }
+
+  public AndroidTestListener(AndroidRunningState runningState, @Nullable String shardDeviceName) {
     myRunningState = runningState;
+    myShardDeviceName = shardDeviceName;
   }
 
   @Override
   public void testRunStopped(long elapsedTime) {
-    ProcessHandler handler = getProcessHandler();
-    handler.notifyTextAvailable("Test running stopped\n", ProcessOutputTypes.STDOUT);
-    handler.destroyProcess();
+    finishShardedRun();
+    print("Test running stopped" + getShardSuffix() + '\n', ProcessOutputTypes.STDOUT);
+    if (myShardDeviceName == null) {
+      getProcessHandler().destroyProcess();
+    }
   }
 
   @Override
@@ -59,18 +80,22 @@ public class AndroidTestListener implements ITestRunListener {
     if (myTestClassName != null) {
       testSuiteFinished();
     }
-    final ProcessHandler handler = getProcessHandler();
-    handler.notifyTextAvailable("Finish\n", ProcessOutputTypes.STDOUT);
-    handler.destroyProcess();
+    recordDurations();
+    print("Finish" + getShardSuffix() + '\n', ProcessOutputTypes.STDOUT);
+    if (myShardDeviceName == null) {
+      getProcessHandler().destroyProcess();
+    }
   }
 
   @Override
   public void testRunStarted(String runName, int testCount) {
-    ProcessHandler handler = getProcessHandler();
-    handler.notifyTextAvailable("Test running started\n", ProcessOutputTypes.STDOUT);
+    print("Test running started" + getShardSuffix() + '\n', ProcessOutputTypes.STDOUT);
 
-    final ServiceMessageBuilder builder = new ServiceMessageBuilder("enteredTheMatrix");
-    handler.notifyTextAvailable(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    if (myShardDeviceName == null) {
+      // For sharded runs, the launcher enters the matrix once for all shards
+      final ServiceMessageBuilder builder = new ServiceMessageBuilder("enteredTheMatrix");
+      print(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    }
   }
 
   @Override
@@ -87,7 +112,8 @@ public class AndroidTestListener implements ITestRunListener {
     builder
       .addAttribute("locationHint",
                     "android://" + myRunningState.getModule() + ':' + test.getClassName() + '.' + test.getTestName() + "()");
-    getProcessHandler().notifyTextAvailable(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    printServiceMessage(builder);
+    myRunningTest = test;
     myTestStartingTime = System.currentTimeMillis();
   }
 
@@ -96,15 +122,22 @@ public class AndroidTestListener implements ITestRunListener {
     ServiceMessageBuilder builder = new ServiceMessageBuilder("testSuiteStarted");
     builder.addAttribute("name", myTestClassName);
     builder.addAttribute("locationHint", "android://" + myRunningState.getModule() + ':' + myTestClassName);
-    getProcessHandler().notifyTextAvailable(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    printServiceMessage(builder);
   }
 
   private void testSuiteFinished() {
     ServiceMessageBuilder builder = new ServiceMessageBuilder("testSuiteFinished");
     builder.addAttribute("name", myTestClassName);
     builder.addAttribute("duration", Long.toString(System.currentTimeMillis() - myTestSuiteStartingTime));
-    getProcessHandler().notifyTextAvailable(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    printServiceMessage(builder);
     myTestClassName = null;
+
+    if (mySuiteOutput.length() > 0) {
+      synchronized (myRunningState.getOutputLock()) {
+        getProcessHandler().notifyTextAvailable(mySuiteOutput.toString(), ProcessOutputTypes.STDOUT);
+      }
+      mySuiteOutput.setLength(0);
+    }
   }
 
   @Override
@@ -116,21 +149,71 @@ public class AndroidTestListener implements ITestRunListener {
     if (status == TestFailure.ERROR) {
       builder.addAttribute("error", "true");
     }
-    getProcessHandler().notifyTextAvailable(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    printServiceMessage(builder);
   }
 
   @Override
   public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+    final long duration = System.currentTimeMillis() - myTestStartingTime;
     ServiceMessageBuilder builder = new ServiceMessageBuilder("testFinished");
     builder.addAttribute("name", test.getTestName());
-    builder.addAttribute("duration", Long.toString(System.currentTimeMillis() - myTestStartingTime));
-    getProcessHandler().notifyTextAvailable(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    builder.addAttribute("duration", Long.toString(duration));
+    printServiceMessage(builder);
+    myRunningTest = null;
+    myDurations.put(AndroidTestDurations.createKey(test.getClassName(), test.getTestName()), duration);
   }
 
   @Override
   public void testRunFailed(String errorMessage) {
-    ProcessHandler handler = getProcessHandler();
-    handler.notifyTextAvailable("Test running failed: " + errorMessage + "\n", ProcessOutputTypes.STDERR);
-    handler.destroyProcess();
+    if (myShardDeviceName != null && myRunningTest != null) {
+      // Other shards keep reporting to the test tree, so the test which was running must be closed
+      testFailed(TestFailure.ERROR, myRunningTest, errorMessage);
+      testEnded(myRunningTest, new HashMap<String, String>());
+    }
+    finishShardedRun();
+    print("Test running failed" + getShardSuffix() + ": " + errorMessage + "\n", ProcessOutputTypes.STDERR);
+    if (myShardDeviceName == null) {
+      getProcessHandler().destroyProcess();
+    }
+  }
+
+  /** Closes the test class which was running when a shard stopped, before other shards report their classes */
+  private void finishShardedRun() {
+    if (myShardDeviceName != null && myTestClassName != null) {
+      testSuiteFinished();
+    }
+    recordDurations();
+  }
+
+  private void recordDurations() {
+    if (!myDurations.isEmpty()) {
+      AndroidTestDurations.getInstance(myRunningState.getModule().getProject()).record(myDurations);
+      myDurations.clear();
+    }
+  }
+
+  @NotNull
+  private String getShardSuffix() {
+    return myShardDeviceName != null ? " on " + myShardDeviceName : "";
+  }
+
+  private void printServiceMessage(@NotNull ServiceMessageBuilder builder) {
+    if (myShardDeviceName != null && myTestClassName != null) {
+      mySuiteOutput.append(builder.toString()).append('\n');
+    }
+    else {
+      print(builder.toString() + '\n', ProcessOutputTypes.STDOUT);
+    }
+  }
+
+  private void print(@NotNull String text, @NotNull Key outputType) {
+    if (myShardDeviceName != null) {
+      synchronized (myRunningState.getOutputLock()) {
+        getProcessHandler().notifyTextAvailable(text, outputType);
+      }
+    }
+    else {
+      getProcessHandler().notifyTextAvailable(text, outputType);
+    }
   }
 }
@@ -28,11 +28,14 @@ import com.intellij.codeInsight.AnnotationUtil;
 import com.intellij.execution.*;
 import com.intellij.execution.configurations.*;
 import com.intellij.execution.junit.JUnitUtil;
+import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.execution.testframework.sm.SMTestRunnerConnectionUtil;
+import com.intellij.execution.testframework.sm.ServiceMessageBuilder;
 import com.intellij.execution.testframework.ui.BaseTestsOutputConsoleView;
 import com.intellij.execution.ui.ConsoleView;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.options.SettingsEditor;
@@ -40,12 +43,15 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootManager;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.Pair;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.PsiPackage;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.android.dom.manifest.Instrumentation;
 import org.jetbrains.android.dom.manifest.Manifest;
 import org.jetbrains.android.facet.AndroidFacet;
@@ -59,6 +65,11 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * User: Eugene.Kudelevsky
@@ -73,6 +84,12 @@ public class AndroidTestRunConfiguration extends AndroidRunConfigurationBase {
   public static final int TEST_CLASS = 2;
   public static final int TEST_METHOD = 3;
 
+  /**
+   * The maximum length of the comma separated class names passed to the instrumentation at once when sharding,
+   * staying well below the length of the shell command line adb accepts
+   */
+  private static final int MAX_CLASS_LIST_LENGTH = 800;
+
   public int TESTING_TYPE = TEST_ALL_IN_MODULE;
   public String INSTRUMENTATION_RUNNER_CLASS = "";
 
@@ -80,6 +97,9 @@ public class AndroidTestRunConfiguration extends AndroidRunConfigurationBase {
   public String CLASS_NAME = "";
   public String PACKAGE_NAME = "";
 
+  /** Whether to split the tests of the module or package across the selected devices */
+  public boolean SHARD_ACROSS_DEVICES = false;
+
   public AndroidTestRunConfiguration(final Project project, final ConfigurationFactory factory) {
     super(project, factory);
   }
@@ -292,13 +312,17 @@ public class AndroidTestRunConfiguration extends AndroidRunConfigurationBase {
 
   @Override
   protected boolean supportMultipleDevices() {
-    return false;
+    return isSharded();
+  }
+
+  private boolean isSharded() {
+    return SHARD_ACROSS_DEVICES && (TESTING_TYPE == TEST_ALL_IN_MODULE || TESTING_TYPE == TEST_ALL_IN_PACKAGE);
   }
 
   @Override
   protected AndroidApplicationLauncher getApplicationLauncher(AndroidFacet facet) {
     String runner = INSTRUMENTATION_RUNNER_CLASS.length() > 0 ? INSTRUMENTATION_RUNNER_CLASS : getRunnerFromManifest(facet);
-    return new MyApplicationLauncher(runner);
+    return new MyApplicationLauncher(runner, isSharded());
   }
 
   @Nullable
@@ -317,16 +341,60 @@ public class AndroidTestRunConfiguration extends AndroidRunConfigurationBase {
     return null;
   }
 
+  /**
+   * Finds the test classes in the given package of the module and its subpackages
+   */
+  @NotNull
+  private static List<String> findTestClasses(@NotNull Module module, @NotNull String packageName) {
+    final List<String> result = new ArrayList<String>();
+    final PsiPackage psiPackage = JavaPsiFacade.getInstance(module.getProject()).findPackage(packageName);
+
+    if (psiPackage != null) {
+      collectTestClasses(psiPackage, GlobalSearchScope.moduleScope(module), result);
+    }
+    return result;
+  }
+
+  private static void collectTestClasses(@NotNull PsiPackage psiPackage, @NotNull GlobalSearchScope scope, @NotNull List<String> result) {
+    for (PsiClass psiClass : psiPackage.getClasses(scope)) {
+      final String qualifiedName = psiClass.getQualifiedName();
+
+      if (qualifiedName != null && JUnitUtil.isTestClass(psiClass)) {
+        result.add(qualifiedName);
+      }
+    }
+
+    for (PsiPackage subPackage : psiPackage.getSubPackages(scope)) {
+      collectTestClasses(subPackage, scope, result);
+    }
+  }
+
   private class MyApplicationLauncher extends AndroidApplicationLauncher {
     private final String myInstrumentationTestRunner;
+    private final boolean mySharded;
+
+    /** The shards not yet taken by a device, computed when the first device is ready, null if not sharding */
+    private Queue<List<String>> myShards;
+    private boolean myShardsComputed;
 
-    private MyApplicationLauncher(String instrumentationTestRunner) {
+    private MyApplicationLauncher(String instrumentationTestRunner, boolean sharded) {
       this.myInstrumentationTestRunner = instrumentationTestRunner;
+      mySharded = sharded;
+    }
+
+    @Override
+    public boolean canLaunchConcurrently() {
+      return mySharded;
     }
 
     @Override
     public LaunchResult launch(@NotNull AndroidRunningState state, @NotNull IDevice device)
       throws IOException, AdbCommandRejectedException, TimeoutException {
+      final Queue<List<String>> shards = mySharded ? getShards(state) : null;
+      if (shards != null) {
+        return launchShards(state, device, shards);
+      }
+
       state.getProcessHandler().notifyTextAvailable("Running tests\n", ProcessOutputTypes.STDOUT);
       RemoteAndroidTestRunner runner = new RemoteAndroidTestRunner(state.getTestPackageName(), myInstrumentationTestRunner, device);
       switch (TESTING_TYPE) {
@@ -350,5 +418,79 @@ public class AndroidTestRunConfiguration extends AndroidRunConfigurationBase {
       }
       return LaunchResult.SUCCESS;
     }
+
+    /**
+     * Returns the shards to run, one per online device, or null if there aren't several devices to shard across.
+     * Devices take shards until none is left, so the shard of a device which failed to deploy is run by another one.
+     */
+    @Nullable
+    private synchronized Queue<List<String>> getShards(@NotNull AndroidRunningState state) {
+      if (myShardsComputed) {
+        return myShards;
+      }
+      myShardsComputed = true;
+
+      int deviceCount = 0;
+      for (IDevice device : state.getDevices()) {
+        if (device.isOnline()) {
+          deviceCount++;
+        }
+      }
+      if (deviceCount < 2) {
+        return null;
+      }
+      final Module module = state.getModule();
+      final String packageName = TESTING_TYPE == TEST_ALL_IN_PACKAGE ? PACKAGE_NAME : "";
+      final List<String> classNames = ApplicationManager.getApplication().runReadAction(new Computable<List<String>>() {
+        @Override
+        public List<String> compute() {
+          return findTestClasses(module, packageName);
+        }
+      });
+      final Map<String, Long> durations = AndroidTestDurations.getInstance(module.getProject()).getClassDurations(classNames);
+      final List<List<String>> shards = AndroidTestShards.distribute(classNames, durations, deviceCount);
+
+      synchronized (state.getOutputLock()) {
+        final ProcessHandler handler = state.getProcessHandler();
+        handler.notifyTextAvailable("Running " + classNames.size() + " test classes in " + shards.size() + " shards\n",
+                                    ProcessOutputTypes.STDOUT);
+        handler.notifyTextAvailable(new ServiceMessageBuilder("enteredTheMatrix").toString() + '\n', ProcessOutputTypes.STDOUT);
+      }
+      myShards = new ConcurrentLinkedQueue<List<String>>(shards);
+      return myShards;
+    }
+
+    @NotNull
+    private LaunchResult launchShards(@NotNull AndroidRunningState state, @NotNull IDevice device, @NotNull Queue<List<String>> shards)
+      throws IOException, AdbCommandRejectedException, TimeoutException {
+      final String deviceName = device.getSerialNumber();
+      boolean launched = false;
+      List<String> shard;
+
+      while (!state.isStopped() && (shard = shards.poll()) != null) {
+        launched = true;
+        state.print("Running " + shard.size() + " test classes\n", ProcessOutputTypes.STDOUT);
+
+        for (List<String> batch : AndroidTestShards.splitIntoBatches(shard, MAX_CLASS_LIST_LENGTH)) {
+          if (state.isStopped()) {
+            return LaunchResult.STOP;
+          }
+          RemoteAndroidTestRunner runner = new RemoteAndroidTestRunner(state.getTestPackageName(), myInstrumentationTestRunner, device);
+          runner.setClassNames(ArrayUtil.toStringArray(batch));
+          try {
+            runner.run(new AndroidTestListener(state, deviceName));
+          }
+          catch (ShellCommandUnresponsiveException e) {
+            LOG.info(e);
+            state.print("Error: time out\n", ProcessOutputTypes.STDERR);
+          }
+        }
+      }
+      if (!launched) {
+        state.print("No tests left to run\n", ProcessOutputTypes.STDOUT);
+        return LaunchResult.NOTHING_TO_DO;
+      }
+      return LaunchResult.SUCCESS;
+    }
   }
 }
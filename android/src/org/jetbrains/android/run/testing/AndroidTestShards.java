@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.run.testing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Splits test classes into shards which take about the same time to run, one shard per device.
+ */
+class AndroidTestShards {
+  /** The duration assumed for each class when no durations were recorded at all */
+  private static final long DEFAULT_CLASS_DURATION = 1000;
+
+  private AndroidTestShards() {
+  }
+
+  /**
+   * Distributes the given classes over the given number of shards, longest class first, each to the shard which has
+   * the least work so far. Classes without a recorded duration are assumed to take as long as the average class.
+   * Shards which get no classes are left out.
+   *
+   * @param classNames the qualified names of the test classes
+   * @param durations  the recorded duration of each class, in milliseconds
+   */
+  @NotNull
+  static List<List<String>> distribute(@NotNull Collection<String> classNames,
+                                       @NotNull final Map<String, Long> durations,
+                                       int shardCount) {
+    final long defaultDuration = getAverageDuration(classNames, durations);
+    final List<String> sortedClassNames = new ArrayList<String>(classNames);
+
+    Collections.sort(sortedClassNames, new Comparator<String>() {
+      @Override
+      public int compare(String s1, String s2) {
+        final long d1 = getDuration(s1, durations, defaultDuration);
+        final long d2 = getDuration(s2, durations, defaultDuration);
+
+        if (d1 != d2) {
+          return d1 > d2 ? -1 : 1;
+        }
+        return s1.compareTo(s2);
+      }
+    });
+    final List<List<String>> shards = new ArrayList<List<String>>(shardCount);
+    final long[] loads = new long[shardCount];
+
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new ArrayList<String>());
+    }
+
+    for (String className : sortedClassNames) {
+      int lightest = 0;
+      for (int i = 1; i < shardCount; i++) {
+        if (loads[i] < loads[lightest]) {
+          lightest = i;
+        }
+      }
+      shards.get(lightest).add(className);
+      loads[lightest] += getDuration(className, durations, defaultDuration);
+    }
+
+    for (Iterator<List<String>> it = shards.iterator(); it.hasNext(); ) {
+      if (it.next().isEmpty()) {
+        it.remove();
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * Splits the classes of a shard into batches whose comma separated names are at most {@code maxLength} characters
+   * long, since the classes are passed to the instrumentation on the shell command line, whose length adb limits
+   */
+  @NotNull
+  static List<List<String>> splitIntoBatches(@NotNull List<String> classNames, int maxLength) {
+    final List<List<String>> batches = new ArrayList<List<String>>();
+    List<String> batch = new ArrayList<String>();
+    int length = 0;
+
+    for (String className : classNames) {
+      final int newLength = batch.isEmpty() ? className.length() : length + 1 + className.length();
+
+      if (newLength > maxLength && !batch.isEmpty()) {
+        batches.add(batch);
+        batch = new ArrayList<String>();
+        length = className.length();
+      }
+      else {
+        length = newLength;
+      }
+      batch.add(className);
+    }
+
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  private static long getAverageDuration(@NotNull Collection<String> classNames, @NotNull Map<String, Long> durations) {
+    long total = 0;
+    int count = 0;
+
+    for (String className : classNames) {
+      final Long duration = durations.get(className);
+      if (duration != null) {
+        total += duration;
+        count++;
+      }
+    }
+    return count > 0 ? Math.max(1, total / count) : DEFAULT_CLASS_DURATION;
+  }
+
+  private static long getDuration(@NotNull String className, @NotNull Map<String, Long> durations, long defaultDuration) {
+    final Long duration = durations.get(className);
+    return duration != null ? duration : defaultDuration;
+  }
+}
@@ -64,6 +64,7 @@ class TestRunParameters implements ConfigurationSpecificEditor<AndroidTestRunCon
   private JPanel myPanel;
   private LabeledComponent<EditorTextFieldWithBrowseButton> myRunnerComponent;
   private JBLabel myLabelTest;
+  private JCheckBox myShardCheckBox;
   private final JRadioButton[] myTestingType2RadioButton = new JRadioButton[4];
 
   private final Project myProject;
@@ -140,6 +141,7 @@ class TestRunParameters implements ConfigurationSpecificEditor<AndroidTestRunCon
     myPackageComponent.setVisible(type == TEST_ALL_IN_PACKAGE);
     myClassComponent.setVisible(type == TEST_CLASS || type == TEST_METHOD);
     myMethodComponent.setVisible(type == TEST_METHOD);
+    myShardCheckBox.setEnabled(type == TEST_ALL_IN_MODULE || type == TEST_ALL_IN_PACKAGE);
   }
 
   private class MyPackageBrowser extends BrowseModuleValueActionListener {
@@ -210,6 +212,7 @@ class TestRunParameters implements ConfigurationSpecificEditor<AndroidTestRunCon
     configuration.METHOD_NAME = myMethodComponent.getComponent().getText();
     configuration.PACKAGE_NAME = myPackageComponent.getComponent().getText();
     configuration.INSTRUMENTATION_RUNNER_CLASS = myRunnerComponent.getComponent().getText();
+    configuration.SHARD_ACROSS_DEVICES = myShardCheckBox.isSelected();
   }
 
   @Override
@@ -219,6 +222,7 @@ class TestRunParameters implements ConfigurationSpecificEditor<AndroidTestRunCon
     myClassComponent.getComponent().setText(configuration.CLASS_NAME);
     myMethodComponent.getComponent().setText(configuration.METHOD_NAME);
     myRunnerComponent.getComponent().setText(configuration.INSTRUMENTATION_RUNNER_CLASS);
+    myShardCheckBox.setSelected(configuration.SHARD_ACROSS_DEVICES);
   }
 
   @Override
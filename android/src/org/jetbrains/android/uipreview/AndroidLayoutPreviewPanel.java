@@ -339,6 +339,9 @@ public class AndroidLayoutPreviewPanel extends JPanel implements Disposable {
 
   public void setRenderResult(@NotNull final RenderResult renderResult, @Nullable final TextEditor editor) {
     double prevScale = myRenderResult != null && myRenderResult.getImage() != null ? myRenderResult.getImage().getScale() : 1;
+    if (myRenderResult != null && myRenderResult != renderResult) {
+      myRenderResult.dispose();
+    }
     myRenderResult = renderResult;
     ScalableImage image = myRenderResult.getImage();
     if (image != null) {
@@ -545,6 +548,10 @@ public class AndroidLayoutPreviewPanel extends JPanel implements Disposable {
     }
     myErrorPanel.dispose();
     myErrorPanel = null;
+    if (myRenderResult != null) {
+      myRenderResult.dispose();
+      myRenderResult = null;
+    }
   }
 
   // RenderContext helpers
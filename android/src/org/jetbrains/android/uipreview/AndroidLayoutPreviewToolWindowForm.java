@@ -20,6 +20,7 @@ import com.android.tools.idea.configurations.*;
 import com.android.tools.idea.gradle.IdeaAndroidProject;
 import com.android.tools.idea.gradle.variant.view.BuildVariantView;
 import com.android.tools.idea.rendering.ProjectResources;
+import com.android.tools.idea.rendering.RenderSessionCache;
 import com.android.tools.idea.rendering.SaveScreenshotAction;
 import com.android.tools.idea.rendering.ScalableImage;
 import com.android.tools.idea.rendering.multi.RenderPreviewManager;
@@ -126,6 +127,12 @@ public class AndroidLayoutPreviewToolWindowForm implements Disposable, Configura
         myToolWindowManager.render();
       }
     }).setAsSecondary(true);
+    final DefaultActionGroup renderWorkersGroup = new DefaultActionGroup("Concurrent Preview Renders", true);
+    renderWorkersGroup.add(new PreviewRenderWorkersAction("One per Processor", 0));
+    for (int workers : new int[]{1, 2, 4, 8}) {
+      renderWorkersGroup.add(new PreviewRenderWorkersAction(Integer.toString(workers), workers));
+    }
+    optionsGroup.addAction(renderWorkersGroup).setAsSecondary(true);
 
     final JComponent toolbar = myActionToolBar.getComponent();
     final JPanel toolBarWrapper = new JPanel(new BorderLayout());
@@ -494,6 +501,28 @@ public class AndroidLayoutPreviewToolWindowForm implements Disposable, Configura
     }
   }
 
+  /** Selects the maximum number of configuration previews to render concurrently */
+  private class PreviewRenderWorkersAction extends ToggleAction {
+    private final int myWorkers;
+
+    PreviewRenderWorkersAction(@NotNull String text, int workers) {
+      super(text);
+      myWorkers = workers;
+    }
+
+    @Override
+    public boolean isSelected(AnActionEvent e) {
+      return mySettings.getGlobalState().getPreviewRenderWorkers() == myWorkers;
+    }
+
+    @Override
+    public void setSelected(AnActionEvent e, boolean state) {
+      if (state) {
+        mySettings.getGlobalState().setPreviewRenderWorkers(myWorkers);
+      }
+    }
+  }
+
   private class RefreshAction extends AnAction {
     RefreshAction() {
       super(AndroidBundle.message("android.layout.preview.refresh.action.text"), null, AllIcons.Actions.Refresh);
@@ -501,6 +530,11 @@ public class AndroidLayoutPreviewToolWindowForm implements Disposable, Configura
 
     @Override
     public void actionPerformed(AnActionEvent e) {
+      Configuration configuration = getConfiguration();
+      if (configuration != null) {
+        // Explicit refresh: don't reuse any sessions or layout library caches
+        RenderSessionCache.get(configuration.getModule()).invalidate();
+      }
       myToolWindowManager.render();
     }
   }
@@ -426,6 +426,7 @@ public class AndroidLayoutPreviewToolWindowManager implements ProjectComponent {
     }
 
     if (!getRenderingQueue().isEmpty()) {
+      result.dispose();
       return;
     }
 
@@ -434,6 +435,7 @@ public class AndroidLayoutPreviewToolWindowManager implements ProjectComponent {
       @Override
       public void run() {
         if (!myToolWindowReady || myToolWindowDisposed) {
+          renderResult.dispose();
           return;
         }
         final TextEditor editor = getActiveLayoutXmlEditor(); // Must be run from read thread
@@ -69,6 +69,7 @@ public class AndroidLayoutPreviewToolWindowSettings implements PersistentStateCo
     private boolean myHideForNonLayoutFiles = true;
     private boolean myShowDeviceFrames = true;
     private boolean myShowEffects = true;
+    private int myPreviewRenderWorkers;
 
     public boolean isVisible() {
       return myVisible;
@@ -101,5 +102,14 @@ public class AndroidLayoutPreviewToolWindowSettings implements PersistentStateCo
     public void setShowEffects(boolean showEffects) {
       myShowEffects = showEffects;
     }
+
+    /** Returns the maximum number of configuration previews to render concurrently, or 0 for one per processor */
+    public int getPreviewRenderWorkers() {
+      return myPreviewRenderWorkers;
+    }
+
+    public void setPreviewRenderWorkers(int previewRenderWorkers) {
+      myPreviewRenderWorkers = previewRenderWorkers;
+    }
   }
 }
@@ -22,7 +22,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -34,6 +36,8 @@ public final class ProjectClassLoader extends ClassLoader {
   private final Module myModule;
   private URLClassLoader mJarClassLoader;
   private boolean mInsideJarClassLoader = false;
+  /** Timestamps of the class files defined from module output folders, used to detect recompiled classes */
+  private final Map<File, Long> myClassFileStamps = new HashMap<File, Long>();
 
   public ProjectClassLoader(@Nullable ClassLoader parentClassLoader, Module module) {
     super(parentClassLoader);
@@ -66,6 +70,21 @@ public final class ProjectClassLoader extends ClassLoader {
     throw new ClassNotFoundException(name);
   }
 
+  /**
+   * Returns false if any class file this loader defined a class from has been modified or deleted since,
+   * in which case the loaded classes are stale and a new loader must be used to pick up the changes
+   */
+  public boolean isUpToDate() {
+    synchronized (myClassFileStamps) {
+      for (Map.Entry<File, Long> entry : myClassFileStamps.entrySet()) {
+        if (entry.getKey().lastModified() != entry.getValue()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   @Nullable
   private Class<?> loadClassFromModuleOrDependency(Module module, String name, Set<Module> visited) {
     if (!visited.add(module)) {
@@ -149,6 +168,7 @@ public final class ProjectClassLoader extends ClassLoader {
       return null;
     }
 
+    final long stamp = classFile.lastModified();
     final DataInputStream fis;
     try {
       fis = new DataInputStream(new FileInputStream(classFile));
@@ -169,6 +189,9 @@ public final class ProjectClassLoader extends ClassLoader {
       if (data != null) {
         final Class<?> aClass = defineClass(null, data, 0, data.length);
         if (aClass != null) {
+          synchronized (myClassFileStamps) {
+            myClassFileStamps.put(classFile, stamp);
+          }
           return aClass;
         }
       }
@@ -155,6 +155,13 @@ public class ViewLoader {
     }
   }
 
+  /**
+   * Returns false if any of the project classes loaded so far have been recompiled since
+   */
+  public boolean isUpToDate() {
+    return myProjectClassLoader == null || myProjectClassLoader.isUpToDate();
+  }
+
   @Nullable
   private Class<?> loadClass(String className) throws IncompatibleClassFileFormatException {
     try {
@@ -29,6 +29,7 @@ import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleUtil;
 import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModulePackageIndex;
 import com.intellij.openapi.roots.ModuleRootManager;
@@ -38,6 +39,8 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.ReadonlyStatusHandler;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlAttributeValue;
 import com.intellij.psi.xml.XmlFile;
@@ -46,7 +49,9 @@ import com.intellij.util.ArrayUtil;
 import com.intellij.util.Processor;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.HashSet;
+import com.intellij.util.indexing.FileBasedIndex;
 import org.jetbrains.android.AndroidFileTemplateProvider;
+import org.jetbrains.android.AndroidRFieldIndex;
 import org.jetbrains.android.dom.manifest.Manifest;
 import org.jetbrains.android.dom.resources.Item;
 import org.jetbrains.android.dom.resources.ResourceElement;
@@ -103,11 +108,78 @@ public class AndroidResourceUtil {
 
   @NotNull
   public static PsiField[] findResourceFields(@NotNull AndroidFacet facet,
-                                              @NotNull String resClassName,
+                                              @NotNull final String resClassName,
                                               @NotNull String resourceName,
                                               boolean onlyInOwnPackages) {
-    resourceName = getRJavaFieldName(resourceName);
+    final String fieldName = getRJavaFieldName(resourceName);
+    final Project project = facet.getModule().getProject();
 
+    if (DumbService.isDumb(project)) {
+      return findResourceFieldsInRJavaFiles(facet, resClassName, fieldName, onlyInOwnPackages);
+    }
+    final Map<Module, Set<String>> rPackages = collectRPackages(facet, onlyInOwnPackages);
+    final PsiManager psiManager = PsiManager.getInstance(project);
+    final FileBasedIndex index = FileBasedIndex.getInstance();
+    final List<PsiField> result = new ArrayList<PsiField>();
+
+    for (Map.Entry<Module, Set<String>> entry : rPackages.entrySet()) {
+      final GlobalSearchScope scope = GlobalSearchScope.moduleScope(entry.getKey());
+
+      for (String packageName : entry.getValue()) {
+        final String key = AndroidRFieldIndex.createKey(packageName, resClassName, fieldName);
+
+        index.processValues(AndroidRFieldIndex.INDEX_ID, key, null, new FileBasedIndex.ValueProcessor<Integer>() {
+          @Override
+          public boolean process(VirtualFile file, Integer offset) {
+            final PsiField field = findRField(psiManager, file, offset, resClassName, fieldName);
+
+            if (field != null && !result.contains(field)) {
+              result.add(field);
+            }
+            return true;
+          }
+        }, scope);
+      }
+    }
+    return result.toArray(new PsiField[result.size()]);
+  }
+
+  /**
+   * Returns the field declared at the given offset of an R file, if it is still the field the index points to
+   */
+  @Nullable
+  private static PsiField findRField(@NotNull PsiManager psiManager,
+                                     @NotNull VirtualFile file,
+                                     int offset,
+                                     @NotNull String resClassName,
+                                     @NotNull String fieldName) {
+    final PsiFile psiFile = psiManager.findFile(file);
+
+    if (!(psiFile instanceof PsiJavaFile)) {
+      return null;
+    }
+    final PsiField field = PsiTreeUtil.getParentOfType(psiFile.findElementAt(offset), PsiField.class);
+
+    if (field == null || !fieldName.equals(field.getName())) {
+      return null;
+    }
+    final PsiClass resourceTypeClass = field.getContainingClass();
+
+    if (resourceTypeClass == null || !resClassName.equals(resourceTypeClass.getName())) {
+      return null;
+    }
+    final PsiClass rClass = resourceTypeClass.getContainingClass();
+    return rClass != null && AndroidUtils.R_CLASS_NAME.equals(rClass.getName()) ? field : null;
+  }
+
+  /**
+   * Finds the fields by loading the R files; used while the indices are being updated
+   */
+  @NotNull
+  private static PsiField[] findResourceFieldsInRJavaFiles(@NotNull AndroidFacet facet,
+                                                           @NotNull String resClassName,
+                                                           @NotNull String fieldName,
+                                                           boolean onlyInOwnPackages) {
     final List<PsiJavaFile> rClassFiles = findRJavaFiles(facet, onlyInOwnPackages);
     final List<PsiField> result = new ArrayList<PsiField>();
 
@@ -121,7 +193,7 @@ public class AndroidResourceUtil {
         final PsiClass resourceTypeClass = findClass(rClass.getInnerClasses(), resClassName);
 
         if (resourceTypeClass != null) {
-          final PsiField field = resourceTypeClass.findFieldByName(resourceName, false);
+          final PsiField field = resourceTypeClass.findFieldByName(fieldName, false);
 
           if (field != null) {
             result.add(field);
@@ -134,20 +206,24 @@ public class AndroidResourceUtil {
 
   @NotNull
   private static List<PsiJavaFile> findRJavaFiles(@NotNull AndroidFacet facet, boolean onlyInOwnPackages) {
-    final Module module = facet.getModule();
-    final Project project = module.getProject();
-    final Manifest manifest = facet.getManifest();
+    final Project project = facet.getModule().getProject();
+    final Set<VirtualFile> dirs = new HashSet<VirtualFile>();
 
-    if (manifest == null) {
-      return Collections.emptyList();
+    for (Map.Entry<Module, Set<String>> entry : collectRPackages(facet, onlyInOwnPackages).entrySet()) {
+      for (String packageName : entry.getValue()) {
+        ModulePackageIndex.getInstance(entry.getKey()).getDirsByPackageName(packageName, false).forEach(new Processor<VirtualFile>() {
+          @Override
+          public boolean process(final VirtualFile directory) {
+            dirs.add(directory);
+            return true;
+          }
+        });
+      }
     }
-    final Set<PsiDirectory> dirs = new HashSet<PsiDirectory>();
-    collectDirsForPackage(module, project, null, dirs, new HashSet<Module>(), onlyInOwnPackages);
-
     final List<PsiJavaFile> rJavaFiles = new ArrayList<PsiJavaFile>();
 
-    for (PsiDirectory dir : dirs) {
-      final VirtualFile file = dir.getVirtualFile().findChild(AndroidCommonUtils.R_JAVA_FILENAME);
+    for (VirtualFile dir : dirs) {
+      final VirtualFile file = dir.findChild(AndroidCommonUtils.R_JAVA_FILENAME);
 
       if (file != null) {
         final PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
@@ -160,28 +236,34 @@ public class AndroidResourceUtil {
     return rJavaFiles;
   }
 
-  private static void collectDirsForPackage(Module module,
-                                            final Project project,
-                                            @Nullable String packageName,
-                                            final Set<PsiDirectory> dirs,
-                                            Set<Module> visitedModules,
-                                            boolean onlyInOwnPackages) {
+  /**
+   * Returns the packages of the R classes which may contain the resources of the given facet, by the modules
+   * the R classes are generated in
+   */
+  @NotNull
+  private static Map<Module, Set<String>> collectRPackages(@NotNull AndroidFacet facet, boolean onlyInOwnPackages) {
+    if (facet.getManifest() == null) {
+      return Collections.emptyMap();
+    }
+    final Module module = facet.getModule();
+    final Map<Module, Set<String>> result = new LinkedHashMap<Module, Set<String>>();
+    collectPackagesForModule(module, module.getProject(), null, result, new HashSet<Module>(), onlyInOwnPackages);
+    return result;
+  }
+
+  private static void collectPackagesForModule(Module module,
+                                               final Project project,
+                                               @Nullable String packageName,
+                                               final Map<Module, Set<String>> result,
+                                               Set<Module> visitedModules,
+                                               boolean onlyInOwnPackages) {
     if (!visitedModules.add(module)) {
       return;
     }
+    final Set<String> packages = new LinkedHashSet<String>();
 
     if (packageName != null) {
-      ModulePackageIndex.getInstance(module).getDirsByPackageName(packageName, false).forEach(new Processor<VirtualFile>() {
-        @Override
-        public boolean process(final VirtualFile directory) {
-          final PsiDirectory psiDir = PsiManager.getInstance(project).findDirectory(directory);
-
-          if (psiDir != null) {
-            dirs.add(psiDir);
-          }
-          return true;
-        }
-      });
+      packages.add(packageName);
     }
     final AndroidFacet ownFacet = AndroidFacet.getInstance(module);
     String ownPackageName = null;
@@ -190,25 +272,19 @@ public class AndroidResourceUtil {
       final Manifest ownManifest = ownFacet.getManifest();
       ownPackageName = ownManifest != null ? ownManifest.getPackage().getValue() : null;
 
-      if (ownPackageName != null && !ownPackageName.equals(packageName)) {
-        ModulePackageIndex.getInstance(module).getDirsByPackageName(ownPackageName, false).forEach(new Processor<VirtualFile>() {
-          @Override
-          public boolean process(final VirtualFile directory) {
-            final PsiDirectory psiDir = PsiManager.getInstance(project).findDirectory(directory);
-
-            if (psiDir != null) {
-              dirs.add(psiDir);
-            }
-            return true;
-          }
-        });
+      if (ownPackageName != null) {
+        packages.add(ownPackageName);
       }
     }
 
+    if (!packages.isEmpty()) {
+      result.put(module, packages);
+    }
+
     for (Module otherModule : ModuleManager.getInstance(project).getModules()) {
       if (ModuleRootManager.getInstance(otherModule).isDependsOn(module)) {
-        collectDirsForPackage(otherModule, project, packageName != null || onlyInOwnPackages ? packageName : ownPackageName, dirs,
-                              visitedModules, onlyInOwnPackages);
+        collectPackagesForModule(otherModule, project, packageName != null || onlyInOwnPackages ? packageName : ownPackageName, result,
+                                 visitedModules, onlyInOwnPackages);
       }
     }
   }
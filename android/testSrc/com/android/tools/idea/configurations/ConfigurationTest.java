@@ -15,11 +15,14 @@
  */
 package com.android.tools.idea.configurations;
 
+import com.android.ide.common.rendering.api.ResourceValue;
+import com.android.ide.common.resources.ResourceResolver;
 import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.ide.common.resources.configuration.LanguageQualifier;
 import com.android.ide.common.resources.configuration.RegionQualifier;
 import com.android.ide.common.resources.configuration.VersionQualifier;
 import com.android.resources.NightMode;
+import com.android.resources.ResourceType;
 import com.android.resources.ScreenOrientation;
 import com.android.resources.ScreenSize;
 import com.android.resources.UiMode;
@@ -27,10 +30,17 @@ import com.android.sdklib.IAndroidTarget;
 import com.android.sdklib.devices.Device;
 import com.android.sdklib.devices.State;
 import com.android.tools.idea.rendering.Locale;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import org.jetbrains.android.AndroidTestCase;
 import org.jetbrains.android.facet.AndroidFacet;
 
+import java.util.Map;
+
 import static com.android.tools.idea.configurations.ConfigurationListener.CFG_ACTIVITY;
 import static com.android.tools.idea.configurations.ConfigurationListener.CFG_NIGHT_MODE;
 import static com.android.tools.idea.configurations.ConfigurationListener.CFG_THEME;
@@ -252,4 +262,71 @@ public class ConfigurationTest extends AndroidTestCase {
     assertNotNull(target);
     assertTrue(target.getVersion().getApiLevel() >= 11);
   }
+
+  public void testPatchConfiguredProjectResources() throws Exception {
+    VirtualFile file = myFixture.copyFileToProject("resourceRepository/values.xml", "res/values/myvalues.xml");
+    myFixture.copyFileToProject("resourceRepository/layout.xml", "res/layout/layout1.xml");
+    final PsiFile psiFile = PsiManager.getInstance(getProject()).findFile(file);
+    assertNotNull(psiFile);
+    final AndroidFacet facet = AndroidFacet.getInstance(myModule);
+    Configuration configuration = Configuration.create(facet.getConfigurationManager(), null, new FolderConfiguration());
+    Configuration copy = Configuration.copy(configuration);
+
+    Map<ResourceType, Map<String, ResourceValue>> original = configuration.getConfiguredProjectResources();
+    assertSame(original, copy.getConfiguredProjectResources());
+    assertEquals("Screen Slide", original.get(ResourceType.STRING).get("title_screen_slide").getValue());
+    Map<String, ResourceValue> layouts = original.get(ResourceType.LAYOUT);
+    assertNotNull(layouts);
+    ResourceResolver resolver = configuration.getResourceResolver();
+    assertNotNull(resolver);
+
+    final PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    final Document document = documentManager.getDocument(psiFile);
+    assertNotNull(document);
+    final int offset = document.getText().indexOf("Screen Slide");
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.replaceString(offset, offset + "Screen".length(), "Scrolling");
+        documentManager.commitDocument(document);
+      }
+    });
+
+    Map<ResourceType, Map<String, ResourceValue>> patched = configuration.getConfiguredProjectResources();
+    assertNotSame(original, patched);
+    assertEquals("Scrolling Slide", patched.get(ResourceType.STRING).get("title_screen_slide").getValue());
+    // Only the map of the changed type is copied
+    assertSame(layouts, patched.get(ResourceType.LAYOUT));
+    // The resolver is kept, and sees the changed value
+    assertSame(resolver, configuration.getResourceResolver());
+    assertEquals("Scrolling Slide", resolver.findResValue("@string/title_screen_slide", false).getValue());
+
+    // The previous maps, which the copy still uses, are left as they were
+    assertEquals("Screen Slide", original.get(ResourceType.STRING).get("title_screen_slide").getValue());
+    Map<ResourceType, Map<String, ResourceValue>> patchedCopy = copy.getConfiguredProjectResources();
+    assertNotSame(original, patchedCopy);
+    assertEquals("Scrolling Slide", patchedCopy.get(ResourceType.STRING).get("title_screen_slide").getValue());
+  }
+
+  public void testSharedFrameworkResources() throws Exception {
+    final AndroidFacet facet = AndroidFacet.getInstance(myModule);
+    assertNotNull(facet);
+    ConfigurationManager manager = facet.getConfigurationManager();
+    assertNotNull(manager);
+
+    Configuration configuration1 = Configuration.create(manager, null, new FolderConfiguration());
+    Configuration configuration2 = Configuration.create(manager, null, new FolderConfiguration());
+    // Need valid layoutlib install
+    assertNotNull("No framework resources; is layoutlib missing from the test SDK?", configuration1.getFrameworkResources());
+    assertSame(configuration1.getConfiguredFrameworkResources(), configuration2.getConfiguredFrameworkResources());
+    Configuration copy = Configuration.copy(configuration1);
+    assertSame(configuration1.getConfiguredFrameworkResources(), copy.getConfiguredFrameworkResources());
+
+    configuration2.setLocale(Locale.create("en-rUS"));
+    assertNotSame(configuration1.getConfiguredFrameworkResources(), configuration2.getConfiguredFrameworkResources());
+
+    configuration1.dispose();
+    copy.dispose();
+    configuration2.dispose();
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.ddms.screenshot;
+
+import com.android.ddmlib.IDevice;
+import com.android.ddmlib.RawImage;
+import junit.framework.TestCase;
+import org.easymock.EasyMock;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LiveScreenCaptureTest extends TestCase {
+  private final List<List<Rectangle>> myChangedTiles = new ArrayList<List<Rectangle>>();
+  private final List<BufferedImage> myFrames = new ArrayList<BufferedImage>();
+
+  private final LiveScreenCapture.Listener myListener = new LiveScreenCapture.Listener() {
+    @Override
+    public void frameCaptured(@NotNull BufferedImage frame, @NotNull List<Rectangle> changedTiles) {
+      myChangedTiles.add(changedTiles);
+      //noinspection UndesirableClassUsage
+      BufferedImage copy = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_ARGB);
+      copy.setData(frame.getRaster());
+      myFrames.add(copy);
+    }
+
+    @Override
+    public void captureFailed(@NotNull String message) {
+      fail(message);
+    }
+  };
+
+  public void testChangedTiles() throws Exception {
+    RawImage first = createFrame(100, 80);
+    RawImage second = createFrame(100, 80);
+    setPixel(second, 70, 5, 0xFF0000FF);
+    RawImage third = createFrame(120, 80);
+
+    IDevice device = EasyMock.createMock(IDevice.class);
+    EasyMock.expect(device.getScreenshot()).andReturn(first).andReturn(second).andReturn(second).andReturn(third);
+    EasyMock.replay(device);
+
+    LiveScreenCapture capture = new LiveScreenCapture(device, myListener);
+
+    // The first frame is new everywhere
+    assertNull(capture.captureFrame());
+    assertEquals(Collections.singletonList(new Rectangle(0, 0, 100, 80)), myChangedTiles.get(0));
+
+    // Only the tile containing the changed pixel
+    assertNull(capture.captureFrame());
+    assertEquals(Collections.singletonList(new Rectangle(64, 0, 36, 64)), myChangedTiles.get(1));
+    assertEquals(0xFF0000FF, myFrames.get(1).getRGB(70, 5));
+    assertEquals(0xFF000000, myFrames.get(1).getRGB(69, 5));
+
+    // Nothing changed, so the listener isn't called
+    assertNull(capture.captureFrame());
+    assertEquals(2, myChangedTiles.size());
+
+    // The screen size changed
+    assertNull(capture.captureFrame());
+    assertEquals(Collections.singletonList(new Rectangle(0, 0, 120, 80)), myChangedTiles.get(2));
+
+    EasyMock.verify(device);
+  }
+
+  public void testCaptureFailed() throws Exception {
+    IDevice device = EasyMock.createMock(IDevice.class);
+    EasyMock.expect(device.getScreenshot()).andThrow(new IOException("device offline"));
+    EasyMock.replay(device);
+
+    LiveScreenCapture capture = new LiveScreenCapture(device, myListener);
+    String error = capture.captureFrame();
+    assertNotNull(error);
+    assertTrue(error, error.contains("device offline"));
+    assertTrue(myChangedTiles.isEmpty());
+  }
+
+  public void testFindChangedTiles() {
+    int width = 130;
+    int height = 70;
+    int[] previous = new int[width * height];
+    int[] current = new int[width * height];
+    assertTrue(LiveScreenCapture.findChangedTiles(previous, current, width, height).isEmpty());
+
+    current[0] = 1;
+    current[69 * width + 129] = 1;
+    assertEquals(Arrays.asList(new Rectangle(0, 0, 64, 64), new Rectangle(128, 64, 2, 6)),
+                 LiveScreenCapture.findChangedTiles(previous, current, width, height));
+  }
+
+  /** Returns an opaque black RGBA 8888 frame */
+  private static RawImage createFrame(int width, int height) {
+    RawImage rawImage = RawImageConverterTest.createRawImage(32, 0, 8, 8, 8, 16, 8, 24, 8);
+    rawImage.width = width;
+    rawImage.height = height;
+    rawImage.size = width * height * 4;
+    rawImage.data = new byte[rawImage.size];
+    for (int i = 3; i < rawImage.data.length; i += 4) {
+      rawImage.data[i] = (byte)0xFF;
+    }
+    return rawImage;
+  }
+
+  private static void setPixel(RawImage rawImage, int x, int y, int argb) {
+    int offset = (x + y * rawImage.width) * 4;
+    rawImage.data[offset] = (byte)(argb >> 16);
+    rawImage.data[offset + 1] = (byte)(argb >> 8);
+    rawImage.data[offset + 2] = (byte)argb;
+    rawImage.data[offset + 3] = (byte)(argb >>> 24);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.ddms.screenshot;
+
+import com.android.ddmlib.RawImage;
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+public class RawImageConverterTest extends TestCase {
+  public void testRgb565() {
+    checkConversion(createRawImage(16, 11, 5, 5, 6, 0, 5, 0, 0));
+  }
+
+  public void testRgba8888() {
+    checkConversion(createRawImage(32, 0, 8, 8, 8, 16, 8, 24, 8));
+  }
+
+  public void testBgra8888() {
+    checkConversion(createRawImage(32, 16, 8, 8, 8, 0, 8, 24, 8));
+  }
+
+  public void testRgbx8888() {
+    checkConversion(createRawImage(32, 0, 8, 8, 8, 16, 8, 0, 0));
+  }
+
+  public void testUnsupported() {
+    RawImage rawImage = createRawImage(24, 0, 8, 8, 8, 16, 8, 0, 0);
+    assertFalse(RawImageConverter.isSupported(rawImage));
+    try {
+      RawImageConverter.toImage(rawImage);
+      fail();
+    }
+    catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private static void checkConversion(RawImage rawImage) {
+    BufferedImage image = RawImageConverter.toImage(rawImage);
+    assertEquals(rawImage.width, image.getWidth());
+    assertEquals(rawImage.height, image.getHeight());
+
+    for (int y = 0; y < rawImage.height; y++) {
+      for (int x = 0; x < rawImage.width; x++) {
+        int expected = rawImage.getARGB((x + y * rawImage.width) * (rawImage.bpp / 8));
+        assertEquals(expected, image.getRGB(x, y));
+      }
+    }
+  }
+
+  static RawImage createRawImage(int bpp,
+                                 int redOffset, int redLength,
+                                 int greenOffset, int greenLength,
+                                 int blueOffset, int blueLength,
+                                 int alphaOffset, int alphaLength) {
+    RawImage rawImage = new RawImage();
+    rawImage.bpp = bpp;
+    rawImage.width = 37;
+    rawImage.height = 23;
+    rawImage.size = rawImage.width * rawImage.height * bpp / 8;
+    rawImage.red_offset = redOffset;
+    rawImage.red_length = redLength;
+    rawImage.green_offset = greenOffset;
+    rawImage.green_length = greenLength;
+    rawImage.blue_offset = blueOffset;
+    rawImage.blue_length = blueLength;
+    rawImage.alpha_offset = alphaOffset;
+    rawImage.alpha_length = alphaLength;
+    rawImage.data = new byte[rawImage.size];
+    new Random(bpp).nextBytes(rawImage.data);
+    return rawImage;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.android.ide.common.rendering.api.RenderSession;
+import com.android.tools.idea.configurations.Configuration;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.android.AndroidTestCase;
+import org.jetbrains.android.facet.AndroidFacet;
+
+@SuppressWarnings("ConstantConditions")
+public class RenderSessionCacheTest extends AndroidTestCase {
+  private RenderSessionCache myCache;
+  private RenderSessionCache.SessionKey myKey;
+  private PsiFile myPsiFile;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    VirtualFile file = myFixture.copyFileToProject("xmlpull/layout.xml", "res/layout/layout1.xml");
+    myPsiFile = PsiManager.getInstance(getProject()).findFile(file);
+    Configuration configuration = AndroidFacet.getInstance(myModule).getConfigurationManager().getConfiguration(file);
+    myCache = new RenderSessionCache();
+    myKey = new RenderSessionCache.SessionKey(myPsiFile, configuration, "@style/Theme", 1);
+  }
+
+  public void testCheckedOutSessionIsNotHandedOutAgain() {
+    TestSession session = new TestSession();
+    myCache.putSession(myKey, "state", session, null);
+    assertNull(myCache.getSession(myKey, "state"));
+
+    myCache.releaseSession(session);
+    assertSame(session, myCache.getSession(myKey, "state"));
+    assertNull(myCache.getSession(myKey, "state"));
+
+    myCache.releaseSession(session);
+    assertNull(myCache.getSession(myKey, "other state"));
+    assertFalse(session.disposed);
+  }
+
+  public void testInvalidateDefersDisposeOfCheckedOutSession() {
+    TestSession inUse = new TestSession();
+    myCache.putSession(myKey, "state", inUse, null);
+
+    myCache.invalidate();
+    assertFalse(inUse.disposed);
+    assertNull(myCache.getSession(myKey, "state"));
+
+    myCache.releaseSession(inUse);
+    assertTrue(inUse.disposed);
+  }
+
+  public void testReplacedSessionIsDisposedWhenReleased() {
+    TestSession first = new TestSession();
+    myCache.putSession(myKey, "state", first, null);
+    myCache.releaseSession(first);
+
+    assertSame(first, myCache.getSession(myKey, "state"));
+    TestSession second = new TestSession();
+    myCache.putSession(myKey, "new state", second, null);
+    assertFalse(first.disposed);
+
+    myCache.releaseSession(first);
+    assertTrue(first.disposed);
+    myCache.releaseSession(second);
+    assertFalse(second.disposed);
+    assertSame(second, myCache.getSession(myKey, "new state"));
+  }
+
+  public void testRemoveSession() {
+    TestSession session = new TestSession();
+    myCache.putSession(myKey, "state", session, null);
+    myCache.removeSession(session);
+    assertTrue(session.disposed);
+    assertNull(myCache.getSession(myKey, "state"));
+  }
+
+  public void testReleaseUnknownSession() {
+    TestSession session = new TestSession();
+    myCache.releaseSession(session);
+    assertFalse(session.disposed);
+  }
+
+  public void testResultKeepsSessionCheckedOutUntilDisposed() {
+    RenderSessionCache cache = RenderSessionCache.get(myModule);
+    TestSession session = new TestSession();
+    cache.putSession(myKey, "state", session, null);
+
+    RenderResult result = new RenderResult(null, session, myPsiFile, new RenderLogger("test", myModule));
+    assertNull(cache.getSession(myKey, "state"));
+
+    result.dispose();
+    assertSame(session, cache.getSession(myKey, "state"));
+    cache.releaseSession(session);
+
+    // Disposing again doesn't release the session a second time, which by now may be used by someone else
+    assertSame(session, cache.getSession(myKey, "state"));
+    result.dispose();
+    assertNull(cache.getSession(myKey, "state"));
+    cache.removeSession(session);
+  }
+
+  private static class TestSession extends RenderSession {
+    private boolean disposed;
+
+    @Override
+    public void dispose() {
+      disposed = true;
+    }
+  }
+}
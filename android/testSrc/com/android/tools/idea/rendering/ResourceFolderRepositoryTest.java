@@ -20,6 +20,7 @@ import com.android.ide.common.res2.ResourceItem;
 import com.android.resources.Density;
 import com.android.resources.ResourceFolderType;
 import com.android.resources.ResourceType;
+import com.android.util.Pair;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -36,6 +37,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import static com.android.SdkConstants.*;
@@ -938,6 +940,48 @@ public class ResourceFolderRepositoryTest extends AndroidTestCase {
     ensureIncremental();
   }
 
+  public void testChangedResources() throws Exception {
+    resetScanCounter();
+    VirtualFile file1 = myFixture.copyFileToProject(VALUES1, "res/values/myvalues.xml");
+    PsiFile psiFile1 = PsiManager.getInstance(getProject()).findFile(file1);
+    assertNotNull(psiFile1);
+
+    ResourceFolderRepository resources = createRepository();
+    assertNotNull(resources);
+
+    // Observe the value such that edits to it are tracked
+    List<ResourceItem> labelList = resources.getResourceItem(ResourceType.STRING, "title_screen_slide");
+    assertNotNull(labelList);
+    assertNotNull(labelList.get(0).getResourceValue(false));
+
+    long stamp = resources.getChangeStamp();
+    assertEquals(Collections.<Pair<ResourceType, String>>emptySet(), resources.getChangedResources(stamp));
+
+    final PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    final Document document = documentManager.getDocument(psiFile1);
+    assertNotNull(document);
+
+    final int screenSlideOffset = document.getText().indexOf("Screen Slide");
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.replaceString(screenSlideOffset + 3, screenSlideOffset + 3, "e");
+        documentManager.commitDocument(document);
+      }
+    });
+    assertEquals(Collections.singleton(Pair.of(ResourceType.STRING, "title_screen_slide")), resources.getChangedResources(stamp));
+    ensureIncremental();
+
+    // Adding a file is not tracked per resource
+    VirtualFile file2 = myFixture.copyFileToProject(LAYOUT1, "res/layout/layout1.xml");
+    assertNotNull(PsiManager.getInstance(getProject()).findFile(file2));
+    assertNull(resources.getChangedResources(stamp));
+
+    // Changes after that are tracked again
+    stamp = resources.getChangeStamp();
+    assertEquals(Collections.<Pair<ResourceType, String>>emptySet(), resources.getChangedResources(stamp));
+  }
+
   public void testNestedEditValueText() throws Exception {
     resetScanCounter();
 
@@ -1096,6 +1140,103 @@ public class ResourceFolderRepositoryTest extends AndroidTestCase {
     ensureIncremental();
   }
 
+  public void testEditRestoredValues() throws Exception {
+    VirtualFile file1 = myFixture.copyFileToProject(VALUES1, "res/values/myvalues.xml");
+    PsiFile psiFile1 = PsiManager.getInstance(getProject()).findFile(file1);
+    assertNotNull(psiFile1);
+    VirtualFile dir = file1.getParent().getParent();
+
+    ResourceFolderRepository.ourSnapshotsInTests = true;
+    ResourceFolderRepository resources;
+    try {
+      // The first repository scans the folder and saves a snapshot; the registered one is restored from it
+      ResourceFolderRepository.create(myFacet, dir);
+      resetScanCounter();
+      resources = createRepository();
+    }
+    finally {
+      ResourceFolderRepository.ourSnapshotsInTests = false;
+    }
+    assertEquals(8, resources.getItemsOfType(ResourceType.STRING).size());
+    assertTrue(resources.hasResourceItem(ResourceType.STRING, "app_name"));
+    assertTrue(resources.hasResourceItem(ResourceType.ATTR, "watchType"));
+
+    ResourceItem slideLabel = getOnlyItem(resources, ResourceType.STRING, "title_screen_slide");
+    assertTrue(((PsiResourceItem)slideLabel).isTagPending());
+
+    final PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    final Document document = documentManager.getDocument(psiFile1);
+    assertNotNull(document);
+
+    // Delete a restored value whose tag hasn't been looked up yet
+    long generation = resources.getModificationCount();
+    final String textToRemove = "<string name=\"app_name\">Animations Demo</string>";
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        int offset = document.getText().indexOf(textToRemove);
+        document.deleteString(offset, offset + textToRemove.length());
+        documentManager.commitDocument(document);
+      }
+    });
+    assertTrue(generation < resources.getModificationCount());
+    assertFalse(resources.hasResourceItem(ResourceType.STRING, "app_name"));
+    assertEquals(7, resources.getItemsOfType(ResourceType.STRING).size());
+
+    // Edit the text of another restored value
+    final int screenSlideOffset = document.getText().indexOf("Screen Slide");
+    ApplicationManager.getApplication().runWriteAction(new Runnable() {
+      @Override
+      public void run() {
+        document.replaceString(screenSlideOffset + 3, screenSlideOffset + 3, "e");
+        documentManager.commitDocument(document);
+      }
+    });
+    ResourceValue resourceValue = slideLabel.getResourceValue(false);
+    assertNotNull(resourceValue);
+    assertEquals("Screeen Slide", resourceValue.getValue());
+
+    // Neither edit should have needed a full rescan of the restored file
+    ensureIncremental();
+  }
+
+  public void testResolveRestoredValues() throws Exception {
+    VirtualFile file1 = myFixture.copyFileToProject(VALUES1, "res/values/myvalues.xml");
+    myFixture.addFileToProject("res/values/duplicates.xml",
+                               "<resources>\n" +
+                               "    <string name=\"duplicate\">First</string>\n" +
+                               "    <string name=\"duplicate\">Second</string>\n" +
+                               "</resources>\n");
+    VirtualFile dir = file1.getParent().getParent();
+
+    ResourceFolderRepository.ourSnapshotsInTests = true;
+    ResourceFolderRepository resources;
+    try {
+      ResourceFolderRepository.create(myFacet, dir);
+      resources = createRepository();
+    }
+    finally {
+      ResourceFolderRepository.ourSnapshotsInTests = false;
+    }
+
+    // Resolving one restored value looks up the tags of all the items of its file
+    ResourceItem slideLabel = getOnlyItem(resources, ResourceType.STRING, "title_screen_slide");
+    ResourceItem appName = getOnlyItem(resources, ResourceType.STRING, "app_name");
+    assertTrue(((PsiResourceItem)appName).isTagPending());
+    ResourceValue resourceValue = slideLabel.getResourceValue(false);
+    assertNotNull(resourceValue);
+    assertEquals("Screen Slide", resourceValue.getValue());
+    assertFalse(((PsiResourceItem)appName).isTagPending());
+    assertEquals("app_name", ((PsiResourceItem)appName).getResolvedTag().getAttributeValue("name"));
+
+    // Items with the same name are matched to their own tags
+    List<ResourceItem> duplicates = resources.getResourceItem(ResourceType.STRING, "duplicate");
+    assertNotNull(duplicates);
+    assertEquals(2, duplicates.size());
+    assertEquals("First", duplicates.get(0).getResourceValue(false).getValue());
+    assertEquals("Second", duplicates.get(1).getResourceValue(false).getValue());
+  }
+
   public void testChangeType() throws Exception {
     resetScanCounter();
     VirtualFile file1 = myFixture.copyFileToProject(VALUES1, "res/values/myvalues.xml");
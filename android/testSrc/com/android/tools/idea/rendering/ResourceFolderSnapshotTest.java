@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.android.resources.ResourceType;
+import junit.framework.TestCase;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ResourceFolderSnapshotTest extends TestCase {
+  public void testRoundTrip() throws Exception {
+    ResourceFolderSnapshot snapshot = new ResourceFolderSnapshot("/project/res");
+    snapshot.addFile("values/strings.xml", 100L, 2000L, 42L,
+                     Arrays.asList(new ResourceFolderSnapshot.ItemEntry(ResourceType.STRING, "app_name"),
+                                   new ResourceFolderSnapshot.ItemEntry(ResourceType.ATTR, "custom")));
+    snapshot.addFile("layout/main.xml", 200L, 300L, 7L,
+                     Arrays.asList(new ResourceFolderSnapshot.ItemEntry(ResourceType.LAYOUT, "main"),
+                                   new ResourceFolderSnapshot.ItemEntry(ResourceType.ID, "button1")));
+    snapshot.addFile("values-en/empty.xml", 1L, 2L, 3L, Collections.<ResourceFolderSnapshot.ItemEntry>emptyList());
+
+    ResourceFolderSnapshot copy = ResourceFolderSnapshot.read(toInput(snapshot), "/project/res");
+    assertNotNull(copy);
+
+    ResourceFolderSnapshot.FileEntry strings = copy.getFile("values/strings.xml");
+    assertNotNull(strings);
+    assertEquals(100L, strings.timestamp);
+    assertEquals(2000L, strings.length);
+    assertEquals(42L, strings.checksum);
+    assertEquals(2, strings.items.size());
+    assertEquals(ResourceType.STRING, strings.items.get(0).type);
+    assertEquals("app_name", strings.items.get(0).name);
+    assertEquals(ResourceType.ATTR, strings.items.get(1).type);
+
+    ResourceFolderSnapshot.FileEntry layout = copy.getFile("layout/main.xml");
+    assertNotNull(layout);
+    assertEquals(ResourceType.ID, layout.items.get(1).type);
+    assertEquals("button1", layout.items.get(1).name);
+
+    ResourceFolderSnapshot.FileEntry empty = copy.getFile("values-en/empty.xml");
+    assertNotNull(empty);
+    assertTrue(empty.items.isEmpty());
+
+    assertNull(copy.getFile("values/missing.xml"));
+  }
+
+  public void testDifferentFolder() throws Exception {
+    ResourceFolderSnapshot snapshot = new ResourceFolderSnapshot("/project/res");
+    snapshot.addFile("values/strings.xml", 1L, 2L, 3L, Collections.<ResourceFolderSnapshot.ItemEntry>emptyList());
+    assertNull(ResourceFolderSnapshot.read(toInput(snapshot), "/other/res"));
+  }
+
+  public void testChecksum() {
+    assertEquals(ResourceFolderSnapshot.computeChecksum("<resources/>".getBytes()),
+                 ResourceFolderSnapshot.computeChecksum("<resources/>".getBytes()));
+    assertFalse(ResourceFolderSnapshot.computeChecksum("<resources/>".getBytes()) ==
+                ResourceFolderSnapshot.computeChecksum("<resources />".getBytes()));
+  }
+
+  private static DataInput toInput(ResourceFolderSnapshot snapshot) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    snapshot.write(out);
+    out.close();
+    return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.android;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+
+public class AndroidRFieldIndexTest extends TestCase {
+  private static final String R_JAVA =
+    "/* AUTO-GENERATED FILE.  DO NOT MODIFY. {} */\n" +
+    "\n" +
+    "package com.example.app;\n" +
+    "\n" +
+    "public final class R {\n" +
+    "    public static final class attr {\n" +
+    "        /** <p>Must be a reference to another resource, in the form \"<code>@[+][<i>package</i>:]<i>type</i>:<i>name</i></code>\"\n" +
+    "{@link android.R.attr#foo} */\n" +
+    "        public static final int foo=0x7f010000;\n" +
+    "    }\n" +
+    "    public static final class string {\n" +
+    "        public static int app_name=0x7f020000;\n" +
+    "    }\n" +
+    "    public static final class styleable {\n" +
+    "        public static final int[] MyView = {\n" +
+    "            0x7f010000, 0x7f010001\n" +
+    "        };\n" +
+    "        public static final int MyView_foo = 0;\n" +
+    "    }\n" +
+    "}\n";
+
+  public void testScan() {
+    Map<String, Integer> fields = new AndroidRFieldIndex.RFileScanner(R_JAVA).scan();
+
+    assertEquals(4, fields.size());
+    assertOffset(fields, "attr", "foo");
+    assertOffset(fields, "string", "app_name");
+    assertOffset(fields, "styleable", "MyView");
+    assertOffset(fields, "styleable", "MyView_foo");
+  }
+
+  public void testOtherClass() {
+    String text = "package com.example.app;\n" +
+                  "public class Other {\n" +
+                  "  public static final class string {\n" +
+                  "    public static final int app_name = 1;\n" +
+                  "  }\n" +
+                  "}\n";
+    assertTrue(new AndroidRFieldIndex.RFileScanner(text).scan().isEmpty());
+  }
+
+  private static void assertOffset(Map<String, Integer> fields, String resClassName, String fieldName) {
+    Integer offset = fields.get(AndroidRFieldIndex.createKey("com.example.app", resClassName, fieldName));
+    assertNotNull(fieldName, offset);
+    assertTrue(R_JAVA.startsWith(fieldName, offset));
+  }
+}
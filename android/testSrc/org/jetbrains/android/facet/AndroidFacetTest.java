@@ -16,7 +16,11 @@
 package org.jetbrains.android.facet;
 
 import com.android.tools.idea.gradle.IdeaAndroidProject;
+import com.intellij.psi.PsiClass;
 import org.jetbrains.android.AndroidTestCase;
+import org.jetbrains.android.util.AndroidUtils;
+
+import java.util.Map;
 
 import static org.easymock.classextension.EasyMock.*;
 
@@ -58,4 +62,27 @@ public class AndroidFacetTest extends AndroidTestCase {
 
     verify(listener1, listener2);
   }
+
+  public void testClassMapCachedUntilMappedClassChanges() {
+    myFixture.addFileToProject("src/p1/p2/MyView.java",
+                               "package p1.p2; public class MyView extends android.view.View { public MyView() { super(null); } }");
+    Map<String, PsiClass> map = getViewClassMap();
+    assertTrue(map.containsKey("p1.p2.MyView"));
+    assertSame(map, getViewClassMap());
+
+    // Classes which don't extend View don't affect the map
+    myFixture.addFileToProject("src/p1/p2/Other.java", "package p1.p2; public class Other {}");
+    assertSame(map, getViewClassMap());
+
+    myFixture.addFileToProject("src/p1/p2/MyView2.java",
+                               "package p1.p2; public class MyView2 extends android.view.View { public MyView2() { super(null); } }");
+    Map<String, PsiClass> newMap = getViewClassMap();
+    assertNotSame(map, newMap);
+    assertTrue(newMap.containsKey("p1.p2.MyView"));
+    assertTrue(newMap.containsKey("p1.p2.MyView2"));
+  }
+
+  private Map<String, PsiClass> getViewClassMap() {
+    return myFacet.getClassMap(AndroidUtils.VIEW_CLASS_NAME, SimpleClassMapConstructor.getInstance());
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.inspections.lint;
+
+import com.android.tools.lint.checks.HardcodedValuesDetector;
+import com.android.tools.lint.checks.UnusedResourceDetector;
+import com.android.tools.lint.detector.api.Issue;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+import org.jetbrains.android.AndroidTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.*;
+
+public class AndroidLintGlobalInspectionContextTest extends AndroidTestCase {
+  @Override
+  protected void configureAdditionalModules(@NotNull TestFixtureBuilder<IdeaProjectTestFixture> projectBuilder,
+                                            @NotNull List<MyAdditionalModuleData> modules) {
+    addModuleWithAndroidFacet(projectBuilder, modules, "lib", true);
+    addModuleWithAndroidFacet(projectBuilder, modules, "app2", false);
+  }
+
+  public void testPartitionModules() {
+    final Module lib = myAdditionalModules.get(0);
+    final Module app2 = myAdditionalModules.get(1);
+
+    // The main module depends on both, but only the library dependency ties modules together
+    List<List<Module>> partitions = AndroidLintGlobalInspectionContext.partitionModules(Arrays.asList(myModule, lib, app2));
+    assertEquals(Arrays.asList(Arrays.asList(myModule, lib), Arrays.asList(app2)), partitions);
+
+    // Libraries are grouped with the modules using them regardless of the order of the modules
+    partitions = AndroidLintGlobalInspectionContext.partitionModules(Arrays.asList(app2, lib, myModule));
+    assertEquals(Arrays.asList(Arrays.asList(app2), Arrays.asList(lib, myModule)), partitions);
+  }
+
+  public void testPartitionModulesIgnoresOtherModules() {
+    final Module lib = myAdditionalModules.get(0);
+
+    // Dependencies on modules which are not partitioned don't join modules
+    final List<List<Module>> partitions = AndroidLintGlobalInspectionContext.partitionModules(Arrays.asList(lib));
+    assertEquals(Arrays.asList(Arrays.asList(lib)), partitions);
+  }
+
+  public void testMergeProblems() {
+    final Issue issue1 = HardcodedValuesDetector.ISSUE;
+    final Issue issue2 = UnusedResourceDetector.ISSUE;
+    final File file1 = new File("a.xml");
+    final File file2 = new File("b.xml");
+    final ProblemData problem1 = new ProblemData(issue1, "1", new TextRange(0, 1));
+    final ProblemData problem2 = new ProblemData(issue1, "2", new TextRange(1, 2));
+    final ProblemData problem3 = new ProblemData(issue1, "3", new TextRange(2, 3));
+    final ProblemData problem4 = new ProblemData(issue2, "4", new TextRange(3, 4));
+
+    final Map<Issue, Map<File, List<ProblemData>>> to = new HashMap<Issue, Map<File, List<ProblemData>>>();
+    addProblem(to, file1, problem1);
+
+    final Map<Issue, Map<File, List<ProblemData>>> from = new HashMap<Issue, Map<File, List<ProblemData>>>();
+    addProblem(from, file1, problem2);
+    addProblem(from, file2, problem3);
+    addProblem(from, file2, problem4);
+
+    AndroidLintGlobalInspectionContext.mergeProblems(from, to);
+
+    assertEquals(2, to.size());
+    assertEquals(2, to.get(issue1).size());
+    assertEquals(Arrays.asList(problem1, problem2), to.get(issue1).get(file1));
+    assertEquals(Arrays.asList(problem3), to.get(issue1).get(file2));
+    assertEquals(1, to.get(issue2).size());
+    assertEquals(Arrays.asList(problem4), to.get(issue2).get(file2));
+  }
+
+  private static void addProblem(@NotNull Map<Issue, Map<File, List<ProblemData>>> problemMap,
+                                 @NotNull File file,
+                                 @NotNull ProblemData problem) {
+    Map<File, List<ProblemData>> file2Problems = problemMap.get(problem.getIssue());
+    if (file2Problems == null) {
+      file2Problems = new HashMap<File, List<ProblemData>>();
+      problemMap.put(problem.getIssue(), file2Problems);
+    }
+    List<ProblemData> problems = file2Problems.get(file);
+    if (problems == null) {
+      problems = new ArrayList<ProblemData>();
+      file2Problems.put(file, problems);
+    }
+    problems.add(problem);
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.android.logcat;
+
+import com.android.ddmlib.Log;
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.text.StringUtil;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+public class AndroidLogcatBufferTest extends TestCase {
+  public void testQueryByTagAndPid() {
+    AndroidLogcatBuffer buffer = new AndroidLogcatBuffer(10);
+    buffer.add(createEntry("first", "Tag1", 1));
+    buffer.add(createEntry("second", "Tag2", 2));
+    buffer.add(createEntry("third", "Tag1", 2));
+    buffer.add(createEntry("fourth", "Other", 1));
+
+    assertEquals(4, buffer.size());
+    assertMessages(buffer.query(0, null, null, null), "first", "second", "third", "fourth");
+    assertMessages(buffer.query(0, startsWith("Tag"), null, null), "first", "second", "third");
+    assertMessages(buffer.query(0, null, 2, null), "second", "third");
+    assertMessages(buffer.query(0, startsWith("Tag1"), 2, null), "third");
+    assertMessages(buffer.query(0, null, 3, null));
+    assertMessages(buffer.query(2, null, null, null), "third", "fourth");
+    assertMessages(buffer.query(0, null, null, new Condition<AndroidLogcatEntry>() {
+      @Override
+      public boolean value(AndroidLogcatEntry entry) {
+        return entry.getMessage().startsWith("f");
+      }
+    }), "first", "fourth");
+  }
+
+  public void testEviction() {
+    AndroidLogcatBuffer buffer = new AndroidLogcatBuffer(3);
+    for (int i = 0; i < 20; i++) {
+      buffer.add(createEntry("message" + i, "Tag" + (i % 2), i % 4));
+    }
+
+    assertEquals(3, buffer.size());
+    assertEquals(20, buffer.getNextSequence());
+    assertMessages(buffer.query(0, null, null, null), "message17", "message18", "message19");
+    assertMessages(buffer.query(0, startsWith("Tag1"), null, null), "message17", "message19");
+    assertMessages(buffer.query(0, null, 0, null));
+    assertEquals(3, buffer.getPids().size());
+    assertEquals(2, buffer.getTags().size());
+
+    buffer.clear();
+    assertEquals(0, buffer.size());
+    assertTrue(buffer.getTags().isEmpty());
+    assertMessages(buffer.query(0, null, null, null));
+  }
+
+  public void testClearKeepsSequenceNumbers() {
+    AndroidLogcatBuffer buffer = new AndroidLogcatBuffer(10);
+    buffer.add(createEntry("first", "Tag1", 1));
+    buffer.add(createEntry("second", "Tag1", 1));
+    buffer.clear();
+    assertEquals(2, buffer.getNextSequence());
+
+    buffer.add(createEntry("third", "Tag1", 1));
+    assertEquals(1, buffer.size());
+    assertEquals(3, buffer.getNextSequence());
+    assertMessages(buffer.query(0, null, null, null), "third");
+    assertMessages(buffer.query(2, null, 1, null), "third");
+    assertMessages(buffer.query(3, null, null, null));
+  }
+
+  public void testMaxRetainedSize() {
+    long entrySize = AndroidLogcatBuffer.getRetainedSize(createEntry("aaaa", "Tag1", 1));
+    AndroidLogcatBuffer buffer = new AndroidLogcatBuffer(10, 3 * entrySize);
+    buffer.add(createEntry("aaaa", "Tag1", 1));
+    buffer.add(createEntry("bbbb", "Tag2", 1));
+    buffer.add(createEntry("cccc", "Tag1", 2));
+    assertEquals(3 * entrySize, buffer.getRetainedSize());
+    assertMessages(buffer.query(0, null, null, null), "aaaa", "bbbb", "cccc");
+
+    // Continuation lines count towards the limit too
+    AndroidLogcatEntry last = buffer.query(0, null, 2, null).get(0);
+    last.addContinuationLine("dd");
+    buffer.continuationLineReceived(last, "dd");
+    assertEquals(entrySize + AndroidLogcatBuffer.getRetainedSize(last), buffer.getRetainedSize());
+    assertMessages(buffer.query(0, null, null, null), "bbbb", "cccc");
+    assertMessages(buffer.query(0, startsWith("Tag1"), null, null), "cccc");
+
+    // The newest entry is kept however long it is
+    buffer.add(createEntry(StringUtil.repeat("a message longer than the limit ", 100), "Tag3", 3));
+    assertEquals(1, buffer.size());
+    assertEquals(1, buffer.getTags().size());
+    assertEquals(1, buffer.getPids().size());
+  }
+
+  public void testContinuationLineOfRemovedEntry() {
+    AndroidLogcatBuffer buffer = new AndroidLogcatBuffer(1);
+    AndroidLogcatEntry first = createEntry("first", "Tag1", 1);
+    buffer.add(first);
+    buffer.clear();
+
+    // Lines of entries which are not in the buffer anymore don't count
+    first.addContinuationLine("line");
+    buffer.continuationLineReceived(first, "line");
+    assertEquals(0, buffer.getRetainedSize());
+
+    AndroidLogcatEntry second = createEntry("second", "Tag1", 1);
+    buffer.add(second);
+    AndroidLogcatEntry third = createEntry("third", "Tag1", 1);
+    buffer.add(third);
+    second.addContinuationLine("line");
+    buffer.continuationLineReceived(second, "line");
+    assertEquals(AndroidLogcatBuffer.getRetainedSize(third), buffer.getRetainedSize());
+  }
+
+  private static Condition<String> startsWith(final String prefix) {
+    return new Condition<String>() {
+      @Override
+      public boolean value(String tag) {
+        return tag.startsWith(prefix);
+      }
+    };
+  }
+
+  private static AndroidLogcatEntry createEntry(String message, String tag, int pid) {
+    AndroidLogcatReceiver.LogMessageHeader header = new AndroidLogcatReceiver.LogMessageHeader();
+    header.myTime = "02-11 16:41:10.621";
+    header.myLogLevel = Log.LogLevel.INFO;
+    header.myPid = pid;
+    header.myTid = "1";
+    header.myAppPackage = "com.example";
+    header.myTag = tag;
+    return new AndroidLogcatEntry(header, message);
+  }
+
+  private static void assertMessages(List<AndroidLogcatEntry> entries, String... messages) {
+    assertEquals(messages.length, entries.size());
+    for (int i = 0; i < messages.length; i++) {
+      assertEquals(messages[i], entries.get(i).getMessage());
+    }
+  }
+}
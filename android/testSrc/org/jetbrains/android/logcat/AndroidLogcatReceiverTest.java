@@ -16,9 +16,13 @@
 
 package org.jetbrains.android.logcat;
 
+import com.android.ddmlib.Log;
 import junit.framework.TestCase;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class AndroidLogcatReceiverTest extends TestCase {
   private static final String SHIFT = "        ";
@@ -91,4 +95,60 @@ public class AndroidLogcatReceiverTest extends TestCase {
       "08-11 21:15:35.7524      540-540/? D/dtag: debug message\n",
                        myWriter.getBuffer().toString());
   }
+
+  public void testEntryListener() {
+    final List<AndroidLogcatEntry> entries = new ArrayList<AndroidLogcatEntry>();
+    final List<String> continuationLines = new ArrayList<String>();
+    AndroidLogcatReceiver receiver = new AndroidLogcatReceiver(null, myWriter, new AndroidLogcatReceiver.LogEntryListener() {
+      @Override
+      public void entryReceived(AndroidLogcatEntry entry) {
+        entries.add(entry);
+      }
+
+      @Override
+      public void continuationLineReceived(AndroidLogcatEntry entry, String text) {
+        assertSame(entries.get(entries.size() - 1), entry);
+        continuationLines.add(text);
+      }
+    });
+
+    receiver.processNewLine("[ 02-11 18:03:35.037 19796:19796 E/AndroidRuntime ]");
+    receiver.processNewLine("FATAL EXCEPTION: main");
+    receiver.processNewLine("at android..performLaunchActivity(ActivityThread.java:2180)");
+
+    assertEquals(1, entries.size());
+    AndroidLogcatEntry entry = entries.get(0);
+    assertEquals(19796, entry.getPid());
+    assertEquals("19796", entry.getTid());
+    assertEquals(Log.LogLevel.ERROR, entry.getLogLevel());
+    assertEquals("AndroidRuntime", entry.getTag());
+    assertEquals("02-11 18:03:35.037", entry.getTime());
+    assertEquals("FATAL EXCEPTION: main", entry.getMessage());
+    assertEquals("02-11 18:03:35.037  19796-19796/? E/AndroidRuntime: FATAL EXCEPTION: main", entry.getText());
+    assertEquals(Arrays.asList(SHIFT + "at android..performLaunchActivity(ActivityThread.java:2180)"), continuationLines);
+    assertEquals(continuationLines, Arrays.asList(entry.getContinuationLines()));
+
+    // The listener prints the entries, so their text is not written as well
+    assertEquals("", myWriter.getBuffer().toString());
+  }
+
+  public void testLinesBeforeFirstMessage() {
+    final List<AndroidLogcatEntry> entries = new ArrayList<AndroidLogcatEntry>();
+    AndroidLogcatReceiver receiver = new AndroidLogcatReceiver(null, myWriter, new AndroidLogcatReceiver.LogEntryListener() {
+      @Override
+      public void entryReceived(AndroidLogcatEntry entry) {
+        entries.add(entry);
+      }
+
+      @Override
+      public void continuationLineReceived(AndroidLogcatEntry entry, String text) {
+      }
+    });
+
+    receiver.processNewLine("--------- beginning of /dev/log/main");
+
+    assertEquals(1, entries.size());
+    assertEquals(SHIFT + "--------- beginning of /dev/log/main", entries.get(0).getText());
+    assertEquals("", entries.get(0).getTag());
+  }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.android.resourceManagers;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ResourceNamePrefixTest extends TestCase {
+  private static final String[] NAMES = {"abc", "app_name", "App_title", "APPLY", "apps", "b", "bb"};
+
+  public void testPrefix() {
+    assertEquals(Arrays.asList("app_name", "App_title", "APPLY", "apps"), ResourceManager.getNamesWithPrefix(NAMES, "app"));
+    assertEquals(Arrays.asList("app_name", "App_title", "APPLY", "apps"), ResourceManager.getNamesWithPrefix(NAMES, "APP"));
+    assertEquals(Arrays.asList("app_name"), ResourceManager.getNamesWithPrefix(NAMES, "app_n"));
+    assertEquals(Arrays.asList("b", "bb"), ResourceManager.getNamesWithPrefix(NAMES, "b"));
+    assertEquals(Collections.<String>emptyList(), ResourceManager.getNamesWithPrefix(NAMES, "c"));
+    assertEquals(Collections.<String>emptyList(), ResourceManager.getNamesWithPrefix(NAMES, "aa"));
+  }
+
+  public void testEmptyPrefix() {
+    assertEquals(Arrays.asList(NAMES), ResourceManager.getNamesWithPrefix(NAMES, ""));
+  }
+
+  public void testEqualToPrefix() {
+    String[] names = {"a", "A", "a_b", "B"};
+    assertEquals(Arrays.asList("a", "A", "a_b"), ResourceManager.getNamesWithPrefix(names, "a"));
+    assertEquals(Arrays.asList("a", "A", "a_b"), ResourceManager.getNamesWithPrefix(names, "A"));
+  }
+}
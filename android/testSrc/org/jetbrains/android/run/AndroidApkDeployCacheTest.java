@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.android.run;
+
+import com.android.ddmlib.IDevice;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.easymock.EasyMock;
+
+import java.io.File;
+
+public class AndroidApkDeployCacheTest extends TestCase {
+  private File myTempDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTempDir = FileUtil.createTempDirectory("deploy", "test");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myTempDir);
+    super.tearDown();
+  }
+
+  public void testInstalledPerDeviceAndPackage() throws Exception {
+    AndroidApkDeployCache cache = new AndroidApkDeployCache();
+    IDevice device1 = createDevice("emulator-5554");
+    IDevice device2 = createDevice("0123456789ABCDEF");
+
+    String hash = cache.getApkHash(createApk("app.apk", "apk contents"));
+    assertNotNull(hash);
+    assertNull(cache.getInstallStamp(device1, "com.example", hash));
+
+    cache.installed(device1, "com.example", hash, "stamp 1");
+    assertEquals("stamp 1", cache.getInstallStamp(device1, "com.example", hash));
+    assertNull(cache.getInstallStamp(device1, "com.example.test", hash));
+    assertNull(cache.getInstallStamp(device2, "com.example", hash));
+
+    cache.installed(device1, "com.example.test", hash, "stamp 2");
+    cache.invalidate(device1, "com.example");
+    assertNull(cache.getInstallStamp(device1, "com.example", hash));
+    assertEquals("stamp 2", cache.getInstallStamp(device1, "com.example.test", hash));
+
+    cache.installed(device2, "com.example", hash, "stamp 3");
+    cache.invalidate(device1);
+    assertNull(cache.getInstallStamp(device1, "com.example.test", hash));
+    assertEquals("stamp 3", cache.getInstallStamp(device2, "com.example", hash));
+  }
+
+  public void testChangedApk() throws Exception {
+    AndroidApkDeployCache cache = new AndroidApkDeployCache();
+    IDevice device = createDevice("emulator-5554");
+
+    File apk = createApk("app.apk", "version 1");
+    String hash1 = cache.getApkHash(apk);
+    assertNotNull(hash1);
+    cache.installed(device, "com.example", hash1, "stamp");
+
+    // Identical contents in another file give the same hash
+    assertEquals(hash1, cache.getApkHash(createApk("copy.apk", "version 1")));
+
+    FileUtil.writeToFile(apk, "version 2 of the apk");
+    String hash2 = cache.getApkHash(apk);
+    assertNotNull(hash2);
+    assertFalse(hash1.equals(hash2));
+    assertNull(cache.getInstallStamp(device, "com.example", hash2));
+
+    assertNull(cache.getApkHash(new File(myTempDir, "missing.apk")));
+  }
+
+  public void testInstallStampFromDumpsys() {
+    String output = "Packages:\n" +
+                    "  Package [com.example.other] (41a2c3d8):\n" +
+                    "    versionCode=7 targetSdk=17\n" +
+                    "    lastUpdateTime=2013-05-10 11:00:00\n" +
+                    "  Package [com.example] (41e2c2a8):\n" +
+                    "    userId=10053 gids=[3003]\n" +
+                    "    versionCode=12 targetSdk=17\n" +
+                    "    versionName=1.2\n" +
+                    "    firstInstallTime=2013-05-10 12:00:00\n" +
+                    "    lastUpdateTime=2013-05-10 12:30:00\n" +
+                    "  Package [com.example.test] (41f0a1b0):\n" +
+                    "    versionCode=1 targetSdk=17\n" +
+                    "    lastUpdateTime=2013-05-10 12:31:00\n";
+
+    assertEquals("versionCode=12 lastUpdateTime=2013-05-10 12:30:00", AndroidApkDeployCache.getInstallStamp("com.example", output));
+    assertEquals("versionCode=1 lastUpdateTime=2013-05-10 12:31:00", AndroidApkDeployCache.getInstallStamp("com.example.test", output));
+    assertNull(AndroidApkDeployCache.getInstallStamp("com.example.missing", output));
+    assertNull(AndroidApkDeployCache.getInstallStamp("com.example", "Unable to find package: com.example\n"));
+  }
+
+  private File createApk(String name, String content) throws Exception {
+    File file = new File(myTempDir, name);
+    FileUtil.writeToFile(file, content);
+    return file;
+  }
+
+  private static IDevice createDevice(String serial) {
+    IDevice device = EasyMock.createMock(IDevice.class);
+    EasyMock.expect(device.getSerialNumber()).andStubReturn(serial);
+    EasyMock.replay(device);
+    return device;
+  }
+}
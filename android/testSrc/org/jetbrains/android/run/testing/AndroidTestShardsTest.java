@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.run.testing;
+
+import junit.framework.TestCase;
+
+import java.util.*;
+
+public class AndroidTestShardsTest extends TestCase {
+  public void testDistributeByDuration() {
+    Map<String, Long> durations = new HashMap<String, Long>();
+    durations.put("A", 70L);
+    durations.put("B", 50L);
+    durations.put("C", 40L);
+    durations.put("D", 30L);
+    durations.put("E", 10L);
+
+    List<List<String>> shards = AndroidTestShards.distribute(Arrays.asList("E", "D", "C", "B", "A"), durations, 2);
+
+    assertEquals(2, shards.size());
+    assertEquals(Arrays.asList("A", "D"), shards.get(0));
+    assertEquals(Arrays.asList("B", "C", "E"), shards.get(1));
+  }
+
+  public void testUnknownDurationsUseAverage() {
+    Map<String, Long> durations = new HashMap<String, Long>();
+    durations.put("A", 100L);
+    durations.put("B", 20L);
+
+    // C and D are assumed to take 60 each
+    List<List<String>> shards = AndroidTestShards.distribute(Arrays.asList("A", "B", "C", "D"), durations, 2);
+
+    assertEquals(Arrays.asList("A", "B"), shards.get(0));
+    assertEquals(Arrays.asList("C", "D"), shards.get(1));
+  }
+
+  public void testEmptyShardsAreDropped() {
+    List<List<String>> shards =
+      AndroidTestShards.distribute(Arrays.asList("A", "B"), Collections.<String, Long>emptyMap(), 4);
+
+    assertEquals(2, shards.size());
+    assertEquals(Arrays.asList("A"), shards.get(0));
+    assertEquals(Arrays.asList("B"), shards.get(1));
+  }
+
+  public void testSplitIntoBatches() {
+    List<List<String>> batches = AndroidTestShards.splitIntoBatches(Arrays.asList("aaaa", "bbb", "cc", "dddddddddd"), 8);
+
+    assertEquals(3, batches.size());
+    assertEquals(Arrays.asList("aaaa", "bbb"), batches.get(0));
+    assertEquals(Arrays.asList("cc"), batches.get(1));
+    assertEquals(Arrays.asList("dddddddddd"), batches.get(2));
+  }
+}